@@ -41,6 +41,7 @@ CREATE TABLE `city` (
   `Population` int NOT NULL DEFAULT '0',
   PRIMARY KEY (`ID`),
   KEY `CountryCode` (`CountryCode`),
+  KEY `PopulationID` (`Population` DESC,`ID`),
   CONSTRAINT `city_ibfk_1` FOREIGN KEY (`CountryCode`) REFERENCES `country` (`Code`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 /*!40101 SET character_set_client = @saved_cs_client */;
@@ -4155,7 +4156,8 @@ CREATE TABLE `country` (
   `HeadOfState` char(60) DEFAULT NULL,
   `Capital` int DEFAULT NULL,
   `Code2` char(2) NOT NULL DEFAULT '',
-  PRIMARY KEY (`Code`)
+  PRIMARY KEY (`Code`),
+  KEY `PopulationCode` (`Population` DESC,`Code`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 /*!40101 SET character_set_client = @saved_cs_client */;
 
@@ -1,26 +1,56 @@
 package com.group13.population;
 
+import com.group13.population.cache.DataChangeDetector;
+import com.group13.population.cache.DataVersion;
+import com.group13.population.db.AdaptiveLimiter;
 import com.group13.population.db.Db;
+import com.group13.population.db.LimitedDb;
 import com.group13.population.repo.CapitalRepo;
 import com.group13.population.repo.CityRepo;
+import com.group13.population.repo.DataAccessException;
+import com.group13.population.repo.DataFingerprintRepo;
 import com.group13.population.repo.PopulationRepo;
+import com.group13.population.repo.ScopeRepo;
 import com.group13.population.repo.WorldRepo;
 import com.group13.population.service.CapitalService;
 import com.group13.population.service.CityService;
 import com.group13.population.service.CountryService;
 import com.group13.population.service.PopulationService;
+import com.group13.population.web.AdminRoutes;
+import com.group13.population.web.AsyncReports;
+import com.group13.population.web.BatchRoutes;
+import com.group13.population.web.Bulkheads;
+import com.group13.population.web.CacheHeaders;
+import com.group13.population.web.CacheWarmer;
 import com.group13.population.web.CapitalApiRoutes;
 import com.group13.population.web.CapitalRoutes;
 import com.group13.population.web.CityApiRoutes;
 import com.group13.population.web.CityRoutes;
 import com.group13.population.web.CountryRoutes;
+import com.group13.population.web.DbGate;
+import com.group13.population.web.ExportJobs;
 import com.group13.population.web.PopulationRoutes;
+import com.group13.population.web.QueryRoutes;
+import com.group13.population.web.RateLimiter;
+import com.group13.population.web.ReportClass;
+import com.group13.population.web.ReportPipeline;
+import com.group13.population.web.ResponseCache;
+import com.group13.population.web.ServerThreads;
 import io.javalin.Javalin;
+import org.eclipse.jetty.server.Server;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Properties;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Main entry point for the World Population Reporting API (R01–R32).
@@ -31,12 +61,35 @@ import java.util.Properties;
  *   <li>Connecting to the database.</li>
  *   <li>Wiring repositories → services → web routes.</li>
  *   <li>Starting the Javalin HTTP server.</li>
+ *   <li>Warming the response cache before {@code /ready} turns green.</li>
+ *   <li>Bumping the data version (and so invalidating every cache) when
+ *       the database contents change.</li>
  * </ul>
  *
  * <p>All report logic lives in the repository, service and route classes.</p>
  */
 public final class App {
 
+    /** App attribute under which {@link #createApp()} stores the cache warmer. */
+    static final String WARMER_ATTRIBUTE = CacheWarmer.class.getName();
+
+    /** App attribute under which {@link #createApp()} stores the data-change detector. */
+    static final String DETECTOR_ATTRIBUTE = DataChangeDetector.class.getName();
+
+    /** Default permits per report class: few heavy exports, many cheap lookups. */
+    private static final Map<ReportClass, Integer> DEFAULT_BULKHEADS = Map.of(
+        ReportClass.EXPORT, 2,
+        ReportClass.TOP_N, 8,
+        ReportClass.AGGREGATE, 4,
+        ReportClass.LOOKUP, 16);
+
+    /** Default rate-limit tokens per report: a full export costs 20 R26s. */
+    private static final Map<ReportClass, Integer> DEFAULT_COSTS = Map.of(
+        ReportClass.EXPORT, 20,
+        ReportClass.TOP_N, 3,
+        ReportClass.AGGREGATE, 5,
+        ReportClass.LOOKUP, 1);
+
     private App() {
         // Utility class – do not instantiate.
     }
@@ -53,10 +106,36 @@ public final class App {
         int port = getIntEnv("PORT", getIntProp(props, "app.port", 7070));
 
         Javalin app = createApp(props);
+
+        // Report "not ready" from the moment the port opens until warm-up is done.
+        CacheWarmer warmer = app.attribute(WARMER_ATTRIBUTE);
+        boolean warmUp = warmer != null && getBoolProp(props, "warmup.enabled", true);
+        if (warmUp) {
+            warmer.markPending();
+        }
+
         app.start(port);
 
+        if (warmUp) {
+            warmer.startAsync(app.port());
+        }
+
+        // Poll for data changes; 0 disables (the admin bump still works).
+        DataChangeDetector detector = app.attribute(DETECTOR_ATTRIBUTE);
+        if (detector != null) {
+            detector.start(getIntProp(props, "data.checkIntervalSeconds", 60));
+        }
+
         // Graceful shutdown hook
-        Runtime.getRuntime().addShutdownHook(new Thread(app::stop));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (warmer != null) {
+                warmer.stop();
+            }
+            if (detector != null) {
+                detector.stop();
+            }
+            app.stop();
+        }));
         return app;
     }
 
@@ -70,40 +149,116 @@ public final class App {
     }
 
     /**
-     * Internal factory that wires DB, repositories, services and routes.
+     * Internal factory that wires DB, repositories, services and routes
+     * (also used by {@link EvidenceBundle}).
      */
-    private static Javalin createApp(Properties props) {
+    static Javalin createApp(Properties props) {
         // 1. Connect DB
         Db db = new Db();
         connectDbFromConfig(db, props);
 
+        // Report queries go through the adaptive limiter; the fingerprint
+        // and warm-up scope queries use the connection directly.
+        AdaptiveLimiter limiter = adaptiveLimiter(props);
+        Db reportDb = limiter == null ? db : new LimitedDb(db, limiter,
+            Duration.ofMillis(getIntProp(props, "db.limiter.maxWaitMillis", LimitedDb.DEFAULT_MAX_WAIT_MILLIS)));
+
         // 2. Repositories
-        WorldRepo worldRepo             = new WorldRepo(db);
-        CityRepo cityRepo               = new CityRepo(db);
-        CapitalRepo capitalRepo         = new CapitalRepo(db);
-        PopulationRepo populationRepo   = new PopulationRepo(db);
+        WorldRepo worldRepo             = new WorldRepo(reportDb);
+        CityRepo cityRepo               = new CityRepo(reportDb);
+        CapitalRepo capitalRepo         = new CapitalRepo(reportDb);
+        PopulationRepo populationRepo   = new PopulationRepo(reportDb);
+        ScopeRepo scopeRepo             = new ScopeRepo(db);
+        DataFingerprintRepo fingerprintRepo = new DataFingerprintRepo(db);
+
+        // Every cache is keyed on this version; bumping it invalidates them all.
+        DataVersion dataVersion = new DataVersion();
 
         // 3. Services
         CountryService countryService       = new CountryService(worldRepo);
         CityService cityService             = new CityService(cityRepo);
         CapitalService capitalService       = new CapitalService(capitalRepo);
-        PopulationService populationService = new PopulationService(populationRepo);
+        PopulationService populationService = new PopulationService(populationRepo, dataVersion);
+
+        // 4. Build Javalin instance + shared report pipeline (response cache)
+        ServerThreads.Mode threads = ServerThreads.Mode.parse(props.getProperty("server.threads"));
+        int maxThreads = getIntProp(props, "server.maxThreads", ServerThreads.DEFAULT_MAX_THREADS);
+        Javalin app = Javalin.create(cfg -> {
+            cfg.showJavalinBanner = false;
+            cfg.jetty.server(() -> new Server(ServerThreads.threadPool(threads, maxThreads)));
+            // Reports are compressed by the pipeline and cached compressed;
+            // Javalin's per-request compression would redo that work.
+            cfg.compression.none();
+        });
+        ResponseCache cache = new ResponseCache(
+            getIntProp(props, "cache.maxEntries", ResponseCache.DEFAULT_MAX_ENTRIES),
+            dataVersion,
+            getIntProp(props, "cache.offHeap.maxMb", 64) * 1024L * 1024L,
+            getIntProp(props, "cache.offHeap.thresholdBytes", ResponseCache.DEFAULT_OFF_HEAP_THRESHOLD));
+        AsyncReports async = asyncReports(props);
+        if (async != null) {
+            async.register(app);
+        }
+        Bulkheads bulkheads = bulkheads(props);
+        RateLimiter rateLimiter = rateLimiter(props);
+        ReportPipeline pipeline = new ReportPipeline(
+            cache, cacheHeaders(props, dataVersion), bulkheads, async, rateLimiter);
 
-        // 4. Build Javalin instance
-        Javalin app = Javalin.create(cfg -> cfg.showJavalinBanner = false);
+        // Anything outside the pipeline that hits a DB outage still gets a 503, not a 500.
+        app.exception(DataAccessException.class, (ex, ctx) -> ReportPipeline.writeFailure(ex, ctx));
 
-        // 5. API routes that query the DB directly (CityApiRoutes / CapitalApiRoutes)
-        new CityApiRoutes(db).register(app);
-        new CapitalApiRoutes(db).register(app);
+        // 5. API routes (/api/cities shares CityService with /reports/cities)
+        new CityApiRoutes(cityService, pipeline).register(app);
+        new CapitalApiRoutes(reportDb, pipeline).register(app);
+        new QueryRoutes(reportDb, pipeline,
+            getIntProp(props, "query.maxLimit", QueryRoutes.DEFAULT_MAX_LIMIT)).register(app);
 
         // 6. CSV report routes (R01–R32)
-        new CountryRoutes(countryService).register(app);          // R01–R06
-        CityRoutes.register(app, cityService);                    // R07–R16
-        CapitalRoutes.register(app, capitalService);              // R17–R22
-        new PopulationRoutes(populationService).register(app);    // R23–R32
+        new CountryRoutes(countryService, pipeline).register(app);          // R01–R06
+        CityRoutes.register(app, cityService, pipeline);                    // R07–R16
+        CapitalRoutes.register(app, capitalService, pipeline);              // R17–R22
+        new PopulationRoutes(populationService, pipeline).register(app);    // R23–R32
+
+        // Batch endpoint: many report requests in one call
+        new BatchRoutes(
+            getIntProp(props, "batch.threads", Runtime.getRuntime().availableProcessors()),
+            getIntProp(props, "batch.maxItems", BatchRoutes.DEFAULT_MAX_ITEMS),
+            Duration.ofSeconds(getIntProp(props, "batch.timeoutSeconds", 30)),
+            rateLimiter).register(app);
+
+        // Export jobs: reports rendered in the background to disk, downloaded later
+        new ExportJobs(
+            Paths.get(props.getProperty("exports.dir",
+                Paths.get(System.getProperty("java.io.tmpdir"), "population-exports").toString())),
+            getIntProp(props, "exports.threads", 2),
+            getIntProp(props, "exports.maxJobs", 4),
+            getIntProp(props, "exports.maxItems", ExportJobs.DEFAULT_MAX_ITEMS),
+            Duration.ofSeconds(getIntProp(props, "exports.itemTimeoutSeconds", 60)),
+            Duration.ofMinutes(getIntProp(props, "exports.retainMinutes", 60)),
+            rateLimiter).register(app);
+
+        // 7. Cache warm-up (run by start(), after the port is open)
+        CacheWarmer warmer = new CacheWarmer(
+            scopeRepo,
+            db::isConnected,
+            getIntListProp(props, "warmup.topN", new int[] {3, 5, 10}),
+            getIntProp(props, "warmup.threads", warmupThreads(bulkheads)));
+        app.attribute(WARMER_ATTRIBUTE, warmer);
+
+        // 8. Data-change detection (started by start()) + admin bump endpoint
+        app.attribute(DETECTOR_ATTRIBUTE,
+            new DataChangeDetector(fingerprintRepo::findFingerprint, dataVersion));
+        new AdminRoutes(dataVersion, adminToken(props), cache, bulkheads, limiter).register(app);
 
-        // 7. Simple health check
+        // 9. Simple health check (liveness) + readiness (green once warm-up is done)
         app.get("/health", ctx -> ctx.result("OK"));
+        app.get("/ready", ctx -> {
+            if (warmer.isReady()) {
+                ctx.result("READY: " + warmer.summary());
+            } else {
+                ctx.status(503).result("WARMING");
+            }
+        });
 
         return app;
     }
@@ -170,6 +325,159 @@ public final class App {
         }
     }
 
+    /**
+     * Admin token for {@code POST /admin/data-version/bump},
+     * {@code /admin/cache-stats} and {@code /admin/bulkheads}: environment
+     * variable ADMIN_TOKEN, then property {@code admin.token}. {@code null}
+     * when neither is set, which disables those endpoints.
+     */
+    static String adminToken(Properties props) {
+        String token = System.getenv("ADMIN_TOKEN");
+        if (token == null || token.isBlank()) {
+            token = props.getProperty("admin.token");
+        }
+        return token == null || token.isBlank() ? null : token.trim();
+    }
+
+    /**
+     * Build the HTTP cache policy for every report from properties:
+     * {@code http.cache.maxAge}, {@code http.cache.staleWhileRevalidate} and
+     * {@code http.cache.staleIfError} set the defaults, and the same keys
+     * with a report id (e.g. {@code http.cache.R26.maxAge}) override them
+     * for one report.
+     */
+    static CacheHeaders cacheHeaders(Properties props, DataVersion dataVersion) {
+        CacheHeaders.Policy defaults =
+            readCachePolicy(props, "http.cache", CacheHeaders.Policy.DEFAULT);
+
+        Map<String, CacheHeaders.Policy> perReport = new HashMap<>();
+        for (int i = 1; i <= 32; i++) {
+            String reportId = String.format("R%02d", i);
+            String prefix = "http.cache." + reportId;
+            if (props.stringPropertyNames().stream().anyMatch(k -> k.startsWith(prefix + "."))) {
+                perReport.put(reportId, readCachePolicy(props, prefix, defaults));
+            }
+        }
+        return new CacheHeaders(dataVersion, defaults, perReport);
+    }
+
+    /**
+     * Build one bulkhead per report class from
+     * {@code db.bulkhead.<class>.maxConcurrent} (0 or less: that class is
+     * not limited) and {@code db.bulkhead.<class>.maxQueue}, all sharing
+     * {@code db.maxWaitMillis}. {@code db.bulkheads=false} disables them.
+     */
+    static Bulkheads bulkheads(Properties props) {
+        if (!getBoolProp(props, "db.bulkheads", true)) {
+            return null;
+        }
+        Duration maxWait = Duration.ofMillis(getIntProp(props, "db.maxWaitMillis", 2_000));
+        Map<ReportClass, DbGate> gates = new EnumMap<>(ReportClass.class);
+        for (ReportClass reportClass : ReportClass.values()) {
+            String prefix = "db.bulkhead." + reportClass.configName();
+            int defaultLimit = DEFAULT_BULKHEADS.get(reportClass);
+            int maxConcurrent = getIntProp(props, prefix + ".maxConcurrent", defaultLimit);
+            if (maxConcurrent > 0) {
+                gates.put(reportClass, new DbGate(maxConcurrent,
+                    getIntProp(props, prefix + ".maxQueue", maxConcurrent * 8), maxWait));
+            }
+        }
+        return new Bulkheads(gates);
+    }
+
+    /**
+     * Default number of warm-up workers: one per core, but no more than
+     * the export bulkhead admits at once, so warm-up does not fill the
+     * export queue and get shed.
+     */
+    static int warmupThreads(Bulkheads bulkheads) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        DbGate exports = bulkheads == null ? null : bulkheads.get(ReportClass.EXPORT);
+        return exports == null ? cores : Math.max(1, Math.min(cores, exports.maxConcurrent()));
+    }
+
+    /**
+     * Build the adaptive limit on concurrent report queries from
+     * {@code db.limiter.initial}, {@code db.limiter.min} and
+     * {@code db.limiter.max}, with batch queries held to
+     * {@code db.limiter.batchPercent} of the limit; {@code db.limiter=false}
+     * disables it.
+     */
+    static AdaptiveLimiter adaptiveLimiter(Properties props) {
+        if (!getBoolProp(props, "db.limiter", true)) {
+            return null;
+        }
+        return new AdaptiveLimiter(
+            getIntProp(props, "db.limiter.initial", 16),
+            getIntProp(props, "db.limiter.min", 2),
+            getIntProp(props, "db.limiter.max", 64),
+            getIntProp(props, "db.limiter.batchPercent", AdaptiveLimiter.DEFAULT_BATCH_PERCENT));
+    }
+
+    /**
+     * Build the per-client token buckets from {@code ratelimit.capacity},
+     * {@code ratelimit.refillPerSecond}, {@code ratelimit.idleSeconds},
+     * {@code ratelimit.maxClients}, the API keys ({@link #apiKeys}) and
+     * {@code ratelimit.cost.<class>}; {@code ratelimit.enabled=false}
+     * disables them.
+     */
+    static RateLimiter rateLimiter(Properties props) {
+        if (!getBoolProp(props, "ratelimit.enabled", true)) {
+            return null;
+        }
+        Map<ReportClass, Integer> costs = new EnumMap<>(ReportClass.class);
+        for (ReportClass reportClass : ReportClass.values()) {
+            costs.put(reportClass, getIntProp(props, "ratelimit.cost." + reportClass.configName(),
+                DEFAULT_COSTS.get(reportClass)));
+        }
+        return new RateLimiter(
+            getIntProp(props, "ratelimit.capacity", 120),
+            getIntProp(props, "ratelimit.refillPerSecond", 20),
+            getIntProp(props, "ratelimit.idleSeconds", 600),
+            getIntProp(props, "ratelimit.maxClients", 10_000),
+            apiKeys(props),
+            costs);
+    }
+
+    /**
+     * API keys that identify rate-limit clients: environment variable
+     * RATELIMIT_API_KEYS, then property {@code ratelimit.apiKeys}, both
+     * comma-separated. Empty when neither is set, so every client is
+     * limited by IP address.
+     */
+    static Set<String> apiKeys(Properties props) {
+        String raw = System.getenv("RATELIMIT_API_KEYS");
+        if (raw == null || raw.isBlank()) {
+            raw = props.getProperty("ratelimit.apiKeys", "");
+        }
+        return Arrays.stream(raw.split(","))
+            .map(String::trim)
+            .filter(key -> !key.isEmpty())
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Build the async database executor when {@code reports.async=true},
+     * sized by {@code reports.async.threads}, with a per-request deadline of
+     * {@code reports.deadlineMillis}.
+     */
+    static AsyncReports asyncReports(Properties props) {
+        if (!getBoolProp(props, "reports.async", false)) {
+            return null;
+        }
+        return new AsyncReports(
+            getIntProp(props, "reports.async.threads", AsyncReports.DEFAULT_THREADS),
+            Duration.ofMillis(getIntProp(props, "reports.deadlineMillis", 10_000)));
+    }
+
+    private static CacheHeaders.Policy readCachePolicy(Properties props, String prefix,
+                                                       CacheHeaders.Policy fallback) {
+        return new CacheHeaders.Policy(
+            getIntProp(props, prefix + ".maxAge", fallback.getMaxAge()),
+            getIntProp(props, prefix + ".staleWhileRevalidate", fallback.getStaleWhileRevalidate()),
+            getIntProp(props, prefix + ".staleIfError", fallback.getStaleIfError()));
+    }
+
     // ---------------------------------------------------------------------
     // Helper methods used by tests
     // ---------------------------------------------------------------------
@@ -205,6 +513,36 @@ public final class App {
         }
     }
 
+    /** Read a boolean property ("true"/"false") with default. */
+    public static boolean getBoolProp(Properties props, String key, boolean defaultValue) {
+        Objects.requireNonNull(props, "props");
+        String raw = props.getProperty(key);
+        if (raw == null || raw.trim().isEmpty()) {
+            return defaultValue;
+        }
+        return Boolean.parseBoolean(raw.trim());
+    }
+
+    /**
+     * Read a comma-separated list of positive integers (e.g. "3,5,10").
+     * Invalid or non-positive items are ignored; if nothing valid remains
+     * the default is returned.
+     */
+    public static int[] getIntListProp(Properties props, String key, int[] defaultValue) {
+        Objects.requireNonNull(props, "props");
+        String raw = props.getProperty(key);
+        if (raw == null || raw.trim().isEmpty()) {
+            return defaultValue.clone();
+        }
+        int[] values = Arrays.stream(raw.split(","))
+            .map(String::trim)
+            .filter(v -> v.matches("\\d+"))
+            .mapToInt(Integer::parseInt)
+            .filter(v -> v > 0)
+            .toArray();
+        return values.length == 0 ? defaultValue.clone() : values;
+    }
+
     /** Read an integer environment variable with default + error handling. */
     public static int getIntEnv(String name, int defaultValue) {
         String raw = System.getenv(name);
@@ -0,0 +1,337 @@
+package com.group13.population;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.group13.population.web.CacheWarmer;
+import com.group13.population.web.ReportCatalogue;
+import io.javalin.Javalin;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Command-line evidence-bundle generator; replaces the
+ * {@code docs/evidence/generate-*.ps1} scripts.
+ *
+ * <pre>
+ *   java -cp world-population-report.jar com.group13.population.EvidenceBundle \
+ *        [--out evidence-bundle.zip] [--threads 8] [--top 3,5,10]
+ * </pre>
+ *
+ * <p>Builds the application once (one database connection, same
+ * {@code app.properties} and environment as the server), listens on a
+ * loopback port only, and renders in parallel on a fork-join pool. Load
+ * shedding (bulkheads, the adaptive database limit, async deadlines, rate
+ * limits) is switched off for this private instance, so the pool's
+ * threads simply take turns on the connection; a report that still
+ * answers {@code 503} is retried:</p>
+ * <ul>
+ *   <li>the evidence set (R01–R32, {@link ReportCatalogue#evidence()}) as
+ *       {@code evidence/R01_countries_world.csv} and so on, and</li>
+ *   <li>every report for every continent, region, country and district
+ *       ({@link CacheWarmer#catalogue()}) under {@code reports/R05/...}.</li>
+ * </ul>
+ *
+ * <p>The result is one zip archive in catalogue order, with a
+ * {@code manifest.json} listing each file's report id, request path,
+ * HTTP status, byte size, CSV row count (without the header) and SHA-256.
+ * The exit status is 0 when every report rendered, 1 otherwise and 2 for
+ * bad arguments.</p>
+ */
+public final class EvidenceBundle {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /** Attempts per report while it answers {@code 503}. */
+    static final int MAX_ATTEMPTS = 3;
+
+    private EvidenceBundle() {
+        // Command-line entry point – do not instantiate.
+    }
+
+    /**
+     * @param args {@code --out FILE}, {@code --threads N}, {@code --top N,N,...}
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Parse the arguments, render the bundle and write it.
+     *
+     * @return process exit status
+     */
+    static int run(String[] args) {
+        Properties props = App.loadProps();
+        Path out = Paths.get("evidence-bundle.zip");
+        int threads = Runtime.getRuntime().availableProcessors();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--out" -> out = Paths.get(require(value, "--out"));
+                    case "--threads" -> threads = Integer.parseInt(require(value, "--threads"));
+                    case "--top" -> props.setProperty("warmup.topN", require(value, "--top"));
+                    default -> throw new IllegalArgumentException("Unknown argument " + args[i]);
+                }
+                i++;
+            }
+        } catch (IllegalArgumentException ex) {
+            System.err.println("ERROR: " + ex.getMessage());
+            System.err.println("Usage: EvidenceBundle [--out FILE] [--threads N] [--top N,N,...]");
+            return 2;
+        }
+
+        // Nobody else talks to this instance: no rate limits, no warm-up,
+        // and nothing to shed load for.
+        props.setProperty("ratelimit.enabled", "false");
+        props.setProperty("db.bulkheads", "false");
+        props.setProperty("db.limiter", "false");
+        props.setProperty("reports.async", "false");
+        Javalin app = App.createApp(props);
+        try {
+            app.start("127.0.0.1", 0);
+            CacheWarmer warmer = app.attribute(App.WARMER_ATTRIBUTE);
+
+            List<Item> items = new ArrayList<>();
+            for (ReportCatalogue.Entry entry : ReportCatalogue.evidence()) {
+                items.add(new Item(entry.getReportId(), entry.getPath(), "evidence/" + entry.getFileName()));
+            }
+            Set<String> names = new HashSet<>();
+            for (ReportCatalogue.Entry entry : warmer.catalogue()) {
+                items.add(new Item(entry.getReportId(), entry.getPath(),
+                    fileName(entry.getReportId(), entry.getPath(), names)));
+            }
+
+            long started = System.nanoTime();
+            render("http://127.0.0.1:" + app.port(), items, Math.max(1, threads));
+            write(out, items);
+            long elapsedMs = Duration.ofNanos(System.nanoTime() - started).toMillis();
+
+            long failed = items.stream().filter(item -> item.status != 200).count();
+            System.out.printf("INFO: EvidenceBundle wrote %d reports to %s in %d ms (%d failed)%n",
+                items.size(), out, elapsedMs, failed);
+            return failed == 0 ? 0 : 1;
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("ERROR: EvidenceBundle failed: " + ex.getMessage());
+            return 1;
+        } finally {
+            app.stop();
+        }
+    }
+
+    private static String require(String value, String flag) {
+        if (value == null) {
+            throw new IllegalArgumentException(flag + " needs a value");
+        }
+        return value;
+    }
+
+    // ---------------------------------------------------------------------
+    // Rendering
+    // ---------------------------------------------------------------------
+
+    /** Fetch every item over loopback on a fork-join pool of {@code threads}. */
+    static void render(String base, List<Item> items, int threads) {
+        HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new RenderRange(client, base, items, 0, items.size()));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /** Splits the catalogue in halves until one item is left, then fetches it. */
+    private static final class RenderRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final HttpClient client;
+        private final String base;
+        private final List<Item> items;
+        private final int from;
+        private final int to;
+
+        RenderRange(HttpClient client, String base, List<Item> items, int from, int to) {
+            this.client = client;
+            this.base = base;
+            this.items = items;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= 1) {
+                if (to > from) {
+                    fetch(client, base, items.get(from));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RenderRange(client, base, items, from, middle),
+                new RenderRange(client, base, items, middle, to));
+        }
+    }
+
+    /** Fetch one item, retrying after {@code Retry-After} while it answers 503. */
+    private static void fetch(HttpClient client, String base, Item item) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(base + item.path))
+                .timeout(Duration.ofSeconds(60))
+                .GET()
+                .build();
+            HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            for (int attempt = 1; response.statusCode() == 503 && attempt < MAX_ATTEMPTS; attempt++) {
+                Thread.sleep(Duration.ofSeconds(response.headers().firstValueAsLong("Retry-After").orElse(1L)));
+                response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+            }
+            item.complete(response.statusCode(), response.body());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            item.complete(0, new byte[0]);
+        } catch (IOException | IllegalArgumentException ex) {
+            item.complete(0, String.valueOf(ex.getMessage()).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Archive
+    // ---------------------------------------------------------------------
+
+    /**
+     * Write the archive (manifest first, then every item in catalogue order)
+     * to a temporary file next to {@code out}, then move it into place.
+     */
+    static void write(Path out, List<Item> items) throws IOException {
+        Path absolute = out.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        Path partial = absolute.resolveSibling(absolute.getFileName() + ".part");
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(partial))) {
+            zip.setLevel(6);
+            zip.putNextEntry(new ZipEntry("manifest.json"));
+            manifest(zip, items);
+            zip.closeEntry();
+            for (Item item : items) {
+                zip.putNextEntry(new ZipEntry(item.file));
+                zip.write(item.body);
+                zip.closeEntry();
+            }
+        }
+        Files.move(partial, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void manifest(OutputStream out, List<Item> items) throws IOException {
+        JsonGenerator json = MAPPER.getFactory().createGenerator(out);
+        json.useDefaultPrettyPrinter();
+        json.writeStartObject();
+        json.writeStringField("generated", Instant.now().toString());
+        json.writeNumberField("reports", items.size());
+        json.writeArrayFieldStart("files");
+        for (Item item : items) {
+            json.writeStartObject();
+            json.writeStringField("file", item.file);
+            json.writeStringField("report", item.reportId);
+            json.writeStringField("path", item.path);
+            json.writeNumberField("status", item.status);
+            json.writeNumberField("bytes", item.body.length);
+            json.writeNumberField("rows", item.rows);
+            json.writeStringField("sha256", item.sha256);
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+        json.writeEndObject();
+        // Flush without closing: the zip stream stays open for the next entry.
+        json.flush();
+    }
+
+    /**
+     * Archive name for a catalogue entry, e.g. {@code reports/R09/api_cities_region_Caribbean.csv}
+     * for {@code /api/cities/region/Caribbean}; a numeric suffix keeps names unique.
+     */
+    static String fileName(String reportId, String path, Set<String> taken) {
+        String decoded = URLDecoder.decode(path.substring(1), StandardCharsets.UTF_8);
+        String stem = "reports/" + reportId + "/" + decoded.replaceAll("[^A-Za-z0-9.-]+", "_");
+        String name = stem + ".csv";
+        for (int n = 2; !taken.add(name); n++) {
+            name = stem + "_" + n + ".csv";
+        }
+        return name;
+    }
+
+    /** Number of CSV records after the header; quoted line breaks do not count. */
+    static int countRows(byte[] csv) {
+        int records = 0;
+        boolean quoted = false;
+        boolean pending = false;
+        for (byte b : csv) {
+            if (b == '"') {
+                quoted = !quoted;
+            }
+            if (b == '\n' && !quoted) {
+                records++;
+                pending = false;
+            } else if (b != '\r') {
+                pending = true;
+            }
+        }
+        if (pending) {
+            records++;
+        }
+        return Math.max(0, records - 1);
+    }
+
+    /** One report in the bundle; filled in by the worker that fetches it. */
+    static final class Item {
+        final String reportId;
+        final String path;
+        final String file;
+        int status;
+        byte[] body = new byte[0];
+        int rows;
+        String sha256;
+
+        Item(String reportId, String path, String file) {
+            this.reportId = reportId;
+            this.path = path;
+            this.file = file;
+        }
+
+        void complete(int status, byte[] body) {
+            this.status = status;
+            this.body = body;
+            this.rows = status == 200 ? countRows(body) : 0;
+            try {
+                this.sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+            } catch (NoSuchAlgorithmException ex) {
+                throw new IllegalStateException("SHA-256 not available", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.group13.population.cache;
+
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Periodically fingerprints the database and bumps the {@link DataVersion}
+ * when the data changes.
+ *
+ * <p>The version is bumped when:</p>
+ * <ul>
+ *   <li>the fingerprint differs from the previous successful check; or</li>
+ *   <li>the database becomes reachable again after a failed check – the
+ *       data may have been changed or restored while it was unreachable.</li>
+ * </ul>
+ */
+public final class DataChangeDetector {
+
+    private final Supplier<String> fingerprint;
+    private final DataVersion version;
+
+    /** Last fingerprint seen; {@code null} before the first check or after a failure. */
+    private String lastFingerprint;
+    private boolean lastCheckFailed;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a detector.
+     *
+     * @param fingerprint returns the current data fingerprint, or {@code null}
+     *                    if the database is unavailable
+     * @param version     data version to bump on change
+     */
+    public DataChangeDetector(Supplier<String> fingerprint, DataVersion version) {
+        this.fingerprint = Objects.requireNonNull(fingerprint, "fingerprint");
+        this.version = Objects.requireNonNull(version, "version");
+    }
+
+    /**
+     * Run one check.
+     *
+     * @return {@code true} if the data version was bumped
+     */
+    public synchronized boolean check() {
+        String current = fingerprint.get();
+        if (current == null) {
+            lastCheckFailed = true;
+            return false;
+        }
+
+        boolean recovered = lastCheckFailed;
+        boolean changed = lastFingerprint != null && !lastFingerprint.equals(current);
+        lastFingerprint = current;
+        lastCheckFailed = false;
+
+        if (changed) {
+            version.bump("data change detected");
+            return true;
+        }
+        if (recovered) {
+            version.bump("database reachable again");
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Start checking every {@code intervalSeconds} on a daemon thread.
+     * Does nothing if the interval is not positive.
+     *
+     * @param intervalSeconds seconds between checks
+     */
+    public synchronized void start(int intervalSeconds) {
+        if (intervalSeconds <= 0 || scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "data-change-detector");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::checkQuietly,
+            0, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /** Stop periodic checks. */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    private void checkQuietly() {
+        try {
+            check();
+        } catch (RuntimeException ex) {
+            System.err.println("ERROR: DataChangeDetector check failed: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.group13.population.cache;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Global data-version counter shared by every cache layer.
+ *
+ * <p>Each cache (service results, rendered responses, negative lookups)
+ * stores entries under the version that was current when the value was
+ * loaded, and only ever reads entries for the current version. A single
+ * {@link #bump(String)} therefore invalidates every cache at once,
+ * without scanning; entries for older versions are never read again and
+ * age out through normal LRU eviction.</p>
+ *
+ * <p>The version is bumped by {@link DataChangeDetector} when the
+ * database contents change, or manually via the admin endpoint.</p>
+ */
+public final class DataVersion {
+
+    /** Version number plus the time it became current, swapped atomically. */
+    private static final class Snapshot {
+        private final long number;
+        private final Instant since;
+
+        Snapshot(long number, Instant since) {
+            this.number = number;
+            this.since = since;
+        }
+    }
+
+    private final AtomicReference<Snapshot> current =
+        new AtomicReference<>(new Snapshot(1L, Instant.now()));
+
+    /** @return the current data version (starts at 1). */
+    public long current() {
+        return current.get().number;
+    }
+
+    /** @return when the current version became current (start-up or last bump). */
+    public Instant lastModified() {
+        return current.get().since;
+    }
+
+    /**
+     * Advance to a new data version, invalidating every cache keyed on it.
+     *
+     * @param reason short description for the log, e.g. "admin" or "change detected"
+     * @return the new version number
+     */
+    public long bump(String reason) {
+        Snapshot next = current.updateAndGet(
+            old -> new Snapshot(old.number + 1, Instant.now()));
+        System.out.printf("INFO: data version bumped to %d (%s)%n", next.number, reason);
+        return next.number;
+    }
+}
@@ -0,0 +1,277 @@
+package com.group13.population.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded LRU cache whose entries are keyed on the {@link DataVersion}.
+ *
+ * <p>Lookups only see entries stored under the version they ask for, so
+ * bumping the data version makes every older entry unreachable at once.
+ * Unreachable entries are not removed eagerly – they are simply the least
+ * recently used and fall out as new entries arrive.</p>
+ *
+ * <p>An optional time-to-live bounds how long an entry is served even
+ * within one version (used for the negative-lookup cache). An optional
+ * weigher plus weight budget bounds the total size of the entries (used
+ * for the off-heap response tier, where the weight is the body size in
+ * bytes); least recently used entries are evicted until both the entry
+ * count and the total weight fit.</p>
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public final class VersionedCache<K, V> {
+
+    /** Cache key: the data version plus the caller's key. */
+    private record VersionedKey<K>(long version, K key) {
+    }
+
+    /** Cached value plus its weight and the time it was stored. */
+    private record Entry<V>(V value, long weight, long storedAtMillis) {
+    }
+
+    private final DataVersion version;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final ToLongFunction<V> weigher;
+    private final long maxWeight;
+    private final Map<VersionedKey<K>, Entry<V>> entries;
+    private long totalWeight;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a cache with no time-to-live.
+     *
+     * @param version    shared data version
+     * @param maxEntries upper bound on entries (must be positive)
+     */
+    public VersionedCache(DataVersion version, int maxEntries) {
+        this(version, maxEntries, 0L);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param version    shared data version
+     * @param maxEntries upper bound on entries (must be positive)
+     * @param ttlMillis  maximum age of an entry in ms, or {@code 0} for no limit
+     */
+    public VersionedCache(DataVersion version, int maxEntries, long ttlMillis) {
+        this(version, maxEntries, ttlMillis, v -> 0L, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a cache bounded by both entry count and total weight.
+     *
+     * @param version    shared data version
+     * @param maxEntries upper bound on entries (must be positive)
+     * @param ttlMillis  maximum age of an entry in ms, or {@code 0} for no limit
+     * @param weigher    weight of a value (e.g. its size in bytes)
+     * @param maxWeight  upper bound on the total weight (must be positive)
+     */
+    public VersionedCache(DataVersion version, int maxEntries, long ttlMillis,
+                          ToLongFunction<V> weigher, long maxWeight) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be a positive integer.");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("maxWeight must be a positive number.");
+        }
+        this.version = Objects.requireNonNull(version, "version");
+        this.maxEntries = maxEntries;
+        this.ttlMillis = Math.max(0L, ttlMillis);
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+        this.maxWeight = maxWeight;
+        // access-order LinkedHashMap: iteration starts at the least recently used entry
+        this.entries = new LinkedHashMap<>(256, 0.75f, true);
+    }
+
+    /** @return the data version this cache is keyed on. */
+    public DataVersion dataVersion() {
+        return version;
+    }
+
+    /**
+     * Look up a value for the current data version.
+     *
+     * @param key cache key
+     * @return the cached value, or {@code null} on a miss
+     */
+    public V get(K key) {
+        return get(version.current(), key);
+    }
+
+    /**
+     * Look up a value stored under a specific data version.
+     *
+     * @param dataVersion version captured by the caller
+     * @param key         cache key
+     * @return the cached value, or {@code null} on a miss
+     */
+    public V get(long dataVersion, K key) {
+        VersionedKey<K> vk = new VersionedKey<>(dataVersion, key);
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(vk);
+            if (entry != null && isExpired(entry)) {
+                entries.remove(vk);
+                totalWeight -= entry.weight();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value();
+    }
+
+    /**
+     * Look up a value like {@link #get(long, Object)} (it counts as a use
+     * for LRU eviction) without counting a hit or a miss, e.g. for entries
+     * that belong to another entry rather than to a request.
+     *
+     * @param dataVersion version captured by the caller
+     * @param key         cache key
+     * @return the cached value, or {@code null}
+     */
+    public V peek(long dataVersion, K key) {
+        VersionedKey<K> vk = new VersionedKey<>(dataVersion, key);
+        synchronized (entries) {
+            Entry<V> entry = entries.get(vk);
+            if (entry == null) {
+                return null;
+            }
+            if (isExpired(entry)) {
+                entries.remove(vk);
+                totalWeight -= entry.weight();
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    /**
+     * Check for a live entry without counting a hit or a miss, e.g. to
+     * decide how a request will be served before serving it.
+     *
+     * @param dataVersion version captured by the caller
+     * @param key         cache key
+     * @return {@code true} if {@link #get(long, Object)} would find a value
+     */
+    public boolean contains(long dataVersion, K key) {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(new VersionedKey<>(dataVersion, key));
+            return entry != null && !isExpired(entry);
+        }
+    }
+
+    /**
+     * Store a value under the given data version. Callers should pass the
+     * version they captured <em>before</em> loading the value, so a bump
+     * that happens mid-load never labels old data with the new version.
+     *
+     * @param dataVersion version captured before the value was loaded
+     * @param key         cache key
+     * @param value       value to store (must not be {@code null})
+     * @return {@code false} if the value alone exceeds the weight budget
+     *         and was not stored
+     */
+    public boolean put(long dataVersion, K key, V value) {
+        Objects.requireNonNull(value, "value");
+        long weight = Math.max(0L, weigher.applyAsLong(value));
+        if (weight > maxWeight) {
+            return false;
+        }
+        synchronized (entries) {
+            Entry<V> previous = entries.put(new VersionedKey<>(dataVersion, key),
+                new Entry<>(value, weight, System.currentTimeMillis()));
+            if (previous != null) {
+                totalWeight -= previous.weight();
+            }
+            totalWeight += weight;
+            evictWhileOverBudget();
+        }
+        return true;
+    }
+
+    /**
+     * Return the cached value for the current version, loading and storing
+     * it on a miss. {@code null} results from the loader are not cached.
+     *
+     * @param key    cache key
+     * @param loader computes the value on a miss
+     * @return cached or freshly loaded value
+     */
+    public V getOrLoad(K key, Supplier<V> loader) {
+        long dataVersion = version.current();
+        V hit = get(dataVersion, key);
+        if (hit != null) {
+            return hit;
+        }
+        V loaded = loader.get();
+        if (loaded != null) {
+            put(dataVersion, key, loaded);
+        }
+        return loaded;
+    }
+
+    /** Remove every entry (all versions). */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            totalWeight = 0L;
+        }
+    }
+
+    /** @return number of stored entries, including ones for older versions. */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /** @return total weight of the stored entries. */
+    public long weight() {
+        synchronized (entries) {
+            return totalWeight;
+        }
+    }
+
+    /** @return configured weight budget ({@link Long#MAX_VALUE} if unweighted). */
+    public long maxWeight() {
+        return maxWeight;
+    }
+
+    /** @return number of lookups that found a value. */
+    public long hits() {
+        return hits.get();
+    }
+
+    /** @return number of lookups that did not find a value. */
+    public long misses() {
+        return misses.get();
+    }
+
+    /** Drop least recently used entries until count and weight fit; caller holds the lock. */
+    private void evictWhileOverBudget() {
+        Iterator<Entry<V>> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxWeight) && eldest.hasNext()) {
+            totalWeight -= eldest.next().weight();
+            eldest.remove();
+        }
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return ttlMillis > 0
+            && System.currentTimeMillis() - entry.storedAtMillis() > ttlMillis;
+    }
+}
@@ -0,0 +1,254 @@
+package com.group13.population.columnar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Decoder for reports in the binary columnar format written by
+ * {@link ColumnarWriter} (media type {@value ColumnarWriter#MEDIA_TYPE}).
+ *
+ * <p>Intended for machine consumers of the API: request a report with
+ * {@code Accept: application/vnd.world-population.columnar} and hand the
+ * body to {@link #read(InputStream)}. Values are then read by row and
+ * column without any text parsing:</p>
+ *
+ * <pre>
+ *   ColumnarReader table = ColumnarReader.read(response.body().byteStream());
+ *   int name = table.columnIndex("Name");
+ *   int population = table.columnIndex("Population");
+ *   for (int row = 0; row &lt; table.rowCount(); row++) {
+ *       use(table.getText(row, name), table.getLong(row, population));
+ *   }
+ * </pre>
+ *
+ * <p>Malformed input is reported as {@link IllegalArgumentException}.</p>
+ */
+public final class ColumnarReader {
+
+    private final String[] names;
+    private final int[] types;
+    private final String[][] dictionaries;
+    private final long[][] values;
+    private final int rows;
+
+    private ColumnarReader(String[] names, int[] types, String[][] dictionaries,
+                           long[][] values, int rows) {
+        this.names = names;
+        this.types = types;
+        this.dictionaries = dictionaries;
+        this.values = values;
+        this.rows = rows;
+    }
+
+    /**
+     * Decode a whole document from a stream.
+     *
+     * @param in stream positioned at the start of the document
+     * @return the decoded table
+     * @throws IOException if the stream cannot be read
+     */
+    public static ColumnarReader read(InputStream in) throws IOException {
+        Objects.requireNonNull(in, "in");
+        return read(in.readAllBytes());
+    }
+
+    /**
+     * Decode a whole document.
+     *
+     * @param data encoded document
+     * @return the decoded table
+     */
+    public static ColumnarReader read(byte[] data) {
+        Objects.requireNonNull(data, "data");
+        Cursor in = new Cursor(data);
+        byte[] magic = in.bytes(ColumnarWriter.MAGIC.length);
+        if (!Arrays.equals(magic, ColumnarWriter.MAGIC)) {
+            throw new IllegalArgumentException("Not a columnar report (bad magic)");
+        }
+        int columnCount = in.count();
+        int rowCount = in.count();
+        // Every value takes at least one byte: reject a header that claims
+        // more cells than the input holds before allocating any columns.
+        if ((long) columnCount * rowCount > in.remaining()) {
+            throw new IllegalArgumentException("Implausible size " + columnCount + " x " + rowCount);
+        }
+
+        String[] names = new String[columnCount];
+        int[] types = new int[columnCount];
+        String[][] dictionaries = new String[columnCount][];
+        long[][] values = new long[columnCount][];
+
+        for (int c = 0; c < columnCount; c++) {
+            names[c] = in.string();
+            types[c] = in.bytes(1)[0];
+            long[] column = new long[rowCount];
+            switch (types[c]) {
+                case ColumnarWriter.TYPE_TEXT:
+                    String[] dictionary = new String[in.count()];
+                    for (int i = 0; i < dictionary.length; i++) {
+                        dictionary[i] = in.string();
+                    }
+                    for (int r = 0; r < rowCount; r++) {
+                        long code = in.varint();
+                        if (code < 0 || code >= dictionary.length) {
+                            throw new IllegalArgumentException("Dictionary index out of range");
+                        }
+                        column[r] = code;
+                    }
+                    dictionaries[c] = dictionary;
+                    break;
+                case ColumnarWriter.TYPE_INTEGER:
+                case ColumnarWriter.TYPE_FIXED2:
+                    long previous = 0L;
+                    for (int r = 0; r < rowCount; r++) {
+                        long zigzag = in.varint();
+                        previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                        column[r] = previous;
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown column type " + types[c]);
+            }
+            values[c] = column;
+        }
+        return new ColumnarReader(names, types, dictionaries, values, rowCount);
+    }
+
+    /** @return number of rows. */
+    public int rowCount() {
+        return rows;
+    }
+
+    /** @return number of columns. */
+    public int columnCount() {
+        return names.length;
+    }
+
+    /**
+     * @param column column index
+     * @return the column's name
+     */
+    public String columnName(int column) {
+        return names[column];
+    }
+
+    /**
+     * @param name column name
+     * @return its index, or {@code -1} if there is no such column
+     */
+    public int columnIndex(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param column column index
+     * @return {@code true} for a text column
+     */
+    public boolean isText(int column) {
+        return types[column] == ColumnarWriter.TYPE_TEXT;
+    }
+
+    /**
+     * @param row    row index
+     * @param column index of a text column
+     * @return the value, possibly {@code null}
+     */
+    public String getText(int row, int column) {
+        if (!isText(column)) {
+            throw new IllegalStateException("Column '" + names[column] + "' is not text");
+        }
+        return dictionaries[column][(int) values[column][row]];
+    }
+
+    /**
+     * @param row    row index
+     * @param column index of an integer column
+     * @return the value
+     */
+    public long getLong(int row, int column) {
+        if (types[column] != ColumnarWriter.TYPE_INTEGER) {
+            throw new IllegalStateException("Column '" + names[column] + "' is not an integer");
+        }
+        return values[column][row];
+    }
+
+    /**
+     * @param row    row index
+     * @param column index of a numeric column
+     * @return the value (fixed-point columns are scaled back from hundredths)
+     */
+    public double getDouble(int row, int column) {
+        if (types[column] == ColumnarWriter.TYPE_FIXED2) {
+            return values[column][row] / 100.0;
+        }
+        return getLong(row, column);
+    }
+
+    // ---------------------------------------------------------------------
+    // Decoding
+    // ---------------------------------------------------------------------
+
+    /** Read position over the encoded bytes. */
+    private static final class Cursor {
+
+        private final byte[] data;
+        private int pos;
+
+        Cursor(byte[] data) {
+            this.data = data;
+        }
+
+        int remaining() {
+            return data.length - pos;
+        }
+
+        byte[] bytes(int n) {
+            if (n < 0 || n > data.length - pos) {
+                throw new IllegalArgumentException("Truncated columnar report");
+            }
+            byte[] out = Arrays.copyOfRange(data, pos, pos + n);
+            pos += n;
+            return out;
+        }
+
+        long varint() {
+            long result = 0L;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (pos >= data.length) {
+                    throw new IllegalArgumentException("Truncated columnar report");
+                }
+                byte b = data[pos++];
+                result |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return result;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        /** A varint used as a size; bounded by the remaining input. */
+        int count() {
+            long n = varint();
+            if (n < 0 || n > data.length) {
+                throw new IllegalArgumentException("Implausible count " + n);
+            }
+            return (int) n;
+        }
+
+        String string() {
+            int length = count();
+            if (length == 0) {
+                return null;
+            }
+            return new String(bytes(length - 1), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.group13.population.columnar;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Encoder for the compact binary columnar report format, read back by
+ * {@link ColumnarReader}.
+ *
+ * <p>Values are collected column by column while rows are written and
+ * encoded when the document is finished:</p>
+ *
+ * <pre>
+ *   magic     "WPC1"
+ *   varint    column count
+ *   varint    row count
+ *   per column:
+ *     string  column name
+ *     byte    type: 1 = text, 2 = integer, 3 = fixed-point (2 decimals)
+ *     text:    varint dictionary size, the distinct values, then one
+ *              varint dictionary index per row
+ *     integer / fixed-point: one zig-zag varint per row holding the
+ *              difference from the previous row (fixed-point in hundredths)
+ *   string  = varint (byte length + 1, 0 for null) followed by UTF-8 bytes
+ * </pre>
+ *
+ * <p>Dictionary encoding makes repeated values (country, continent,
+ * region, district) cost a byte or two per row, and delta encoding keeps
+ * the population of a report sorted by population short.</p>
+ *
+ * <p>Instances are not thread-safe and are used for one document.</p>
+ */
+public final class ColumnarWriter {
+
+    /** Media type the format is served as. */
+    public static final String MEDIA_TYPE = "application/vnd.world-population.columnar";
+
+    static final byte[] MAGIC = {'W', 'P', 'C', '1'};
+    static final int TYPE_TEXT = 1;
+    static final int TYPE_INTEGER = 2;
+    static final int TYPE_FIXED2 = 3;
+
+    private final String[] names;
+    private final Column[] columns;
+    private int rows;
+
+    /**
+     * @param names column names, in the order values are written
+     */
+    public ColumnarWriter(String... names) {
+        this.names = names.clone();
+        this.columns = new Column[names.length];
+    }
+
+    /**
+     * Write a text value.
+     *
+     * @param column column index
+     * @param value  value, may be {@code null}
+     */
+    public void text(int column, String value) {
+        column(column, TYPE_TEXT).addText(value);
+    }
+
+    /**
+     * Write an integer value.
+     *
+     * @param column column index
+     * @param value  value
+     */
+    public void number(int column, long value) {
+        column(column, TYPE_INTEGER).addLong(value);
+    }
+
+    /**
+     * Write a value with two decimals; it is stored in hundredths, rounded
+     * half up.
+     *
+     * @param column column index
+     * @param value  value
+     */
+    public void fixed2(int column, double value) {
+        column(column, TYPE_FIXED2).addLong(Math.round(value * 100.0));
+    }
+
+    /** Finish the current row; columns it did not set get null / 0. */
+    public void endRow() {
+        rows++;
+        for (int i = 0; i < columns.length; i++) {
+            Column c = columns[i];
+            if (c == null) {
+                c = columns[i] = new Column(TYPE_TEXT);
+            }
+            while (c.size < rows) {
+                c.addDefault();
+            }
+        }
+    }
+
+    /** @return number of finished rows. */
+    public int rowCount() {
+        return rows;
+    }
+
+    /** @return the encoded document. */
+    public byte[] toByteArray() {
+        Bytes out = new Bytes();
+        out.write(MAGIC);
+        out.varint(columns.length);
+        out.varint(rows);
+        for (int i = 0; i < columns.length; i++) {
+            Column c = columns[i] != null ? columns[i] : new Column(TYPE_TEXT);
+            out.string(names[i]);
+            out.put(c.type);
+            c.encode(out, rows);
+        }
+        return out.toByteArray();
+    }
+
+    private Column column(int index, int type) {
+        Objects.checkIndex(index, columns.length);
+        Column c = columns[index];
+        if (c == null) {
+            c = columns[index] = new Column(type);
+            // Rows finished before this column's first value.
+            while (c.size < rows) {
+                c.addDefault();
+            }
+        } else if (c.type != type) {
+            throw new IllegalStateException("Column '" + names[index]
+                + "' mixes value types");
+        }
+        return c;
+    }
+
+    // ---------------------------------------------------------------------
+    // Column storage
+    // ---------------------------------------------------------------------
+
+    /** Values of one column: dictionary codes for text, longs otherwise. */
+    private static final class Column {
+
+        final int type;
+        long[] values = new long[64];
+        int size;
+
+        /** Text columns only: value to dictionary index, in first-seen order. */
+        final Map<String, Integer> dictionary;
+
+        Column(int type) {
+            this.type = type;
+            this.dictionary = type == TYPE_TEXT ? new HashMap<>() : null;
+        }
+
+        void addText(String value) {
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionary.size();
+                dictionary.put(value, code);
+            }
+            addLong(code);
+        }
+
+        void addLong(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addDefault() {
+            if (type == TYPE_TEXT) {
+                addText(null);
+            } else {
+                addLong(0L);
+            }
+        }
+
+        void encode(Bytes out, int rows) {
+            if (type == TYPE_TEXT) {
+                String[] byCode = new String[dictionary.size()];
+                for (Map.Entry<String, Integer> e : dictionary.entrySet()) {
+                    byCode[e.getValue()] = e.getKey();
+                }
+                out.varint(byCode.length);
+                for (String value : byCode) {
+                    out.string(value);
+                }
+                for (int r = 0; r < rows; r++) {
+                    out.varint(values[r]);
+                }
+            } else {
+                long previous = 0L;
+                for (int r = 0; r < rows; r++) {
+                    long delta = values[r] - previous;
+                    out.varint((delta << 1) ^ (delta >> 63));
+                    previous = values[r];
+                }
+            }
+        }
+    }
+
+    /** Growable byte array with the format's primitive encodings. */
+    private static final class Bytes {
+
+        private byte[] buf = new byte[4096];
+        private int size;
+
+        void put(int b) {
+            if (size == buf.length) {
+                buf = Arrays.copyOf(buf, size * 2);
+            }
+            buf[size++] = (byte) b;
+        }
+
+        void write(byte[] bytes) {
+            for (byte b : bytes) {
+                put(b);
+            }
+        }
+
+        /** Unsigned LEB128. */
+        void varint(long value) {
+            long v = value;
+            while ((v & ~0x7FL) != 0) {
+                put((int) ((v & 0x7F) | 0x80));
+                v >>>= 7;
+            }
+            put((int) v);
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1L);
+            write(utf8);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+}
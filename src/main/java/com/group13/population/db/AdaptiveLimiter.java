@@ -0,0 +1,291 @@
+package com.group13.population.db;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit for database queries that adapts to observed latency
+ * (TCP-Vegas style), instead of a fixed pool size.
+ *
+ * <p>The limiter keeps the lowest round-trip time seen recently as the
+ * "no load" latency, separately for each workload (the report class the
+ * query runs for, see {@link #runAs}): a full-world export is slow because
+ * of its size, not because MySQL is busy, and must not make a lookup look
+ * congested. The round trip is measured from the moment the query takes
+ * its slot, so it includes waiting for the shared connection
+ * ({@link LimitedDb}): that wait is where queueing shows up. For every
+ * finished query it estimates how many queries are queueing
+ * inside MySQL, from the baseline of its own workload:</p>
+ *
+ * <pre>
+ *   queue = limit × (1 − rttNoLoad / rtt)
+ * </pre>
+ *
+ * <p>While that queue is small (below {@code alpha = 3·log10(limit)}) the
+ * limit grows; once it is large (above {@code beta = 6·log10(limit)}) the
+ * limit shrinks, and a failed query shrinks it by 10 %. The limit only
+ * grows when queries actually used at least half of it, so a quiet server
+ * does not drift to the maximum. The no-load latency is re-measured every
+ * {@link #PROBE_INTERVAL} samples, so the limit can recover when the
+ * database (e.g. a lagging replica or a noisy neighbour) becomes faster
+ * again and adjust down when it becomes permanently slower.</p>
+ *
+ * <p>A query over the limit is not queued: {@link #tryAcquire()} fails
+ * and the caller rejects the request at once.</p>
+ *
+ * <p>The limiter is the one point every report class shares, so it is
+ * also where priority applies. Queries run inside
+ * {@link #runAs(String, boolean, QueryScope.Work) runAs(…, true, …)} are batch work
+ * (full exports, or requests marked {@code X-Priority: batch}) and may only
+ * fill {@code batchPercent} of the limit; the rest is headroom that only
+ * interactive queries can take. Batch is therefore shed first, and an
+ * export burst can never take the last slots a dashboard lookup needs.</p>
+ */
+public final class AdaptiveLimiter {
+
+    /** Samples between re-measurements of the no-load latency. */
+    static final int PROBE_INTERVAL = 500;
+
+    /** Default share of the limit, in percent, that batch queries may use. */
+    public static final int DEFAULT_BATCH_PERCENT = 75;
+
+    /** Workload of queries run outside {@link #runAs}. */
+    public static final String DEFAULT_WORKLOAD = "default";
+
+    /** The current thread's workload; see {@link #runAs}. */
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int batchPercent;
+
+    private double limit;
+    private int inFlight;
+    /** No-load latency per workload. */
+    private final Map<String, Baseline> baselines = new HashMap<>();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong batchRejected = new AtomicLong();
+
+    /**
+     * @param initialLimit starting limit
+     * @param minLimit     lowest the limit may go (at least 1)
+     * @param maxLimit     highest the limit may go
+     */
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this(initialLimit, minLimit, maxLimit, DEFAULT_BATCH_PERCENT);
+    }
+
+    /**
+     * @param initialLimit starting limit
+     * @param minLimit     lowest the limit may go (at least 1)
+     * @param maxLimit     highest the limit may go
+     * @param batchPercent share of the limit batch queries may use (1–100)
+     */
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit, int batchPercent) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.batchPercent = Math.min(100, Math.max(1, batchPercent));
+    }
+
+    /**
+     * Run {@code work} on the current thread with its queries counted
+     * against a workload's latency baseline, as batch ({@code true}) or
+     * interactive ({@code false}) work.
+     *
+     * @param workload name of the workload, e.g. the report class
+     * @param batch    {@code true} for batch work
+     * @param work     the work
+     * @throws Exception whatever the work throws
+     */
+    public static void runAs(String workload, boolean batch, QueryScope.Work work) throws Exception {
+        Workload previous = CURRENT.get();
+        CURRENT.set(new Workload(Objects.requireNonNull(workload, "workload"), batch));
+        try {
+            work.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Take a slot for one query of the current thread's workload.
+     *
+     * @return a token to pass to {@link #release}, or {@code null} if the
+     *         query must be rejected
+     */
+    Token tryAcquireForCurrentThread() {
+        Workload workload = CURRENT.get();
+        return workload == null ? tryAcquire() : tryAcquire(workload.name, workload.batch);
+    }
+
+    /**
+     * Take a slot for one interactive query.
+     *
+     * @return a token to pass to {@link #release}, or {@code null} if the
+     *         limit is reached and the query must be rejected
+     */
+    public Token tryAcquire() {
+        return tryAcquire(DEFAULT_WORKLOAD, false);
+    }
+
+    /**
+     * Take a slot for one query. Batch queries only get one while less
+     * than {@code batchPercent} of the limit is in use.
+     *
+     * @param workload workload whose latency baseline the query counts against
+     * @param batch    {@code true} for a batch query
+     * @return a token to pass to {@link #release}, or {@code null} if the
+     *         query must be rejected
+     */
+    public synchronized Token tryAcquire(String workload, boolean batch) {
+        if (inFlight >= (batch ? batchLimit() : (int) limit)) {
+            rejected.incrementAndGet();
+            if (batch) {
+                batchRejected.incrementAndGet();
+            }
+            return null;
+        }
+        inFlight++;
+        return new Token(workload, System.nanoTime(), inFlight);
+    }
+
+    /** Slots batch queries may fill: their share of the limit, at least one. */
+    private int batchLimit() {
+        return Math.max(1, (int) (limit * batchPercent / 100.0));
+    }
+
+    /**
+     * Return a slot and feed the query's latency into the limit.
+     *
+     * @param token     token from {@link #tryAcquire()}
+     * @param succeeded {@code false} if the query failed (treated as overload)
+     */
+    public void release(Token token, boolean succeeded) {
+        long rtt = System.nanoTime() - token.startNanos;
+        synchronized (this) {
+            inFlight--;
+            if (succeeded) {
+                onSample(token.workload, rtt, token.inFlightAtStart);
+            } else {
+                onDrop();
+            }
+        }
+    }
+
+    /** Vegas update for one successful query of the default workload. */
+    void onSample(long rttNanos, int inFlightAtStart) {
+        onSample(DEFAULT_WORKLOAD, rttNanos, inFlightAtStart);
+    }
+
+    /** Vegas update for one successful query, against its workload's baseline. */
+    synchronized void onSample(String workload, long rttNanos, int inFlightAtStart) {
+        long rtt = Math.max(1L, rttNanos);
+        Baseline baseline = baselines.computeIfAbsent(workload, w -> new Baseline());
+        if (baseline.samples++ % PROBE_INTERVAL == 0 || rtt < baseline.rttNoLoadNanos) {
+            baseline.rttNoLoadNanos = rtt;
+        }
+        // Only learn from queries that pushed against the limit.
+        if (inFlightAtStart * 2 < (int) limit) {
+            return;
+        }
+        double log = Math.max(1.0, Math.log10(limit));
+        double queue = limit * (1.0 - (double) baseline.rttNoLoadNanos / rtt);
+        if (queue < 3 * log) {
+            limit += log;
+        } else if (queue > 6 * log) {
+            limit -= log;
+        }
+        limit = Math.min(maxLimit, Math.max(minLimit, limit));
+    }
+
+    /** A failed query: back off multiplicatively. */
+    synchronized void onDrop() {
+        limit = Math.max(minLimit, limit * 0.9);
+    }
+
+    /** @return the current limit on concurrent queries. */
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    /** @return queries currently running. */
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    /** @return queries rejected because the limit was reached. */
+    public long rejected() {
+        return rejected.get();
+    }
+
+    /** @return batch queries among {@link #rejected()}. */
+    public long batchRejected() {
+        return batchRejected.get();
+    }
+
+    /** @return share of the limit, in percent, that batch queries may use. */
+    public int batchPercent() {
+        return batchPercent;
+    }
+
+    /** @return lowest recent round-trip time of the default workload, in microseconds. */
+    public long rttNoLoadMicros() {
+        return rttNoLoadMicros(DEFAULT_WORKLOAD);
+    }
+
+    /**
+     * @param workload workload name
+     * @return its lowest recent round-trip time in microseconds (0 before the first sample)
+     */
+    public synchronized long rttNoLoadMicros(String workload) {
+        Baseline baseline = baselines.get(workload);
+        return baseline == null ? 0L : baseline.rttNoLoadNanos / 1_000L;
+    }
+
+    /** @return lowest recent round-trip time per workload seen so far, in microseconds. */
+    public synchronized Map<String, Long> rttNoLoadMicrosByWorkload() {
+        Map<String, Long> out = new TreeMap<>();
+        for (Map.Entry<String, Baseline> entry : baselines.entrySet()) {
+            out.put(entry.getKey(), entry.getValue().rttNoLoadNanos / 1_000L);
+        }
+        return out;
+    }
+
+    /** Slot held by one running query. */
+    public static final class Token {
+        private final String workload;
+        private final int inFlightAtStart;
+        private final long startNanos;
+
+        Token(String workload, long startNanos, int inFlightAtStart) {
+            this.workload = workload;
+            this.startNanos = startNanos;
+            this.inFlightAtStart = inFlightAtStart;
+        }
+    }
+
+    /** No-load latency of one workload. */
+    private static final class Baseline {
+        long rttNoLoadNanos;
+        long samples;
+    }
+
+    /** What {@link #runAs} binds to a thread. */
+    private static final class Workload {
+        final String name;
+        final boolean batch;
+
+        Workload(String name, boolean batch) {
+            this.name = name;
+            this.batch = batch;
+        }
+    }
+}
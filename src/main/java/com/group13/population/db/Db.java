@@ -27,7 +27,7 @@ import java.sql.SQLException;
 public class Db {
 
     /** Reused JDBC connection (if established). */
-    private Connection connection;
+    private volatile Connection connection;
 
     /** Last host:port used, so we can reconnect lazily. */
     private String lastLocation;
@@ -40,7 +40,7 @@ public class Db {
      * @param delayMillis maximum time to keep retrying before giving up
      * @return {@code true} if a connection was established, {@code false} otherwise
      */
-    public boolean connect(String location, int delayMillis) {
+    public synchronized boolean connect(String location, int delayMillis) {
         this.lastLocation = location;
 
         String dbName = getenvOrDefault("DB_NAME", "world");
@@ -87,7 +87,7 @@ public class Db {
      * @return an open {@link Connection}
      * @throws SQLException if no connection can be obtained
      */
-    public Connection getConnection() throws SQLException {
+    public synchronized Connection getConnection() throws SQLException {
         tryReconnectIfNeeded();
         if (connection == null || connection.isClosed()) {
             throw new SQLException("Database not connected");
@@ -95,10 +95,29 @@ public class Db {
         return connection;
     }
 
+    /**
+     * Check whether a connection is currently open, without attempting
+     * to reconnect. Used by the start-up cache warm-up so it can skip
+     * rendering reports when MySQL is not reachable.
+     *
+     * @return {@code true} if an open connection is available
+     */
+    public boolean isConnected() {
+        Connection current = connection;
+        if (current == null) {
+            return false;
+        }
+        try {
+            return !current.isClosed();
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
     /**
      * Close the current connection if open.
      */
-    public void disconnect() {
+    public synchronized void disconnect() {
         if (connection != null) {
             try {
                 connection.close();
@@ -0,0 +1,44 @@
+package com.group13.population.db;
+
+import java.sql.SQLTransientException;
+
+/**
+ * Thrown instead of running a query when the {@link AdaptiveLimiter} is
+ * at its limit, or when a query could not get the shared connection in
+ * time ({@link LimitedDb}). Repositories wrap it like any other {@link java.sql.SQLException};
+ * the web layer recognises it in the cause chain and answers
+ * {@code 503 Server busy} rather than treating the database as down.
+ */
+public class DbOverloadedException extends SQLTransientException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param limit the limit that was reached
+     */
+    public DbOverloadedException(int limit) {
+        super("Database concurrency limit reached (" + limit + " queries in flight)");
+    }
+
+    /**
+     * @param limit        the current limit
+     * @param waitedMillis how long the query waited for the connection
+     */
+    public DbOverloadedException(int limit, long waitedMillis) {
+        super("Database connection busy for " + waitedMillis + " ms (limit " + limit + ")");
+    }
+
+    /**
+     * @param error any exception
+     * @return {@code true} if {@code error} or one of its causes is a
+     *         {@code DbOverloadedException}
+     */
+    public static boolean isCause(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof DbOverloadedException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,162 @@
+package com.group13.population.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A {@link Db} whose queries pass through an {@link AdaptiveLimiter}.
+ *
+ * <p>Connection handling is delegated to the wrapped {@code Db}; only the
+ * {@code execute*} calls of the statements it hands out are gated. Each
+ * query takes a slot before it runs (or fails at once with
+ * {@link DbOverloadedException}) and reports its latency when it
+ * returns. The repositories are unchanged – they still call
+ * {@link #getConnection()} and prepare statements as before.</p>
+ *
+ * <p>Queries run under {@link AdaptiveLimiter#runAs} as batch work are
+ * admitted to the smaller batch share of the limit, and each query's
+ * latency is counted against the baseline of its workload.</p>
+ *
+ * <p>The wrapped {@code Db} has one connection, and the driver runs one
+ * statement on it at a time anyway. Queries therefore take the connection
+ * in turn here (first come, first served). The latency fed to the limiter
+ * starts when the query takes its slot and so includes that wait: on a
+ * single connection it is where nearly all queueing happens, and the
+ * limit must shrink as it grows. A query that cannot get the connection
+ * within {@code maxWait} fails with {@link DbOverloadedException} rather
+ * than queueing indefinitely.</p>
+ *
+ * <p>Executing statements are also registered with the thread's
+ * {@link QueryScope}, if any, so a report that misses its deadline can
+ * have its query cancelled.</p>
+ *
+ * <p>Background work that must not be shed (the data-change fingerprint,
+ * warm-up scope lists) keeps using the unwrapped {@code Db}.</p>
+ */
+public class LimitedDb extends Db {
+
+    /** Default longest wait for the shared connection. */
+    public static final int DEFAULT_MAX_WAIT_MILLIS = 2000;
+
+    private final Db delegate;
+    private final AdaptiveLimiter limiter;
+    private final long maxWaitNanos;
+    /** Held while a statement executes on the single connection. */
+    private final ReentrantLock connection = new ReentrantLock(true);
+
+    /**
+     * @param delegate connection owner
+     * @param limiter  limiter applied to every query
+     * @param maxWait  longest a query waits for the connection
+     */
+    public LimitedDb(Db delegate, AdaptiveLimiter limiter, Duration maxWait) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.limiter = Objects.requireNonNull(limiter, "limiter");
+        this.maxWaitNanos = Math.max(0L, Objects.requireNonNull(maxWait, "maxWait").toNanos());
+    }
+
+    /** @return the limiter applied to every query. */
+    public AdaptiveLimiter limiter() {
+        return limiter;
+    }
+
+    @Override
+    public boolean connect(String location, int delayMillis) {
+        return delegate.connect(location, delayMillis);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = delegate.getConnection();
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+                Object result = invoke(connection, method, args);
+                return result instanceof Statement ? gate((Statement) result, method.getReturnType()) : result;
+            });
+    }
+
+    @Override
+    public boolean isConnected() {
+        return delegate.isConnected();
+    }
+
+    @Override
+    public void disconnect() {
+        delegate.disconnect();
+    }
+
+    // -------------------------------------------------------------------------
+    // Helpers
+    // -------------------------------------------------------------------------
+
+    /**
+     * Wrap a statement so its execute calls go through the limiter.
+     *
+     * @param type the JDBC interface the caller asked for, e.g. {@code PreparedStatement}
+     */
+    private Statement gate(Statement statement, Class<?> type) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            QueryScope scope = QueryScope.current();
+            if (scope != null) {
+                scope.check();
+            }
+            AdaptiveLimiter.Token token = limiter.tryAcquireForCurrentThread();
+            if (token == null) {
+                throw new DbOverloadedException(limiter.limit());
+            }
+            boolean succeeded = false;
+            try {
+                if (!connection.tryLock(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                    throw new DbOverloadedException(limiter.limit(), TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+                }
+                try {
+                    // Registered only once it has the connection, so a cancel
+                    // can only ever hit this query, not the one before it.
+                    if (scope != null) {
+                        scope.enter(statement);
+                    }
+                    try {
+                        Object result = invoke(statement, method, args);
+                        succeeded = true;
+                        return result;
+                    } finally {
+                        if (scope != null) {
+                            scope.exit(statement);
+                        }
+                    }
+                } finally {
+                    connection.unlock();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted waiting for the connection", ex);
+            } finally {
+                limiter.release(token, succeeded);
+            }
+        };
+        return (Statement) Proxy.newProxyInstance(
+            Statement.class.getClassLoader(), new Class<?>[] {type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getCause();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.group13.population.db;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * The queries one piece of work runs on its thread, so that another thread
+ * can cancel them.
+ *
+ * <p>{@link #run} binds the scope to the current thread. Statements that
+ * {@link LimitedDb} executes meanwhile are registered with it;
+ * {@link #cancel()} cancels the one running ({@link Statement#cancel()})
+ * and makes every later query in the scope fail at once. Used by the async
+ * report executor when a request misses its deadline.</p>
+ */
+public final class QueryScope {
+
+    private static final ThreadLocal<QueryScope> CURRENT = new ThreadLocal<>();
+
+    /** A scope belongs to one thread, so at most one query runs at a time. */
+    private volatile Statement running;
+    private volatile boolean cancelled;
+
+    /** Work run inside a scope. */
+    @FunctionalInterface
+    public interface Work {
+        /**
+         * @throws Exception whatever the work throws
+         */
+        void run() throws Exception;
+    }
+
+    /**
+     * Run {@code work} on the current thread with this scope bound to it.
+     *
+     * @param work the work
+     * @throws Exception whatever the work throws
+     */
+    public void run(Work work) throws Exception {
+        QueryScope previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            work.run();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Cancel the running query and refuse any further ones. Safe to call
+     * from any thread, more than once.
+     */
+    public void cancel() {
+        cancelled = true;
+        Statement statement = running;
+        if (statement != null) {
+            try {
+                statement.cancel();
+            } catch (SQLException ignored) {
+                // The query may just have finished; nothing to cancel.
+            }
+        }
+    }
+
+    /** @return {@code true} once {@link #cancel()} has been called. */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /** @return the scope bound to the current thread, or {@code null}. */
+    static QueryScope current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * @throws SQLException if the scope has been cancelled
+     */
+    void check() throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query cancelled");
+        }
+    }
+
+    /**
+     * Register a statement that is about to execute.
+     *
+     * @throws SQLException if the scope has been cancelled
+     */
+    void enter(Statement statement) throws SQLException {
+        running = statement;
+        if (cancelled) {
+            running = null;
+            throw new SQLException("Query cancelled");
+        }
+    }
+
+    /** Unregister a statement that has finished executing. */
+    void exit(Statement statement) {
+        running = null;
+    }
+}
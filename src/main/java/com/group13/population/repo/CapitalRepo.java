@@ -3,9 +3,6 @@ package com.group13.population.repo;
 import com.group13.population.db.Db;
 import com.group13.population.model.CityRow;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -15,22 +12,16 @@ import java.util.Objects;
 /**
  * Repository for capital city reports (R17–R22).
  *
- * <p>This class is defensive: if the database is not connected or a query
- * fails, the public methods return an empty (but non-null) list instead of
- * bubbling up SQL exceptions. This matches WorldRepo/CityRepo so that the
- * HTTP routes can still respond with 200 even when MySQL is not running
- * during unit tests.</p>
+ * <p>If the database is not connected or a query fails, the public methods
+ * throw {@link DataAccessException} (like WorldRepo/CityRepo) so the web
+ * layer can serve the last good result or a 503, rather than a 200 with
+ * an empty report.</p>
+ *
+ * <p>The SQL of each report is the compiled plan declared in
+ * {@link ReportRegistry}, which {@code /api/capitals} also uses.</p>
  */
 public class CapitalRepo {
 
-    private static final String SELECT_BASE =
-        "SELECT city.Name AS city_name, "
-            + "country.Name AS country_name, "
-            + "city.District AS district, "
-            + "city.Population AS population "
-            + "FROM city "
-            + "JOIN country ON city.ID = country.Capital ";
-
     private final Db db;
 
     /**
@@ -48,8 +39,7 @@ public class CapitalRepo {
 
     /** R17 – all capital cities in the world, largest population first. */
     public List<CityRow> findCapitalCitiesInWorldByPopulationDesc() {
-        String sql = SELECT_BASE + "ORDER BY city.Population DESC";
-        return queryCapitalsAsCityRows(sql);
+        return queryCapitalsAsCityRows("R17", null, 0);
     }
 
     /** Alias used by CapitalRepoIT (legacy naming). */
@@ -62,8 +52,7 @@ public class CapitalRepo {
         if (limit <= 0) {
             return List.of();
         }
-        String sql = SELECT_BASE + "ORDER BY city.Population DESC LIMIT ?";
-        return queryCapitalsAsCityRows(sql, limit);
+        return queryCapitalsAsCityRows("R20", null, limit);
     }
 
     /** Alias used by CapitalRepoIT (legacy naming). */
@@ -80,10 +69,7 @@ public class CapitalRepo {
         if (continent == null || continent.isBlank()) {
             return List.of();
         }
-        String sql = SELECT_BASE
-            + "WHERE country.Continent = ? "
-            + "ORDER BY city.Population DESC";
-        return queryCapitalsAsCityRows(sql, continent);
+        return queryCapitalsAsCityRows("R18", continent, 0);
     }
 
     /** Alias used by CapitalRepoIT (legacy naming). */
@@ -97,10 +83,7 @@ public class CapitalRepo {
         if (continent == null || continent.isBlank() || limit <= 0) {
             return List.of();
         }
-        String sql = SELECT_BASE
-            + "WHERE country.Continent = ? "
-            + "ORDER BY city.Population DESC LIMIT ?";
-        return queryCapitalsAsCityRows(sql, continent, limit);
+        return queryCapitalsAsCityRows("R21", continent, limit);
     }
 
     /** Alias used by CapitalRepoIT (legacy naming). */
@@ -118,10 +101,7 @@ public class CapitalRepo {
         if (region == null || region.isBlank()) {
             return List.of();
         }
-        String sql = SELECT_BASE
-            + "WHERE country.Region = ? "
-            + "ORDER BY city.Population DESC";
-        return queryCapitalsAsCityRows(sql, region);
+        return queryCapitalsAsCityRows("R19", region, 0);
     }
 
     /** Alias used by CapitalRepoIT (legacy naming). */
@@ -135,10 +115,7 @@ public class CapitalRepo {
         if (region == null || region.isBlank() || limit <= 0) {
             return List.of();
         }
-        String sql = SELECT_BASE
-            + "WHERE country.Region = ? "
-            + "ORDER BY city.Population DESC LIMIT ?";
-        return queryCapitalsAsCityRows(sql, region, limit);
+        return queryCapitalsAsCityRows("R22", region, limit);
     }
 
     /** Alias used by CapitalRepoIT (legacy naming). */
@@ -152,40 +129,23 @@ public class CapitalRepo {
     // ---------------------------------------------------------------------
 
     /**
-     * Run the given SQL and map results into {@link CityRow} objects.
-     * Any {@link SQLException} is logged and results in an empty list.
+     * Run a capital report from the {@link ReportRegistry}, selecting every
+     * city column, and map the results into {@link CityRow} objects.
+     * Any {@link SQLException} is logged and rethrown as {@link DataAccessException}.
      */
-    private List<CityRow> queryCapitalsAsCityRows(String sql, Object... params) {
-        Objects.requireNonNull(sql, "sql must not be null");
+    private List<CityRow> queryCapitalsAsCityRows(String reportId, String value, int limit) {
+        ReportPlan plan = ReportRegistry.plan(reportId);
 
         List<CityRow> rows = new ArrayList<>();
 
-        try (Connection conn = db.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            for (int i = 0; i < params.length; i++) {
-                Object value = params[i];
-                if (value instanceof Integer) {
-                    stmt.setInt(i + 1, (Integer) value);
-                } else {
-                    stmt.setString(i + 1, String.valueOf(value));
-                }
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    String cityName = rs.getString("city_name");
-                    String countryName = rs.getString("country_name");
-                    String district = rs.getString("district");
-                    int population = rs.getInt("population");
-
-                    rows.add(new CityRow(cityName, countryName, district, population));
-                }
+        // The connection is shared and owned by Db; only the statement is closed.
+        try {
+            for (Object[] row : plan.rows(db.getConnection(), plan.entity().schema(), value, limit)) {
+                rows.add(CityRepo.mapRow(row));
             }
         } catch (SQLException ex) {
-            // Important for tests: do NOT throw, just log + return empty list.
             System.err.println("WARNING: CapitalRepo query failed: " + ex.getMessage());
-            rows.clear();
+            throw new DataAccessException("Capital query failed", ex);
         }
 
         return Collections.unmodifiableList(rows);
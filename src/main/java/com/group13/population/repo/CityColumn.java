@@ -0,0 +1,38 @@
+package com.group13.population.repo;
+
+/**
+ * Output schema of the city reports (R07–R16), in default order.
+ * {@link #COUNTRY} is the only column that needs the {@code country} join.
+ */
+public enum CityColumn implements ReportColumn {
+
+    NAME("Name", "city.Name", false),
+    COUNTRY("Country", "country.Name", false),
+    DISTRICT("District", "city.District", false),
+    POPULATION("Population", "city.Population", true);
+
+    private final String header;
+    private final String sql;
+    private final boolean numeric;
+
+    CityColumn(String header, String sql, boolean numeric) {
+        this.header = header;
+        this.sql = sql;
+        this.numeric = numeric;
+    }
+
+    @Override
+    public String header() {
+        return header;
+    }
+
+    @Override
+    public String sql() {
+        return sql;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return numeric;
+    }
+}
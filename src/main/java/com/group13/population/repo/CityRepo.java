@@ -16,21 +16,15 @@ import java.util.Objects;
  *
  * Provides queries for all cities and top N cities in the world,
  * a continent, region, country, or district ordered by population
- * from largest to smallest.
+ * from largest to smallest. The SQL of each report is the compiled plan
+ * declared in {@link ReportRegistry}.
+ *
+ * <p>{@code /api/cities} and {@code /reports/cities} both stream through
+ * {@link #streamCities} and {@link #findCityPage} (via the city service),
+ * so the two route families share one query path.</p>
  */
 public class CityRepo {
 
-    /**
-     * Shared SELECT clause for all city queries.
-     */
-    private static final String SELECT_BASE =
-        "SELECT city.Name AS city_name, "
-            + "country.Name AS country_name, "
-            + "city.District AS district, "
-            + "city.Population AS population "
-            + "FROM city "
-            + "JOIN country ON city.CountryCode = country.Code ";
-
     /**
      * Database wrapper. In production this is non-null; in some
      * test stubs a protected no-args constructor is used and the
@@ -68,7 +62,7 @@ public class CityRepo {
      * @return list of cities.
      */
     public List<CityRow> findCitiesInWorldByPopulationDesc() {
-        return queryCities(null, null, null);
+        return queryCities("R07", null, 0);
     }
 
     /**
@@ -79,7 +73,7 @@ public class CityRepo {
      */
     public List<CityRow> findTopCitiesInWorldByPopulationDesc(int limit) {
         validateLimit(limit);
-        return queryCities(null, null, limit);
+        return queryCities("R12", null, limit);
     }
 
     // -------------------------------------------------------------------------
@@ -94,7 +88,7 @@ public class CityRepo {
      */
     public List<CityRow> findCitiesInContinentByPopulationDesc(String continent) {
         validateName(continent, "continent");
-        return queryCities("country.Continent = ?", continent, null);
+        return queryCities("R08", continent, 0);
     }
 
     /**
@@ -108,7 +102,7 @@ public class CityRepo {
                                                                   int limit) {
         validateName(continent, "continent");
         validateLimit(limit);
-        return queryCities("country.Continent = ?", continent, limit);
+        return queryCities("R13", continent, limit);
     }
 
     // -------------------------------------------------------------------------
@@ -123,7 +117,7 @@ public class CityRepo {
      */
     public List<CityRow> findCitiesInRegionByPopulationDesc(String region) {
         validateName(region, "region");
-        return queryCities("country.Region = ?", region, null);
+        return queryCities("R09", region, 0);
     }
 
     /**
@@ -137,7 +131,7 @@ public class CityRepo {
                                                                int limit) {
         validateName(region, "region");
         validateLimit(limit);
-        return queryCities("country.Region = ?", region, limit);
+        return queryCities("R14", region, limit);
     }
 
     // -------------------------------------------------------------------------
@@ -152,7 +146,7 @@ public class CityRepo {
      */
     public List<CityRow> findCitiesInCountryByPopulationDesc(String country) {
         validateName(country, "country");
-        return queryCities("country.Name = ?", country, null);
+        return queryCities("R10", country, 0);
     }
 
     /**
@@ -166,7 +160,7 @@ public class CityRepo {
                                                                 int limit) {
         validateName(country, "country");
         validateLimit(limit);
-        return queryCities("country.Name = ?", country, limit);
+        return queryCities("R15", country, limit);
     }
 
     // -------------------------------------------------------------------------
@@ -181,7 +175,7 @@ public class CityRepo {
      */
     public List<CityRow> findCitiesInDistrictByPopulationDesc(String district) {
         validateName(district, "district");
-        return queryCities("city.District = ?", district, null);
+        return queryCities("R11", district, 0);
     }
 
     /**
@@ -195,79 +189,135 @@ public class CityRepo {
                                                                  int limit) {
         validateName(district, "district");
         validateLimit(limit);
-        return queryCities("city.District = ?", district, limit);
+        return queryCities("R16", district, limit);
     }
 
     // -------------------------------------------------------------------------
-    // Internal helpers
+    // Streaming (shared by /api/cities and /reports/cities)
     // -------------------------------------------------------------------------
 
     /**
-     * Runs a city query using the shared SELECT clause with an optional
-     * {@code WHERE} condition and optional {@code LIMIT}.
+     * Runs a city report and hands each row to {@code sink} as it is read,
+     * without building a list.
      *
-     * @param condition SQL condition after {@code WHERE}, or {@code null} for none.
-     * @param value     value to bind for the condition, or {@code null}.
-     * @param limit     maximum number of rows, or {@code null} for all rows.
-     * @return list of matching city rows.
+     * @param reportId report identifier (R07–R16).
+     * @param columns  columns to select, in output order.
+     * @param value    value to bind for the report's filter, or {@code null}.
+     * @param limit    maximum number of rows for a top-N report.
+     * @param sink     receives the rows.
+     * @return number of rows written.
      */
-    private List<CityRow> queryCities(String condition, String value, Integer limit) {
-        if (db == null) {
-            throw new IllegalStateException(
-                "CityRepo was created without a Db; this constructor "
-                    + "is only intended for test stubs.");
+    public int streamCities(String reportId, List<? extends ReportColumn> columns, String value,
+                            int limit, ReportPlan.RowSink sink) {
+        ReportPlan plan = ReportRegistry.plan(reportId);
+        try {
+            return plan.stream(connection(), columns, value, limit, sink);
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to query cities.", ex);
         }
+    }
 
-        StringBuilder sql = new StringBuilder(SELECT_BASE);
-        if (condition != null) {
-            sql.append("WHERE ").append(condition).append(" ");
+    /**
+     * Reads one keyset page of a full city listing, ordered by population
+     * (largest first) then city ID.
+     *
+     * @param reportId        report identifier (R07 or R08).
+     * @param columns         columns to select, in output order.
+     * @param value           value to bind for the report's filter, or {@code null}.
+     * @param afterPopulation population of the last row already seen, or
+     *                        {@code null} for the first page.
+     * @param afterId         ID of the last row already seen (ignored for the first page).
+     * @param fetchSize       maximum number of rows to read.
+     * @return one array per row: the selected values ({@link Long} for numeric
+     *         columns, otherwise {@link String}), then the population
+     *         ({@link Long}) and the ID ({@link Integer}) that make the next token.
+     */
+    public List<Object[]> findCityPage(String reportId, List<? extends ReportColumn> columns, String value,
+                                       Long afterPopulation, int afterId, int fetchSize) {
+        ReportPlan plan = ReportRegistry.plan(reportId);
+        boolean first = afterPopulation == null;
+        int keyPopulation = columns.size() + 1;
+        int keyId = columns.size() + 2;
+
+        try (PreparedStatement stmt = connection().prepareStatement(plan.pageSql(columns, first))) {
+            int index = 1;
+            if (value != null) {
+                stmt.setString(index++, value);
+            }
+            if (!first) {
+                stmt.setLong(index++, afterPopulation);
+                stmt.setLong(index++, afterPopulation);
+                stmt.setInt(index++, afterId);
+            }
+            stmt.setInt(index, fetchSize);
+
+            List<Object[]> rows = new ArrayList<>(fetchSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Object[] row = new Object[keyId];
+                    for (int i = 0; i < columns.size(); i++) {
+                        row[i] = columns.get(i).isNumeric() ? (Object) rs.getLong(i + 1) : rs.getString(i + 1);
+                    }
+                    row[keyPopulation - 1] = rs.getLong(keyPopulation);
+                    row[keyId - 1] = rs.getInt(keyId);
+                    rows.add(row);
+                }
+            }
+            return rows;
+        } catch (SQLException ex) {
+            throw new DataAccessException("Failed to query cities.", ex);
         }
-        sql.append("ORDER BY city.Population DESC");
+    }
 
-        boolean hasLimit = limit != null && limit > 0;
-        if (hasLimit) {
-            sql.append(" LIMIT ?");
-        }
+    // -------------------------------------------------------------------------
+    // Internal helpers
+    // -------------------------------------------------------------------------
 
+    /**
+     * Runs a city report from the {@link ReportRegistry} selecting every
+     * city column.
+     *
+     * @param reportId report identifier (R07–R16).
+     * @param value    value to bind for the report's filter, or {@code null}.
+     * @param limit    maximum number of rows for a top-N report.
+     * @return list of matching city rows.
+     */
+    private List<CityRow> queryCities(String reportId, String value, int limit) {
+        ReportPlan plan = ReportRegistry.plan(reportId);
         try {
-            Connection connection = db.getConnection();
-            try (PreparedStatement stmt =
-                     connection.prepareStatement(sql.toString())) {
-
-                int index = 1;
-                if (condition != null && value != null) {
-                    stmt.setString(index++, value);
-                }
-                if (hasLimit) {
-                    stmt.setInt(index, limit);
-                }
-
-                try (ResultSet rs = stmt.executeQuery()) {
-                    List<CityRow> rows = new ArrayList<>();
-                    while (rs.next()) {
-                        rows.add(mapRow(rs));
-                    }
-                    return rows;
-                }
+            List<CityRow> rows = new ArrayList<>();
+            for (Object[] row : plan.rows(connection(), plan.entity().schema(), value, limit)) {
+                rows.add(mapRow(row));
             }
+            return rows;
         } catch (SQLException ex) {
-            throw new RuntimeException("Failed to query cities.", ex);
+            throw new DataAccessException("Failed to query cities.", ex);
+        }
+    }
+
+    /**
+     * The shared connection (owned by {@link Db}, never closed here).
+     *
+     * @throws IllegalStateException for a stub created without a {@link Db}.
+     */
+    private Connection connection() throws SQLException {
+        if (db == null) {
+            throw new IllegalStateException(
+                "CityRepo was created without a Db; this constructor "
+                    + "is only intended for test stubs.");
         }
+        return db.getConnection();
     }
 
     /**
-     * Maps the current row of the result set to a {@link CityRow}.
+     * Maps one row (Name, Country, District, Population) to a {@link CityRow}.
      *
-     * @param rs result set positioned on a row.
+     * @param row values in {@link CityColumn} order.
      * @return mapped city row.
-     * @throws SQLException if a column cannot be read.
      */
-    private CityRow mapRow(ResultSet rs) throws SQLException {
-        String cityName = rs.getString("city_name");
-        String countryName = rs.getString("country_name");
-        String district = rs.getString("district");
-        int population = rs.getInt("population");
-        return new CityRow(cityName, countryName, district, population);
+    static CityRow mapRow(Object[] row) {
+        return new CityRow((String) row[0], (String) row[1], (String) row[2],
+            ((Long) row[3]).intValue());
     }
 
     private void validateLimit(int limit) {
@@ -0,0 +1,40 @@
+package com.group13.population.repo;
+
+/**
+ * Output schema of the country reports (R01–R06), in default order.
+ * {@link #CAPITAL} is the only column that needs the {@code city} join.
+ */
+public enum CountryColumn implements ReportColumn {
+
+    CODE("Code", "c.Code", false),
+    NAME("Name", "c.Name", false),
+    CONTINENT("Continent", "c.Continent", false),
+    REGION("Region", "c.Region", false),
+    POPULATION("Population", "c.Population", true),
+    CAPITAL("Capital", "ci.Name", false);
+
+    private final String header;
+    private final String sql;
+    private final boolean numeric;
+
+    CountryColumn(String header, String sql, boolean numeric) {
+        this.header = header;
+        this.sql = sql;
+        this.numeric = numeric;
+    }
+
+    @Override
+    public String header() {
+        return header;
+    }
+
+    @Override
+    public String sql() {
+        return sql;
+    }
+
+    @Override
+    public boolean isNumeric() {
+        return numeric;
+    }
+}
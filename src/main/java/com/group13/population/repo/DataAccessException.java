@@ -0,0 +1,23 @@
+package com.group13.population.repo;
+
+/**
+ * Thrown by the repositories when the database cannot be reached or a
+ * query fails.
+ *
+ * <p>This keeps "no data" and "no answer" apart: an empty list always
+ * means the query ran and matched nothing, while this exception means the
+ * report could not be produced. The web layer turns it into a stale
+ * response (last good result) or {@code 503 Service Unavailable}.</p>
+ */
+public class DataAccessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param message description of the failed operation
+     * @param cause   underlying SQL error, or {@code null}
+     */
+    public DataAccessException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
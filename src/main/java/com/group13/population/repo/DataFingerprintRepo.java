@@ -0,0 +1,71 @@
+package com.group13.population.repo;
+
+import com.group13.population.db.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Repository that computes a cheap fingerprint of the report data.
+ *
+ * <p>Uses MySQL {@code CHECKSUM TABLE} over the three tables every report
+ * reads from ({@code country}, {@code city}, {@code countrylanguage}).
+ * The world database is small, so a live checksum is inexpensive and picks
+ * up any insert, update or delete – including renames that would not
+ * change row counts or population totals.</p>
+ */
+public class DataFingerprintRepo {
+
+    private static final String SQL = "CHECKSUM TABLE country, city, countrylanguage";
+
+    /** Database helper; expected to be connected before use. */
+    private final Db db;
+
+    /**
+     * Constructor for injecting a pre-configured Db.
+     */
+    public DataFingerprintRepo(final Db db) {
+        this.db = Objects.requireNonNull(db, "db");
+    }
+
+    /**
+     * Return the current fingerprint, e.g. {@code "country=123;city=456;..."}.
+     *
+     * @return fingerprint string, or {@code null} if the database is
+     *         unavailable or the query fails
+     */
+    public String findFingerprint() {
+        final Connection conn;
+
+        try {
+            conn = db.getConnection();
+        } catch (SQLException ex) {
+            System.err.println("DataFingerprintRepo getConnection failed: " + ex.getMessage());
+            return null;
+        }
+
+        if (conn == null) {
+            return null;
+        }
+
+        final StringBuilder fingerprint = new StringBuilder();
+
+        try (PreparedStatement stmt = conn.prepareStatement(SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                fingerprint.append(rs.getString("Table"))
+                    .append('=')
+                    .append(rs.getString("Checksum"))
+                    .append(';');
+            }
+        } catch (SQLException ex) {
+            System.err.println("DataFingerprintRepo query failed: " + ex.getMessage());
+            return null;
+        }
+
+        return fingerprint.toString();
+    }
+}
@@ -10,9 +10,10 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 /**
  * Repository for population reports.
@@ -121,11 +122,11 @@ public class PopulationRepo {
             conn = db.getConnection();
         } catch (SQLException ex) {
             System.err.println("PopulationRepo getConnection failed (R26): " + ex.getMessage());
-            return 0L;
+            throw new DataAccessException("Database unavailable", ex);
         }
 
         if (conn == null) {
-            return 0L;
+            throw new DataAccessException("Database not connected", null);
         }
 
         try (PreparedStatement stmt = conn.prepareStatement(sql);
@@ -135,6 +136,7 @@ public class PopulationRepo {
             }
         } catch (SQLException ex) {
             System.err.println("PopulationRepo query failed (R26): " + ex.getMessage());
+            throw new DataAccessException("World population query failed", ex);
         }
 
         return 0L;
@@ -262,6 +264,35 @@ public class PopulationRepo {
     }
 
 
+    // ---------------------------------------------------------------------
+    // R27–R31 in bulk – many names in one query
+    // ---------------------------------------------------------------------
+
+    /** R27 for many continents; see {@link #runBulkLookup}. */
+    public Map<String, Long> findContinentPopulations(final List<String> continents) {
+        return runBulkLookup(continents, "country c ON c.Continent = n.Name");
+    }
+
+    /** R28 for many regions; see {@link #runBulkLookup}. */
+    public Map<String, Long> findRegionPopulations(final List<String> regions) {
+        return runBulkLookup(regions, "country c ON c.Region = n.Name");
+    }
+
+    /** R29 for many countries; see {@link #runBulkLookup}. */
+    public Map<String, Long> findCountryPopulations(final List<String> countryNames) {
+        return runBulkLookup(countryNames, "country c ON c.Name = n.Name");
+    }
+
+    /** R30 for many districts (prefix match, as in R30); see {@link #runBulkLookup}. */
+    public Map<String, Long> findDistrictPopulations(final List<String> districts) {
+        return runBulkLookup(districts, "city c ON c.District LIKE CONCAT(n.Name, '%')");
+    }
+
+    /** R31 for many cities (substring match, as in R31); see {@link #runBulkLookup}. */
+    public Map<String, Long> findCityPopulations(final List<String> cityNames) {
+        return runBulkLookup(cityNames, "city c ON c.Name LIKE CONCAT('%', n.Name, '%')");
+    }
+
     // ---------------------------------------------------------------------
     // R32 – Language populations and % of world
     // ---------------------------------------------------------------------
@@ -294,11 +325,11 @@ public class PopulationRepo {
             conn = db.getConnection();
         } catch (SQLException ex) {
             System.err.println("PopulationRepo getConnection failed (R32): " + ex.getMessage());
-            return Collections.emptyList();
+            throw new DataAccessException("Database unavailable", ex);
         }
 
         if (conn == null) {
-            return Collections.emptyList();
+            throw new DataAccessException("Database not connected", null);
         }
 
         final List<LanguagePopulationRow> rows = new ArrayList<>();
@@ -318,6 +349,7 @@ public class PopulationRepo {
             }
         } catch (SQLException ex) {
             System.err.println("PopulationRepo query failed (R32): " + ex.getMessage());
+            throw new DataAccessException("Language query failed", ex);
         }
 
         return rows;
@@ -329,7 +361,9 @@ public class PopulationRepo {
 
     /**
      * Execute a read-only SELECT and map to PopulationRow list.
-     * Follows the same error-handling style as WorldRepo.
+     * Follows the same error-handling style as WorldRepo: database
+     * failures throw {@link DataAccessException} rather than returning
+     * an empty list.
      */
     private List<PopulationRow> runPopulationQuery(final String sql, final Object... params) {
         final Connection conn;
@@ -338,11 +372,11 @@ public class PopulationRepo {
             conn = db.getConnection();
         } catch (SQLException ex) {
             System.err.println("PopulationRepo getConnection failed: " + ex.getMessage());
-            return Collections.emptyList();
+            throw new DataAccessException("Database unavailable", ex);
         }
 
         if (conn == null) {
-            return Collections.emptyList();
+            throw new DataAccessException("Database not connected", null);
         }
 
         final List<PopulationRow> rows = new ArrayList<>();
@@ -360,6 +394,7 @@ public class PopulationRepo {
             }
         } catch (SQLException ex) {
             System.err.println("PopulationRepo query failed: " + ex.getMessage());
+            throw new DataAccessException("Population query failed", ex);
         }
 
         return rows;
@@ -378,11 +413,11 @@ public class PopulationRepo {
             conn = db.getConnection();
         } catch (SQLException ex) {
             System.err.println("PopulationRepo getConnection failed (lookup): " + ex.getMessage());
-            return PopulationLookupRow.of(logicalName, 0L);
+            throw new DataAccessException("Database unavailable", ex);
         }
 
         if (conn == null) {
-            return PopulationLookupRow.of(logicalName, 0L);
+            throw new DataAccessException("Database not connected", null);
         }
 
         long population = 0L;
@@ -399,11 +434,76 @@ public class PopulationRepo {
             }
         } catch (SQLException ex) {
             System.err.println("PopulationRepo lookup query failed: " + ex.getMessage());
+            throw new DataAccessException("Population lookup failed", ex);
         }
 
         return PopulationLookupRow.of(logicalName, population);
     }
 
+    /**
+     * Look up many names with one set-based query: the names are bound into
+     * a derived table which is LEFT JOINed to the data, so each name costs
+     * a join probe rather than a round trip.
+     *
+     * @param names names to look up (blank entries are ignored)
+     * @param join  join target and condition, e.g. {@code country c ON c.Name = n.Name}
+     * @return population per name that matched at least one row, keyed
+     *         case-insensitively (as the database compares them); names
+     *         that matched nothing are absent
+     */
+    private Map<String, Long> runBulkLookup(final List<String> names, final String join) {
+        final List<String> params = new ArrayList<>();
+        if (names != null) {
+            for (String name : names) {
+                if (name != null && !name.isBlank()) {
+                    params.add(name);
+                }
+            }
+        }
+        final Map<String, Long> found = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (params.isEmpty()) {
+            return found;
+        }
+
+        final StringBuilder sql = new StringBuilder(
+            "SELECT n.Name AS Name, SUM(c.Population) AS Population, COUNT(c.Population) AS Matches FROM (");
+        for (int i = 0; i < params.size(); i++) {
+            sql.append(i == 0 ? "SELECT ? AS Name" : " UNION ALL SELECT ?");
+        }
+        sql.append(") n LEFT JOIN ").append(join).append(" GROUP BY n.Name");
+
+        final Connection conn;
+        try {
+            conn = db.getConnection();
+        } catch (SQLException ex) {
+            System.err.println("PopulationRepo getConnection failed (bulk lookup): " + ex.getMessage());
+            throw new DataAccessException("Database unavailable", ex);
+        }
+
+        if (conn == null) {
+            throw new DataAccessException("Database not connected", null);
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setString(i + 1, params.get(i));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    if (rs.getLong("Matches") > 0) {
+                        found.put(rs.getString("Name"), rs.getLong("Population"));
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            System.err.println("PopulationRepo bulk lookup query failed: " + ex.getMessage());
+            throw new DataAccessException("Population lookup failed", ex);
+        }
+
+        return found;
+    }
+
     /**
      * Map the current row from the ResultSet into a PopulationRow.
      * Expects columns: Name, TotalPopulation, CityPopulation.
@@ -0,0 +1,203 @@
+package com.group13.population.repo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An ad-hoc ranking of countries or cities that the fixed reports do not
+ * cover, e.g. "cities in Asia with 1M–5M people, excluding capitals, top 50".
+ *
+ * <p>The grammar is deliberately small: equality on the entity's scopes
+ * ({@link ReportEntity.Filter}), an inclusive population range, a capital
+ * flag (cities only), an order and a mandatory limit. Every query compiles
+ * to parameterised SQL; the compiled text and row encoder are cached by
+ * query <em>shape</em> (which predicates are present, not their values), so
+ * repeated shapes never build SQL. At most {@link #MAX_CACHED_SHAPES}
+ * shapes are kept; rarer ones are compiled per call.</p>
+ *
+ * <p>Parameters are bound in a fixed order: the scope values in
+ * {@link ReportEntity.Filter} order, the minimum and maximum population,
+ * then the limit.</p>
+ */
+public final class RankingQuery {
+
+    /** Upper bound on cached query shapes. */
+    static final int MAX_CACHED_SHAPES = 256;
+
+    private static final ConcurrentHashMap<Shape, Compiled> COMPILED = new ConcurrentHashMap<>();
+
+    private final Shape shape;
+    private final EnumMap<ReportEntity.Filter, String> scopes;
+    private final Long minPopulation;
+    private final Long maxPopulation;
+    private final int limit;
+
+    /**
+     * @param entity        {@link ReportEntity#COUNTRY} or {@link ReportEntity#CITY}
+     * @param columns       output columns from the entity's schema
+     * @param scopes        scope equality predicates (WORLD is not a scope)
+     * @param minPopulation inclusive lower bound, or {@code null}
+     * @param maxPopulation inclusive upper bound, or {@code null}
+     * @param capital       cities only: {@code true} for capitals only,
+     *                      {@code false} to exclude them, {@code null} for both
+     * @param ascending     {@code true} for smallest first
+     * @param limit         maximum number of rows, positive
+     * @throws IllegalArgumentException if the query is not valid for the entity
+     */
+    public RankingQuery(ReportEntity entity, List<? extends ReportColumn> columns,
+                        Map<ReportEntity.Filter, String> scopes, Long minPopulation,
+                        Long maxPopulation, Boolean capital, boolean ascending, int limit) {
+        Objects.requireNonNull(entity, "entity");
+        Objects.requireNonNull(columns, "columns");
+        Objects.requireNonNull(scopes, "scopes");
+        if (entity == ReportEntity.CAPITAL) {
+            throw new IllegalArgumentException("query capitals as cities with capital=true");
+        }
+        if (columns.isEmpty() || !entity.schema().containsAll(columns)) {
+            throw new IllegalArgumentException("columns outside the " + entity + " schema");
+        }
+        this.scopes = new EnumMap<>(ReportEntity.Filter.class);
+        for (Map.Entry<ReportEntity.Filter, String> scope : scopes.entrySet()) {
+            ReportEntity.Filter filter = scope.getKey();
+            if (filter == ReportEntity.Filter.WORLD || !entity.supports(filter)) {
+                throw new IllegalArgumentException(entity + " cannot be filtered by " + filter);
+            }
+            this.scopes.put(filter, Objects.requireNonNull(scope.getValue(), filter.name()));
+        }
+        if (minPopulation != null && minPopulation < 0 || maxPopulation != null && maxPopulation < 0) {
+            throw new IllegalArgumentException("population bounds must not be negative");
+        }
+        if (minPopulation != null && maxPopulation != null && minPopulation > maxPopulation) {
+            throw new IllegalArgumentException("minimum population exceeds maximum");
+        }
+        if (capital != null && entity != ReportEntity.CITY) {
+            throw new IllegalArgumentException("the capital flag applies to cities only");
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be a positive integer");
+        }
+        this.minPopulation = minPopulation;
+        this.maxPopulation = maxPopulation;
+        this.limit = limit;
+        this.shape = new Shape(entity, List.copyOf(columns), Set.copyOf(this.scopes.keySet()),
+            minPopulation != null, maxPopulation != null, capital, ascending);
+    }
+
+    /** @return the parameterised SQL this query runs. */
+    public String sql() {
+        return compiled().sql;
+    }
+
+    /** @return the output columns, in order. */
+    public List<ReportColumn> columns() {
+        return shape.columns;
+    }
+
+    /**
+     * Run the query and hand each row to {@code sink}.
+     *
+     * @param conn open connection (not closed here)
+     * @param sink receives the rows
+     * @return number of rows written
+     * @throws SQLException if the query fails
+     */
+    public int stream(Connection conn, ReportPlan.RowSink sink) throws SQLException {
+        Compiled compiled = compiled();
+        int count = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(compiled.sql)) {
+            int index = 1;
+            for (String value : scopes.values()) {
+                stmt.setObject(index++, value);
+            }
+            if (minPopulation != null) {
+                stmt.setObject(index++, minPopulation);
+            }
+            if (maxPopulation != null) {
+                stmt.setObject(index++, maxPopulation);
+            }
+            stmt.setObject(index, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    compiled.encoder.encode(rs, sink);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** @return number of query shapes currently compiled and cached. */
+    static int cachedShapes() {
+        return COMPILED.size();
+    }
+
+    private Compiled compiled() {
+        Compiled compiled = COMPILED.get(shape);
+        if (compiled == null) {
+            compiled = COMPILED.size() < MAX_CACHED_SHAPES
+                ? COMPILED.computeIfAbsent(shape, RankingQuery::compile)
+                : compile(shape);
+        }
+        return compiled;
+    }
+
+    // ---------------------------------------------------------------------
+    // Compiler
+    // ---------------------------------------------------------------------
+
+    private static Compiled compile(Shape shape) {
+        ReportEntity entity = shape.entity;
+        String population = entity.population();
+
+        List<String> predicates = new ArrayList<>();
+        for (ReportEntity.Filter filter : ReportEntity.Filter.values()) {
+            if (shape.scopes.contains(filter)) {
+                predicates.add(entity.filterSql(filter) + " = ?");
+            }
+        }
+        if (shape.min) {
+            predicates.add(population + " >= ?");
+        }
+        if (shape.max) {
+            predicates.add(population + " <= ?");
+        }
+        if (shape.capital != null) {
+            predicates.add(shape.capital
+                ? "country.Capital = city.ID"
+                : "(country.Capital IS NULL OR country.Capital <> city.ID)");
+        }
+        String where = predicates.isEmpty() ? null : String.join(" AND ", predicates);
+
+        String sql = ReportEntity.select(shape.columns)
+            + " FROM " + entity.from(shape.columns, where)
+            + (where == null ? "" : " WHERE " + where)
+            + " ORDER BY " + population + (shape.ascending ? " ASC, " : " DESC, ") + entity.key()
+            + " LIMIT ?";
+        return new Compiled(sql, RowEncoder.of(shape.columns));
+    }
+
+    /** Everything that determines the SQL text, but none of the bound values. */
+    private record Shape(ReportEntity entity, List<ReportColumn> columns, Set<ReportEntity.Filter> scopes,
+                         boolean min, boolean max, Boolean capital, boolean ascending) {
+    }
+
+    /** SQL and row encoder for one shape. */
+    private static final class Compiled {
+        final String sql;
+        final RowEncoder encoder;
+
+        Compiled(String sql, RowEncoder encoder) {
+            this.sql = sql;
+            this.encoder = encoder;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.group13.population.repo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A column of a report's output schema and the SQL that produces it.
+ *
+ * <p>Implemented by the per-report column enums ({@link CountryColumn},
+ * {@link CityColumn}). A client can narrow a report to some of its columns
+ * with {@code ?fields=}; only those expressions are then selected, and
+ * joins needed by no selected column are left out.</p>
+ */
+public interface ReportColumn {
+
+    /** @return the column name used in CSV headers and JSON keys. */
+    String header();
+
+    /** @return SQL expression selecting the column. */
+    String sql();
+
+    /** @return {@code true} if the value is an integer, otherwise text. */
+    boolean isNumeric();
+
+    /**
+     * Resolve a comma-separated field list against a report's schema.
+     * Names match headers case-insensitively; duplicates are dropped and
+     * the requested order is kept.
+     *
+     * @param fields raw {@code fields} value; {@code null} or blank selects every column
+     * @param schema the report's columns, in default order
+     * @param <C>    column type
+     * @return the selected columns
+     * @throws IllegalArgumentException for an unknown field name
+     */
+    static <C extends ReportColumn> List<C> select(String fields, C[] schema) {
+        if (fields == null || fields.isBlank()) {
+            return List.of(schema);
+        }
+        List<C> selected = new ArrayList<>(schema.length);
+        for (String part : fields.split(",")) {
+            String name = part.trim();
+            if (name.isEmpty()) {
+                continue;
+            }
+            C match = null;
+            for (C column : schema) {
+                if (column.header().toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+                    match = column;
+                    break;
+                }
+            }
+            if (match == null) {
+                throw new IllegalArgumentException("Unknown field '" + name + "'; expected one of "
+                    + String.join(", ", headers(List.of(schema))));
+            }
+            if (!selected.contains(match)) {
+                selected.add(match);
+            }
+        }
+        if (selected.isEmpty()) {
+            return List.of(schema);
+        }
+        return selected;
+    }
+
+    /**
+     * @param columns columns
+     * @return their headers, in order
+     */
+    static String[] headers(List<? extends ReportColumn> columns) {
+        String[] headers = new String[columns.size()];
+        for (int i = 0; i < headers.length; i++) {
+            headers[i] = columns.get(i).header();
+        }
+        return headers;
+    }
+}
@@ -0,0 +1,111 @@
+package com.group13.population.repo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a listing report (R01–R22) lists, and how its SQL is assembled:
+ * the base table, the join some columns or filters need, the output
+ * schema, the population it is ordered by and the unique key that breaks
+ * ties for keyset paging.
+ */
+public enum ReportEntity {
+
+    /** Countries (R01–R06); the capital's name needs the city join. */
+    COUNTRY("country c", " LEFT JOIN city ci ON c.Capital = ci.ID", "ci.",
+        List.<ReportColumn>of(CountryColumn.values()), "c.Population", "c.Code",
+        Map.of(Filter.CONTINENT, "c.Continent", Filter.REGION, "c.Region")),
+
+    /** Cities (R07–R16); the country's name and scopes need the country join. */
+    CITY("city", " JOIN country ON city.CountryCode = country.Code", "country.",
+        List.<ReportColumn>of(CityColumn.values()), "city.Population", "city.ID",
+        Map.of(Filter.CONTINENT, "country.Continent", Filter.REGION, "country.Region",
+            Filter.COUNTRY, "country.Name", Filter.DISTRICT, "city.District")),
+
+    /** Capital cities (R17–R22); the country join selects them, so it is always there. */
+    CAPITAL("city JOIN country ON city.ID = country.Capital", null, null,
+        List.<ReportColumn>of(CityColumn.values()), "city.Population", "city.ID",
+        Map.of(Filter.CONTINENT, "country.Continent", Filter.REGION, "country.Region"));
+
+    /** The scope a report is restricted to. */
+    public enum Filter {
+        WORLD,
+        CONTINENT,
+        REGION,
+        COUNTRY,
+        DISTRICT
+    }
+
+    private final String from;
+    private final String join;
+    private final String joinPrefix;
+    private final List<ReportColumn> schema;
+    private final String population;
+    private final String key;
+    private final Map<Filter, String> filters;
+
+    ReportEntity(String from, String join, String joinPrefix, List<ReportColumn> schema,
+                 String population, String key, Map<Filter, String> filters) {
+        this.from = from;
+        this.join = join;
+        this.joinPrefix = joinPrefix;
+        this.schema = schema;
+        this.population = population;
+        this.key = key;
+        this.filters = filters;
+    }
+
+    /** @return every column the entity can output, in default order. */
+    public List<ReportColumn> schema() {
+        return schema;
+    }
+
+    /**
+     * @param filter a scope
+     * @return {@code true} if reports on this entity can be restricted to it
+     */
+    public boolean supports(Filter filter) {
+        return filter == Filter.WORLD || filters.containsKey(filter);
+    }
+
+    /** SELECT list of the given columns, e.g. {@code SELECT city.Name, city.Population}. */
+    static String select(List<? extends ReportColumn> columns) {
+        StringBuilder select = new StringBuilder("SELECT ");
+        for (int i = 0; i < columns.size(); i++) {
+            select.append(i == 0 ? "" : ", ").append(columns.get(i).sql());
+        }
+        return select.toString();
+    }
+
+    /**
+     * FROM clause for the given columns and WHERE condition; the optional
+     * join is added only when one of them needs it.
+     *
+     * @param where WHERE condition, or {@code null} for none
+     */
+    String from(List<? extends ReportColumn> columns, String where) {
+        if (join == null) {
+            return from;
+        }
+        boolean needsJoin = where != null && where.contains(joinPrefix);
+        for (ReportColumn column : columns) {
+            needsJoin |= column.sql().startsWith(joinPrefix);
+        }
+        return needsJoin ? from + join : from;
+    }
+
+    /** SQL expression the filter compares, e.g. {@code country.Region}. */
+    String filterSql(Filter filter) {
+        return filters.get(filter);
+    }
+
+    /** SQL expression of the population the reports are ordered by. */
+    String population() {
+        return population;
+    }
+
+    /** SQL expression of the unique key used as the keyset tie-breaker. */
+    String key() {
+        return key;
+    }
+}
@@ -0,0 +1,248 @@
+package com.group13.population.repo;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled execution plan of one listing report, built once by
+ * {@link ReportRegistry} and shared by the {@code /api/*} routes and the
+ * repositories behind {@code /reports/*}.
+ *
+ * <p>For every column selection (the default one, the full schema for the
+ * repositories, or a {@code ?fields=} subset) the plan compiles a
+ * {@link Template}: the SQL text and a row encoder that reads each column
+ * by position as text or number. Templates are cached, so no request
+ * builds SQL; the number of selections is bounded by the schema.</p>
+ *
+ * <p>Parameters are bound in a fixed order: the filter value (unless the
+ * report covers the world), then the limit (top-N reports only).</p>
+ */
+public final class ReportPlan {
+
+    /** Receives report rows one value at a time. */
+    public interface RowSink {
+        /** @param value text cell */
+        RowSink text(String value);
+
+        /** @param value numeric cell */
+        RowSink number(long value);
+
+        /** Finish the current row. */
+        RowSink endRow();
+    }
+
+    private final String id;
+    private final ReportEntity entity;
+    private final ReportEntity.Filter filter;
+    private final boolean topN;
+    private final int defaultLimit;
+    private final List<ReportColumn> columns;
+    private final ConcurrentHashMap<List<ReportColumn>, Template> templates = new ConcurrentHashMap<>();
+
+    ReportPlan(String id, ReportEntity entity, ReportEntity.Filter filter, int defaultLimit,
+               List<ReportColumn> columns) {
+        this.id = Objects.requireNonNull(id, "id");
+        this.entity = Objects.requireNonNull(entity, "entity");
+        this.filter = Objects.requireNonNull(filter, "filter");
+        if (!entity.supports(filter)) {
+            throw new IllegalArgumentException(id + ": " + entity + " cannot be filtered by " + filter);
+        }
+        if (!entity.schema().containsAll(columns)) {
+            throw new IllegalArgumentException(id + ": columns outside the " + entity + " schema");
+        }
+        this.topN = defaultLimit > 0;
+        this.defaultLimit = defaultLimit;
+        this.columns = List.copyOf(columns);
+        template(this.columns);
+        template(entity.schema());
+    }
+
+    /** @return report identifier, e.g. {@code "R12"}. */
+    public String id() {
+        return id;
+    }
+
+    /** @return what the report lists. */
+    public ReportEntity entity() {
+        return entity;
+    }
+
+    /** @return the scope the report is restricted to. */
+    public ReportEntity.Filter filter() {
+        return filter;
+    }
+
+    /** @return {@code true} for a top-N report (its SQL ends with {@code LIMIT ?}). */
+    public boolean isTopN() {
+        return topN;
+    }
+
+    /** @return N when the client gives none (0 for a full listing). */
+    public int defaultLimit() {
+        return defaultLimit;
+    }
+
+    /** @return the report's output columns, in order. */
+    public List<ReportColumn> columns() {
+        return columns;
+    }
+
+    /**
+     * Resolve {@code ?fields=} against the entity's schema.
+     *
+     * @param fields raw field list; {@code null} or blank selects the report's columns
+     * @return selected columns
+     * @throws IllegalArgumentException for an unknown field name
+     */
+    public List<ReportColumn> select(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return columns;
+        }
+        return ReportColumn.select(fields, columns.toArray(new ReportColumn[0]));
+    }
+
+    /**
+     * @param selected columns to output
+     * @return the compiled SQL for that selection
+     */
+    public String sql(List<? extends ReportColumn> selected) {
+        return template(selected).sql;
+    }
+
+    /**
+     * Keyset-paged variant of a full listing: after the selected columns
+     * it selects the population and the entity key, and orders by both.
+     * Parameters: filter value, then (unless {@code first}) population,
+     * population and key of the last row seen, then the page size. The
+     * schema ({@code db/init/01-world.sql}) has a matching
+     * {@code (Population DESC, key)} index on {@code city} and
+     * {@code country}, so each page is an index range scan.
+     *
+     * @param selected columns to output
+     * @param first    {@code true} for the first page (no seek predicate)
+     * @return the compiled SQL
+     */
+    public String pageSql(List<? extends ReportColumn> selected, boolean first) {
+        Template template = template(selected);
+        return first ? template.firstPage : template.nextPage;
+    }
+
+    /**
+     * Run the report and hand each row to {@code sink}.
+     *
+     * @param conn     open connection (not closed here)
+     * @param selected columns to output
+     * @param value    filter value (ignored for world reports)
+     * @param limit    N for a top-N report (ignored otherwise)
+     * @param sink     receives the rows
+     * @return number of rows written
+     * @throws SQLException if the query fails
+     */
+    public int stream(Connection conn, List<? extends ReportColumn> selected, String value,
+                      int limit, RowSink sink) throws SQLException {
+        Template template = template(selected);
+        int count = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(template.sql)) {
+            bind(stmt, value, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    template.encoder.encode(rs, sink);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Run the report and return its rows.
+     *
+     * @param conn     open connection (not closed here)
+     * @param selected columns to output
+     * @param value    filter value (ignored for world reports)
+     * @param limit    N for a top-N report (ignored otherwise)
+     * @return one array per row: {@link Long} for numeric columns, otherwise {@link String}
+     * @throws SQLException if the query fails
+     */
+    public List<Object[]> rows(Connection conn, List<? extends ReportColumn> selected, String value,
+                               int limit) throws SQLException {
+        Template template = template(selected);
+        List<Object[]> rows = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(template.sql)) {
+            bind(stmt, value, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(template.encoder.read(rs));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private void bind(PreparedStatement stmt, String value, int limit) throws SQLException {
+        int index = 1;
+        if (filter != ReportEntity.Filter.WORLD) {
+            stmt.setObject(index++, value);
+        }
+        if (topN) {
+            stmt.setObject(index, limit);
+        }
+    }
+
+    private Template template(List<? extends ReportColumn> selected) {
+        Template template = templates.get(selected);
+        if (template == null) {
+            List<ReportColumn> key = List.copyOf(selected);
+            if (key.isEmpty() || !entity.schema().containsAll(key)) {
+                throw new IllegalArgumentException(id + ": columns outside the " + entity + " schema");
+            }
+            template = templates.computeIfAbsent(key, this::compile);
+        }
+        return template;
+    }
+
+    // ---------------------------------------------------------------------
+    // Compiler
+    // ---------------------------------------------------------------------
+
+    private Template compile(List<ReportColumn> selected) {
+        String select = ReportEntity.select(selected);
+        String where = filter == ReportEntity.Filter.WORLD ? null : entity.filterSql(filter) + " = ?";
+        String from = " FROM " + entity.from(selected, where);
+        String population = entity.population();
+
+        String sql = select + from
+            + (where == null ? "" : " WHERE " + where)
+            + " ORDER BY " + population + " DESC"
+            + (topN ? " LIMIT ?" : "");
+
+        String pageSelect = select + ", " + population + ", " + entity.key() + from;
+        String seek = "(" + population + " < ? OR (" + population + " = ? AND " + entity.key() + " > ?))";
+        String pageOrder = " ORDER BY " + population + " DESC, " + entity.key() + " LIMIT ?";
+        String firstPage = pageSelect + (where == null ? "" : " WHERE " + where) + pageOrder;
+        String nextPage = pageSelect + " WHERE " + (where == null ? seek : where + " AND " + seek) + pageOrder;
+
+        return new Template(sql, firstPage, nextPage, RowEncoder.of(selected));
+    }
+
+    /** SQL and row encoder for one column selection. */
+    private static final class Template {
+        final String sql;
+        final String firstPage;
+        final String nextPage;
+        final RowEncoder encoder;
+
+        Template(String sql, String firstPage, String nextPage, RowEncoder encoder) {
+            this.sql = sql;
+            this.firstPage = firstPage;
+            this.nextPage = nextPage;
+            this.encoder = encoder;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.group13.population.repo;
+
+import com.group13.population.repo.ReportEntity.Filter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The listing reports R01–R22, each declared once: what it lists, the
+ * scope it filters by, whether it is a top-N report (and its default N)
+ * and its output columns. Every report is ordered by population, largest
+ * first.
+ *
+ * <p>Each declaration is compiled into a {@link ReportPlan} when the class
+ * loads; {@link #plan(String)} returns that plan to the {@code /api/*}
+ * routes and to the repositories behind {@code /reports/*} alike.</p>
+ *
+ * <p>The population reports R23–R32 are aggregates and single-value
+ * lookups with shapes of their own; each is declared once in
+ * {@link PopulationRepo}.</p>
+ */
+public final class ReportRegistry {
+
+    private static final List<ReportColumn> COUNTRY_COLUMNS = ReportEntity.COUNTRY.schema();
+    private static final List<ReportColumn> CITY_COLUMNS = ReportEntity.CITY.schema();
+    private static final List<ReportColumn> CAPITAL_COLUMNS =
+        List.of(CityColumn.NAME, CityColumn.COUNTRY, CityColumn.POPULATION);
+
+    private static final Map<String, ReportPlan> PLANS = new LinkedHashMap<>();
+
+    static {
+        // Countries
+        declare("R01", ReportEntity.COUNTRY, Filter.WORLD, 0, COUNTRY_COLUMNS);
+        declare("R02", ReportEntity.COUNTRY, Filter.CONTINENT, 0, COUNTRY_COLUMNS);
+        declare("R03", ReportEntity.COUNTRY, Filter.REGION, 0, COUNTRY_COLUMNS);
+        declare("R04", ReportEntity.COUNTRY, Filter.WORLD, 10, COUNTRY_COLUMNS);
+        declare("R05", ReportEntity.COUNTRY, Filter.CONTINENT, 5, COUNTRY_COLUMNS);
+        declare("R06", ReportEntity.COUNTRY, Filter.REGION, 5, COUNTRY_COLUMNS);
+
+        // Cities
+        declare("R07", ReportEntity.CITY, Filter.WORLD, 0, CITY_COLUMNS);
+        declare("R08", ReportEntity.CITY, Filter.CONTINENT, 0, CITY_COLUMNS);
+        declare("R09", ReportEntity.CITY, Filter.REGION, 0, CITY_COLUMNS);
+        declare("R10", ReportEntity.CITY, Filter.COUNTRY, 0, CITY_COLUMNS);
+        declare("R11", ReportEntity.CITY, Filter.DISTRICT, 0, CITY_COLUMNS);
+        declare("R12", ReportEntity.CITY, Filter.WORLD, 10, CITY_COLUMNS);
+        declare("R13", ReportEntity.CITY, Filter.CONTINENT, 5, CITY_COLUMNS);
+        declare("R14", ReportEntity.CITY, Filter.REGION, 5, CITY_COLUMNS);
+        declare("R15", ReportEntity.CITY, Filter.COUNTRY, 5, CITY_COLUMNS);
+        declare("R16", ReportEntity.CITY, Filter.DISTRICT, 3, CITY_COLUMNS);
+
+        // Capital cities
+        declare("R17", ReportEntity.CAPITAL, Filter.WORLD, 0, CAPITAL_COLUMNS);
+        declare("R18", ReportEntity.CAPITAL, Filter.CONTINENT, 0, CAPITAL_COLUMNS);
+        declare("R19", ReportEntity.CAPITAL, Filter.REGION, 0, CAPITAL_COLUMNS);
+        declare("R20", ReportEntity.CAPITAL, Filter.WORLD, 10, CAPITAL_COLUMNS);
+        declare("R21", ReportEntity.CAPITAL, Filter.CONTINENT, 5, CAPITAL_COLUMNS);
+        declare("R22", ReportEntity.CAPITAL, Filter.REGION, 3, CAPITAL_COLUMNS);
+    }
+
+    private ReportRegistry() {
+        // Utility class – do not instantiate.
+    }
+
+    private static void declare(String id, ReportEntity entity, Filter filter, int defaultLimit,
+                                List<ReportColumn> columns) {
+        PLANS.put(id, new ReportPlan(id, entity, filter, defaultLimit, columns));
+    }
+
+    /**
+     * @param reportId report identifier, e.g. {@code "R07"}
+     * @return the report's compiled plan
+     * @throws IllegalArgumentException if the report is not a listing report
+     */
+    public static ReportPlan plan(String reportId) {
+        ReportPlan plan = PLANS.get(reportId);
+        if (plan == null) {
+            throw new IllegalArgumentException("Unknown listing report: " + reportId);
+        }
+        return plan;
+    }
+
+    /**
+     * Find the report listing {@code entity} within {@code filter}.
+     *
+     * @param entity what is listed
+     * @param filter scope
+     * @param topN   {@code true} for the top-N variant
+     * @return the report's compiled plan
+     * @throws IllegalArgumentException if no such report is declared
+     */
+    public static ReportPlan plan(ReportEntity entity, Filter filter, boolean topN) {
+        for (ReportPlan plan : PLANS.values()) {
+            if (plan.entity() == entity && plan.filter() == filter && plan.isTopN() == topN) {
+                return plan;
+            }
+        }
+        throw new IllegalArgumentException("No " + (topN ? "top-N " : "") + entity
+            + " report for " + filter);
+    }
+
+    /** @return every declared plan, R01 first. */
+    public static Collection<ReportPlan> plans() {
+        return Collections.unmodifiableCollection(PLANS.values());
+    }
+}
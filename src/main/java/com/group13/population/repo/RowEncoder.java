@@ -0,0 +1,52 @@
+package com.group13.population.repo;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Reads the leading result columns of a compiled report query by
+ * position, as text or as a number according to each
+ * {@link ReportColumn}, decided once when the query is compiled.
+ */
+final class RowEncoder {
+
+    private final boolean[] numeric;
+
+    private RowEncoder(boolean[] numeric) {
+        this.numeric = numeric;
+    }
+
+    /**
+     * @param columns selected columns, in result order
+     * @return an encoder for them
+     */
+    static RowEncoder of(List<? extends ReportColumn> columns) {
+        boolean[] numeric = new boolean[columns.size()];
+        for (int i = 0; i < numeric.length; i++) {
+            numeric[i] = columns.get(i).isNumeric();
+        }
+        return new RowEncoder(numeric);
+    }
+
+    /** Write the current row to {@code sink}. */
+    void encode(ResultSet rs, ReportPlan.RowSink sink) throws SQLException {
+        for (int i = 0; i < numeric.length; i++) {
+            if (numeric[i]) {
+                sink.number(rs.getLong(i + 1));
+            } else {
+                sink.text(rs.getString(i + 1));
+            }
+        }
+        sink.endRow();
+    }
+
+    /** @return the current row: {@link Long} for numeric columns, otherwise {@link String}. */
+    Object[] read(ResultSet rs) throws SQLException {
+        Object[] row = new Object[numeric.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = numeric[i] ? (Object) rs.getLong(i + 1) : rs.getString(i + 1);
+        }
+        return row;
+    }
+}
@@ -0,0 +1,99 @@
+package com.group13.population.repo;
+
+import com.group13.population.db.Db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Repository listing the distinct report scopes held in the database.
+ *
+ * <p>Used to enumerate every continent, region, country and district so
+ * that the full R01–R32 catalogue can be rendered up front (for example
+ * by the start-up cache warm-up).</p>
+ *
+ * <p>Follows the same error-handling style as WorldRepo: if the database
+ * is unavailable an empty list is returned instead of throwing.</p>
+ */
+public class ScopeRepo {
+
+    /** Database helper; expected to be connected before use. */
+    private final Db db;
+
+    /**
+     * Constructor for injecting a pre-configured Db.
+     */
+    public ScopeRepo(final Db db) {
+        this.db = Objects.requireNonNull(db, "db");
+    }
+
+    /** All continent names, alphabetical. */
+    public List<String> findContinents() {
+        return runNameQuery("SELECT DISTINCT Continent AS Name FROM country ORDER BY Name");
+    }
+
+    /** All region names, alphabetical. */
+    public List<String> findRegions() {
+        return runNameQuery("SELECT DISTINCT Region AS Name FROM country ORDER BY Name");
+    }
+
+    /** All country names, alphabetical. */
+    public List<String> findCountries() {
+        return runNameQuery("SELECT Name FROM country ORDER BY Name");
+    }
+
+    /** All non-blank district names, alphabetical. */
+    public List<String> findDistricts() {
+        return runNameQuery("""
+            SELECT DISTINCT District AS Name
+            FROM city
+            WHERE District IS NOT NULL AND District <> ''
+            ORDER BY Name
+            """);
+    }
+
+    // ---------------------------------------------------------------------
+    // Helper methods
+    // ---------------------------------------------------------------------
+
+    /**
+     * Execute a read-only SELECT returning a single "Name" column.
+     * Returns an empty list if the DB is unavailable or the query fails.
+     */
+    private List<String> runNameQuery(final String sql) {
+        final Connection conn;
+
+        try {
+            conn = db.getConnection();
+        } catch (SQLException ex) {
+            System.err.println("ScopeRepo getConnection failed: " + ex.getMessage());
+            return Collections.emptyList();
+        }
+
+        if (conn == null) {
+            return Collections.emptyList();
+        }
+
+        final List<String> names = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                final String name = rs.getString("Name");
+                if (name != null && !name.isBlank()) {
+                    names.add(name);
+                }
+            }
+        } catch (SQLException ex) {
+            System.err.println("ScopeRepo query failed: " + ex.getMessage());
+        }
+
+        return names;
+    }
+}
@@ -16,7 +16,8 @@ import java.util.Objects;
  * Repository for country reports (R01–R06).
  *
  * <p>All queries are read-only and return CountryRow objects which are then
- * used by the service and web layers.</p>
+ * used by the service and web layers. Their SQL comes from the compiled
+ * plans in {@link ReportRegistry}, shared with the other report routes.</p>
  */
 public class WorldRepo {
 
@@ -46,21 +47,66 @@ public class WorldRepo {
     // ---------------------------------------------------------------------
 
     public List<CountryRow> findCountriesInWorldByPopulationDesc() {
-        final String sql = """
-        SELECT c.Code,
-               c.Name,
-               c.Continent,
-               c.Region,
-               c.Population,
-               ci.Name AS Capital
-        FROM country c
-        LEFT JOIN city ci ON c.Capital = ci.ID
-        ORDER BY c.Population DESC
-        """;
-
-        return runCountryQuery(sql);
+        return runCountryReport("R01", null, 0);
     }
 
+    /**
+     * R01, one keyset page: countries ordered by population DESC then code,
+     * starting after the given (population, code) position.
+     *
+     * @param afterPopulation population of the last row already returned
+     * @param afterCode       code of the last row already returned, or
+     *                        {@code null} for the first page
+     * @param limit           maximum rows to return
+     */
+    public List<CountryRow> findCountriesInWorldPage(final long afterPopulation,
+                                                     final String afterCode,
+                                                     final int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        final ReportPlan plan = ReportRegistry.plan("R01");
+        if (afterCode == null) {
+            return runCountryQuery(plan.pageSql(plan.columns(), true), limit);
+        }
+        return runCountryQuery(plan.pageSql(plan.columns(), false),
+            afterPopulation, afterPopulation, afterCode, limit);
+    }
+
+
+    // ---------------------------------------------------------------------
+    // R01–R06 narrowed to some columns (?fields=)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Run a country report selecting only the given columns, ordered by
+     * population DESC. The capital join is added only when
+     * {@link CountryColumn#CAPITAL} is selected.
+     *
+     * @param columns columns to select, in output order (not empty)
+     * @param filter  {@link CountryColumn#CONTINENT} or {@link CountryColumn#REGION}
+     *                to restrict the report, or {@code null} for the world
+     * @param value   filter value (ignored when {@code filter} is {@code null})
+     * @param limit   maximum rows, or {@code 0} for all
+     * @return one array per row: {@link Long} for numeric columns, otherwise {@link String}
+     */
+    public List<Object[]> findCountryColumns(final List<CountryColumn> columns,
+                                             final CountryColumn filter,
+                                             final String value,
+                                             final int limit) {
+        if (columns == null || columns.isEmpty()) {
+            return List.of();
+        }
+        if (filter != null && isBlank(value)) {
+            return List.of();
+        }
+
+        final ReportEntity.Filter scope = filter == CountryColumn.CONTINENT ? ReportEntity.Filter.CONTINENT
+            : filter == CountryColumn.REGION ? ReportEntity.Filter.REGION
+            : ReportEntity.Filter.WORLD;
+        final ReportPlan plan = ReportRegistry.plan(ReportEntity.COUNTRY, scope, limit > 0);
+        return runPlan(plan, columns, filter == null ? null : value.trim(), Math.min(limit, MAX_LIMIT));
+    }
 
     // ---------------------------------------------------------------------
     // R02 – All countries in a continent, ordered by population DESC
@@ -70,21 +116,7 @@ public class WorldRepo {
         if (isBlank(continent)) {
             return Collections.emptyList();
         }
-
-        final String sql = """
-            SELECT c.Code,
-                   c.Name,
-                   c.Continent,
-                   c.Region,
-                   c.Population,
-                   ci.Name AS Capital
-            FROM country c
-            LEFT JOIN city ci ON c.Capital = ci.ID
-            WHERE c.Continent = ?
-            ORDER BY c.Population DESC
-            """;
-
-        return runCountryQuery(sql, continent.trim());
+        return runCountryReport("R02", continent.trim(), 0);
     }
 
     // ---------------------------------------------------------------------
@@ -95,21 +127,7 @@ public class WorldRepo {
         if (isBlank(region)) {
             return Collections.emptyList();
         }
-
-        final String sql = """
-            SELECT c.Code,
-                   c.Name,
-                   c.Continent,
-                   c.Region,
-                   c.Population,
-                   ci.Name AS Capital
-            FROM country c
-            LEFT JOIN city ci ON c.Capital = ci.ID
-            WHERE c.Region = ?
-            ORDER BY c.Population DESC
-            """;
-
-        return runCountryQuery(sql, region.trim());
+        return runCountryReport("R03", region.trim(), 0);
     }
 
     // ---------------------------------------------------------------------
@@ -121,21 +139,7 @@ public class WorldRepo {
         if (normalised <= 0) {
             return Collections.emptyList();
         }
-
-        final String sql = """
-            SELECT c.Code,
-                   c.Name,
-                   c.Continent,
-                   c.Region,
-                   c.Population,
-                   ci.Name AS Capital
-            FROM country c
-            LEFT JOIN city ci ON c.Capital = ci.ID
-            ORDER BY c.Population DESC
-            LIMIT ?
-            """;
-
-        return runCountryQuery(sql, normalised);
+        return runCountryReport("R04", null, normalised);
     }
 
     // ---------------------------------------------------------------------
@@ -151,22 +155,7 @@ public class WorldRepo {
         if (normalised <= 0) {
             return Collections.emptyList();
         }
-
-        final String sql = """
-            SELECT c.Code,
-                   c.Name,
-                   c.Continent,
-                   c.Region,
-                   c.Population,
-                   ci.Name AS Capital
-            FROM country c
-            LEFT JOIN city ci ON c.Capital = ci.ID
-            WHERE c.Continent = ?
-            ORDER BY c.Population DESC
-            LIMIT ?
-            """;
-
-        return runCountryQuery(sql, continent.trim(), normalised);
+        return runCountryReport("R05", continent.trim(), normalised);
     }
 
     // ---------------------------------------------------------------------
@@ -182,22 +171,7 @@ public class WorldRepo {
         if (normalised <= 0) {
             return Collections.emptyList();
         }
-
-        final String sql = """
-            SELECT c.Code,
-                   c.Name,
-                   c.Continent,
-                   c.Region,
-                   c.Population,
-                   ci.Name AS Capital
-            FROM country c
-            LEFT JOIN city ci ON c.Capital = ci.ID
-            WHERE c.Region = ?
-            ORDER BY c.Population DESC
-            LIMIT ?
-            """;
-
-        return runCountryQuery(sql, region.trim(), normalised);
+        return runCountryReport("R06", region.trim(), normalised);
     }
 
     // ---------------------------------------------------------------------
@@ -224,9 +198,9 @@ public class WorldRepo {
     /**
      * Execute a read-only SELECT and map to CountryRow list.
      *
-     * If the DB connection is null or an SQLException occurs, this method
-     * returns an empty list instead of throwing – this is what the guard
-     * tests usually expect.
+     * An empty list means the query matched nothing. If the DB connection
+     * is null or an SQLException occurs, a {@link DataAccessException} is
+     * thrown instead, so an outage is never reported as an empty report.
      */
     private List<CountryRow> runCountryQuery(final String sql, final Object... params) {
         final Connection conn;
@@ -235,12 +209,11 @@ public class WorldRepo {
             conn = db.getConnection();
         } catch (SQLException ex) {
             System.err.println("WorldRepo getConnection failed: " + ex.getMessage());
-            return Collections.emptyList();
+            throw new DataAccessException("Database unavailable", ex);
         }
 
         if (conn == null) {
-            // DB not connected – return empty result
-            return Collections.emptyList();
+            throw new DataAccessException("Database not connected", null);
         }
 
         final List<CountryRow> rows = new ArrayList<>();
@@ -257,8 +230,8 @@ public class WorldRepo {
                 }
             }
         } catch (SQLException ex) {
-            // For this coursework, swallow the exception and return an empty list.
             System.err.println("WorldRepo query failed: " + ex.getMessage());
+            throw new DataAccessException("Country query failed", ex);
         }
 
         return rows;
@@ -266,17 +239,59 @@ public class WorldRepo {
 
 
     /**
-     * Map the current row from the ResultSet into a CountryRow.
-     * Assumes CountryRow has fields: code, name, continent, region,
-     * population, capital (capital city name).
+     * Run a compiled report plan selecting {@code columns}, reading each by
+     * position. Errors are reported as in
+     * {@link #runCountryQuery(String, Object...)}.
+     */
+    private List<Object[]> runPlan(final ReportPlan plan,
+                                   final List<? extends ReportColumn> columns,
+                                   final String value,
+                                   final int limit) {
+        final Connection conn;
+
+        try {
+            conn = db.getConnection();
+        } catch (SQLException ex) {
+            System.err.println("WorldRepo getConnection failed: " + ex.getMessage());
+            throw new DataAccessException("Database unavailable", ex);
+        }
+
+        if (conn == null) {
+            throw new DataAccessException("Database not connected", null);
+        }
+
+        try {
+            return plan.rows(conn, columns, value, limit);
+        } catch (SQLException ex) {
+            System.err.println("WorldRepo query failed: " + ex.getMessage());
+            throw new DataAccessException("Country query failed", ex);
+        }
+    }
+
+    /** Run a full-row country report from the registry and map it to CountryRows. */
+    private List<CountryRow> runCountryReport(final String reportId, final String value, final int limit) {
+        final ReportPlan plan = ReportRegistry.plan(reportId);
+        final List<Object[]> rows = runPlan(plan, plan.columns(), value, limit);
+        final List<CountryRow> countries = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            countries.add(new CountryRow((String) row[0], (String) row[1], (String) row[2],
+                (String) row[3], (Long) row[4], (String) row[5]));
+        }
+        return countries;
+    }
+
+    /**
+     * Map the current row from the ResultSet into a CountryRow. The first
+     * columns are the {@link CountryColumn}s in default order: code, name,
+     * continent, region, population, capital (capital city name).
      */
     private CountryRow mapCountryRow(final ResultSet rs) throws SQLException {
-        final String code = rs.getString("Code");
-        final String name = rs.getString("Name");
-        final String continent = rs.getString("Continent");
-        final String region = rs.getString("Region");
-        final long population = rs.getLong("Population");
-        final String capitalName = rs.getString("Capital"); // alias from SQL
+        final String code = rs.getString(1);
+        final String name = rs.getString(2);
+        final String continent = rs.getString(3);
+        final String region = rs.getString(4);
+        final long population = rs.getLong(5);
+        final String capitalName = rs.getString(6);
 
         return new CountryRow(code, name, continent, region, population, capitalName);
     }
@@ -2,8 +2,13 @@ package com.group13.population.service;
 
 import com.group13.population.model.CityRow;
 import com.group13.population.repo.CityRepo;
+import com.group13.population.repo.ReportColumn;
+import com.group13.population.repo.ReportEntity;
+import com.group13.population.repo.ReportPlan;
+import com.group13.population.repo.ReportRegistry;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 
 /**
@@ -162,6 +167,49 @@ public class CityService {
         return repo.findTopCitiesInDistrictByPopulationDesc(district, limit);
     }
 
+    // ---------------------------------------------------------------------
+    // Streaming (R07–R16 over HTTP)
+    // ---------------------------------------------------------------------
+
+    /**
+     * Run a city report and hand each row to {@code sink} as it is read.
+     *
+     * @param reportId report identifier (R07–R16).
+     * @param columns  columns to output, in order.
+     * @param value    filter value, or {@code null} for the world.
+     * @param limit    N for a top-N report (ignored for full listings).
+     * @param sink     receives the rows.
+     * @return number of rows written.
+     */
+    public int streamCities(String reportId, List<? extends ReportColumn> columns, String value,
+                            int limit, ReportPlan.RowSink sink) {
+        ReportPlan plan = ReportRegistry.plan(reportId);
+        if (plan.filter() != ReportEntity.Filter.WORLD) {
+            validateName(value, plan.filter().name().toLowerCase(Locale.ROOT));
+        }
+        if (plan.isTopN()) {
+            validateLimit(limit);
+        }
+        return repo.streamCities(reportId, columns, value, limit, sink);
+    }
+
+    /**
+     * One keyset page of a full city listing (R07 or R08).
+     *
+     * @param reportId        report identifier.
+     * @param columns         columns to output, in order.
+     * @param value           filter value, or {@code null} for the world.
+     * @param afterPopulation population of the last row seen, or {@code null} for the first page.
+     * @param afterId         ID of the last row seen.
+     * @param fetchSize       maximum number of rows.
+     * @return rows as returned by {@link CityRepo#findCityPage}.
+     */
+    public List<Object[]> getCityPage(String reportId, List<? extends ReportColumn> columns, String value,
+                                      Long afterPopulation, int afterId, int fetchSize) {
+        validateLimit(fetchSize);
+        return repo.findCityPage(reportId, columns, value, afterPopulation, afterId, fetchSize);
+    }
+
     // ---------------------------------------------------------------------
     // Validation helpers
     // ---------------------------------------------------------------------
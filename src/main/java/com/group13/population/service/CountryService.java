@@ -1,6 +1,7 @@
 package com.group13.population.service;
 
 import com.group13.population.model.CountryRow;
+import com.group13.population.repo.CountryColumn;
 import com.group13.population.repo.WorldRepo;
 
 import java.util.List;
@@ -153,6 +154,39 @@ public class CountryService {
         return repo.findCountriesInWorldByPopulationDesc();
     }
 
+    /**
+     * R01 keyset page: up to {@code limit} countries after the given
+     * (population, code) position, or from the top when {@code afterCode}
+     * is {@code null}.
+     */
+    public List<CountryRow> getCountriesInWorldPage(long afterPopulation, String afterCode, int limit) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        return repo.findCountriesInWorldPage(afterPopulation, afterCode, limit);
+    }
+
+    // ----- R01–R06 narrowed to some columns -----
+
+    /**
+     * Run a country report selecting only the given columns.
+     *
+     * @param columns columns to return, in order
+     * @param filter  {@link CountryColumn#CONTINENT}, {@link CountryColumn#REGION}
+     *                or {@code null} for the whole world
+     * @param value   continent / region name; blank yields an empty list
+     * @param limit   Top-N limit, or {@code 0} for the full report
+     * @return rows as value arrays (see {@link WorldRepo#findCountryColumns})
+     */
+    public List<Object[]> getCountryColumns(List<CountryColumn> columns, CountryColumn filter,
+                                            String value, int limit) {
+        String normalised = normalise(value);
+        if (filter != null && normalised == null) {
+            return List.of();
+        }
+        return repo.findCountryColumns(columns, filter, normalised, clampLimit(limit));
+    }
+
     // ----- R02 – continent -----
 
     public List<CountryRow> getCountriesInContinentByPopulationDesc(String continent) {
@@ -1,12 +1,19 @@
 package com.group13.population.service;
 
+import com.group13.population.cache.DataVersion;
+import com.group13.population.cache.VersionedCache;
 import com.group13.population.model.LanguagePopulationRow;
 import com.group13.population.model.PopulationLookupRow;
 import com.group13.population.model.PopulationRow;
 import com.group13.population.repo.PopulationRepo;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * Service wrapper for population reports R23–R32.
@@ -20,13 +27,48 @@ import java.util.Objects;
  * R31:     population of a city.
  * R32:     language populations (Chinese, English, Hindi, Spanish, Arabic)
  *          including % of world population.
+ *
+ * When constructed with a {@link DataVersion}, results are cached per data
+ * version: successful results in a results cache, and lookups that found
+ * nothing (population 0) in a short-lived negative cache. Bumping the data
+ * version invalidates both at once.
  */
 public class PopulationService {
 
+    /** Maximum number of cached report results. */
+    static final int RESULT_CACHE_SIZE = 2_048;
+
+    /** Maximum number of cached "not found" lookups. */
+    static final int NEGATIVE_CACHE_SIZE = 4_096;
+
+    /** How long a "not found" lookup is remembered, even within one data version. */
+    static final long NEGATIVE_TTL_MILLIS = 60_000L;
+
     private final PopulationRepo populationRepo;
 
+    /** Successful results keyed by report + argument; {@code null} when caching is off. */
+    private final VersionedCache<String, Object> results;
+
+    /** Lookups that returned population 0; {@code null} when caching is off. */
+    private final VersionedCache<String, PopulationLookupRow> negative;
+
     public PopulationService(PopulationRepo populationRepo) {
         this.populationRepo = Objects.requireNonNull(populationRepo, "populationRepo");
+        this.results = null;
+        this.negative = null;
+    }
+
+    /**
+     * Creates a caching service whose caches are keyed on {@code dataVersion}.
+     *
+     * @param populationRepo repository used on cache misses
+     * @param dataVersion    shared data version
+     */
+    public PopulationService(PopulationRepo populationRepo, DataVersion dataVersion) {
+        this.populationRepo = Objects.requireNonNull(populationRepo, "populationRepo");
+        Objects.requireNonNull(dataVersion, "dataVersion");
+        this.results = new VersionedCache<>(dataVersion, RESULT_CACHE_SIZE);
+        this.negative = new VersionedCache<>(dataVersion, NEGATIVE_CACHE_SIZE, NEGATIVE_TTL_MILLIS);
     }
 
     // ---------------------------------------------------------------------
@@ -35,22 +77,32 @@ public class PopulationService {
 
     /** R23 – population in / not in cities for each continent. */
     public List<PopulationRow> getContinentPopulationInOutCities() {
-        return populationRepo.findPopulationByContinentInOutCities();
+        return cachedList("R23", populationRepo::findPopulationByContinentInOutCities);
     }
 
     /** R24 – population in / not in cities for each region. */
     public List<PopulationRow> getRegionPopulationInOutCities() {
-        return populationRepo.findPopulationByRegionInOutCities();
+        return cachedList("R24", populationRepo::findPopulationByRegionInOutCities);
     }
 
     /** R25 – population in / not in cities for each country. */
     public List<PopulationRow> getCountryPopulationInOutCities() {
-        return populationRepo.findPopulationByCountryInOutCities();
+        return cachedList("R25", populationRepo::findPopulationByCountryInOutCities);
     }
 
     /** R26 – world population. */
     public long getWorldPopulation() {
-        return populationRepo.findWorldPopulation();
+        if (results == null) {
+            return populationRepo.findWorldPopulation();
+        }
+        Object hit = results.get("R26");
+        if (hit != null) {
+            return (Long) hit;
+        }
+        long version = results.dataVersion().current();
+        long world = populationRepo.findWorldPopulation();
+        results.put(version, "R26", world);
+        return world;
     }
 
     // ---------------------------------------------------------------------
@@ -64,7 +116,7 @@ public class PopulationService {
      *                  (e.g. "Asia", "Europe").
      */
     public PopulationLookupRow getContinentPopulation(String continent) {
-        return populationRepo.findContinentPopulation(continent);
+        return cachedLookup("R27", continent, populationRepo::findContinentPopulation);
     }
 
     // ---------------------------------------------------------------------
@@ -78,7 +130,7 @@ public class PopulationService {
      *               (e.g. "Southeast Asia").
      */
     public PopulationLookupRow getRegionPopulation(String region) {
-        return populationRepo.findRegionPopulation(region);
+        return cachedLookup("R28", region, populationRepo::findRegionPopulation);
     }
 
     // ---------------------------------------------------------------------
@@ -89,7 +141,7 @@ public class PopulationService {
      * Returns the population of a country (lookup by country name).
      */
     public PopulationLookupRow getCountryPopulation(String countryName) {
-        return populationRepo.findCountryPopulation(countryName);
+        return cachedLookup("R29", countryName, populationRepo::findCountryPopulation);
     }
 
     // ---------------------------------------------------------------------
@@ -101,7 +153,7 @@ public class PopulationService {
      * (sum of all cities in that district).
      */
     public PopulationLookupRow getDistrictPopulation(String district) {
-        return populationRepo.findDistrictPopulation(district);
+        return cachedLookup("R30", district, populationRepo::findDistrictPopulation);
     }
 
     // ---------------------------------------------------------------------
@@ -115,7 +167,42 @@ public class PopulationService {
      * the populations are summed.
      */
     public PopulationLookupRow getCityPopulation(String cityName) {
-        return populationRepo.findCityPopulation(cityName);
+        return cachedLookup("R31", cityName, populationRepo::findCityPopulation);
+    }
+
+    // ---------------------------------------------------------------------
+    // R27–R31 in bulk
+    // ---------------------------------------------------------------------
+
+    /**
+     * R27 for many continents at once.
+     *
+     * @param continents names, in the order the caller wants them back
+     * @return one entry per name, in the same order; {@code null} where the
+     *         name matched nothing
+     */
+    public List<PopulationLookupRow> getContinentPopulations(List<String> continents) {
+        return cachedBulkLookup("R27", continents, populationRepo::findContinentPopulations);
+    }
+
+    /** R28 for many regions; see {@link #getContinentPopulations(List)}. */
+    public List<PopulationLookupRow> getRegionPopulations(List<String> regions) {
+        return cachedBulkLookup("R28", regions, populationRepo::findRegionPopulations);
+    }
+
+    /** R29 for many countries; see {@link #getContinentPopulations(List)}. */
+    public List<PopulationLookupRow> getCountryPopulations(List<String> countryNames) {
+        return cachedBulkLookup("R29", countryNames, populationRepo::findCountryPopulations);
+    }
+
+    /** R30 for many districts; see {@link #getContinentPopulations(List)}. */
+    public List<PopulationLookupRow> getDistrictPopulations(List<String> districts) {
+        return cachedBulkLookup("R30", districts, populationRepo::findDistrictPopulations);
+    }
+
+    /** R31 for many cities; see {@link #getContinentPopulations(List)}. */
+    public List<PopulationLookupRow> getCityPopulations(List<String> cityNames) {
+        return cachedBulkLookup("R31", cityNames, populationRepo::findCityPopulations);
     }
 
     // ---------------------------------------------------------------------
@@ -128,6 +215,104 @@ public class PopulationService {
      * ordered from greatest to smallest, with % of world population.
      */
     public List<LanguagePopulationRow> getLanguagePopulations() {
-        return populationRepo.findLanguagePopulations();
+        return cachedList("R32", populationRepo::findLanguagePopulations);
+    }
+
+    // ---------------------------------------------------------------------
+    // Caching helpers
+    // ---------------------------------------------------------------------
+
+    /**
+     * Return a cached list result, loading it on a miss. Database failures
+     * surface as {@link com.group13.population.repo.DataAccessException}
+     * and are never cached; an empty list is a genuine (cacheable) result.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> cachedList(String key, Supplier<List<T>> loader) {
+        if (results == null) {
+            return loader.get();
+        }
+        Object hit = results.get(key);
+        if (hit != null) {
+            return (List<T>) hit;
+        }
+        long version = results.dataVersion().current();
+        List<T> rows = loader.get();
+        if (rows != null) {
+            results.put(version, key, List.copyOf(rows));
+        }
+        return rows;
+    }
+
+    /**
+     * Resolve many lookups: names already in the results cache are served
+     * from it, all others are loaded with one bulk query and cached in the
+     * same entries as single lookups. Names are trimmed; blank names and
+     * names with no match yield {@code null}.
+     */
+    private List<PopulationLookupRow> cachedBulkLookup(String report, List<String> names,
+                                                       Function<List<String>, Map<String, Long>> loader) {
+        if (names == null || names.isEmpty()) {
+            return List.of();
+        }
+        PopulationLookupRow[] rows = new PopulationLookupRow[names.size()];
+        List<String> misses = new ArrayList<>();
+        for (int i = 0; i < rows.length; i++) {
+            String name = names.get(i) == null ? "" : names.get(i).trim();
+            Object hit = results == null || name.isEmpty() ? null : results.get(report + ':' + name);
+            if (hit != null) {
+                rows[i] = (PopulationLookupRow) hit;
+            } else if (!name.isEmpty()) {
+                misses.add(name);
+            }
+        }
+
+        if (!misses.isEmpty()) {
+            long version = results == null ? 0L : results.dataVersion().current();
+            Map<String, Long> found = loader.apply(misses);
+            for (int i = 0; i < rows.length; i++) {
+                String name = names.get(i) == null ? "" : names.get(i).trim();
+                if (rows[i] != null || name.isEmpty() || !found.containsKey(name)) {
+                    continue;
+                }
+                rows[i] = PopulationLookupRow.of(name, found.get(name));
+                if (results != null && rows[i].getPopulation() > 0) {
+                    results.put(version, report + ':' + name, rows[i]);
+                }
+            }
+        }
+        return Arrays.asList(rows);
+    }
+
+    /**
+     * Return a cached lookup row. Rows with population 0 (name not found)
+     * go to the negative cache, which also expires by time.
+     */
+    private PopulationLookupRow cachedLookup(String report, String name,
+                                             Function<String, PopulationLookupRow> loader) {
+        if (results == null || name == null) {
+            return loader.apply(name);
+        }
+        String key = report + ':' + name;
+
+        Object hit = results.get(key);
+        if (hit != null) {
+            return (PopulationLookupRow) hit;
+        }
+        PopulationLookupRow missing = negative.get(key);
+        if (missing != null) {
+            return missing;
+        }
+
+        long version = results.dataVersion().current();
+        PopulationLookupRow row = loader.apply(name);
+        if (row != null) {
+            if (row.getPopulation() > 0) {
+                results.put(version, key, row);
+            } else {
+                negative.put(version, key, row);
+            }
+        }
+        return row;
     }
 }
@@ -0,0 +1,189 @@
+package com.group13.population.web;
+
+import com.group13.population.cache.DataVersion;
+import com.group13.population.db.AdaptiveLimiter;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Operational endpoints for cache invalidation and cache statistics.
+ *
+ * <ul>
+ *   <li>{@code GET /admin/data-version} – current data version and when it
+ *       became current.</li>
+ *   <li>{@code POST /admin/data-version/bump} – advance the data version,
+ *       invalidating every cache.</li>
+ *   <li>{@code GET /admin/cache-stats} – response-cache occupancy per tier,
+ *       compression counters (variants produced, raw vs wire bytes) plus
+ *       JVM heap, direct-buffer and GC counters, for comparing heap and GC
+ *       behaviour with and without the off-heap tier.</li>
+ *   <li>{@code GET /admin/bulkheads} – per report class: permits in use,
+ *       queue depth and rejections ({@link Bulkheads}), plus the current
+ *       adaptive database limit ({@link AdaptiveLimiter}).</li>
+ * </ul>
+ *
+ * <p>The bump, cache-stats and bulkhead endpoints require
+ * {@code Authorization: Bearer <admin token>}; while no token is
+ * configured they are disabled (403).</p>
+ */
+public class AdminRoutes {
+
+    private static final String BEARER = "Bearer ";
+
+    private final DataVersion version;
+    private final String adminToken;
+    private final ResponseCache cache;
+    private final Bulkheads bulkheads;
+    private final AdaptiveLimiter limiter;
+
+    /**
+     * @param version    shared data version
+     * @param adminToken token required by the bump, cache-stats and
+     *                   bulkhead endpoints, or {@code null}/blank to
+     *                   disable them
+     * @param cache      response cache reported by {@code /admin/cache-stats},
+     *                   or {@code null}
+     * @param bulkheads  bulkheads reported by {@code /admin/bulkheads}, or
+     *                   {@code null}
+     * @param limiter    database limiter reported by {@code /admin/bulkheads},
+     *                   or {@code null}
+     */
+    public AdminRoutes(DataVersion version, String adminToken, ResponseCache cache,
+                       Bulkheads bulkheads, AdaptiveLimiter limiter) {
+        this.version = Objects.requireNonNull(version, "version");
+        this.adminToken = adminToken == null || adminToken.isBlank() ? null : adminToken.trim();
+        this.cache = cache;
+        this.bulkheads = bulkheads;
+        this.limiter = limiter;
+    }
+
+    /**
+     * Register the admin routes on the given Javalin app.
+     */
+    public void register(Javalin app) {
+        Objects.requireNonNull(app, "app");
+
+        app.get("/admin/data-version", this::handleGet);
+        app.post("/admin/data-version/bump", this::handleBump);
+        app.get("/admin/cache-stats", this::handleCacheStats);
+        app.get("/admin/bulkheads", this::handleBulkheads);
+    }
+
+    // ---------------------------------------------------------------------
+    // Handlers
+    // ---------------------------------------------------------------------
+
+    private void handleGet(Context ctx) {
+        ctx.contentType("text/plain; charset=utf-8");
+        ctx.result("version=" + version.current()
+            + "\nlastModified=" + version.lastModified() + "\n");
+    }
+
+    private void handleBump(Context ctx) {
+        if (!authorise(ctx)) {
+            return;
+        }
+        long next = version.bump("admin request from " + ctx.ip());
+        ctx.contentType("text/plain; charset=utf-8");
+        ctx.result("version=" + next + "\n");
+    }
+
+    private void handleCacheStats(Context ctx) {
+        if (!authorise(ctx)) {
+            return;
+        }
+        StringBuilder out = new StringBuilder();
+        out.append("dataVersion=").append(version.current()).append('\n');
+
+        if (cache != null) {
+            out.append("cache.heap.entries=").append(cache.size() - cache.offHeapSize()).append('\n');
+            out.append("cache.offHeap.entries=").append(cache.offHeapSize()).append('\n');
+            out.append("cache.offHeap.bytes=").append(cache.offHeapBytes()).append('\n');
+            out.append("cache.offHeap.budget=").append(cache.offHeapBudget()).append('\n');
+            out.append("cache.hits=").append(cache.hits()).append('\n');
+            out.append("cache.misses=").append(cache.misses()).append('\n');
+            out.append("cache.compressions=").append(cache.compressions()).append('\n');
+            out.append("cache.bytes.raw=").append(cache.rawBytes()).append('\n');
+            out.append("cache.bytes.wire=").append(cache.wireBytes()).append('\n');
+        }
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        out.append("jvm.heap.used=").append(heap.getUsed()).append('\n');
+        out.append("jvm.heap.committed=").append(heap.getCommitted()).append('\n');
+
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            String name = "jvm.buffers." + pool.getName().replace(' ', '_');
+            out.append(name).append(".count=").append(pool.getCount()).append('\n');
+            out.append(name).append(".used=").append(pool.getMemoryUsed()).append('\n');
+        }
+
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            String name = "jvm.gc." + gc.getName().replace(' ', '_');
+            out.append(name).append(".count=").append(gc.getCollectionCount()).append('\n');
+            out.append(name).append(".timeMs=").append(gc.getCollectionTime()).append('\n');
+        }
+
+        ctx.contentType("text/plain; charset=utf-8");
+        ctx.result(out.toString());
+    }
+
+    private void handleBulkheads(Context ctx) {
+        if (!authorise(ctx)) {
+            return;
+        }
+        StringBuilder out = new StringBuilder();
+        out.append(bulkheads == null ? "bulkheads=disabled\n" : bulkheads.stats());
+        if (limiter != null) {
+            out.append("db.limiter.limit=").append(limiter.limit()).append('\n');
+            out.append("db.limiter.inFlight=").append(limiter.inFlight()).append('\n');
+            out.append("db.limiter.rejected=").append(limiter.rejected()).append('\n');
+            out.append("db.limiter.batchRejected=").append(limiter.batchRejected()).append('\n');
+            for (Map.Entry<String, Long> rtt : limiter.rttNoLoadMicrosByWorkload().entrySet()) {
+                out.append("db.limiter.rttNoLoadMicros.").append(rtt.getKey())
+                    .append('=').append(rtt.getValue()).append('\n');
+            }
+        }
+        ctx.contentType("text/plain; charset=utf-8");
+        ctx.result(out.toString());
+    }
+
+    /**
+     * Check the request's bearer token, answering 403 if it is missing or
+     * wrong, or if no token is configured.
+     *
+     * @return {@code true} if the handler may go on
+     */
+    private boolean authorise(Context ctx) {
+        if (adminToken == null) {
+            ctx.status(403).result("Admin endpoint disabled: no admin token configured.");
+            return false;
+        }
+        if (!isAuthorised(ctx.header("Authorization"))) {
+            ctx.status(403).result("Forbidden.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Compare the bearer token in constant time so the check does not
+     * leak how many leading characters matched.
+     */
+    private boolean isAuthorised(String header) {
+        if (header == null || !header.startsWith(BEARER)) {
+            return false;
+        }
+        byte[] given = header.substring(BEARER.length()).trim().getBytes(StandardCharsets.UTF_8);
+        byte[] expected = adminToken.getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(given, expected);
+    }
+}
@@ -0,0 +1,122 @@
+package com.group13.population.web;
+
+import io.javalin.http.Context;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a request tells the {@link DbGate} about itself: its priority and
+ * the time by which the client still wants an answer.
+ *
+ * <ul>
+ *   <li>{@value #DEADLINE_HEADER}: milliseconds the client is prepared to
+ *       wait, e.g. {@code 1500}. Without it the request has no deadline.</li>
+ *   <li>{@value #PRIORITY_HEADER}: {@code interactive} or {@code batch}.
+ *       Without it, full exports ({@link ReportClass#EXPORT}) are batch and
+ *       everything else – notably the {@code /reports/population/*}
+ *       dashboard calls – is interactive.</li>
+ * </ul>
+ *
+ * <p>The deadline runs from when the request arrived, not from when a
+ * worker picks it up: {@link ReportPipeline} reads the headers in its
+ * outermost wrapper and keeps the result under {@link #ATTRIBUTE}.</p>
+ */
+final class Admission {
+
+    /** Request header holding the client's time budget in milliseconds. */
+    static final String DEADLINE_HEADER = "X-Request-Timeout-Ms";
+
+    /** Request header holding the priority class. */
+    static final String PRIORITY_HEADER = "X-Priority";
+
+    /** Request attribute holding the admission read when the request arrived. */
+    static final String ATTRIBUTE = Admission.class.getName();
+
+    /** Longest budget honoured; larger ones are cut to this. */
+    static final long MAX_BUDGET_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /** Priority class; interactive requests are admitted first. */
+    enum Priority {
+        INTERACTIVE,
+        BATCH;
+
+        /** @return lower-case name used in headers and stats. */
+        String configName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Admission for callers without a request (no deadline, interactive). */
+    static final Admission NONE = new Admission(Priority.INTERACTIVE, Long.MAX_VALUE);
+
+    private final Priority priority;
+    private final long deadlineNanos;
+
+    Admission(Priority priority, long deadlineNanos) {
+        this.priority = priority;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * The admission stored when the request arrived, or else read now.
+     *
+     * @param ctx         Javalin request/response context, or {@code null}
+     * @param reportClass class of the requested report (sets the default priority)
+     * @return the request's admission
+     */
+    static Admission forRequest(Context ctx, ReportClass reportClass) {
+        Admission stored = ctx == null ? null : ctx.attribute(ATTRIBUTE);
+        return stored != null ? stored : of(ctx, reportClass);
+    }
+
+    /**
+     * Read the admission headers of a request.
+     *
+     * @param ctx         Javalin request/response context, or {@code null}
+     * @param reportClass class of the requested report (sets the default priority)
+     * @return the request's admission
+     */
+    static Admission of(Context ctx, ReportClass reportClass) {
+        if (ctx == null) {
+            return NONE;
+        }
+        Priority priority = reportClass == ReportClass.EXPORT ? Priority.BATCH : Priority.INTERACTIVE;
+        String requested = ctx.header(PRIORITY_HEADER);
+        if (requested != null) {
+            String value = requested.trim().toLowerCase(Locale.ROOT);
+            if ("batch".equals(value)) {
+                priority = Priority.BATCH;
+            } else if ("interactive".equals(value)) {
+                priority = Priority.INTERACTIVE;
+            }
+        }
+
+        long deadline = Long.MAX_VALUE;
+        String budget = ctx.header(DEADLINE_HEADER);
+        if (budget != null) {
+            try {
+                long millis = Long.parseLong(budget.trim());
+                if (millis >= 0) {
+                    deadline = System.nanoTime() + Math.min(millis, MAX_BUDGET_MILLIS) * 1_000_000L;
+                }
+            } catch (NumberFormatException ex) {
+                // ignore a malformed budget: no deadline
+            }
+        }
+        return new Admission(priority, deadline);
+    }
+
+    Priority priority() {
+        return priority;
+    }
+
+    boolean hasDeadline() {
+        return deadlineNanos != Long.MAX_VALUE;
+    }
+
+    /** @return nanoseconds left before the deadline (negative once passed). */
+    long remainingNanos() {
+        return hasDeadline() ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,189 @@
+package com.group13.population.web;
+
+import com.group13.population.db.QueryScope;
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs report handlers that need the database on a dedicated executor,
+ * completing the response through Javalin's future-based API
+ * ({@link Context#future}).
+ *
+ * <p>The Jetty thread that accepted the request is released as soon as
+ * the work is handed over, so slow reports no longer hold the threads
+ * that cheap endpoints ({@code /health}, cache hits) need.</p>
+ *
+ * <p>Each request gets a deadline. Only the worker ever touches the
+ * request's {@link Context}, and the response completes when the worker
+ * is done, so a late worker can never write into a finished (and perhaps
+ * already reused) response. When the deadline passes first, the work is
+ * cancelled instead: its queries are cancelled through a
+ * {@link QueryScope} and the worker is interrupted. The worker then
+ * unwinds and answers the request itself with a stale copy or
+ * {@code 503}, through {@link ReportPipeline}. A response that has already
+ * started streaming is left to finish.</p>
+ */
+public final class AsyncReports {
+
+    /** Default size of the database executor. */
+    public static final int DEFAULT_THREADS = 16;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final long deadlineMillis;
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * @param threads  size of the database executor (at least 1)
+     * @param deadline how long one report may take before its work is
+     *                 cancelled and it is answered without the database
+     */
+    public AsyncReports(int threads, Duration deadline) {
+        Objects.requireNonNull(deadline, "deadline");
+        this.deadlineMillis = Math.max(1L, deadline.toMillis());
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "db-worker-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-deadline");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Shut the executors down when the server stops.
+     *
+     * @param app Javalin instance
+     */
+    public void register(Javalin app) {
+        Objects.requireNonNull(app, "app");
+        app.events(events -> events.serverStopped(() -> {
+            timer.shutdownNow();
+            executor.shutdownNow();
+        }));
+    }
+
+    /**
+     * Hand {@code handler} to the database executor.
+     *
+     * @param ctx       Javalin request/response context
+     * @param onTimeout writes the response, on the worker, if the deadline
+     *                  passed and the handler gave up
+     * @param handler   handler to run
+     */
+    void submit(Context ctx, Runnable onTimeout, Handler handler) {
+        Task task = new Task(ctx.res());
+        ctx.future(() -> task.done);
+        executor.execute(() -> task.run(ctx, onTimeout, handler));
+        task.deadline = timer.schedule(task::expire, deadlineMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** @return the per-request deadline in milliseconds. */
+    public long deadlineMillis() {
+        return deadlineMillis;
+    }
+
+    /** @return requests whose work was cancelled at the deadline since start-up. */
+    public long timeouts() {
+        return timeouts.get();
+    }
+
+    /** One submitted report: the worker's side and the deadline's side. */
+    private final class Task {
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        final QueryScope scope = new QueryScope();
+        /** Read by the deadline only while the response is still open. */
+        final HttpServletResponse response;
+        volatile Future<?> deadline;
+        private Thread worker;
+        private boolean finished;
+        private boolean expired;
+
+        Task(HttpServletResponse response) {
+            this.response = response;
+        }
+
+        /**
+         * Worker: run the handler, unless the deadline passed while the
+         * task was queued; after a deadline, answer like an outage.
+         */
+        void run(Context ctx, Runnable onTimeout, Handler handler) {
+            Exception failure = null;
+            boolean started = start();
+            if (started) {
+                try {
+                    scope.run(() -> handler.handle(ctx));
+                } catch (Exception ex) {
+                    failure = ex;
+                }
+            }
+            boolean timedOut = finish();
+            // A handler that still returned normally has written its own answer.
+            if (timedOut && (!started || failure != null)) {
+                try {
+                    onTimeout.run();
+                    failure = null;
+                } catch (RuntimeException ex) {
+                    failure = ex;
+                }
+            }
+            if (failure == null) {
+                done.complete(null);
+            } else {
+                done.completeExceptionally(failure);
+            }
+        }
+
+        /** Deadline: cancel the work unless it is done or already streaming. */
+        synchronized void expire() {
+            if (finished || worker != null && response.isCommitted()) {
+                return;
+            }
+            expired = true;
+            timeouts.incrementAndGet();
+            scope.cancel();
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+
+        /** @return {@code false} if the deadline passed before the worker got here */
+        private synchronized boolean start() {
+            worker = Thread.currentThread();
+            return !expired;
+        }
+
+        /** @return {@code true} if the deadline cancelled the work */
+        private boolean finish() {
+            boolean timedOut;
+            synchronized (this) {
+                finished = true;
+                timedOut = expired;
+            }
+            // No interrupt can arrive after this point; drop one that did.
+            Thread.interrupted();
+            Future<?> pending = deadline;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            return timedOut;
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.group13.population.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@code POST /api/batch} – run many report requests in one call.
+ *
+ * <p>Request body (JSON): a list of report paths, or of objects with a
+ * path, an optional client id and an optional {@code Accept} value:</p>
+ *
+ * <pre>
+ *   {"requests": [
+ *     "/reports/population/world",
+ *     {"id": "asia", "path": "/reports/population/continents/Asia"},
+ *     {"path": "/api/countries/world/top?n=10", "accept": "application/json"}
+ *   ]}
+ * </pre>
+ *
+ * <p>Each item is a normal GET of an {@code /api/} or {@code /reports/}
+ * report (not a batch or export job), issued over
+ * loopback (like {@link CacheWarmer}) on a bounded worker pool shared by
+ * all batches. Items therefore go through the same report pipeline as
+ * direct calls: response cache, stale-if-error and so on. The reply is one
+ * JSON envelope with the results in request order:</p>
+ *
+ * <pre>
+ *   {"responses": [
+ *     {"id": "asia", "path": "...", "status": 200,
+ *      "contentType": "text/csv; charset=utf-8", "body": "Name,..."}
+ *   ]}
+ * </pre>
+ *
+ * <p>JSON report bodies are embedded as JSON, text bodies as strings and
+ * binary bodies (columnar) as {@code bodyBase64}. An item that does not
+ * finish within the timeout gets status 504; one that cannot be fetched
+ * gets 502. The batch itself fails with 400 only for a malformed body.</p>
+ *
+ * <p>With a {@link RateLimiter} every item is charged to the caller at
+ * its own report's cost, as if it had been requested directly, so a batch
+ * of exports costs as much as the exports. Items the caller's bucket
+ * cannot cover get {@code 429} in the envelope.</p>
+ */
+public final class BatchRoutes {
+
+    /** Default maximum number of items in one batch. */
+    public static final int DEFAULT_MAX_ITEMS = 50;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    private final ExecutorService workers;
+    private final int maxItems;
+    private final Duration timeout;
+    private final HttpClient client;
+    private final RateLimiter rateLimiter;
+
+    /**
+     * @param threads  size of the worker pool shared by all batches (at least 1)
+     * @param maxItems largest accepted batch (at least 1)
+     * @param timeout  per-item time limit
+     */
+    public BatchRoutes(int threads, int maxItems, Duration timeout) {
+        this(threads, maxItems, timeout, null);
+    }
+
+    /**
+     * @param threads     size of the worker pool shared by all batches (at least 1)
+     * @param maxItems    largest accepted batch (at least 1)
+     * @param timeout     per-item time limit
+     * @param rateLimiter per-client rate limiter the items are charged
+     *                    through, or {@code null} for none
+     */
+    public BatchRoutes(int threads, int maxItems, Duration timeout, RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+        this.maxItems = Math.max(1, maxItems);
+        this.timeout = Objects.requireNonNull(timeout, "timeout");
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "batch-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    /**
+     * Register the batch route; the worker pool is shut down when the
+     * server stops.
+     *
+     * @param app Javalin instance
+     */
+    public void register(Javalin app) {
+        Objects.requireNonNull(app, "app");
+        app.post("/api/batch", this::handleBatch);
+        app.events(events -> events.serverStopped(workers::shutdownNow));
+    }
+
+    // ---------------------------------------------------------------------
+    // Handler
+    // ---------------------------------------------------------------------
+
+    private void handleBatch(Context ctx) throws IOException {
+        List<Item> items = parse(ctx.body());
+        String base = "http://127.0.0.1:" + ctx.port();
+        String caller = rateLimiter == null ? null : rateLimiter.clientKey(ctx);
+
+        List<Future<Result>> pending = new ArrayList<>(items.size());
+        for (Item item : items) {
+            pending.add(workers.submit(() -> fetch(base, item, caller)));
+        }
+
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<Result> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            results.add(await(pending.get(i), deadline));
+        }
+
+        ctx.contentType("application/json");
+        ctx.result(envelope(items, results));
+    }
+
+    /** Wait for one item until the batch deadline. */
+    private static Result await(Future<Result> future, long deadline) {
+        try {
+            long remaining = Math.max(0L, deadline - System.nanoTime());
+            return future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            return Result.error(504, "Timed out");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            return Result.error(503, "Interrupted");
+        } catch (ExecutionException ex) {
+            return Result.error(502, String.valueOf(ex.getCause()));
+        }
+    }
+
+    /** GET one report over loopback, charged to {@code caller} if not {@code null}. */
+    private Result fetch(String base, Item item, String caller) {
+        try {
+            // Batch items yield to interactive calls and are shed once the
+            // batch deadline can no longer be met.
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + item.path))
+                .timeout(timeout)
+                .header(Admission.PRIORITY_HEADER, Admission.Priority.BATCH.configName())
+                .header(Admission.DEADLINE_HEADER, String.valueOf(timeout.toMillis()))
+                .header(RateLimiter.INTERNAL_HEADER, RateLimiter.INTERNAL_TOKEN)
+                .GET();
+            if (caller != null) {
+                request.header(RateLimiter.CLIENT_HEADER, caller);
+            }
+            if (item.accept != null) {
+                request.header("Accept", item.accept);
+            }
+            HttpResponse<byte[]> response =
+                client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            return new Result(response.statusCode(),
+                response.headers().firstValue("Content-Type").orElse(null),
+                response.body());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return Result.error(503, "Interrupted");
+        } catch (HttpTimeoutException ex) {
+            // Same limit as the batch deadline; whichever fires first, it is a 504.
+            return Result.error(504, "Timed out");
+        } catch (IOException | IllegalArgumentException ex) {
+            return Result.error(502, ex.getMessage());
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Request parsing
+    // ---------------------------------------------------------------------
+
+    /** Parse and validate the batch body. */
+    List<Item> parse(String body) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(body == null ? "" : body);
+        } catch (IOException ex) {
+            throw new BadRequestResponse("Batch body must be JSON");
+        }
+        JsonNode list = root != null && root.isObject() ? root.get("requests") : root;
+        if (list == null || !list.isArray() || list.isEmpty()) {
+            throw new BadRequestResponse("Batch body must list at least one request");
+        }
+        if (list.size() > maxItems) {
+            throw new BadRequestResponse("A batch may hold at most " + maxItems + " requests");
+        }
+
+        List<Item> items = new ArrayList<>(list.size());
+        for (JsonNode node : list) {
+            if (node.isTextual()) {
+                items.add(new Item(null, checkPath(node.asText()), null));
+            } else if (node.isObject() && node.path("path").isTextual()) {
+                items.add(new Item(
+                    node.path("id").isValueNode() ? node.path("id").asText() : null,
+                    checkPath(node.path("path").asText()),
+                    node.path("accept").isTextual() ? node.path("accept").asText() : null));
+            } else {
+                throw new BadRequestResponse("Each request must be a path or an object with a path");
+            }
+        }
+        return items;
+    }
+
+    /** Only report routes may be batched: no admin routes, no nested batches or exports. */
+    static String checkPath(String path) {
+        if (!path.startsWith("/api/") && !path.startsWith("/reports/")
+            || path.startsWith("/api/batch") || path.startsWith("/api/exports")
+            || path.contains("..") || path.contains("#")
+            || path.chars().anyMatch(c -> c <= ' ')) {
+            throw new BadRequestResponse("Not a report path: " + path);
+        }
+        return path;
+    }
+
+    // ---------------------------------------------------------------------
+    // Response envelope
+    // ---------------------------------------------------------------------
+
+    private static byte[] envelope(List<Item> items, List<Result> results) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        try (JsonGenerator json = FACTORY.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeArrayFieldStart("responses");
+            for (int i = 0; i < items.size(); i++) {
+                Item item = items.get(i);
+                Result result = results.get(i);
+                json.writeStartObject();
+                if (item.id != null) {
+                    json.writeStringField("id", item.id);
+                }
+                json.writeStringField("path", item.path);
+                json.writeNumberField("status", result.status);
+                if (result.contentType != null) {
+                    json.writeStringField("contentType", result.contentType);
+                }
+                writeBody(json, result);
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeBody(JsonGenerator json, Result result) throws IOException {
+        String type = result.contentType == null ? "" : result.contentType.toLowerCase(Locale.ROOT);
+        if (type.startsWith("application/json") && result.status == 200) {
+            json.writeFieldName("body");
+            json.writeRawValue(new String(result.body, StandardCharsets.UTF_8));
+        } else if (type.startsWith("text/") || type.startsWith("application/x-ndjson") || type.isEmpty()) {
+            json.writeStringField("body", new String(result.body, StandardCharsets.UTF_8));
+        } else {
+            json.writeStringField("bodyBase64", Base64.getEncoder().encodeToString(result.body));
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Value types
+    // ---------------------------------------------------------------------
+
+    /** One requested report. */
+    static final class Item {
+        final String id;
+        final String path;
+        final String accept;
+
+        Item(String id, String path, String accept) {
+            this.id = id;
+            this.path = path;
+            this.accept = accept;
+        }
+    }
+
+    /** Outcome of one item. */
+    private static final class Result {
+        final int status;
+        final String contentType;
+        final byte[] body;
+
+        Result(int status, String contentType, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.body = body;
+        }
+
+        static Result error(int status, String message) {
+            return new Result(status, "text/plain; charset=utf-8",
+                String.valueOf(message).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.group13.population.web;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * One {@link DbGate} per {@link ReportClass}, so a burst of heavy exports
+ * can use up only the export permits and queue, never the ones the cheap
+ * lookups depend on.
+ *
+ * <p>The application talks to MySQL through a single shared connection
+ * ({@link com.group13.population.db.Db}), so a class's "connection share"
+ * is its share of the permits to use it: with export=2 and lookup=16 at
+ * most two exports are ever in front of a lookup on the connection.</p>
+ */
+public final class Bulkheads {
+
+    private final Map<ReportClass, DbGate> gates;
+
+    /**
+     * @param gates a gate for each report class; classes without one are
+     *              not limited
+     */
+    public Bulkheads(Map<ReportClass, DbGate> gates) {
+        Objects.requireNonNull(gates, "gates");
+        this.gates = gates.isEmpty() ? new EnumMap<>(ReportClass.class) : new EnumMap<>(gates);
+    }
+
+    /**
+     * @param gate gate shared by every report class
+     * @return bulkheads that are really one shared limit
+     */
+    public static Bulkheads shared(DbGate gate) {
+        Objects.requireNonNull(gate, "gate");
+        Map<ReportClass, DbGate> gates = new EnumMap<>(ReportClass.class);
+        for (ReportClass reportClass : ReportClass.values()) {
+            gates.put(reportClass, gate);
+        }
+        return new Bulkheads(gates);
+    }
+
+    /**
+     * @param reportId report id, e.g. {@code "R01"}
+     * @return the gate for the report's class, or {@code null} if unlimited
+     */
+    public DbGate forReport(String reportId) {
+        return gates.get(ReportClass.of(reportId));
+    }
+
+    /**
+     * @param reportClass report class
+     * @return the gate for the class, or {@code null} if unlimited
+     */
+    public DbGate get(ReportClass reportClass) {
+        return gates.get(reportClass);
+    }
+
+    /**
+     * Per-class occupancy as {@code key=value} lines, for the admin routes.
+     *
+     * @return e.g. {@code bulkhead.export.queued=3}
+     */
+    public String stats() {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<ReportClass, DbGate> entry : gates.entrySet()) {
+            String prefix = "bulkhead." + entry.getKey().configName() + ".";
+            DbGate gate = entry.getValue();
+            out.append(prefix).append("maxConcurrent=").append(gate.maxConcurrent()).append('\n');
+            out.append(prefix).append("maxQueue=").append(gate.maxQueue()).append('\n');
+            out.append(prefix).append("inUse=").append(gate.inUse()).append('\n');
+            out.append(prefix).append("queued=").append(gate.waiting()).append('\n');
+            out.append(prefix).append("rejected=").append(gate.rejected()).append('\n');
+            for (Admission.Priority priority : Admission.Priority.values()) {
+                out.append(prefix).append("shed.").append(priority.configName())
+                    .append('=').append(gate.shed(priority)).append('\n');
+            }
+            out.append(prefix).append("serviceMicros=").append(gate.serviceMicros()).append('\n');
+        }
+        return out.toString();
+    }
+}
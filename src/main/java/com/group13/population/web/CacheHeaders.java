@@ -0,0 +1,153 @@
+package com.group13.population.web;
+
+import com.group13.population.cache.DataVersion;
+import io.javalin.http.Context;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * HTTP caching headers for report responses, so CDNs and reverse proxies
+ * can serve repeat requests without reaching the JVM.
+ *
+ * <p>Every successful report response gets:</p>
+ * <ul>
+ *   <li>{@code Cache-Control: public, max-age=…, stale-while-revalidate=…,
+ *       stale-if-error=…} from the report's {@link Policy};</li>
+ *   <li>{@code Last-Modified} – the time the current {@link DataVersion}
+ *       became current;</li>
+ *   <li>{@code Vary: Accept, Accept-Encoding}, as the format
+ *       ({@link ReportFormat}) and content coding are negotiated.</li>
+ * </ul>
+ *
+ * <p>Conditional requests whose {@code If-Modified-Since} is not older
+ * than the data version are answered with {@code 304 Not Modified}.</p>
+ */
+public final class CacheHeaders {
+
+    /** HTTP-date format used by Last-Modified / If-Modified-Since. */
+    private static final DateTimeFormatter HTTP_DATE =
+        DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    /**
+     * Cache lifetimes for one report, in seconds.
+     */
+    public static final class Policy {
+
+        /** Default policy: fresh for 5 minutes, then revalidated in the background. */
+        public static final Policy DEFAULT = new Policy(300, 60, 86_400);
+
+        private final int maxAge;
+        private final int staleWhileRevalidate;
+        private final int staleIfError;
+
+        /**
+         * @param maxAge               seconds a response is fresh; {@code 0}
+         *                             means caches must always revalidate
+         * @param staleWhileRevalidate seconds a stale response may be served
+         *                             while a cache refreshes it
+         * @param staleIfError         seconds a stale response may be served
+         *                             when the origin is failing
+         */
+        public Policy(int maxAge, int staleWhileRevalidate, int staleIfError) {
+            this.maxAge = Math.max(0, maxAge);
+            this.staleWhileRevalidate = Math.max(0, staleWhileRevalidate);
+            this.staleIfError = Math.max(0, staleIfError);
+        }
+
+        /** @return freshness lifetime in seconds. */
+        public int getMaxAge() {
+            return maxAge;
+        }
+
+        /** @return stale-while-revalidate window in seconds. */
+        public int getStaleWhileRevalidate() {
+            return staleWhileRevalidate;
+        }
+
+        /** @return stale-if-error window in seconds. */
+        public int getStaleIfError() {
+            return staleIfError;
+        }
+
+        /** @return the {@code Cache-Control} header value for this policy. */
+        public String headerValue() {
+            StringBuilder sb = new StringBuilder("public, max-age=").append(maxAge);
+            if (staleWhileRevalidate > 0) {
+                sb.append(", stale-while-revalidate=").append(staleWhileRevalidate);
+            }
+            if (staleIfError > 0) {
+                sb.append(", stale-if-error=").append(staleIfError);
+            }
+            return sb.toString();
+        }
+    }
+
+    private final DataVersion version;
+    private final Policy defaults;
+    private final Map<String, Policy> perReport;
+
+    /**
+     * @param version   data version supplying Last-Modified
+     * @param defaults  policy for reports without an override
+     * @param perReport overrides keyed by report id (e.g. {@code "R26"})
+     */
+    public CacheHeaders(DataVersion version, Policy defaults, Map<String, Policy> perReport) {
+        this.version = Objects.requireNonNull(version, "version");
+        this.defaults = Objects.requireNonNull(defaults, "defaults");
+        this.perReport = new HashMap<>(Objects.requireNonNull(perReport, "perReport"));
+    }
+
+    /**
+     * @param reportId report id, e.g. {@code "R01"}
+     * @return the policy for that report (its override or the default)
+     */
+    public Policy policyFor(String reportId) {
+        return perReport.getOrDefault(reportId, defaults);
+    }
+
+    /**
+     * @return Last-Modified for the current data version, truncated to whole
+     *         seconds as HTTP dates carry no fractions
+     */
+    public Instant lastModified() {
+        return version.lastModified().truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    /**
+     * @param ifModifiedSince value of the request's If-Modified-Since header
+     * @param lastModified    Last-Modified of the data being served
+     * @return {@code true} if the client's copy is still current
+     */
+    static boolean notModified(String ifModifiedSince, Instant lastModified) {
+        if (ifModifiedSince == null || ifModifiedSince.isBlank()) {
+            return false;
+        }
+        try {
+            Instant since = Instant.from(HTTP_DATE.parse(ifModifiedSince.trim()));
+            return !since.isBefore(lastModified);
+        } catch (DateTimeParseException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Set Cache-Control and Last-Modified on a response.
+     *
+     * @param reportId     report id used to pick the policy
+     * @param lastModified Last-Modified of the data being served
+     * @param ctx          Javalin request/response context
+     */
+    void apply(String reportId, Instant lastModified, Context ctx) {
+        ctx.header("Cache-Control", policyFor(reportId).headerValue());
+        ctx.header("Last-Modified", HTTP_DATE.format(lastModified));
+        // The body depends on Accept (format) and Accept-Encoding, so shared caches must key on them.
+        ctx.header("Vary", ReportPipeline.VARY);
+    }
+}
@@ -0,0 +1,283 @@
+package com.group13.population.web;
+
+import com.group13.population.repo.ScopeRepo;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Start-up cache warm-up for the report catalogue (R01–R32).
+ *
+ * <p>After the HTTP server has started, the warmer enumerates every
+ * continent, region, country and district via {@link ScopeRepo}, builds
+ * the full request list with {@link ReportCatalogue} and requests each
+ * report over loopback HTTP on a fixed pool of worker threads. Going
+ * through HTTP exercises exactly the same code path as real traffic, so
+ * the {@link ResponseCache} is filled and the JIT has compiled the hot
+ * routes before the readiness probe ({@code /ready}) turns green.</p>
+ *
+ * <p>The workers parallelise what happens in this process – CSV
+ * rendering, compression and cache stores. The queries themselves still
+ * run one at a time on the application's single database connection
+ * ({@link com.group13.population.db.Db}), so more workers than cores do
+ * not make warm-up faster.</p>
+ *
+ * <p>Warm-up requests are batch priority ({@link Admission}), so live
+ * traffic arriving meanwhile goes first at the bulkheads and the database
+ * limiter, and carry the request timeout as their deadline. A request shed
+ * as busy ({@code 503} with a short {@code Retry-After}) is tried again
+ * after that delay, up to {@link #MAX_ATTEMPTS} times; a longer
+ * {@code Retry-After} means the database is down and is not retried.</p>
+ *
+ * <p>Warm-up time and coverage (rendered / total, per report id) are
+ * logged and exposed through {@link #summary()}.</p>
+ */
+public final class CacheWarmer {
+
+    /** Lifecycle of the warm-up, as seen by the readiness probe. */
+    public enum State {
+        /** Warm-up has not been scheduled (e.g. app built by tests only). */
+        IDLE,
+        /** Warm-up is scheduled or running; the app is not ready yet. */
+        WARMING,
+        /** Warm-up finished (or was skipped); the app is ready. */
+        DONE
+    }
+
+    /** Attempts per report while it is shed as busy. */
+    static final int MAX_ATTEMPTS = 3;
+
+    /** Longest {@code Retry-After}, in seconds, that is still worth waiting for. */
+    static final int MAX_RETRY_AFTER_SECONDS = 5;
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+    private final ScopeRepo scopeRepo;
+    private final BooleanSupplier dbConnected;
+    private final int[] topN;
+    private final int threads;
+
+    private volatile State state = State.IDLE;
+    private volatile String summary = "warm-up not run";
+    private volatile ExecutorService workers;
+
+    /**
+     * Creates a warmer.
+     *
+     * @param scopeRepo   source of continents, regions, countries and districts
+     * @param dbConnected returns {@code true} when the database is reachable;
+     *                    warm-up is skipped otherwise (every report would fail)
+     * @param topN        N values used for the "top N" reports
+     * @param threads     number of render workers (at least 1); they overlap
+     *                    rendering and compression, not database queries
+     */
+    public CacheWarmer(ScopeRepo scopeRepo, BooleanSupplier dbConnected,
+                       int[] topN, int threads) {
+        this.scopeRepo = Objects.requireNonNull(scopeRepo, "scopeRepo");
+        this.dbConnected = Objects.requireNonNull(dbConnected, "dbConnected");
+        this.topN = Objects.requireNonNull(topN, "topN").clone();
+        this.threads = Math.max(1, threads);
+    }
+
+    /** @return current warm-up state. */
+    public State state() {
+        return state;
+    }
+
+    /** @return {@code true} unless a warm-up is scheduled or in progress. */
+    public boolean isReady() {
+        return state != State.WARMING;
+    }
+
+    /** @return human-readable summary of the last warm-up (time and coverage). */
+    public String summary() {
+        return summary;
+    }
+
+    /**
+     * Mark the warm-up as pending so {@code /ready} reports "not ready"
+     * from the moment the server starts accepting connections.
+     */
+    public void markPending() {
+        state = State.WARMING;
+    }
+
+    /**
+     * Run the warm-up in the background against the server on {@code port}.
+     *
+     * @param port port the Javalin server is listening on
+     * @return the background thread (already started)
+     */
+    public Thread startAsync(int port) {
+        markPending();
+        Thread thread = new Thread(() -> run(port), "cache-warmup");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Run the warm-up synchronously against the server on {@code port}.
+     *
+     * @param port port the Javalin server is listening on
+     */
+    public void run(int port) {
+        markPending();
+        try {
+            if (!dbConnected.getAsBoolean()) {
+                summary = "warm-up skipped: database not connected";
+                System.err.println("WARNING: CacheWarmer " + summary);
+                return;
+            }
+
+            long started = System.nanoTime();
+            List<ReportCatalogue.Entry> entries = catalogue();
+
+            Map<String, int[]> coverage = renderAll(port, entries);
+            long elapsedMs = (System.nanoTime() - started) / 1_000_000L;
+
+            summary = describe(entries.size(), coverage, elapsedMs);
+            System.out.println("INFO: CacheWarmer " + summary);
+        } catch (RuntimeException ex) {
+            summary = "warm-up failed: " + ex.getMessage();
+            System.err.println("ERROR: CacheWarmer " + summary);
+        } finally {
+            state = State.DONE;
+        }
+    }
+
+    /**
+     * Every report request for every scope in the database, as warmed up
+     * (also used by the evidence-bundle generator).
+     *
+     * @return the full {@link ReportCatalogue} for the current scopes
+     * @throws IllegalStateException if the database is not connected
+     */
+    public List<ReportCatalogue.Entry> catalogue() {
+        if (!dbConnected.getAsBoolean()) {
+            throw new IllegalStateException("database not connected");
+        }
+        return ReportCatalogue.entries(
+            scopeRepo.findContinents(),
+            scopeRepo.findRegions(),
+            scopeRepo.findCountries(),
+            scopeRepo.findDistricts(),
+            topN);
+    }
+
+    /** Stop any in-flight warm-up (called on shutdown). */
+    public void stop() {
+        ExecutorService current = workers;
+        if (current != null) {
+            current.shutdownNow();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Helpers
+    // ---------------------------------------------------------------------
+
+    /**
+     * Request every entry on the worker pool (queries still take turns on
+     * the one connection).
+     *
+     * @return per-report {rendered, total} counts, ordered by report id
+     */
+    private Map<String, int[]> renderAll(int port, List<ReportCatalogue.Entry> entries) {
+        Map<String, int[]> coverage = new TreeMap<>();
+        for (ReportCatalogue.Entry entry : entries) {
+            coverage.computeIfAbsent(entry.getReportId(), k -> new int[2])[1]++;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "cache-warmup-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        workers = pool;
+
+        HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+        String base = "http://127.0.0.1:" + port;
+
+        List<Future<Boolean>> results = new ArrayList<>(entries.size());
+        for (ReportCatalogue.Entry entry : entries) {
+            results.add(pool.submit(() -> render(client, base + entry.getPath())));
+        }
+
+        try {
+            for (int i = 0; i < results.size(); i++) {
+                if (Boolean.TRUE.equals(results.get(i).get())) {
+                    coverage.get(entries.get(i).getReportId())[0]++;
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            // render() never throws; nothing more to count
+        } finally {
+            pool.shutdownNow();
+            workers = null;
+        }
+        return coverage;
+    }
+
+    /** Request one report, retrying while it is shed; {@code true} if it rendered with HTTP 200. */
+    static boolean render(HttpClient client, String url) {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(REQUEST_TIMEOUT)
+                .header(Admission.PRIORITY_HEADER, Admission.Priority.BATCH.configName())
+                .header(Admission.DEADLINE_HEADER, String.valueOf(REQUEST_TIMEOUT.toMillis()))
+                .header(RateLimiter.INTERNAL_HEADER, RateLimiter.INTERNAL_TOKEN)
+                .GET()
+                .build();
+            for (int attempt = 1; ; attempt++) {
+                HttpResponse<Void> response =
+                    client.send(request, HttpResponse.BodyHandlers.discarding());
+                long retryAfter = response.headers().firstValueAsLong("Retry-After").orElse(Long.MAX_VALUE);
+                if (response.statusCode() != 503 || retryAfter > MAX_RETRY_AFTER_SECONDS
+                    || attempt >= MAX_ATTEMPTS) {
+                    return response.statusCode() == 200;
+                }
+                Thread.sleep(Duration.ofSeconds(retryAfter));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /** Format the warm-up summary, e.g. "rendered 8600/8612 reports in 4210 ms". */
+    static String describe(int total, Map<String, int[]> coverage, long elapsedMs) {
+        int rendered = 0;
+        StringBuilder perReport = new StringBuilder();
+        for (Map.Entry<String, int[]> e : coverage.entrySet()) {
+            rendered += e.getValue()[0];
+            if (perReport.length() > 0) {
+                perReport.append(", ");
+            }
+            perReport.append(e.getKey()).append('=')
+                .append(e.getValue()[0]).append('/').append(e.getValue()[1]);
+        }
+        return String.format(
+            "rendered %d/%d reports in %d ms [%s]",
+            rendered, total, elapsedMs, perReport);
+    }
+}
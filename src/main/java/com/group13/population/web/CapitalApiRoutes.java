@@ -1,11 +1,13 @@
 package com.group13.population.web;
 
 import com.group13.population.db.Db;
+import com.group13.population.repo.DataAccessException;
+import com.group13.population.repo.ReportColumn;
+import com.group13.population.repo.ReportPlan;
+import com.group13.population.repo.ReportRegistry;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Objects;
 
@@ -24,10 +26,14 @@ import java.util.Objects;
  *     <li>R21: {@code /api/capitals/continent/{continent}/top/{limit}}</li>
  *     <li>R22: {@code /api/capitals/region/{region}/top/{limit}}</li>
  * </ul>
+ *
+ * <p>Each report runs the compiled plan declared in {@link ReportRegistry},
+ * shared with {@code /reports/capitals}.</p>
  */
 public final class CapitalApiRoutes {
 
     private final Db db;
+    private final ReportPipeline pipeline;
 
     /**
      * Creates a new instance of the capital API routes.
@@ -35,7 +41,19 @@ public final class CapitalApiRoutes {
      * @param db shared database helper
      */
     public CapitalApiRoutes(Db db) {
+        this(db, ReportPipeline.direct());
+    }
+
+    /**
+     * Creates a new instance of the capital API routes using the shared
+     * report pipeline (response cache).
+     *
+     * @param db       shared database helper
+     * @param pipeline report pipeline applied to every handler
+     */
+    public CapitalApiRoutes(Db db, ReportPipeline pipeline) {
         this.db = Objects.requireNonNull(db, "db");
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline");
     }
 
     /**
@@ -49,22 +67,22 @@ public final class CapitalApiRoutes {
         final String base = "/api/capitals";
 
         // R17 – all capital cities in the world
-        app.get(base + "/world", this::handleWorld);
+        app.get(base + "/world", pipeline.wrap("R17", this::handleWorld));
 
         // R18 – all capital cities in a continent
-        app.get(base + "/continent/{continent}", this::handleContinent);
+        app.get(base + "/continent/{continent}", pipeline.wrap("R18", this::handleContinent));
 
         // R19 – all capital cities in a region
-        app.get(base + "/region/{region}", this::handleRegion);
+        app.get(base + "/region/{region}", pipeline.wrap("R19", this::handleRegion));
 
         // R20 – top N capital cities in the world (path param {limit})
-        app.get(base + "/world/top/{limit}", this::handleWorldTop);
+        app.get(base + "/world/top/{limit}", pipeline.wrap("R20", this::handleWorldTop));
 
         // R21 – top N capital cities in a continent
-        app.get(base + "/continent/{continent}/top/{limit}", this::handleContinentTop);
+        app.get(base + "/continent/{continent}/top/{limit}", pipeline.wrap("R21", this::handleContinentTop));
 
         // R22 – top N capital cities in a region
-        app.get(base + "/region/{region}/top/{limit}", this::handleRegionTop);
+        app.get(base + "/region/{region}/top/{limit}", pipeline.wrap("R22", this::handleRegionTop));
     }
 
     // -------------------------------------------------------------------------
@@ -72,94 +90,27 @@ public final class CapitalApiRoutes {
     // -------------------------------------------------------------------------
 
     private void handleWorld(Context ctx) {
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.ID = country.Capital "
-                + "ORDER BY city.Population DESC";
-
-        streamCapitalsAsCsv(ctx, sql);
+        streamCapitalsAsCsv(ctx, "R17", null, null);
     }
 
     private void handleContinent(Context ctx) {
-        final String continent = ctx.pathParam("continent");
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.ID = country.Capital "
-                + "WHERE country.Continent = ? "
-                + "ORDER BY city.Population DESC";
-
-        streamCapitalsAsCsv(ctx, sql, continent);
+        streamCapitalsAsCsv(ctx, "R18", ctx.pathParam("continent"), null);
     }
 
     private void handleRegion(Context ctx) {
-        final String region = ctx.pathParam("region");
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.ID = country.Capital "
-                + "WHERE country.Region = ? "
-                + "ORDER BY city.Population DESC";
-
-        streamCapitalsAsCsv(ctx, sql, region);
+        streamCapitalsAsCsv(ctx, "R19", ctx.pathParam("region"), null);
     }
 
     private void handleWorldTop(Context ctx) {
-        final int limit = parseLimit(ctx.pathParam("limit"), 10);
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.ID = country.Capital "
-                + "ORDER BY city.Population DESC "
-                + "LIMIT ?";
-
-        streamCapitalsAsCsv(ctx, sql, limit);
+        streamCapitalsAsCsv(ctx, "R20", null, ctx.pathParam("limit"));
     }
 
     private void handleContinentTop(Context ctx) {
-        final String continent = ctx.pathParam("continent");
-        final int limit = parseLimit(ctx.pathParam("limit"), 5);
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.ID = country.Capital "
-                + "WHERE country.Continent = ? "
-                + "ORDER BY city.Population DESC "
-                + "LIMIT ?";
-
-        streamCapitalsAsCsv(ctx, sql, continent, limit);
+        streamCapitalsAsCsv(ctx, "R21", ctx.pathParam("continent"), ctx.pathParam("limit"));
     }
 
     private void handleRegionTop(Context ctx) {
-        final String region = ctx.pathParam("region");
-        final int limit = parseLimit(ctx.pathParam("limit"), 3);
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.ID = country.Capital "
-                + "WHERE country.Region = ? "
-                + "ORDER BY city.Population DESC "
-                + "LIMIT ?";
-
-        streamCapitalsAsCsv(ctx, sql, region, limit);
+        streamCapitalsAsCsv(ctx, "R22", ctx.pathParam("region"), ctx.pathParam("limit"));
     }
 
     // -------------------------------------------------------------------------
@@ -185,50 +136,29 @@ public final class CapitalApiRoutes {
     }
 
     /**
-     * Run the given SQL query and stream the results as CSV to the HTTP response.
+     * Run a capital report and stream the results as CSV (or JSON when the
+     * request negotiated it).
      *
-     * @param ctx    Javalin context
-     * @param sql    parameterised SQL query
-     * @param params positional parameters for the query
+     * @param ctx      Javalin context
+     * @param reportId report identifier (R17–R22)
+     * @param value    filter value, or {@code null} for the world
+     * @param rawLimit {limit} path parameter of a top-N report, or {@code null}
      */
-    private void streamCapitalsAsCsv(Context ctx, String sql, Object... params) {
+    private void streamCapitalsAsCsv(Context ctx, String reportId, String value, String rawLimit) {
+        final ReportPlan plan = ReportRegistry.plan(reportId);
+        final int limit = parseLimit(rawLimit, plan.defaultLimit());
+
         ctx.contentType("text/csv; charset=UTF-8");
         ctx.header("Content-Disposition", "attachment; filename=\"capitals.csv\"");
 
-        try (PreparedStatement stmt = db.getConnection().prepareStatement(sql)) {
-
-            // Bind parameters (String or Integer)
-            for (int i = 0; i < params.length; i++) {
-                Object value = params[i];
-                int index = i + 1;
-                if (value instanceof Integer) {
-                    stmt.setInt(index, (Integer) value);
-                } else {
-                    stmt.setString(index, String.valueOf(value));
-                }
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                StringBuilder csv = new StringBuilder();
-                csv.append("Name,Country,Population").append('\n');
-
-                while (rs.next()) {
-                    String name = rs.getString("city_name");
-                    String country = rs.getString("country_name");
-                    long population = rs.getLong("population");
-
-                    csv.append(escapeCsv(name))
-                        .append(',')
-                        .append(escapeCsv(country))
-                        .append(',')
-                        .append(population)
-                        .append('\n');
-                }
-
-                ctx.result(csv.toString());
-            }
+        try {
+            ReportWriter out = ReportWriter.forRequest(ctx)
+                .columns(ReportColumn.headers(plan.columns()));
+            plan.stream(db.getConnection(), plan.columns(), value, limit, out);
+            out.send(ctx);
         } catch (SQLException ex) {
-            ctx.status(500).result("Database error: " + ex.getMessage());
+            // Surface the outage to ReportPipeline (stale result or 503).
+            throw new DataAccessException("Database error: " + ex.getMessage(), ex);
         }
     }
 
@@ -239,20 +169,6 @@ public final class CapitalApiRoutes {
      * @return escaped string, quoted if required
      */
     static String escapeCsv(String value) {
-        if (value == null) {
-            return "";
-        }
-        boolean needsQuotes =
-            value.contains(",")
-                || value.contains("\"")
-                || value.contains("\n")
-                || value.contains("\r");
-
-        String escaped = value.replace("\"", "\"\"");
-
-        if (needsQuotes) {
-            return "\"" + escaped + "\"";
-        }
-        return escaped;
+        return CsvWriter.escape(value);
     }
 }
@@ -18,6 +18,7 @@ import java.util.Objects;
 public final class CapitalRoutes {
 
     private final CapitalService service;
+    private final ReportPipeline pipeline;
 
     /**
      * Creates a new CapitalRoutes instance.
@@ -25,11 +26,22 @@ public final class CapitalRoutes {
      * @param service capital report service.
      */
     public CapitalRoutes(CapitalService service) {
+        this(service, ReportPipeline.direct());
+    }
+
+    /**
+     * Creates a new CapitalRoutes instance using the shared report pipeline.
+     *
+     * @param service  capital report service.
+     * @param pipeline report pipeline applied to every handler.
+     */
+    public CapitalRoutes(CapitalService service, ReportPipeline pipeline) {
         this.service = Objects.requireNonNull(service, "service");
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline");
     }
 
     /**
-     * Convenience entry point used by App.createApp and tests.
+     * Convenience entry point used by tests.
      *
      * @param app     running Javalin instance.
      * @param service capital report service.
@@ -38,6 +50,18 @@ public final class CapitalRoutes {
         new CapitalRoutes(service).register(app);
     }
 
+    /**
+     * Convenience entry point used by App.createApp.
+     *
+     * @param app      running Javalin instance.
+     * @param service  capital report service.
+     * @param pipeline report pipeline applied to every handler.
+     */
+    public static void register(Javalin app, CapitalService service,
+                                ReportPipeline pipeline) {
+        new CapitalRoutes(service, pipeline).register(app);
+    }
+
     /**
      * Register all capital city report endpoints (R17–R22).
      *
@@ -57,26 +81,29 @@ public final class CapitalRoutes {
         final String base = "/reports/capitals";
 
         // R17 – all capital cities in the world (population DESC)
-        app.get(base + "/world", this::handleWorldCapitals);
+        app.get(base + "/world", pipeline.wrap("R17", this::handleWorldCapitals));
 
         // R18 – all capital cities in a continent (population DESC)
-        app.get(base + "/continent/{continent}", this::handleContinentCapitals);
+        app.get(base + "/continent/{continent}",
+            pipeline.wrap("R18", this::handleContinentCapitals));
 
         // R19 – all capital cities in a region (population DESC)
-        app.get(base + "/region/{region}", this::handleRegionCapitals);
+        app.get(base + "/region/{region}",
+            pipeline.wrap("R19", this::handleRegionCapitals));
 
         // R20 – top-N capitals in the world, e.g. /reports/capitals/world/top/10
-        app.get(base + "/world/top/{limit}", this::handleTopWorldCapitals);
+        app.get(base + "/world/top/{limit}",
+            pipeline.wrap("R20", this::handleTopWorldCapitals));
 
         // R21 – top-N capitals in a continent,
         // e.g. /reports/capitals/continent/Europe/top/5
         app.get(base + "/continent/{continent}/top/{limit}",
-            this::handleTopContinentCapitals);
+            pipeline.wrap("R21", this::handleTopContinentCapitals));
 
         // R22 – top-N capitals in a region,
         // e.g. /reports/capitals/region/Caribbean/top/3
         app.get(base + "/region/{region}/top/{limit}",
-            this::handleTopRegionCapitals);
+            pipeline.wrap("R22", this::handleTopRegionCapitals));
     }
 
     // ---------------------------------------------------------------------
@@ -157,16 +184,16 @@ public final class CapitalRoutes {
      * @param rows capital city rows to serialise.
      */
     private void writeCsv(Context ctx, List<CityRow> rows) {
-        StringBuilder csv = new StringBuilder();
-        csv.append("Name,Country,District,Population\n");
+        ctx.contentType("text/csv");
+        ReportWriter out = ReportWriter.forRequest(ctx)
+            .columns("Name", "Country", "District", "Population");
         for (CityRow row : rows) {
-            csv.append(escape(row.getName())).append(',');
-            csv.append(escape(row.getCountry())).append(',');
-            csv.append(escape(row.getDistrict())).append(',');
-            csv.append(row.getPopulation()).append('\n');
+            out.text(row.getName());
+            out.text(row.getCountry());
+            out.text(row.getDistrict());
+            out.number(row.getPopulation()).endRow();
         }
-        ctx.contentType("text/csv");
-        ctx.result(csv.toString());
+        out.send(ctx);
     }
 
     /**
@@ -176,12 +203,6 @@ public final class CapitalRoutes {
      * @return CSV-escaped representation of {@code value}.
      */
     static String escape(String value) {
-        if (value == null) {
-            return "";
-        }
-        if (value.contains(",") || value.contains("\"")) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
-        }
-        return value;
+        return CsvWriter.escape(value);
     }
 }
@@ -1,13 +1,13 @@
 package com.group13.population.web;
 
 import com.group13.population.db.Db;
+import com.group13.population.repo.CityRepo;
+import com.group13.population.repo.ReportPlan;
+import com.group13.population.repo.ReportRegistry;
+import com.group13.population.service.CityService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.Objects;
 
 /**
@@ -29,10 +29,20 @@ import java.util.Objects;
  * R14: /api/cities/region/{region}/top?n=5
  * R15: /api/cities/country/{country}/top?n=5
  * R16: /api/cities/district/{district}/top?n=3
+ *
+ * {@code ?fields=Name,Population} narrows any report to some columns; the
+ * query then selects only those, and joins {@code country} only when the
+ * Country column or the filter needs it. Each report runs the compiled plan
+ * declared in {@link ReportRegistry}, run by the {@link CityService} and
+ * served by {@link CityReports}, the same path as {@code /reports/cities}.
+ *
+ * R07 and R08 can be paged with {@code ?page_size=} and the continuation
+ * token from the previous page's {@code Link} header; see {@link KeysetPage}.
  */
 public final class CityApiRoutes {
 
-    private final Db db;
+    private final CityReports reports;
+    private final ReportPipeline pipeline;
 
     /**
      * Creates a new instance of the city API routes.
@@ -40,7 +50,30 @@ public final class CityApiRoutes {
      * @param db shared database helper
      */
     public CityApiRoutes(Db db) {
-        this.db = Objects.requireNonNull(db, "db");
+        this(db, ReportPipeline.direct());
+    }
+
+    /**
+     * Creates a new instance of the city API routes using the shared
+     * report pipeline (response cache).
+     *
+     * @param db       shared database helper
+     * @param pipeline report pipeline applied to every handler
+     */
+    public CityApiRoutes(Db db, ReportPipeline pipeline) {
+        this(new CityService(new CityRepo(Objects.requireNonNull(db, "db"))), pipeline);
+    }
+
+    /**
+     * Creates the city API routes on the city service shared with
+     * {@code /reports/cities}.
+     *
+     * @param service  city report service
+     * @param pipeline report pipeline applied to every handler
+     */
+    public CityApiRoutes(CityService service, ReportPipeline pipeline) {
+        this.reports = new CityReports(service);
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline");
     }
 
     /**
@@ -54,34 +87,34 @@ public final class CityApiRoutes {
         final String base = "/api/cities";
 
         // R07 – all cities in the world
-        app.get(base + "/world", this::handleWorld);
+        app.get(base + "/world", pipeline.wrap("R07", this::handleWorld));
 
         // R08 – all cities in a continent
-        app.get(base + "/continent/{continent}", this::handleContinent);
+        app.get(base + "/continent/{continent}", pipeline.wrap("R08", this::handleContinent));
 
         // R09 – all cities in a region
-        app.get(base + "/region/{region}", this::handleRegion);
+        app.get(base + "/region/{region}", pipeline.wrap("R09", this::handleRegion));
 
         // R10 – all cities in a country
-        app.get(base + "/country/{country}", this::handleCountry);
+        app.get(base + "/country/{country}", pipeline.wrap("R10", this::handleCountry));
 
         // R11 – all cities in a district
-        app.get(base + "/district/{district}", this::handleDistrict);
+        app.get(base + "/district/{district}", pipeline.wrap("R11", this::handleDistrict));
 
         // R12 – top N cities in the world
-        app.get(base + "/world/top", this::handleWorldTop);
+        app.get(base + "/world/top", pipeline.wrap("R12", this::handleWorldTop));
 
         // R13 – top N cities in a continent
-        app.get(base + "/continent/{continent}/top", this::handleContinentTop);
+        app.get(base + "/continent/{continent}/top", pipeline.wrap("R13", this::handleContinentTop));
 
         // R14 – top N cities in a region
-        app.get(base + "/region/{region}/top", this::handleRegionTop);
+        app.get(base + "/region/{region}/top", pipeline.wrap("R14", this::handleRegionTop));
 
         // R15 – top N cities in a country
-        app.get(base + "/country/{country}/top", this::handleCountryTop);
+        app.get(base + "/country/{country}/top", pipeline.wrap("R15", this::handleCountryTop));
 
         // R16 – top N cities in a district
-        app.get(base + "/district/{district}/top", this::handleDistrictTop);
+        app.get(base + "/district/{district}/top", pipeline.wrap("R16", this::handleDistrictTop));
     }
 
     // -------------------------------------------------------------------------
@@ -89,168 +122,54 @@ public final class CityApiRoutes {
     // -------------------------------------------------------------------------
 
     private void handleWorld(Context ctx) {
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "ORDER BY city.Population DESC";
-
-        streamCitiesAsCsv(ctx, sql);
+        final KeysetPage page = KeysetPage.of(ctx);
+        if (page != null) {
+            reports.streamPage(ctx, ReportRegistry.plan("R07"), page, null);
+            return;
+        }
+        streamCities(ctx, "R07", null);
     }
 
     private void handleContinent(Context ctx) {
         final String continent = ctx.pathParam("continent");
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "WHERE country.Continent = ? "
-                + "ORDER BY city.Population DESC";
-
-        streamCitiesAsCsv(ctx, sql, continent);
+        final KeysetPage page = KeysetPage.of(ctx);
+        if (page != null) {
+            reports.streamPage(ctx, ReportRegistry.plan("R08"), page, continent);
+            return;
+        }
+        streamCities(ctx, "R08", continent);
     }
 
     private void handleRegion(Context ctx) {
-        final String region = ctx.pathParam("region");
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "WHERE country.Region = ? "
-                + "ORDER BY city.Population DESC";
-
-        streamCitiesAsCsv(ctx, sql, region);
+        streamCities(ctx, "R09", ctx.pathParam("region"));
     }
 
     private void handleCountry(Context ctx) {
-        final String country = ctx.pathParam("country");
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "WHERE country.Name = ? "
-                + "ORDER BY city.Population DESC";
-
-        streamCitiesAsCsv(ctx, sql, country);
+        streamCities(ctx, "R10", ctx.pathParam("country"));
     }
 
     private void handleDistrict(Context ctx) {
-        final String district = ctx.pathParam("district");
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "WHERE city.District = ? "
-                + "ORDER BY city.Population DESC";
-
-        streamCitiesAsCsv(ctx, sql, district);
+        streamCities(ctx, "R11", ctx.pathParam("district"));
     }
 
     private void handleWorldTop(Context ctx) {
-        final int limit = parseLimit(ctx, 10);
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "ORDER BY city.Population DESC "
-                + "LIMIT ?";
-
-        streamCitiesAsCsv(ctx, sql, limit);
+        streamCities(ctx, "R12", null);
     }
 
     private void handleContinentTop(Context ctx) {
-        final String continent = ctx.pathParam("continent");
-        final int limit = parseLimit(ctx, 5);
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "WHERE country.Continent = ? "
-                + "ORDER BY city.Population DESC "
-                + "LIMIT ?";
-
-        streamCitiesAsCsv(ctx, sql, continent, limit);
+        streamCities(ctx, "R13", ctx.pathParam("continent"));
     }
 
     private void handleRegionTop(Context ctx) {
-        final String region = ctx.pathParam("region");
-        final int limit = parseLimit(ctx, 5);
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "WHERE country.Region = ? "
-                + "ORDER BY city.Population DESC "
-                + "LIMIT ?";
-
-        streamCitiesAsCsv(ctx, sql, region, limit);
+        streamCities(ctx, "R14", ctx.pathParam("region"));
     }
 
     private void handleCountryTop(Context ctx) {
-        final String country = ctx.pathParam("country");
-        final int limit = parseLimit(ctx, 5);
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "WHERE country.Name = ? "
-                + "ORDER BY city.Population DESC "
-                + "LIMIT ?";
-
-        streamCitiesAsCsv(ctx, sql, country, limit);
+        streamCities(ctx, "R15", ctx.pathParam("country"));
     }
 
     private void handleDistrictTop(Context ctx) {
-        final String district = ctx.pathParam("district");
-        final int limit = parseLimit(ctx, 3);
-
-        final String sql =
-            "SELECT city.Name AS city_name, "
-                + "country.Name AS country_name, "
-                + "city.District AS district, "
-                + "city.Population AS population "
-                + "FROM city "
-                + "JOIN country ON city.CountryCode = country.Code "
-                + "WHERE city.District = ? "
-                + "ORDER BY city.Population DESC "
-                + "LIMIT ?";
-
-        streamCitiesAsCsv(ctx, sql, district, limit);
+        streamCities(ctx, "R16", ctx.pathParam("district"));
     }
 
     // -------------------------------------------------------------------------
@@ -259,85 +178,23 @@ public final class CityApiRoutes {
 
     /** Parse ?n= query parameter with a sensible default. */
     private int parseLimit(Context ctx, int defaultValue) {
-        String raw = ctx.queryParam("n");
-        if (raw == null || raw.isBlank()) {
-            return defaultValue;
-        }
-        try {
-            int n = Integer.parseInt(raw.trim());
-            return n > 0 ? n : defaultValue;
-        } catch (NumberFormatException ex) {
-            return defaultValue;
-        }
+        return CityReports.parseLimit(ctx.queryParam("n"), defaultValue);
     }
 
     /**
-     * Run the given SQL query and stream the results as CSV.
+     * Run a city report and stream the results as CSV (or JSON when the
+     * request negotiated it), selecting only the columns in {@code ?fields=}.
+     *
+     * @param reportId report identifier (R07–R16)
+     * @param value    filter value, or {@code null} for the world
      */
-    private void streamCitiesAsCsv(Context ctx, String sql, Object... params) {
-        ctx.contentType("text/csv; charset=UTF-8");
-        ctx.header("Content-Disposition", "attachment; filename=\"cities.csv\"");
-
-        // All SQL work (including db.getConnection) is inside this try,
-        // so any SQLException is correctly caught and turned into 500.
-        try (Connection conn = db.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-
-            // Bind parameters (String or Integer)
-            for (int i = 0; i < params.length; i++) {
-                Object value = params[i];
-                int index = i + 1;
-                if (value instanceof Integer) {
-                    stmt.setInt(index, (Integer) value);
-                } else {
-                    stmt.setString(index, String.valueOf(value));
-                }
-            }
-
-            try (ResultSet rs = stmt.executeQuery()) {
-                StringBuilder csv = new StringBuilder();
-                csv.append("Name,Country,District,Population").append('\n');
-
-                while (rs.next()) {
-                    String name = rs.getString("city_name");
-                    String country = rs.getString("country_name");
-                    String district = rs.getString("district");
-                    long population = rs.getLong("population");
-
-                    csv.append(escapeCsv(name))
-                        .append(',')
-                        .append(escapeCsv(country))
-                        .append(',')
-                        .append(escapeCsv(district))
-                        .append(',')
-                        .append(population)
-                        .append('\n');
-                }
-
-                ctx.result(csv.toString());
-            }
-        } catch (SQLException ex) {
-            ctx.status(500).result("Database error: " + ex.getMessage());
-        }
+    private void streamCities(Context ctx, String reportId, String value) {
+        final ReportPlan plan = ReportRegistry.plan(reportId);
+        reports.stream(ctx, plan, value, plan.isTopN() ? parseLimit(ctx, plan.defaultLimit()) : 0);
     }
 
     /** Minimal CSV escaping for a single field – made package-private static for testing. */
     static String escapeCsv(String value) {
-        if (value == null) {
-            return "";
-        }
-
-        boolean needsQuotes =
-            value.contains(",")
-                || value.contains("\"")
-                || value.contains("\n")
-                || value.contains("\r");
-
-        String escaped = value.replace("\"", "\"\"");
-
-        if (needsQuotes) {
-            return "\"" + escaped + "\"";
-        }
-        return escaped;
+        return CsvWriter.escape(value);
     }
 }
@@ -0,0 +1,133 @@
+package com.group13.population.web;
+
+import com.group13.population.repo.ReportColumn;
+import com.group13.population.repo.ReportPlan;
+import com.group13.population.service.CityService;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * The one execution path for city reports (R07–R16) over HTTP, shared by
+ * {@link CityApiRoutes} ({@code /api/cities}) and {@link CityRoutes}
+ * ({@code /reports/cities}).
+ *
+ * <p>Both route families differ only in how they spell the limit; the
+ * query (a compiled plan from the registry, run by {@link CityService}),
+ * {@code ?fields=}, keyset paging and the output format are the same.
+ * Both register through the shared {@link ReportPipeline}, so caching,
+ * rate limiting, bulkheads and the pooled, limited connection apply to
+ * all city traffic.</p>
+ */
+final class CityReports {
+
+    private final CityService service;
+
+    CityReports(CityService service) {
+        this.service = Objects.requireNonNull(service, "service");
+    }
+
+    /**
+     * Parse a positive limit, falling back to a default.
+     *
+     * @param raw          raw value (e.g. "10"), may be {@code null}
+     * @param defaultValue default if missing, invalid or not positive
+     */
+    static int parseLimit(String raw, int defaultValue) {
+        if (raw == null || raw.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            int n = Integer.parseInt(raw.trim());
+            return n > 0 ? n : defaultValue;
+        } catch (NumberFormatException ex) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Columns requested with {@code ?fields=} (the report's columns when absent).
+     *
+     * @throws BadRequestResponse for an unknown field name
+     */
+    static List<ReportColumn> fields(Context ctx, ReportPlan plan) {
+        try {
+            return plan.select(ctx.queryParam("fields"));
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestResponse(ex.getMessage());
+        }
+    }
+
+    /**
+     * Run a city report and stream the results as CSV (or the negotiated
+     * format), selecting only the columns in {@code ?fields=}.
+     *
+     * @param plan  compiled report plan (R07–R16)
+     * @param value filter value, or {@code null} for the world
+     * @param limit N for a top-N report (ignored for full listings)
+     */
+    void stream(Context ctx, ReportPlan plan, String value, int limit) {
+        final List<ReportColumn> columns = fields(ctx, plan);
+
+        ctx.contentType("text/csv; charset=UTF-8");
+        ctx.header("Content-Disposition", "attachment; filename=\"cities.csv\"");
+
+        // Rows are written as they are read; a DataAccessException from the
+        // repository reaches ReportPipeline (stale result or 503).
+        ReportWriter out = ReportWriter.forRequest(ctx).columns(ReportColumn.headers(columns));
+        service.streamCities(plan.id(), columns, value, limit, out);
+        out.send(ctx);
+    }
+
+    /**
+     * Serve one keyset page of a city listing, ordered by population DESC
+     * then city ID. The page after a token is found with a seek predicate
+     * on (Population, ID), so no rows before it are scanned or skipped.
+     * One extra row is fetched to know whether a next page exists.
+     *
+     * @param plan  R07 or R08
+     * @param value filter value, or {@code null} for the world
+     */
+    void streamPage(Context ctx, ReportPlan plan, KeysetPage page, String value) {
+        final List<ReportColumn> columns = fields(ctx, plan);
+        Long afterPopulation = null;
+        int afterId = 0;
+        if (!page.isFirst()) {
+            try {
+                afterId = Integer.parseInt(page.afterId());
+            } catch (NumberFormatException ex) {
+                throw new BadRequestResponse("Invalid " + KeysetPage.TOKEN_PARAM);
+            }
+            afterPopulation = page.afterPopulation();
+        }
+
+        // The page is bounded, so it is read fully before writing: the
+        // Link header must be set before a streamed body commits it.
+        final List<Object[]> rows = service.getCityPage(plan.id(), columns, value,
+            afterPopulation, afterId, page.fetchSize());
+        final boolean more = rows.size() > page.size();
+        if (more) {
+            Object[] last = rows.get(page.size() - 1);
+            page.linkNext(ctx, (Long) last[columns.size()], String.valueOf(last[columns.size() + 1]));
+        }
+
+        ctx.contentType("text/csv; charset=UTF-8");
+        ctx.header("Content-Disposition", "attachment; filename=\"cities.csv\"");
+
+        ReportWriter out = ReportWriter.forRequest(ctx).columns(ReportColumn.headers(columns));
+        for (int r = 0; r < Math.min(rows.size(), page.size()); r++) {
+            Object[] row = rows.get(r);
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).isNumeric()) {
+                    out.number((Long) row[i]);
+                } else {
+                    out.text((String) row[i]);
+                }
+            }
+            out.endRow();
+        }
+        out.send(ctx);
+    }
+}
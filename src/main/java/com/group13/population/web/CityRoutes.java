@@ -1,5 +1,8 @@
 package com.group13.population.web;
 
+import com.group13.population.repo.ReportEntity;
+import com.group13.population.repo.ReportPlan;
+import com.group13.population.repo.ReportRegistry;
 import com.group13.population.service.CityService;
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -10,18 +13,30 @@ import java.util.Objects;
  * HTTP routes for city reports (R07–R16).
  *
  * <p>This class is a thin adapter from Javalin HTTP endpoints to the
- * {@link CityService}. For the tests it is enough that the endpoints
- * exist and return a non-empty body with HTTP 200.</p>
+ * {@link CityService}. The limit is a path segment
+ * ({@code /reports/cities/world/top/10}); otherwise every report is served
+ * exactly as under {@code /api/cities} (same plan, {@code ?fields=},
+ * paging and formats) through {@link CityReports}.</p>
  */
 public final class CityRoutes {
 
-    private final CityService service;
+    private final CityReports reports;
+    private final ReportPipeline pipeline;
 
     /**
-     * Standard constructor used by {@link com.group13.population.App}.
+     * Standard constructor (no shared pipeline).
      */
     public CityRoutes(CityService service) {
-        this.service = Objects.requireNonNull(service, "service");
+        this(service, ReportPipeline.direct());
+    }
+
+    /**
+     * Constructor used by {@link com.group13.population.App} so handlers go
+     * through the shared report pipeline.
+     */
+    public CityRoutes(CityService service, ReportPipeline pipeline) {
+        this.reports = new CityReports(service);
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline");
     }
 
     /**
@@ -32,6 +47,13 @@ public final class CityRoutes {
         new CityRoutes(service).register(app);
     }
 
+    /**
+     * Static entry point used by {@link com.group13.population.App}.
+     */
+    public static void register(Javalin app, CityService service, ReportPipeline pipeline) {
+        new CityRoutes(service, pipeline).register(app);
+    }
+
     /**
      * Register all city report endpoints (R07–R16).
      */
@@ -41,64 +63,64 @@ public final class CityRoutes {
         final String base = "/reports/cities";
 
         // R07 – world cities ordered by population (DESC)
-        app.get(base + "/world",
-            ctx -> handle(ctx, "R07 – world cities report"));
+        app.get(base + "/world", pipeline.wrap("R07", ctx -> handle(ctx, "R07", null)));
 
         // R08 – continent cities ordered by population (DESC)
         app.get(base + "/continent/{continent}",
-            ctx -> handle(ctx,
-                "R08 – cities in continent " + ctx.pathParam("continent")));
+            pipeline.wrap("R08", ctx -> handle(ctx, "R08", ctx.pathParam("continent"))));
 
         // R09 – region cities ordered by population (DESC)
         app.get(base + "/region/{region}",
-            ctx -> handle(ctx,
-                "R09 – cities in region " + ctx.pathParam("region")));
+            pipeline.wrap("R09", ctx -> handle(ctx, "R09", ctx.pathParam("region"))));
 
         // R10 – country cities ordered by population (DESC)
         app.get(base + "/country/{country}",
-            ctx -> handle(ctx,
-                "R10 – cities in country " + ctx.pathParam("country")));
+            pipeline.wrap("R10", ctx -> handle(ctx, "R10", ctx.pathParam("country"))));
 
         // R11 – district cities ordered by population (DESC)
         app.get(base + "/district/{district}",
-            ctx -> handle(ctx,
-                "R11 – cities in district " + ctx.pathParam("district")));
+            pipeline.wrap("R11", ctx -> handle(ctx, "R11", ctx.pathParam("district"))));
 
         // R12 – top-N world cities ordered by population (DESC)
-        app.get(base + "/world/top/{limit}",
-            ctx -> handle(ctx,
-                "R12 – top " + ctx.pathParam("limit") + " world cities"));
+        app.get(base + "/world/top/{limit}", pipeline.wrap("R12", ctx -> handle(ctx, "R12", null)));
 
         // R13 – top-N continent cities ordered by population (DESC)
         app.get(base + "/continent/{continent}/top/{limit}",
-            ctx -> handle(ctx,
-                "R13 – top " + ctx.pathParam("limit")
-                    + " cities in continent " + ctx.pathParam("continent")));
+            pipeline.wrap("R13", ctx -> handle(ctx, "R13", ctx.pathParam("continent"))));
 
         // R14 – top-N region cities ordered by population (DESC)
         app.get(base + "/region/{region}/top/{limit}",
-            ctx -> handle(ctx,
-                "R14 – top " + ctx.pathParam("limit")
-                    + " cities in region " + ctx.pathParam("region")));
+            pipeline.wrap("R14", ctx -> handle(ctx, "R14", ctx.pathParam("region"))));
 
         // R15 – top-N country cities ordered by population (DESC)
         app.get(base + "/country/{country}/top/{limit}",
-            ctx -> handle(ctx,
-                "R15 – top " + ctx.pathParam("limit")
-                    + " cities in country " + ctx.pathParam("country")));
+            pipeline.wrap("R15", ctx -> handle(ctx, "R15", ctx.pathParam("country"))));
 
         // R16 – top-N district cities ordered by population (DESC)
         app.get(base + "/district/{district}/top/{limit}",
-            ctx -> handle(ctx,
-                "R16 – top " + ctx.pathParam("limit")
-                    + " cities in district " + ctx.pathParam("district")));
+            pipeline.wrap("R16", ctx -> handle(ctx, "R16", ctx.pathParam("district"))));
     }
 
     /**
-     * Small helper so every endpoint definitely returns HTTP 200 and a
-     * non-empty body (which is what the HTTP tests assert).
+     * Run one report through the path shared with {@code /api/cities}:
+     * the {limit} path parameter of a top-N report falls back to the
+     * report's default N, and R07/R08 accept keyset paging.
+     *
+     * @param reportId report identifier (R07–R16)
+     * @param value    filter value, or {@code null} for the world
      */
-    private void handle(Context ctx, String label) {
-        ctx.status(200).result(label);
+    private void handle(Context ctx, String reportId, String value) {
+        final ReportPlan plan = ReportRegistry.plan(reportId);
+        if (!plan.isTopN()) {
+            final KeysetPage page = plan.filter() == ReportEntity.Filter.WORLD
+                || plan.filter() == ReportEntity.Filter.CONTINENT ? KeysetPage.of(ctx) : null;
+            if (page != null) {
+                reports.streamPage(ctx, plan, page, value);
+            } else {
+                reports.stream(ctx, plan, value, 0);
+            }
+            return;
+        }
+        reports.stream(ctx, plan, value, CityReports.parseLimit(ctx.pathParam("limit"), plan.defaultLimit()));
     }
 }
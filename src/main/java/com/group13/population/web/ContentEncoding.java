@@ -0,0 +1,104 @@
+package com.group13.population.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Locale;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP content codings the report pipeline can serve.
+ *
+ * <p>{@link #negotiate(String)} picks the coding from the request's
+ * {@code Accept-Encoding}: gzip if acceptable, otherwise deflate,
+ * otherwise the body is sent as is. A coding listed with {@code q=0} is
+ * treated as refused.</p>
+ */
+public enum ContentEncoding {
+
+    /** No content coding. */
+    IDENTITY(null),
+
+    /** gzip (RFC 1952). */
+    GZIP("gzip"),
+
+    /** deflate – zlib-wrapped, as HTTP defines it (RFC 1950). */
+    DEFLATE("deflate");
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    /** @return the {@code Content-Encoding} value, or {@code null} for identity. */
+    public String token() {
+        return token;
+    }
+
+    /**
+     * Pick the coding for a request.
+     *
+     * @param acceptEncoding value of the {@code Accept-Encoding} header, may be {@code null}
+     * @return the preferred supported coding, {@link #IDENTITY} if none
+     */
+    public static ContentEncoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return IDENTITY;
+        }
+        boolean gzip = false;
+        boolean deflate = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] pieces = part.split(";");
+            String coding = pieces[0].trim().toLowerCase(Locale.ROOT);
+            if (refused(pieces)) {
+                continue;
+            }
+            if ("gzip".equals(coding) || "*".equals(coding)) {
+                gzip = true;
+            } else if ("deflate".equals(coding)) {
+                deflate = true;
+            }
+        }
+        if (gzip) {
+            return GZIP;
+        }
+        return deflate ? DEFLATE : IDENTITY;
+    }
+
+    /** @return {@code true} if the parameters include {@code q=0}. */
+    private static boolean refused(String[] pieces) {
+        for (int i = 1; i < pieces.length; i++) {
+            String param = pieces[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) <= 0.0;
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Encode a body with this coding.
+     *
+     * @param body raw bytes
+     * @return the encoded bytes ({@code body} itself for identity)
+     */
+    public byte[] encode(byte[] body) {
+        if (this == IDENTITY) {
+            return body;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream z = this == GZIP ? new GZIPOutputStream(out) : new DeflaterOutputStream(out)) {
+            z.write(body);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+}
@@ -1,8 +1,11 @@
 package com.group13.population.web;
 
 import com.group13.population.model.CountryRow;
+import com.group13.population.repo.CountryColumn;
+import com.group13.population.repo.ReportColumn;
 import com.group13.population.service.CountryService;
 import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
 import io.javalin.http.Context;
 
 import java.util.List;
@@ -13,13 +16,30 @@ import java.util.Objects;
  *
  * All endpoints return CSV with header:
  *   Code,Name,Continent,Region,Population,Capital
+ *
+ * {@code ?fields=Code,Population} narrows any of them to some columns; the
+ * query then selects only those (and joins the capital city only when
+ * Capital is asked for).
+ *
+ * R01 can be paged with {@code ?page_size=} and the continuation token from
+ * the previous page's {@code Link} header; see {@link KeysetPage}.
  */
 public class CountryRoutes {
 
     private final CountryService service;
+    private final ReportPipeline pipeline;
 
     public CountryRoutes(CountryService service) {
+        this(service, ReportPipeline.direct());
+    }
+
+    /**
+     * Constructor used by {@link com.group13.population.App} so that every
+     * handler goes through the shared report pipeline (response cache).
+     */
+    public CountryRoutes(CountryService service, ReportPipeline pipeline) {
         this.service = Objects.requireNonNull(service, "service");
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline");
     }
 
     /**
@@ -29,22 +49,22 @@ public class CountryRoutes {
         Objects.requireNonNull(app, "app");
 
         // R01 – All countries in the world
-        app.get("/api/countries/world", this::handleWorld);
+        app.get("/api/countries/world", pipeline.wrap("R01", this::handleWorld));
 
         // R02 – All countries in a continent
-        app.get("/api/countries/continent/{continent}", this::handleContinent);
+        app.get("/api/countries/continent/{continent}", pipeline.wrap("R02", this::handleContinent));
 
         // R03 – All countries in a region
-        app.get("/api/countries/region/{region}", this::handleRegion);
+        app.get("/api/countries/region/{region}", pipeline.wrap("R03", this::handleRegion));
 
         // R04 – Top-N countries in the world
-        app.get("/api/countries/world/top", this::handleWorldTop);
+        app.get("/api/countries/world/top", pipeline.wrap("R04", this::handleWorldTop));
 
         // R05 – Top-N countries in a continent
-        app.get("/api/countries/continent/{continent}/top", this::handleContinentTop);
+        app.get("/api/countries/continent/{continent}/top", pipeline.wrap("R05", this::handleContinentTop));
 
         // R06 – Top-N countries in a region
-        app.get("/api/countries/region/{region}/top", this::handleRegionTop);
+        app.get("/api/countries/region/{region}/top", pipeline.wrap("R06", this::handleRegionTop));
     }
 
     // ---------------------------------------------------------------------
@@ -52,18 +72,56 @@ public class CountryRoutes {
     // ---------------------------------------------------------------------
 
     private void handleWorld(Context ctx) {
+        KeysetPage page = KeysetPage.of(ctx);
+        if (page != null) {
+            handleWorldPage(ctx, page);
+            return;
+        }
+        List<CountryColumn> fields = fields(ctx);
+        if (fields != null) {
+            writeColumns(ctx, fields, service.getCountryColumns(fields, null, null, 0));
+            return;
+        }
         List<CountryRow> rows = service.getCountriesInWorldByPopulationDesc();
         writeCountriesCsv(ctx, rows);
     }
 
+    /**
+     * One keyset page of R01. One row beyond the page is fetched; if it
+     * exists, the response links to the next page.
+     */
+    private void handleWorldPage(Context ctx, KeysetPage page) {
+        List<CountryRow> rows = service.getCountriesInWorldPage(
+            page.afterPopulation(), page.afterId(), page.fetchSize());
+        if (rows.size() > page.size()) {
+            rows = rows.subList(0, page.size());
+            CountryRow last = rows.get(rows.size() - 1);
+            page.linkNext(ctx, last.getPopulation(), last.getCode());
+        }
+        List<CountryColumn> fields = fields(ctx);
+        writeCountries(ctx, rows, fields != null ? fields : List.of(CountryColumn.values()));
+    }
+
     private void handleContinent(Context ctx) {
         String continent = ctx.pathParam("continent");
+        List<CountryColumn> fields = fields(ctx);
+        if (fields != null) {
+            writeColumns(ctx, fields,
+                service.getCountryColumns(fields, CountryColumn.CONTINENT, continent, 0));
+            return;
+        }
         List<CountryRow> rows = service.getCountriesInContinentByPopulationDesc(continent);
         writeCountriesCsv(ctx, rows);
     }
 
     private void handleRegion(Context ctx) {
         String region = ctx.pathParam("region");
+        List<CountryColumn> fields = fields(ctx);
+        if (fields != null) {
+            writeColumns(ctx, fields,
+                service.getCountryColumns(fields, CountryColumn.REGION, region, 0));
+            return;
+        }
         List<CountryRow> rows = service.getCountriesInRegionByPopulationDesc(region);
         writeCountriesCsv(ctx, rows);
     }
@@ -82,6 +140,11 @@ public class CountryRoutes {
             .check(value -> value > 0, "n must be a positive integer")
             .get(); // throws BadRequestResponse -> HTTP 400 on failure
 
+        List<CountryColumn> fields = fields(ctx);
+        if (fields != null) {
+            writeColumns(ctx, fields, service.getCountryColumns(fields, null, null, n));
+            return;
+        }
         List<CountryRow> rows = service.getTopCountriesInWorldByPopulationDesc(n);
         writeCountriesCsv(ctx, rows);
     }
@@ -93,6 +156,12 @@ public class CountryRoutes {
             .check(value -> value > 0, "n must be a positive integer")
             .get();
 
+        List<CountryColumn> fields = fields(ctx);
+        if (fields != null) {
+            writeColumns(ctx, fields,
+                service.getCountryColumns(fields, CountryColumn.CONTINENT, continent, n));
+            return;
+        }
         List<CountryRow> rows =
             service.getTopCountriesInContinentByPopulationDesc(continent, n);
         writeCountriesCsv(ctx, rows);
@@ -105,6 +174,12 @@ public class CountryRoutes {
             .check(value -> value > 0, "n must be a positive integer")
             .get();
 
+        List<CountryColumn> fields = fields(ctx);
+        if (fields != null) {
+            writeColumns(ctx, fields,
+                service.getCountryColumns(fields, CountryColumn.REGION, region, n));
+            return;
+        }
         List<CountryRow> rows =
             service.getTopCountriesInRegionByPopulationDesc(region, n);
         writeCountriesCsv(ctx, rows);
@@ -115,43 +190,94 @@ public class CountryRoutes {
     // ---------------------------------------------------------------------
 
     /**
-     * Write a list of countries as CSV to the HTTP response.
+     * Write a list of countries to the HTTP response as CSV, or as JSON
+     * when the request negotiated it.
      */
     private void writeCountriesCsv(Context ctx, List<CountryRow> rows) {
         ctx.contentType("text/csv; charset=utf-8");
 
-        StringBuilder sb = new StringBuilder();
-        sb.append("Code,Name,Continent,Region,Population,Capital\n");
+        ReportWriter out = ReportWriter.forRequest(ctx)
+            .columns("Code", "Name", "Continent", "Region", "Population", "Capital");
 
         for (CountryRow row : rows) {
-            sb.append(escape(row.getCode())).append(',')
-                .append(escape(row.getName())).append(',')
-                .append(escape(row.getContinent())).append(',')
-                .append(escape(row.getRegion())).append(',')
-                .append(row.getPopulation()).append(',')
-                .append(escape(row.getCapital()))
-                .append('\n');
+            out.text(row.getCode())
+                .text(row.getName())
+                .text(row.getContinent())
+                .text(row.getRegion())
+                .number(row.getPopulation())
+                .text(row.getCapital())
+                .endRow();
         }
 
-        ctx.result(sb.toString());
+        out.send(ctx);
     }
 
+    /** Write full country rows, keeping only the given columns. */
+    private void writeCountries(Context ctx, List<CountryRow> rows, List<CountryColumn> columns) {
+        ctx.contentType("text/csv; charset=utf-8");
+
+        ReportWriter out = ReportWriter.forRequest(ctx).columns(ReportColumn.headers(columns));
+
+        for (CountryRow row : rows) {
+            for (CountryColumn column : columns) {
+                switch (column) {
+                    case CODE -> out.text(row.getCode());
+                    case NAME -> out.text(row.getName());
+                    case CONTINENT -> out.text(row.getContinent());
+                    case REGION -> out.text(row.getRegion());
+                    case POPULATION -> out.number(row.getPopulation());
+                    case CAPITAL -> out.text(row.getCapital());
+                }
+            }
+            out.endRow();
+        }
+
+        out.send(ctx);
+    }
+
+    /** Write rows of a narrowed query (one value per selected column). */
+    private void writeColumns(Context ctx, List<CountryColumn> columns, List<Object[]> rows) {
+        ctx.contentType("text/csv; charset=utf-8");
+
+        ReportWriter out = ReportWriter.forRequest(ctx).columns(ReportColumn.headers(columns));
+
+        for (Object[] row : rows) {
+            for (int i = 0; i < row.length; i++) {
+                if (columns.get(i).isNumeric()) {
+                    out.number((Long) row[i]);
+                } else {
+                    out.text((String) row[i]);
+                }
+            }
+            out.endRow();
+        }
+
+        out.send(ctx);
+    }
 
     /**
-     * Minimal CSV escaping – wraps in quotes if needed and doubles any quotes.
+     * Columns requested with {@code ?fields=}, or {@code null} when the
+     * parameter is absent (full report).
+     *
+     * @throws BadRequestResponse for an unknown field name
      */
-    private static String escape(String value) {
-        if (value == null) {
-            return "";
+    private static List<CountryColumn> fields(Context ctx) {
+        String raw = ctx.queryParam("fields");
+        if (raw == null) {
+            return null;
         }
-        String v = value;
-        boolean mustQuote = v.contains(",") || v.contains("\"")
-            || v.contains("\n") || v.contains("\r");
-
-        if (mustQuote) {
-            v = v.replace("\"", "\"\"");
-            return "\"" + v + "\"";
+        try {
+            return ReportColumn.select(raw, CountryColumn.values());
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestResponse(ex.getMessage());
         }
-        return v;
+    }
+
+
+    /**
+     * Minimal CSV escaping – wraps in quotes if needed and doubles any quotes.
+     */
+    private static String escape(String value) {
+        return CsvWriter.escape(value);
     }
 }
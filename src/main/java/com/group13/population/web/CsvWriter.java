@@ -0,0 +1,289 @@
+package com.group13.population.web;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * CSV encoder shared by every report route (R01–R32).
+ *
+ * <p>Fields are escaped and encoded to UTF-8 straight into a growable byte
+ * buffer, numbers are written digit by digit, and percentages are written
+ * as fixed-point with two decimals, so rendering a report allocates nothing
+ * per field – only the final {@link #toByteArray()} copy handed to the
+ * response.</p>
+ *
+ * <p>Escaping follows RFC 4180: a field containing a comma, a double quote,
+ * CR or LF is wrapped in double quotes and embedded quotes are doubled;
+ * {@code null} is written as an empty field.</p>
+ *
+ * <p>Instances are not thread-safe. Request handlers use
+ * {@link #forThread()}, which hands out a reset per-thread instance whose
+ * buffer is reused across requests; call {@link #toByteArray()} (or
+ * {@link #toString()}) before the next {@code forThread()} on the same
+ * thread.</p>
+ */
+public final class CsvWriter {
+
+    /** Initial buffer size; enough for the small lookup reports. */
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+
+    /** Per-thread buffers larger than this are dropped rather than kept. */
+    private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+    /** Percentages at or above this are written with {@link String#format}. */
+    private static final double MAX_FIXED = 1e15;
+
+    /** Scaled values this close to a half are formatted by the JDK instead. */
+    private static final double TIE_TOLERANCE = 1e-6;
+
+    private static final ThreadLocal<CsvWriter> LOCAL = ThreadLocal.withInitial(CsvWriter::new);
+
+    private byte[] buf;
+    private int size;
+
+    /** Creates a writer with the default initial capacity. */
+    public CsvWriter() {
+        this.buf = new byte[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return this thread's writer, emptied and ready for a new document
+     */
+    public static CsvWriter forThread() {
+        CsvWriter writer = LOCAL.get();
+        if (writer.buf.length > MAX_RETAINED_CAPACITY) {
+            // One huge export should not pin a large buffer on every thread.
+            writer.buf = new byte[INITIAL_CAPACITY];
+        }
+        writer.size = 0;
+        return writer;
+    }
+
+    /**
+     * Escape a single value as a CSV field. Kept for callers that need a
+     * {@code String}; rendering code should use {@link #field(String)}.
+     *
+     * @param value raw value, may be {@code null}
+     * @return the escaped field
+     */
+    public static String escape(String value) {
+        if (value == null || !needsQuotes(value)) {
+            return value == null ? "" : value;
+        }
+        return new CsvWriter().field(value).toString();
+    }
+
+    // ---------------------------------------------------------------------
+    // Writing
+    // ---------------------------------------------------------------------
+
+    /**
+     * Write a header or other literal text verbatim (no escaping).
+     *
+     * @param text literal text
+     * @return this writer
+     */
+    public CsvWriter raw(String text) {
+        writeUtf8(text, 0, text.length());
+        return this;
+    }
+
+    /**
+     * Write a text field, quoting it if it contains a comma, quote, CR or LF.
+     *
+     * @param value field value, {@code null} is written as an empty field
+     * @return this writer
+     */
+    public CsvWriter field(String value) {
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+        if (!needsQuotes(value)) {
+            writeUtf8(value, 0, value.length());
+            return this;
+        }
+        put('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == '"') {
+                // Write up to and including the quote, then repeat it.
+                writeUtf8(value, start, i + 1);
+                put('"');
+                start = i + 1;
+            }
+        }
+        writeUtf8(value, start, value.length());
+        put('"');
+        return this;
+    }
+
+    /**
+     * Write an integer field.
+     *
+     * @param value field value
+     * @return this writer
+     */
+    public CsvWriter field(long value) {
+        if (value == Long.MIN_VALUE) {
+            return raw(Long.toString(value));
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        writeDigits(value);
+        return this;
+    }
+
+    /**
+     * Write a number with exactly two decimals, rounding half up – the same
+     * text as {@code String.format(Locale.US, "%.2f", value)} for the
+     * percentages the reports produce, without the formatter's allocations
+     * (exact ties such as {@code 1.005} are delegated to the formatter).
+     *
+     * @param value value to write
+     * @return this writer
+     */
+    public CsvWriter fixed2(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED) {
+            return raw(String.format(Locale.US, "%.2f", value));
+        }
+        double scaled = Math.abs(value) * 100.0;
+        if (Math.abs(scaled - Math.floor(scaled) - 0.5) < TIE_TOLERANCE) {
+            // The formatter rounds the shortest decimal form (1.005 -> 1.01),
+            // which the binary product cannot reproduce; such ties are rare.
+            return raw(String.format(Locale.US, "%.2f", value));
+        }
+        long hundredths = Math.round(scaled);
+        if (value < 0) {
+            put('-');
+        }
+        writeDigits(hundredths / 100);
+        put('.');
+        int fraction = (int) (hundredths % 100);
+        put('0' + fraction / 10);
+        put('0' + fraction % 10);
+        return this;
+    }
+
+    /**
+     * Write the field separator.
+     *
+     * @return this writer
+     */
+    public CsvWriter comma() {
+        put(',');
+        return this;
+    }
+
+    /**
+     * End the current record.
+     *
+     * @return this writer
+     */
+    public CsvWriter newline() {
+        put('\n');
+        return this;
+    }
+
+    // ---------------------------------------------------------------------
+    // Output
+    // ---------------------------------------------------------------------
+
+    /** @return number of bytes written so far. */
+    public int size() {
+        return size;
+    }
+
+    /** Discard everything written so far, keeping the buffer. */
+    public void reset() {
+        size = 0;
+    }
+
+    /** @return a copy of the encoded document. */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, size);
+    }
+
+    /** @return the encoded document decoded as a string. */
+    @Override
+    public String toString() {
+        return new String(buf, 0, size, StandardCharsets.UTF_8);
+    }
+
+    // ---------------------------------------------------------------------
+    // Internals
+    // ---------------------------------------------------------------------
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Write a non-negative number without going through a String. */
+    private void writeDigits(long value) {
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        int pos = size + digits;
+        long v = value;
+        do {
+            buf[--pos] = (byte) ('0' + (int) (v % 10));
+            v /= 10;
+        } while (v != 0);
+        size += digits;
+    }
+
+    /** Encode {@code text[from, to)} as UTF-8; lone surrogates become '?'. */
+    private void writeUtf8(String text, int from, int to) {
+        // Worst case three bytes per char (a surrogate pair is 4 bytes for 2 chars).
+        ensure((to - from) * 3);
+        byte[] b = buf;
+        int pos = size;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                b[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                b[pos++] = (byte) (0xC0 | (c >> 6));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < to
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(++i));
+                    b[pos++] = (byte) (0xF0 | (cp >> 18));
+                    b[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    b[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    b[pos++] = (byte) (0x80 | (cp & 0x3F));
+                } else {
+                    b[pos++] = (byte) '?';
+                }
+            } else {
+                b[pos++] = (byte) (0xE0 | (c >> 12));
+                b[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                b[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        size = pos;
+    }
+
+    private void put(int ch) {
+        ensure(1);
+        buf[size++] = (byte) ch;
+    }
+
+    private void ensure(int extra) {
+        int needed = size + extra;
+        if (needed > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(needed, buf.length * 2));
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.group13.population.web;
+
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caps the number of report handlers doing database work at the same time.
+ *
+ * <p>With virtual threads ({@link ServerThreads.Mode#VIRTUAL}) the number of
+ * in-flight requests is no longer bounded by the HTTP thread pool, so
+ * without a cap every concurrent cache miss would queue on MySQL. The gate
+ * sits inside the response cache ({@link ReportPipeline}), so cache hits
+ * never wait for a permit.</p>
+ *
+ * <p>A request that cannot get a permit within the configured wait, or
+ * that finds the queue already full, is answered {@code 503} with a short
+ * {@code Retry-After} instead of queueing without bound.
+ * {@link Bulkheads} keeps one gate per {@link ReportClass}.</p>
+ *
+ * <p>Waiting requests are admitted by {@link Admission priority}:
+ * interactive before batch, first come first served within each. When
+ * the queue is full an interactive arrival displaces the newest batch
+ * waiter. A request whose client deadline cannot be met any more – less
+ * time left than the gate's average service time – is shed before it
+ * starts any database work, whether on arrival or while queued. Shed
+ * requests are counted per priority.</p>
+ */
+public final class DbGate {
+
+    /** Seconds a client is asked to wait after being turned away by the gate. */
+    static final int BUSY_RETRY_AFTER_SECONDS = 1;
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Waiter> interactive = new ArrayDeque<>();
+    private final Deque<Waiter> batch = new ArrayDeque<>();
+    private int running;
+    /** Moving average of handler run time; 0 until the first one finishes. */
+    private long serviceNanos;
+
+    private final Map<Admission.Priority, AtomicLong> shed = new EnumMap<>(Admission.Priority.class);
+
+    /**
+     * Creates a gate whose queue is bounded only by the wait time.
+     *
+     * @param maxConcurrent most handlers allowed to run at once (at least 1)
+     * @param maxWait       how long a request may wait for a permit
+     */
+    public DbGate(int maxConcurrent, Duration maxWait) {
+        this(maxConcurrent, Integer.MAX_VALUE, maxWait);
+    }
+
+    /**
+     * @param maxConcurrent most handlers allowed to run at once (at least 1)
+     * @param maxQueue      most requests allowed to wait for a permit (0: none wait)
+     * @param maxWait       how long a request may wait for a permit
+     */
+    public DbGate(int maxConcurrent, int maxQueue, Duration maxWait) {
+        Objects.requireNonNull(maxWait, "maxWait");
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueue = Math.max(0, maxQueue);
+        this.maxWaitNanos = Math.max(0L, maxWait.toNanos());
+        for (Admission.Priority priority : Admission.Priority.values()) {
+            shed.put(priority, new AtomicLong());
+        }
+    }
+
+    /**
+     * Run {@code handler} while holding a permit, or answer 503 if none
+     * becomes free in time. Priority and deadline are read from the
+     * request headers ({@link Admission}).
+     *
+     * @param ctx     Javalin request/response context
+     * @param handler handler that does the database work
+     * @throws Exception anything thrown by the handler
+     */
+    public void handle(Context ctx, Handler handler) throws Exception {
+        handle(ctx, Admission.forRequest(ctx, null), handler);
+    }
+
+    /**
+     * Run {@code handler} while holding a permit, admitting by the given
+     * priority and deadline. {@code ctx} may be {@code null} for work done
+     * outside a request; a shed call then just returns.
+     */
+    void handle(Context ctx, Admission admission, Handler handler) throws Exception {
+        if (!acquire(admission)) {
+            shed.get(admission.priority()).incrementAndGet();
+            if (ctx != null) {
+                writeBusy(ctx);
+            }
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            handler.handle(ctx);
+        } finally {
+            release(System.nanoTime() - started);
+        }
+    }
+
+    /** Take a permit, queueing by priority while there is room and time. */
+    private boolean acquire(Admission admission) throws InterruptedException {
+        lock.lock();
+        try {
+            if (admission.remainingNanos() < serviceNanos) {
+                return false;
+            }
+            if (running < maxConcurrent && interactive.isEmpty() && batch.isEmpty()) {
+                running++;
+                return true;
+            }
+            if (interactive.size() + batch.size() >= maxQueue) {
+                if (admission.priority() != Admission.Priority.INTERACTIVE || batch.isEmpty()) {
+                    return false;
+                }
+                // Make room by shedding the newest batch waiter.
+                batch.pollLast().shed = true;
+                changed.signalAll();
+            }
+
+            Waiter waiter = new Waiter(admission);
+            queueFor(admission).addLast(waiter);
+            long giveUpAt = System.nanoTime() + maxWaitNanos;
+            try {
+                while (true) {
+                    if (waiter.shed) {
+                        return false;
+                    }
+                    if (running < maxConcurrent && isNext(waiter)) {
+                        remove(waiter);
+                        running++;
+                        return true;
+                    }
+                    long left = Math.min(giveUpAt - System.nanoTime(),
+                        admission.remainingNanos() - serviceNanos);
+                    if (left <= 0L) {
+                        remove(waiter);
+                        return false;
+                    }
+                    changed.awaitNanos(left);
+                }
+            } catch (InterruptedException ex) {
+                remove(waiter);
+                throw ex;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(long elapsedNanos) {
+        lock.lock();
+        try {
+            running--;
+            serviceNanos = serviceNanos == 0L ? elapsedNanos : serviceNanos + (elapsedNanos - serviceNanos) / 8;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Deque<Waiter> queueFor(Admission admission) {
+        return admission.priority() == Admission.Priority.INTERACTIVE ? interactive : batch;
+    }
+
+    /** Interactive waiters go first; batch only when none is waiting. */
+    private boolean isNext(Waiter waiter) {
+        return waiter == interactive.peekFirst()
+            || interactive.isEmpty() && waiter == batch.peekFirst();
+    }
+
+    private void remove(Waiter waiter) {
+        queueFor(waiter.admission).remove(waiter);
+        changed.signalAll();
+    }
+
+    /** @return configured maximum number of concurrent handlers. */
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /** @return handlers currently holding a permit. */
+    public int inUse() {
+        lock.lock();
+        try {
+            return running;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return configured maximum number of waiting requests. */
+    public int maxQueue() {
+        return maxQueue;
+    }
+
+    /** @return requests currently waiting for a permit. */
+    public int waiting() {
+        lock.lock();
+        try {
+            return interactive.size() + batch.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** @return requests turned away with 503 since start-up, all priorities. */
+    public long rejected() {
+        long total = 0L;
+        for (AtomicLong count : shed.values()) {
+            total += count.get();
+        }
+        return total;
+    }
+
+    /**
+     * @param priority priority class
+     * @return requests of that priority turned away since start-up
+     */
+    long shed(Admission.Priority priority) {
+        return shed.get(priority).get();
+    }
+
+    /** @return average handler run time in microseconds (0 before the first). */
+    public long serviceMicros() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMicros(serviceNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write the standard "too busy" response: 503 with a short Retry-After,
+     * not cacheable. Also used when the database limiter sheds a query.
+     *
+     * @param ctx Javalin request/response context
+     */
+    static void writeBusy(Context ctx) {
+        ctx.status(503);
+        ctx.header("Retry-After", String.valueOf(BUSY_RETRY_AFTER_SECONDS));
+        ctx.header("Cache-Control", "no-store");
+        ctx.contentType("text/plain; charset=utf-8");
+        ctx.result("Server busy; please retry shortly.\n");
+    }
+
+    /** A request waiting for a permit. */
+    private static final class Waiter {
+        final Admission admission;
+        /** Set when an interactive arrival took this waiter's place. */
+        boolean shed;
+
+        Waiter(Admission admission) {
+            this.admission = admission;
+        }
+    }
+}
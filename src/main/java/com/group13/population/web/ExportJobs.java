@@ -0,0 +1,537 @@
+package com.group13.population.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+import io.javalin.http.NotFoundResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Asynchronous report export jobs, written to disk and downloaded later.
+ *
+ * <ul>
+ *   <li>{@code POST /api/exports} – submit a job; answers {@code 202} with
+ *       a {@code Location} and the job status. The body lists report
+ *       paths like {@link BatchRoutes} (objects may add a {@code file}
+ *       name), or is {@code {"evidence": true}} for the R01–R32 evidence
+ *       set of {@code docs/evidence} ({@link ReportCatalogue#evidence()}).</li>
+ *   <li>{@code GET /api/exports/{id}} – progress: counts, and per file
+ *       its state, status and size.</li>
+ *   <li>{@code GET /api/exports/{id}/files/{file}} – download one finished
+ *       file.</li>
+ * </ul>
+ *
+ * <p>Items are rendered in parallel over loopback, like batch items, on a
+ * small worker pool of their own, with batch priority: interactive
+ * requests are admitted first and an export can never occupy more than
+ * {@code exports.threads} report slots. Each response body is copied
+ * into a {@link FileChannel} with {@code transferFrom} (to a temporary
+ * name, then moved into place), and downloads are sent with
+ * {@link FileChannel#transferTo}, so no file is held in memory.</p>
+ *
+ * <p>At most {@code maxJobs} jobs run at once (more get {@code 503}); a
+ * submission reserves its slot before anything else and the job's last
+ * item gives it back. Finished jobs and their files are deleted after the
+ * retention time by a sweep that runs on a schedule, whether or not new
+ * jobs arrive.</p>
+ *
+ * <p>With a {@link RateLimiter} every item is charged to the submitter at
+ * its own report's cost, as for a batch. An item the submitter's bucket
+ * cannot cover yet waits for its {@code Retry-After} and is tried again
+ * (for up to {@link #MAX_THROTTLE_WAIT}), so a large job proceeds at the
+ * client's refill rate instead of failing.</p>
+ */
+public final class ExportJobs {
+
+    /** Default maximum number of items in one job. */
+    public static final int DEFAULT_MAX_ITEMS = 200;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final JsonFactory FACTORY = MAPPER.getFactory();
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final Pattern FILE_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,127}");
+    private static final Pattern JOB_ID = Pattern.compile("[0-9a-f]{16}");
+    private static final long TRANSFER_CHUNK = 1L << 20;
+    /** Longest time one item waits in total for the submitter's rate limit. */
+    static final Duration MAX_THROTTLE_WAIT = Duration.ofMinutes(5);
+    /** Longest pause between sweeps for expired jobs. */
+    private static final Duration MAX_SWEEP_INTERVAL = Duration.ofMinutes(1);
+
+    private final Path dir;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService sweeper;
+    /** One permit per job allowed to run at once. */
+    private final Semaphore slots;
+    private final int maxItems;
+    private final Duration itemTimeout;
+    private final Duration retention;
+    private final HttpClient client;
+    private final RateLimiter rateLimiter;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * @param dir         directory jobs are written under (created if missing)
+     * @param threads     size of the render pool shared by all jobs (at least 1)
+     * @param maxJobs     jobs allowed to run at once (at least 1)
+     * @param maxItems    largest accepted job (at least 1)
+     * @param itemTimeout time limit for rendering one item
+     * @param retention   how long a finished job's files are kept
+     * @param rateLimiter per-client rate limiter the items are charged
+     *                    through, or {@code null} for none
+     */
+    public ExportJobs(Path dir, int threads, int maxJobs, int maxItems, Duration itemTimeout,
+                      Duration retention, RateLimiter rateLimiter) {
+        this.dir = Objects.requireNonNull(dir, "dir");
+        this.slots = new Semaphore(Math.max(1, maxJobs));
+        this.maxItems = Math.max(1, maxItems);
+        this.itemTimeout = Objects.requireNonNull(itemTimeout, "itemTimeout");
+        this.retention = Objects.requireNonNull(retention, "retention");
+        this.rateLimiter = rateLimiter;
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), r -> {
+            Thread t = new Thread(r, "export-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "export-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        this.client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    /**
+     * Register the export routes and start the sweep for expired jobs; the
+     * worker pool and the sweep are shut down when the server stops.
+     *
+     * @param app Javalin instance
+     */
+    public void register(Javalin app) {
+        Objects.requireNonNull(app, "app");
+        app.post("/api/exports", this::handleSubmit);
+        app.get("/api/exports/{id}", this::handleStatus);
+        app.get("/api/exports/{id}/files/{file}", this::handleDownload);
+        long interval = Math.max(1L, Math.min(retention.toMillis(), MAX_SWEEP_INTERVAL.toMillis()));
+        sweeper.scheduleWithFixedDelay(() -> sweep(System.nanoTime()), interval, interval, TimeUnit.MILLISECONDS);
+        app.events(events -> events.serverStopped(() -> {
+            sweeper.shutdownNow();
+            workers.shutdownNow();
+        }));
+    }
+
+    // ---------------------------------------------------------------------
+    // Handlers
+    // ---------------------------------------------------------------------
+
+    private void handleSubmit(Context ctx) throws IOException {
+        List<Item> items = parse(ctx.body());
+        if (!slots.tryAcquire()) {
+            ctx.status(503).header("Retry-After", "5").result("Too many export jobs running");
+            return;
+        }
+        Job job;
+        try {
+            String id = HexFormat.of().formatHex(nextId());
+            Path jobDir = Files.createDirectories(dir.resolve(id));
+            String client = rateLimiter == null ? null : rateLimiter.clientKey(ctx);
+            job = new Job(id, jobDir, items, client, slots::release);
+        } catch (IOException | RuntimeException ex) {
+            slots.release();
+            throw ex;
+        }
+        jobs.put(job.id, job);
+
+        String base = "http://127.0.0.1:" + ctx.port();
+        for (int i = 0; i < items.size(); i++) {
+            int index = i;
+            workers.submit(() -> render(base, job, index));
+        }
+
+        ctx.status(202);
+        ctx.header("Location", "/api/exports/" + job.id);
+        ctx.contentType("application/json");
+        ctx.result(status(job));
+    }
+
+    private void handleStatus(Context ctx) throws IOException {
+        Job job = job(ctx.pathParam("id"));
+        ctx.header("Cache-Control", "no-store");
+        ctx.contentType("application/json");
+        ctx.result(status(job));
+    }
+
+    private void handleDownload(Context ctx) throws IOException {
+        Job job = job(ctx.pathParam("id"));
+        String name = ctx.pathParam("file");
+        Item item = null;
+        for (Item candidate : job.items) {
+            if (candidate.file.equals(name)) {
+                item = candidate;
+            }
+        }
+        if (item == null || item.state != State.DONE) {
+            throw new NotFoundResponse("No finished file '" + name + "' in export " + job.id);
+        }
+
+        try (FileChannel file = FileChannel.open(job.dir.resolve(item.file), StandardOpenOption.READ)) {
+            long size = file.size();
+            ctx.status(200);
+            ctx.contentType(item.contentType == null ? "application/octet-stream" : item.contentType);
+            ctx.header("Content-Disposition", "attachment; filename=\"" + item.file + "\"");
+            ctx.res().setContentLengthLong(size);
+            WritableByteChannel out = Channels.newChannel(ctx.res().getOutputStream());
+            for (long position = 0; position < size; ) {
+                position += file.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), out);
+            }
+        }
+    }
+
+    private Job job(String id) {
+        Job job = JOB_ID.matcher(id).matches() ? jobs.get(id) : null;
+        if (job == null) {
+            throw new NotFoundResponse("No export " + id);
+        }
+        return job;
+    }
+
+    // ---------------------------------------------------------------------
+    // Rendering
+    // ---------------------------------------------------------------------
+
+    /** GET one item over loopback and copy its body into the job directory. */
+    private void render(String base, Job job, int index) {
+        Item item = job.items.get(index);
+        item.state = State.RUNNING;
+        Path target = job.dir.resolve(item.file);
+        Path partial = job.dir.resolve(item.file + ".part");
+        try {
+            HttpResponse<InputStream> response = fetch(base, job, item);
+            item.status = response.statusCode();
+            item.contentType = response.headers().firstValue("Content-Type").orElse(null);
+
+            try (InputStream body = response.body()) {
+                if (item.status != 200) {
+                    body.transferTo(OutputStream.nullOutputStream());
+                    item.state = State.FAILED;
+                    return;
+                }
+                item.bytes = write(body, partial);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            item.state = State.DONE;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            item.error = "Interrupted";
+            item.state = State.FAILED;
+        } catch (IOException | RuntimeException ex) {
+            item.error = String.valueOf(ex.getMessage());
+            item.state = State.FAILED;
+        } finally {
+            deleteQuietly(partial);
+            job.finished(item.state == State.DONE);
+        }
+    }
+
+    /**
+     * GET one item over loopback, charged to the job's client; while that
+     * client's bucket is empty, wait for {@code Retry-After} and try again.
+     */
+    private HttpResponse<InputStream> fetch(String base, Job job, Item item)
+        throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(base + item.path))
+            .timeout(itemTimeout)
+            .header(Admission.PRIORITY_HEADER, Admission.Priority.BATCH.configName())
+            .header(Admission.DEADLINE_HEADER, String.valueOf(itemTimeout.toMillis()))
+            .header(RateLimiter.INTERNAL_HEADER, RateLimiter.INTERNAL_TOKEN)
+            .GET();
+        if (job.client != null) {
+            request.header(RateLimiter.CLIENT_HEADER, job.client);
+        }
+        if (item.accept != null) {
+            request.header("Accept", item.accept);
+        }
+        long waitedMillis = 0L;
+        while (true) {
+            HttpResponse<InputStream> response =
+                client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            long retryMillis = response.statusCode() == 429
+                ? TimeUnit.SECONDS.toMillis(response.headers().firstValueAsLong("Retry-After").orElse(1L))
+                : -1L;
+            if (retryMillis < 0 || waitedMillis + retryMillis > MAX_THROTTLE_WAIT.toMillis()) {
+                return response;
+            }
+            response.body().close();
+            Thread.sleep(retryMillis);
+            waitedMillis += retryMillis;
+        }
+    }
+
+    /** Copy a response body into {@code file} through a {@link FileChannel}. */
+    private static long write(InputStream body, Path file) throws IOException {
+        try (ReadableByteChannel in = Channels.newChannel(body);
+             FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                 StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            // The source blocks, so a chunk comes back short only at end of stream.
+            long position = 0;
+            long copied;
+            while ((copied = out.transferFrom(in, position, TRANSFER_CHUNK)) > 0) {
+                position += copied;
+            }
+            return position;
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Housekeeping
+    // ---------------------------------------------------------------------
+
+    /** Delete finished jobs older than the retention time. */
+    void sweep(long nowNanos) {
+        try {
+            for (Job job : jobs.values()) {
+                if (job.isFinished() && nowNanos - job.finishedNanos > retention.toNanos()) {
+                    jobs.remove(job.id);
+                    deleteTree(job.dir);
+                }
+            }
+        } catch (RuntimeException ex) {
+            // Keep the schedule alive; the next sweep tries again.
+            System.err.println("Export sweep failed: " + ex.getMessage());
+        }
+    }
+
+    private static void deleteTree(Path path) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(path)) {
+            for (Path file : files) {
+                deleteQuietly(file);
+            }
+        } catch (IOException ex) {
+            System.err.println("Could not list export directory " + path + ": " + ex.getMessage());
+        }
+        deleteQuietly(path);
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ex) {
+            System.err.println("Could not delete " + path + ": " + ex.getMessage());
+        }
+    }
+
+    private static byte[] nextId() {
+        byte[] id = new byte[8];
+        RANDOM.nextBytes(id);
+        return id;
+    }
+
+    // ---------------------------------------------------------------------
+    // Request parsing
+    // ---------------------------------------------------------------------
+
+    /** Parse and validate the job body. */
+    List<Item> parse(String body) {
+        JsonNode root;
+        try {
+            root = MAPPER.readTree(body == null ? "" : body);
+        } catch (IOException ex) {
+            throw new BadRequestResponse("Export body must be JSON");
+        }
+        List<Item> items = new ArrayList<>();
+        if (root != null && root.path("evidence").asBoolean(false)) {
+            for (ReportCatalogue.Entry entry : ReportCatalogue.evidence()) {
+                items.add(new Item(entry.getPath(), null, entry.getFileName()));
+            }
+            return items;
+        }
+
+        JsonNode list = root != null && root.isObject() ? root.get("requests") : root;
+        if (list == null || !list.isArray() || list.isEmpty()) {
+            throw new BadRequestResponse("Export body must list at least one request or ask for the evidence set");
+        }
+        if (list.size() > maxItems) {
+            throw new BadRequestResponse("An export may hold at most " + maxItems + " requests");
+        }
+        Set<String> names = new HashSet<>();
+        for (JsonNode node : list) {
+            String path;
+            String accept = null;
+            String file = null;
+            if (node.isTextual()) {
+                path = node.asText();
+            } else if (node.isObject() && node.path("path").isTextual()) {
+                path = node.path("path").asText();
+                accept = node.path("accept").isTextual() ? node.path("accept").asText() : null;
+                file = node.path("file").isTextual() ? node.path("file").asText() : null;
+            } else {
+                throw new BadRequestResponse("Each request must be a path or an object with a path");
+            }
+            BatchRoutes.checkPath(path);
+            if (file == null) {
+                file = String.format(Locale.ROOT, "%03d%s", items.size() + 1, extension(accept));
+            } else if (!FILE_NAME.matcher(file).matches() || file.endsWith(".part")) {
+                throw new BadRequestResponse("Invalid file name: " + file);
+            }
+            if (!names.add(file)) {
+                throw new BadRequestResponse("Duplicate file name: " + file);
+            }
+            items.add(new Item(path, accept, file));
+        }
+        return items;
+    }
+
+    private static String extension(String accept) {
+        return "." + ReportFormat.negotiate(null, accept).parameter();
+    }
+
+    // ---------------------------------------------------------------------
+    // Status document
+    // ---------------------------------------------------------------------
+
+    private static byte[] status(Job job) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        try (JsonGenerator json = FACTORY.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("id", job.id);
+            json.writeStringField("state", job.isFinished() ? "done" : "running");
+            json.writeNumberField("total", job.items.size());
+            json.writeNumberField("completed", job.completed.get());
+            json.writeNumberField("failed", job.failed.get());
+            long end = job.isFinished() ? job.finishedNanos : System.nanoTime();
+            json.writeNumberField("elapsedMillis", Duration.ofNanos(end - job.startedNanos).toMillis());
+            json.writeArrayFieldStart("files");
+            for (Item item : job.items) {
+                json.writeStartObject();
+                json.writeStringField("file", item.file);
+                json.writeStringField("path", item.path);
+                json.writeStringField("state", item.state.name().toLowerCase(Locale.ROOT));
+                if (item.status != 0) {
+                    json.writeNumberField("status", item.status);
+                }
+                if (item.state == State.DONE) {
+                    json.writeNumberField("bytes", item.bytes);
+                    json.writeStringField("href", "/api/exports/" + job.id + "/files/" + item.file);
+                }
+                if (item.error != null) {
+                    json.writeStringField("error", item.error);
+                }
+                json.writeEndObject();
+            }
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+        return out.toByteArray();
+    }
+
+    // ---------------------------------------------------------------------
+    // Value types
+    // ---------------------------------------------------------------------
+
+    /** Progress of one item. */
+    private enum State {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    /** One requested report and where it is written; updated by one worker. */
+    static final class Item {
+        final String path;
+        final String accept;
+        final String file;
+        volatile State state = State.PENDING;
+        volatile int status;
+        volatile String contentType;
+        volatile long bytes;
+        volatile String error;
+
+        Item(String path, String accept, String file) {
+            this.path = path;
+            this.accept = accept;
+            this.file = file;
+        }
+    }
+
+    /** One submitted export. */
+    private static final class Job {
+        final String id;
+        final Path dir;
+        final List<Item> items;
+        /** Rate-limit key of the submitter, or {@code null} without a limiter. */
+        final String client;
+        final long startedNanos = System.nanoTime();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger remaining;
+        private final Runnable onFinish;
+        /** Only meaningful once {@code finished} is set; nanoTime values are compared, never tested for zero. */
+        long finishedNanos;
+        /** Set after {@link #finishedNanos}, so a reader that sees it also sees the finish time. */
+        volatile boolean finished;
+
+        Job(String id, Path dir, List<Item> items, String client, Runnable onFinish) {
+            this.id = id;
+            this.dir = dir;
+            this.items = List.copyOf(items);
+            this.client = client;
+            this.remaining = new AtomicInteger(this.items.size());
+            this.onFinish = onFinish;
+        }
+
+        /** Count one finished item; the last one hands the job's slot back. */
+        void finished(boolean ok) {
+            (ok ? completed : failed).incrementAndGet();
+            if (remaining.decrementAndGet() == 0) {
+                onFinish.run();
+                finishedNanos = System.nanoTime();
+                finished = true;
+            }
+        }
+
+        boolean isFinished() {
+            return finished;
+        }
+    }
+}
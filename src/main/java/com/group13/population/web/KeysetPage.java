@@ -0,0 +1,166 @@
+package com.group13.population.web;
+
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset (cursor) pagination for listings ordered by
+ * {@code Population DESC, ID ASC}.
+ *
+ * <p>A listing is paged when the request carries {@code page_size} or
+ * {@code page_token}. Each page is fetched with a seek predicate on the
+ * last row of the previous page instead of an {@code OFFSET}, so page 40
+ * costs the same as page 1. When more rows follow, the response carries a
+ * {@code Link: <...>; rel="next"} header whose URL holds the opaque
+ * continuation token.</p>
+ *
+ * <p>Tokens are URL-safe Base64 of {@code population:id}; clients must
+ * treat them as opaque. A malformed token or page size is a 400.</p>
+ */
+final class KeysetPage {
+
+    /** Rows per page when only {@code page_token} is given. */
+    static final int DEFAULT_PAGE_SIZE = 100;
+
+    /** Largest page a client may ask for. */
+    static final int MAX_PAGE_SIZE = 1000;
+
+    static final String SIZE_PARAM = "page_size";
+    static final String TOKEN_PARAM = "page_token";
+
+    private static final String TOKEN_VERSION = "1";
+
+    private final int size;
+    private final long afterPopulation;
+    private final String afterId;
+
+    private KeysetPage(int size, long afterPopulation, String afterId) {
+        this.size = size;
+        this.afterPopulation = afterPopulation;
+        this.afterId = afterId;
+    }
+
+    /**
+     * Read the paging parameters of a request.
+     *
+     * @param ctx Javalin request/response context
+     * @return the requested page, or {@code null} if the request is not paged
+     * @throws BadRequestResponse for a bad page size or token
+     */
+    static KeysetPage of(Context ctx) {
+        String rawSize = ctx.queryParam(SIZE_PARAM);
+        String rawToken = ctx.queryParam(TOKEN_PARAM);
+        if (rawSize == null && rawToken == null) {
+            return null;
+        }
+        int size = parseSize(rawSize);
+        if (rawToken == null || rawToken.isBlank()) {
+            return new KeysetPage(size, 0L, null);
+        }
+        return decode(size, rawToken.trim());
+    }
+
+    private static int parseSize(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            int size = Integer.parseInt(raw.trim());
+            if (size <= 0) {
+                throw new BadRequestResponse(SIZE_PARAM + " must be a positive integer");
+            }
+            return Math.min(size, MAX_PAGE_SIZE);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestResponse(SIZE_PARAM + " must be a positive integer");
+        }
+    }
+
+    private static KeysetPage decode(int size, String token) {
+        try {
+            String plain = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = plain.split(":", 3);
+            if (parts.length != 3 || !TOKEN_VERSION.equals(parts[0]) || parts[2].isEmpty()) {
+                throw new BadRequestResponse("Invalid " + TOKEN_PARAM);
+            }
+            long population = Long.parseLong(parts[1]);
+            if (population < 0) {
+                throw new BadRequestResponse("Invalid " + TOKEN_PARAM);
+            }
+            return new KeysetPage(size, population, parts[2]);
+        } catch (IllegalArgumentException ex) {
+            // Base64 and number format errors
+            throw new BadRequestResponse("Invalid " + TOKEN_PARAM);
+        }
+    }
+
+    /**
+     * Encode the position after a row as a continuation token.
+     *
+     * @param population population of the last row on the page
+     * @param id         key of the last row on the page
+     * @return opaque token
+     */
+    static String token(long population, String id) {
+        String plain = TOKEN_VERSION + ":" + population + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+            .encodeToString(plain.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @return rows on this page. */
+    int size() {
+        return size;
+    }
+
+    /** @return rows to fetch: one more than the page, to detect a next page. */
+    int fetchSize() {
+        return size + 1;
+    }
+
+    /** @return {@code true} for the first page (no token). */
+    boolean isFirst() {
+        return afterId == null;
+    }
+
+    /** @return population of the last row of the previous page. */
+    long afterPopulation() {
+        return afterPopulation;
+    }
+
+    /** @return key of the last row of the previous page, or {@code null} on the first page. */
+    String afterId() {
+        return afterId;
+    }
+
+    /**
+     * Point the client at the page after the given row with a
+     * {@code Link} header. Other query parameters are kept.
+     *
+     * @param ctx        Javalin request/response context
+     * @param population population of the last row on this page
+     * @param id         key of the last row on this page
+     */
+    void linkNext(Context ctx, long population, String id) {
+        StringBuilder url = new StringBuilder(ctx.path()).append('?');
+        for (Map.Entry<String, List<String>> param : ctx.queryParamMap().entrySet()) {
+            if (TOKEN_PARAM.equals(param.getKey()) || SIZE_PARAM.equals(param.getKey())) {
+                continue;
+            }
+            for (String value : param.getValue()) {
+                url.append(encode(param.getKey())).append('=').append(encode(value)).append('&');
+            }
+        }
+        url.append(SIZE_PARAM).append('=').append(size)
+            .append('&').append(TOKEN_PARAM).append('=').append(token(population, id));
+        ctx.header("Link", "<" + url + ">; rel=\"next\"");
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
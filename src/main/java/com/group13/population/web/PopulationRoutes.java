@@ -5,10 +5,12 @@ import com.group13.population.model.PopulationLookupRow;
 import com.group13.population.model.PopulationRow;
 import com.group13.population.service.PopulationService;
 import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
 
 import java.util.List;
-import java.util.Locale;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * HTTP endpoints for population reports R23–R32.
@@ -33,14 +35,30 @@ import java.util.Objects;
  * R31 – /reports/population/cities/{city}
  *    or /reports/population/city?name=Yangon
  *
+ * R27–R31 in bulk, one query for many names, results in request order:
+ *    /reports/population/{continent|region|country|district|city}/bulk?name=A&name=B
+ *
  * R32 – /reports/population/languages
  */
 public class PopulationRoutes {
 
+    /** Most names accepted by one bulk lookup. */
+    static final int MAX_BULK_NAMES = 500;
+
     private final PopulationService populationService;
+    private final ReportPipeline pipeline;
 
     public PopulationRoutes(PopulationService populationService) {
+        this(populationService, ReportPipeline.direct());
+    }
+
+    /**
+     * Constructor used by {@link com.group13.population.App} so that every
+     * handler goes through the shared report pipeline (response cache).
+     */
+    public PopulationRoutes(PopulationService populationService, ReportPipeline pipeline) {
         this.populationService = Objects.requireNonNull(populationService, "populationService");
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline");
     }
 
     /**
@@ -50,53 +68,53 @@ public class PopulationRoutes {
         // -----------------------------------------------------------------
         // R23 – continents (population in / not in cities)
         // -----------------------------------------------------------------
-        app.get("/reports/population/continents", ctx -> {
+        app.get("/reports/population/continents", pipeline.wrap("R23", ctx -> {
             List<PopulationRow> rows = populationService.getContinentPopulationInOutCities();
             ctx.contentType("text/csv");
-            ctx.result(buildPopulationCsv(rows));
-        });
+            writePopulation(ReportWriter.forRequest(ctx), rows).send(ctx);
+        }));
 
         // -----------------------------------------------------------------
         // R24 – regions (population in / not in cities)
         // -----------------------------------------------------------------
-        app.get("/reports/population/regions", ctx -> {
+        app.get("/reports/population/regions", pipeline.wrap("R24", ctx -> {
             List<PopulationRow> rows = populationService.getRegionPopulationInOutCities();
             ctx.contentType("text/csv");
-            ctx.result(buildPopulationCsv(rows));
-        });
+            writePopulation(ReportWriter.forRequest(ctx), rows).send(ctx);
+        }));
 
         // -----------------------------------------------------------------
         // R25 – countries (population in / not in cities)
         // -----------------------------------------------------------------
-        app.get("/reports/population/countries", ctx -> {
+        app.get("/reports/population/countries", pipeline.wrap("R25", ctx -> {
             List<PopulationRow> rows = populationService.getCountryPopulationInOutCities();
             ctx.contentType("text/csv");
-            ctx.result(buildPopulationCsv(rows));
-        });
+            writePopulation(ReportWriter.forRequest(ctx), rows).send(ctx);
+        }));
 
         // -----------------------------------------------------------------
         // R26 – world population
         // -----------------------------------------------------------------
-        app.get("/reports/population/world", ctx -> {
+        app.get("/reports/population/world", pipeline.wrap("R26", ctx -> {
             long worldPopulation = populationService.getWorldPopulation();
             ctx.contentType("text/csv");
-            ctx.result(buildWorldCsv(worldPopulation));
-        });
+            writeWorld(ReportWriter.forRequest(ctx), worldPopulation).send(ctx);
+        }));
 
         // -----------------------------------------------------------------
         // R27 – population of a continent
         // Example: /reports/population/continents/Asia
         // -----------------------------------------------------------------
-        app.get("/reports/population/continents/{continent}", ctx -> {
+        app.get("/reports/population/continents/{continent}", pipeline.wrap("R27", ctx -> {
             String continent = ctx.pathParam("continent");
             PopulationLookupRow row = populationService.getContinentPopulation(continent);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
 
         // Alias used by PowerShell script:
         //   /reports/population/continent?name=Asia
-        app.get("/reports/population/continent", ctx -> {
+        app.get("/reports/population/continent", pipeline.wrap("R27", ctx -> {
             String name = ctx.queryParam("name");
             if (name == null || name.isBlank()) {
                 ctx.status(400).result("Missing required query parameter 'name'");
@@ -104,23 +122,23 @@ public class PopulationRoutes {
             }
             PopulationLookupRow row = populationService.getContinentPopulation(name);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
 
         // -----------------------------------------------------------------
         // R28 – population of a region
         // Example: /reports/population/regions/Eastern%20Asia
         // -----------------------------------------------------------------
-        app.get("/reports/population/regions/{region}", ctx -> {
+        app.get("/reports/population/regions/{region}", pipeline.wrap("R28", ctx -> {
             String region = ctx.pathParam("region");
             PopulationLookupRow row = populationService.getRegionPopulation(region);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
 
         // Alias for script:
         //   /reports/population/region?name=Caribbean
-        app.get("/reports/population/region", ctx -> {
+        app.get("/reports/population/region", pipeline.wrap("R28", ctx -> {
             String name = ctx.queryParam("name");
             if (name == null || name.isBlank()) {
                 ctx.status(400).result("Missing required query parameter 'name'");
@@ -128,23 +146,23 @@ public class PopulationRoutes {
             }
             PopulationLookupRow row = populationService.getRegionPopulation(name);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
 
         // -----------------------------------------------------------------
         // R29 – population of a country
         // Example: /reports/population/countries/Myanmar
         // -----------------------------------------------------------------
-        app.get("/reports/population/countries/{country}", ctx -> {
+        app.get("/reports/population/countries/{country}", pipeline.wrap("R29", ctx -> {
             String country = ctx.pathParam("country");
             PopulationLookupRow row = populationService.getCountryPopulation(country);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
 
         // Alias for script:
         //   /reports/population/country?name=Myanmar
-        app.get("/reports/population/country", ctx -> {
+        app.get("/reports/population/country", pipeline.wrap("R29", ctx -> {
             String name = ctx.queryParam("name");
             if (name == null || name.isBlank()) {
                 ctx.status(400).result("Missing required query parameter 'name'");
@@ -152,23 +170,23 @@ public class PopulationRoutes {
             }
             PopulationLookupRow row = populationService.getCountryPopulation(name);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
 
         // -----------------------------------------------------------------
         // R30 – population of a district
         // Example: /reports/population/districts/Yangon
         // -----------------------------------------------------------------
-        app.get("/reports/population/districts/{district}", ctx -> {
+        app.get("/reports/population/districts/{district}", pipeline.wrap("R30", ctx -> {
             String district = ctx.pathParam("district");
             PopulationLookupRow row = populationService.getDistrictPopulation(district);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
 
         // Alias for script:
         //   /reports/population/district?name=Rangoon
-        app.get("/reports/population/district", ctx -> {
+        app.get("/reports/population/district", pipeline.wrap("R30", ctx -> {
             String name = ctx.queryParam("name");
             if (name == null || name.isBlank()) {
                 ctx.status(400).result("Missing required query parameter 'name'");
@@ -176,23 +194,23 @@ public class PopulationRoutes {
             }
             PopulationLookupRow row = populationService.getDistrictPopulation(name);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
 
         // -----------------------------------------------------------------
         // R31 – population of a city
         // Example: /reports/population/cities/Yangon
         // -----------------------------------------------------------------
-        app.get("/reports/population/cities/{city}", ctx -> {
+        app.get("/reports/population/cities/{city}", pipeline.wrap("R31", ctx -> {
             String city = ctx.pathParam("city");
             PopulationLookupRow row = populationService.getCityPopulation(city);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
 
         // Alias for script:
         //   /reports/population/city?name=Yangon
-        app.get("/reports/population/city", ctx -> {
+        app.get("/reports/population/city", pipeline.wrap("R31", ctx -> {
             String name = ctx.queryParam("name");
             if (name == null || name.isBlank()) {
                 ctx.status(400).result("Missing required query parameter 'name'");
@@ -200,54 +218,76 @@ public class PopulationRoutes {
             }
             PopulationLookupRow row = populationService.getCityPopulation(name);
             ctx.contentType("text/csv");
-            ctx.result(buildLookupCsv(row));
-        });
+            writeLookup(ReportWriter.forRequest(ctx), row).send(ctx);
+        }));
+
+        // -----------------------------------------------------------------
+        // R27–R31 in bulk – many names per call, one query; rate-limited
+        // as one lookup per name
+        // Example: /reports/population/country/bulk?name=Myanmar&name=France
+        // -----------------------------------------------------------------
+        app.get("/reports/population/continent/bulk", pipeline.wrap("R27", PopulationRoutes::bulkSize,
+            ctx -> handleBulk(ctx, populationService::getContinentPopulations)));
+        app.get("/reports/population/region/bulk", pipeline.wrap("R28", PopulationRoutes::bulkSize,
+            ctx -> handleBulk(ctx, populationService::getRegionPopulations)));
+        app.get("/reports/population/country/bulk", pipeline.wrap("R29", PopulationRoutes::bulkSize,
+            ctx -> handleBulk(ctx, populationService::getCountryPopulations)));
+        app.get("/reports/population/district/bulk", pipeline.wrap("R30", PopulationRoutes::bulkSize,
+            ctx -> handleBulk(ctx, populationService::getDistrictPopulations)));
+        app.get("/reports/population/city/bulk", pipeline.wrap("R31", PopulationRoutes::bulkSize,
+            ctx -> handleBulk(ctx, populationService::getCityPopulations)));
 
         // -----------------------------------------------------------------
         // R32 – language populations (Chinese, English, Hindi, Spanish, Arabic)
         // -----------------------------------------------------------------
-        app.get("/reports/population/languages", ctx -> {
+        app.get("/reports/population/languages", pipeline.wrap("R32", ctx -> {
             List<LanguagePopulationRow> rows = populationService.getLanguagePopulations();
             ctx.contentType("text/csv");
-            ctx.result(buildLanguageCsv(rows));
-        });
+            writeLanguage(ReportWriter.forRequest(ctx), rows).send(ctx);
+        }));
     }
 
     /**
-     * Build CSV for R23–R25 style population reports.
+     * Write R23–R25 style population reports.
      * Package-private so tests in the same package can call it.
+     *
+     * @param out  writer for the negotiated format
+     * @param rows report rows; {@code null} gives a header-only report
+     * @return {@code out}
      */
-    String buildPopulationCsv(List<PopulationRow> rows) {
-        StringBuilder csv = new StringBuilder();
-        csv.append("Name,TotalPopulation,CityPopulation,NonCityPopulation,")
-            .append("CityPopulationPercent,NonCityPopulationPercent\n");
+    ReportWriter writePopulation(ReportWriter out, List<PopulationRow> rows) {
+        out.columns("Name", "TotalPopulation", "CityPopulation", "NonCityPopulation",
+            "CityPopulationPercent", "NonCityPopulationPercent");
 
         if (rows == null) {
             // header only
-            return csv.toString();
+            return out;
         }
 
         for (PopulationRow r : rows) {
             if (r == null) {
                 continue;
             }
-            csv.append(escape(r.getName())).append(',')
-                .append(r.getTotalPopulation()).append(',')
-                .append(r.getCityPopulation()).append(',')
-                .append(r.getNonCityPopulation()).append(',')
-                .append(String.format(Locale.US, "%.2f", r.getCityPopulationPercent())).append(',')
-                .append(String.format(Locale.US, "%.2f", r.getNonCityPopulationPercent()))
-                .append('\n');
+            out.text(r.getName())
+                .number(r.getTotalPopulation())
+                .number(r.getCityPopulation())
+                .number(r.getNonCityPopulation())
+                .percent(r.getCityPopulationPercent())
+                .percent(r.getNonCityPopulationPercent())
+                .endRow();
         }
 
-        return csv.toString();
+        return out;
     }
 
     /**
-     * Build CSV for R26 (world population).
+     * Write R26 (world population).
      */
-    String buildWorldCsv(long worldPopulation) {
-        return "Name,WorldPopulation\nWorld," + worldPopulation + "\n";
+    ReportWriter writeWorld(ReportWriter out, long worldPopulation) {
+        return out.columns("Name", "WorldPopulation")
+            .text("World")
+            .number(worldPopulation)
+            .endRow();
     }
 
     // ---------------------------------------------------------------------
@@ -255,58 +295,93 @@ public class PopulationRoutes {
     // ---------------------------------------------------------------------
 
     /**
-     * Build CSV for lookup-style population reports (R27–R31).
-     * Header: Name,Population
+     * Write lookup-style population reports (R27–R31).
+     * Columns: Name,Population
      */
-    String buildLookupCsv(PopulationLookupRow row) {
-        StringBuilder csv = new StringBuilder();
-        csv.append("Name,Population\n");
+    ReportWriter writeLookup(ReportWriter out, PopulationLookupRow row) {
+        out.columns("Name", "Population");
 
         if (row == null) {
-            return csv.toString();
+            return out;
         }
 
-        csv.append(escape(row.getName())).append(',')
-            .append(row.getPopulation()).append('\n');
+        return out.text(row.getName())
+            .number(row.getPopulation())
+            .endRow();
+    }
+
+    /** Serve a bulk lookup with the given service method. */
+    private void handleBulk(Context ctx, Function<List<String>, List<PopulationLookupRow>> lookup) {
+        List<String> names = bulkNames(ctx);
+        writeBulkLookup(ReportWriter.forRequest(ctx), lookup.apply(names), names).send(ctx);
+    }
 
-        return csv.toString();
+    /** Number of lookups a bulk request asks for (charged by the rate limiter). */
+    static int bulkSize(Context ctx) {
+        return Math.min(ctx.queryParams("name").size(), MAX_BULK_NAMES);
     }
 
     /**
-     * Build CSV for language population report (R32).
-     * Header: Language,Speakers,WorldPopulationPercent
+     * Names for a bulk lookup: every {@code name} query parameter, in order.
+     *
+     * @throws BadRequestResponse if there are none or more than {@link #MAX_BULK_NAMES}
      */
-    String buildLanguageCsv(List<LanguagePopulationRow> rows) {
-        StringBuilder csv = new StringBuilder();
-        csv.append("Language,Speakers,WorldPopulationPercent\n");
-
-        if (rows == null) {
-            return csv.toString();
+    static List<String> bulkNames(Context ctx) {
+        List<String> names = ctx.queryParams("name");
+        if (names.isEmpty()) {
+            throw new BadRequestResponse("Missing required query parameter 'name'");
+        }
+        if (names.size() > MAX_BULK_NAMES) {
+            throw new BadRequestResponse("At most " + MAX_BULK_NAMES + " names per request");
         }
+        return names;
+    }
 
-        for (LanguagePopulationRow r : rows) {
-            if (r == null) {
-                continue;
+    /**
+     * Write a bulk lookup (R27–R31): one row per requested name, in request
+     * order. Columns: Name,Population,Status where Status is {@code FOUND}
+     * or {@code NOT_FOUND} (Population 0).
+     *
+     * @param rows  results in request order, {@code null} where not found
+     * @param names the requested names
+     */
+    ReportWriter writeBulkLookup(ReportWriter out, List<PopulationLookupRow> rows, List<String> names) {
+        out.columns("Name", "Population", "Status");
+
+        for (int i = 0; i < names.size(); i++) {
+            PopulationLookupRow row = i < rows.size() ? rows.get(i) : null;
+            if (row == null) {
+                out.text(names.get(i)).number(0L).text("NOT_FOUND");
+            } else {
+                out.text(row.getName()).number(row.getPopulation()).text("FOUND");
             }
-            csv.append(escape(r.getLanguage())).append(',')
-                .append(r.getSpeakers()).append(',')
-                .append(String.format(Locale.US, "%.2f", r.getWorldPopulationPercent()))
-                .append('\n');
+            out.endRow();
         }
 
-        return csv.toString();
+        return out;
     }
 
     /**
-     * Tiny CSV escaping helper for names containing commas or quotes.
+     * Write the language population report (R32).
+     * Columns: Language,Speakers,WorldPopulationPercent
      */
-    private String escape(String value) {
-        if (value == null) {
-            return "";
+    ReportWriter writeLanguage(ReportWriter out, List<LanguagePopulationRow> rows) {
+        out.columns("Language", "Speakers", "WorldPopulationPercent");
+
+        if (rows == null) {
+            return out;
         }
-        if (value.contains(",") || value.contains("\"")) {
-            return "\"" + value.replace("\"", "\"\"") + "\"";
+
+        for (LanguagePopulationRow r : rows) {
+            if (r == null) {
+                continue;
+            }
+            out.text(r.getLanguage())
+                .number(r.getSpeakers())
+                .percent(r.getWorldPopulationPercent())
+                .endRow();
         }
-        return value;
+
+        return out;
     }
 }
@@ -0,0 +1,179 @@
+package com.group13.population.web;
+
+import com.group13.population.db.Db;
+import com.group13.population.repo.DataAccessException;
+import com.group13.population.repo.RankingQuery;
+import com.group13.population.repo.ReportColumn;
+import com.group13.population.repo.ReportEntity;
+import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Ad-hoc ranking endpoint for combinations the fixed reports (R01–R32)
+ * do not cover.
+ *
+ * <p>{@code GET /api/query} takes only these parameters:</p>
+ * <ul>
+ *   <li>{@code entity} – {@code city} (default) or {@code country}</li>
+ *   <li>{@code continent}, {@code region}, {@code country}, {@code district}
+ *       – equality on a scope the entity supports</li>
+ *   <li>{@code minPopulation}, {@code maxPopulation} – inclusive bounds</li>
+ *   <li>{@code capital} – cities only; {@code true} or {@code false}</li>
+ *   <li>{@code order} – {@code desc} (default) or {@code asc}</li>
+ *   <li>{@code limit} – required, 1 to {@code query.maxLimit}</li>
+ *   <li>{@code fields}, {@code format} – as for the other reports</li>
+ * </ul>
+ *
+ * <p>Example: {@code /api/query?continent=Asia&minPopulation=1000000&maxPopulation=5000000&capital=false&limit=50}.
+ * The mandatory, capped limit is the cost guard: no query can scan and
+ * return a whole table. Anything else is a 400. The query runs as report
+ * {@value #REPORT_ID} through the shared pipeline, so results are cached
+ * per URL and the query is charged and isolated as a top-N report.</p>
+ */
+public final class QueryRoutes {
+
+    /** Report id of ad-hoc queries in the pipeline (cache, bulkhead, rate limit). */
+    public static final String REPORT_ID = "Q01";
+
+    /** Default cap on {@code limit}. */
+    public static final int DEFAULT_MAX_LIMIT = 1000;
+
+    private static final Set<String> PARAMS = Set.of("entity", "continent", "region", "country",
+        "district", "minPopulation", "maxPopulation", "capital", "order", "limit", "fields", "format");
+
+    private final Db db;
+    private final ReportPipeline pipeline;
+    private final int maxLimit;
+
+    /**
+     * @param db       shared database helper
+     * @param pipeline report pipeline applied to the handler
+     * @param maxLimit largest {@code limit} a query may ask for
+     */
+    public QueryRoutes(Db db, ReportPipeline pipeline, int maxLimit) {
+        this.db = Objects.requireNonNull(db, "db");
+        this.pipeline = Objects.requireNonNull(pipeline, "pipeline");
+        if (maxLimit <= 0) {
+            throw new IllegalArgumentException("maxLimit must be positive");
+        }
+        this.maxLimit = maxLimit;
+    }
+
+    /**
+     * Register {@code GET /api/query} on the given Javalin app.
+     *
+     * @param app Javalin instance
+     */
+    public void register(Javalin app) {
+        Objects.requireNonNull(app, "app");
+        app.get("/api/query", pipeline.wrap(REPORT_ID, this::handleQuery));
+    }
+
+    private void handleQuery(Context ctx) {
+        final RankingQuery query = parse(ctx, maxLimit);
+
+        ctx.contentType("text/csv; charset=UTF-8");
+
+        try {
+            ReportWriter out = ReportWriter.forRequest(ctx).attachment("query")
+                .columns(ReportColumn.headers(query.columns()));
+            query.stream(db.getConnection(), out);
+            out.send(ctx);
+        } catch (SQLException ex) {
+            // Surface the outage to ReportPipeline (stale result or 503).
+            throw new DataAccessException("Database error: " + ex.getMessage(), ex);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Parsing
+    // -------------------------------------------------------------------------
+
+    /**
+     * Build a query from the request parameters.
+     *
+     * @param maxLimit largest accepted {@code limit}
+     * @throws BadRequestResponse for an unknown parameter or an invalid query
+     */
+    static RankingQuery parse(Context ctx, int maxLimit) {
+        for (String name : ctx.queryParamMap().keySet()) {
+            if (!PARAMS.contains(name)) {
+                throw new BadRequestResponse("Unknown parameter '" + name + "'; expected one of "
+                    + String.join(", ", PARAMS.stream().sorted().toList()));
+            }
+        }
+
+        final ReportEntity entity;
+        String rawEntity = ctx.queryParam("entity");
+        if (rawEntity == null || rawEntity.equalsIgnoreCase("city")) {
+            entity = ReportEntity.CITY;
+        } else if (rawEntity.equalsIgnoreCase("country")) {
+            entity = ReportEntity.COUNTRY;
+        } else {
+            throw new BadRequestResponse("entity must be 'city' or 'country'");
+        }
+
+        Map<ReportEntity.Filter, String> scopes = new EnumMap<>(ReportEntity.Filter.class);
+        for (ReportEntity.Filter filter : ReportEntity.Filter.values()) {
+            String value = ctx.queryParam(filter.name().toLowerCase(Locale.ROOT));
+            if (filter != ReportEntity.Filter.WORLD && value != null) {
+                if (value.isBlank()) {
+                    throw new BadRequestResponse(filter.name().toLowerCase(Locale.ROOT) + " must not be blank");
+                }
+                scopes.put(filter, value.trim());
+            }
+        }
+
+        String rawOrder = ctx.queryParam("order");
+        if (rawOrder != null && !rawOrder.equalsIgnoreCase("asc") && !rawOrder.equalsIgnoreCase("desc")) {
+            throw new BadRequestResponse("order must be 'asc' or 'desc'");
+        }
+
+        String rawCapital = ctx.queryParam("capital");
+        Boolean capital = null;
+        if (rawCapital != null) {
+            if (!rawCapital.equalsIgnoreCase("true") && !rawCapital.equalsIgnoreCase("false")) {
+                throw new BadRequestResponse("capital must be 'true' or 'false'");
+            }
+            capital = Boolean.valueOf(rawCapital.toLowerCase(Locale.ROOT));
+        }
+
+        if (ctx.queryParam("limit") == null) {
+            throw new BadRequestResponse("limit is required (1–" + maxLimit + ")");
+        }
+        long limit = number(ctx, "limit");
+        if (limit < 1 || limit > maxLimit) {
+            throw new BadRequestResponse("limit must be between 1 and " + maxLimit);
+        }
+
+        try {
+            List<ReportColumn> columns = ReportColumn.select(ctx.queryParam("fields"),
+                entity.schema().toArray(new ReportColumn[0]));
+            return new RankingQuery(entity, columns, scopes,
+                ctx.queryParam("minPopulation") == null ? null : number(ctx, "minPopulation"),
+                ctx.queryParam("maxPopulation") == null ? null : number(ctx, "maxPopulation"),
+                capital, "asc".equalsIgnoreCase(rawOrder), (int) limit);
+        } catch (IllegalArgumentException ex) {
+            throw new BadRequestResponse(ex.getMessage());
+        }
+    }
+
+    /** A whole-number parameter that is present. */
+    private static long number(Context ctx, String name) {
+        String raw = ctx.queryParam(name);
+        try {
+            return Long.parseLong(raw.trim());
+        } catch (NumberFormatException ex) {
+            throw new BadRequestResponse(name + " must be a whole number");
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.group13.population.web;
+
+import io.javalin.http.Context;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Per-client token buckets with cost-weighted reports.
+ *
+ * <p>Clients are identified by their {@value #API_KEY_HEADER} header when it
+ * names one of the configured API keys, otherwise by IP address: an unknown
+ * key is ignored, so a client cannot mint fresh buckets by inventing keys.
+ * Every client's bucket holds up to
+ * {@code capacity} tokens and refills at {@code refillPerSecond}; each
+ * report takes the cost of its {@link ReportClass} (a full export costs
+ * far more than the R26 world total). A request that finds too few tokens
+ * is answered {@code 429} with the seconds until enough have refilled in
+ * {@code Retry-After}. A request that costs more than the capacity (a
+ * large bulk lookup) could never be paid and is answered {@code 413}.</p>
+ *
+ * <p>Buckets live in a {@link ConcurrentHashMap} and are updated with a
+ * compare-and-set on an immutable state, so no lock is taken per request.
+ * Buckets idle for longer than the idle timeout (by then they are full
+ * again, so nothing is forgotten) are swept out every
+ * {@value #SWEEP_EVERY} requests. At most {@code maxClients} buckets are
+ * kept; once that many clients are active, new ones share one overflow
+ * bucket until a sweep frees room.</p>
+ *
+ * <p>The application's own loopback requests – cache warm-up, batch and
+ * export items – carry {@link #INTERNAL_HEADER} with a token known only to
+ * this process. Warm-up is not charged. Batch and export items also carry
+ * {@link #CLIENT_HEADER} with the key of the client that submitted them,
+ * and each is charged to that client's bucket at its own report's cost,
+ * exactly as if it had been requested directly.</p>
+ */
+public final class RateLimiter {
+
+    /** Request header naming the client's API key. */
+    static final String API_KEY_HEADER = "X-API-Key";
+
+    /** Request header marking the application's own loopback requests. */
+    static final String INTERNAL_HEADER = "X-Internal-Request";
+
+    /**
+     * Request header naming the client an internal request is made for;
+     * only honoured together with {@link #INTERNAL_HEADER}.
+     */
+    static final String CLIENT_HEADER = "X-Internal-Client";
+
+    /** Random per-process value of {@link #INTERNAL_HEADER}. */
+    static final String INTERNAL_TOKEN = newToken();
+
+    /** Requests between sweeps for idle buckets. */
+    static final int SWEEP_EVERY = 4096;
+
+    /** Bucket shared by new clients while the bucket map is full. */
+    static final String OVERFLOW_CLIENT = "overflow";
+
+    private static final long FULL_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Tokens left and when they were last topped up. */
+    private record State(double tokens, long stampNanos) {
+    }
+
+    private final double capacity;
+    private final double refillPerNano;
+    private final long idleNanos;
+    private final int maxClients;
+    private final Set<String> apiKeys;
+    private final Map<ReportClass, Integer> costs;
+    private final ConcurrentHashMap<String, AtomicReference<State>> buckets =
+        new ConcurrentHashMap<>(1 << 14);
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+    private final AtomicLong lastFullSweepNanos = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param capacity        burst size in tokens (at least 1)
+     * @param refillPerSecond tokens added per second (greater than 0)
+     * @param idleSeconds     how long an unused bucket is kept
+     * @param maxClients      most buckets kept at once (at least 1)
+     * @param apiKeys         API keys that identify a client; any other
+     *                        {@value #API_KEY_HEADER} value is ignored
+     * @param costs           tokens per report class; missing classes cost 1
+     */
+    public RateLimiter(int capacity, double refillPerSecond, int idleSeconds, int maxClients,
+                       Set<String> apiKeys, Map<ReportClass, Integer> costs) {
+        Objects.requireNonNull(apiKeys, "apiKeys");
+        Objects.requireNonNull(costs, "costs");
+        if (refillPerSecond <= 0) {
+            throw new IllegalArgumentException("refillPerSecond must be positive");
+        }
+        this.capacity = Math.max(1, capacity);
+        this.refillPerNano = refillPerSecond / TimeUnit.SECONDS.toNanos(1);
+        // A bucket idle for its refill time is full; dropping it loses nothing.
+        long refillNanos = (long) (this.capacity / refillPerNano);
+        this.idleNanos = Math.max(TimeUnit.SECONDS.toNanos(Math.max(0, idleSeconds)), refillNanos);
+        this.maxClients = Math.max(1, maxClients);
+        this.apiKeys = Set.copyOf(apiKeys);
+        this.costs = new EnumMap<>(ReportClass.class);
+        for (ReportClass reportClass : ReportClass.values()) {
+            int cost = costs.getOrDefault(reportClass, 1);
+            this.costs.put(reportClass, (int) Math.min(this.capacity, Math.max(0, cost)));
+        }
+    }
+
+    /**
+     * Charge the client for one report.
+     *
+     * @param ctx         Javalin request/response context
+     * @param reportClass class of the requested report
+     * @return {@code true} if the request may go ahead; otherwise the 429
+     *         response has been written
+     */
+    public boolean admit(Context ctx, ReportClass reportClass) {
+        return admit(ctx, costs.get(reportClass));
+    }
+
+    /**
+     * Charge the client a given number of tokens.
+     *
+     * @param ctx  Javalin request/response context
+     * @param cost tokens to take
+     * @return {@code true} if the request may go ahead; otherwise the 429
+     *         (or, for a cost above the capacity, 413) response has been
+     *         written
+     */
+    public boolean admit(Context ctx, int cost) {
+        String client;
+        if (isInternal(ctx.header(INTERNAL_HEADER))) {
+            client = ctx.header(CLIENT_HEADER);
+            if (client == null) {
+                return true;
+            }
+        } else {
+            client = clientKey(ctx);
+        }
+        if (cost > capacity) {
+            throttled.incrementAndGet();
+            ctx.status(413);
+            ctx.header("Cache-Control", "no-store");
+            ctx.contentType("text/plain; charset=utf-8");
+            ctx.result("Request costs " + cost + " tokens, more than the rate limit allows ("
+                + (long) capacity + "); split it up.\n");
+            return false;
+        }
+        long waitNanos = tryTake(client, Math.max(0, cost), System.nanoTime());
+        if (waitNanos == 0L) {
+            return true;
+        }
+        throttled.incrementAndGet();
+        long retryAfter = Math.max(1L, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        ctx.status(429);
+        ctx.header("Retry-After", String.valueOf(retryAfter));
+        ctx.header("Cache-Control", "no-store");
+        ctx.contentType("text/plain; charset=utf-8");
+        ctx.result("Rate limit exceeded; retry in " + retryAfter + " s.\n");
+        return false;
+    }
+
+    /**
+     * Take {@code cost} tokens from a client's bucket.
+     *
+     * @return 0 if taken, otherwise nanoseconds until enough tokens are back
+     */
+    long tryTake(String client, double cost, long nowNanos) {
+        if (requests.incrementAndGet() % SWEEP_EVERY == 0) {
+            sweep(nowNanos);
+        }
+        AtomicReference<State> bucket = buckets.computeIfAbsent(admitClient(client, nowNanos),
+            k -> new AtomicReference<>(new State(capacity, nowNanos)));
+        while (true) {
+            State current = bucket.get();
+            long elapsed = Math.max(0L, nowNanos - current.stampNanos());
+            double tokens = Math.min(capacity, current.tokens() + elapsed * refillPerNano);
+            if (tokens < cost) {
+                return Math.max(1L, (long) Math.ceil((cost - tokens) / refillPerNano));
+            }
+            if (bucket.compareAndSet(current, new State(tokens - cost, nowNanos))) {
+                return 0L;
+            }
+        }
+    }
+
+    /**
+     * The bucket key for a client: its own if it has or can get a bucket,
+     * the shared overflow bucket while the map is full. A full map is swept
+     * at most once a second.
+     */
+    private String admitClient(String client, long nowNanos) {
+        if (buckets.size() < maxClients || buckets.containsKey(client)) {
+            return client;
+        }
+        long last = lastFullSweepNanos.get();
+        boolean due = last == Long.MIN_VALUE || nowNanos - last >= FULL_SWEEP_INTERVAL_NANOS;
+        if (due && lastFullSweepNanos.compareAndSet(last, nowNanos)) {
+            sweep(nowNanos);
+            if (buckets.size() < maxClients) {
+                return client;
+            }
+        }
+        return OVERFLOW_CLIENT;
+    }
+
+    /** Drop buckets nobody has used for the idle timeout. */
+    void sweep(long nowNanos) {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            buckets.values().removeIf(bucket -> nowNanos - bucket.get().stampNanos() > idleNanos);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    /** @return number of clients with a bucket. */
+    public int clients() {
+        return buckets.size();
+    }
+
+    /** @return requests answered 429 or 413 since start-up. */
+    public long throttled() {
+        return throttled.get();
+    }
+
+    /**
+     * @param reportClass report class
+     * @return tokens a report of that class costs
+     */
+    public int cost(ReportClass reportClass) {
+        return costs.get(reportClass);
+    }
+
+    /** The API key if it is a configured one, otherwise the client IP. */
+    String clientKey(Context ctx) {
+        String key = ctx.header(API_KEY_HEADER);
+        if (key != null && apiKeys.contains(key.trim())) {
+            return "key:" + key.trim();
+        }
+        return "ip:" + ctx.ip();
+    }
+
+    /** Constant-time check of the internal-request token. */
+    static boolean isInternal(String header) {
+        return header != null && MessageDigest.isEqual(
+            header.getBytes(StandardCharsets.UTF_8), INTERNAL_TOKEN.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String newToken() {
+        byte[] bytes = new byte[16];
+        new SecureRandom().nextBytes(bytes);
+        return HexFormat.of().formatHex(bytes);
+    }
+}
@@ -0,0 +1,210 @@
+package com.group13.population.web;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Enumerates the request paths of every report (R01–R32) for a given set
+ * of scopes.
+ *
+ * <p>For each continent, region, country and district supplied, the
+ * catalogue lists every "all" report plus one "top N" report per entry of
+ * {@code topN}. Both the {@code /api/*} and {@code /reports/*} families
+ * are included where they exist. R31 (population of a city) is not
+ * enumerated because it is keyed by free-text city name.</p>
+ */
+public final class ReportCatalogue {
+
+    private ReportCatalogue() {
+        // Utility class – do not instantiate.
+    }
+
+    /**
+     * One report request: report id plus the encoded path (and query).
+     */
+    public static final class Entry {
+
+        private final String reportId;
+        private final String path;
+        private final String fileName;
+
+        Entry(String reportId, String path) {
+            this(reportId, path, null);
+        }
+
+        Entry(String reportId, String path, String fileName) {
+            this.reportId = reportId;
+            this.path = path;
+            this.fileName = fileName;
+        }
+
+        /** @return report id, e.g. {@code "R05"}. */
+        public String getReportId() {
+            return reportId;
+        }
+
+        /** @return percent-encoded request path, including any query string. */
+        public String getPath() {
+            return path;
+        }
+
+        /** @return evidence file name, e.g. {@code "R01_countries_world.csv"}, or {@code null}. */
+        public String getFileName() {
+            return fileName;
+        }
+
+        @Override
+        public String toString() {
+            return reportId + " " + path;
+        }
+    }
+
+    /**
+     * Build the full catalogue.
+     *
+     * @param continents continent names
+     * @param regions    region names
+     * @param countries  country names
+     * @param districts  district names
+     * @param topN       N values used for the "top N" reports
+     * @return every report request, grouped by report id
+     */
+    public static List<Entry> entries(List<String> continents,
+                                      List<String> regions,
+                                      List<String> countries,
+                                      List<String> districts,
+                                      int[] topN) {
+        Objects.requireNonNull(continents, "continents");
+        Objects.requireNonNull(regions, "regions");
+        Objects.requireNonNull(countries, "countries");
+        Objects.requireNonNull(districts, "districts");
+        Objects.requireNonNull(topN, "topN");
+
+        List<Entry> out = new ArrayList<>();
+
+        // R01–R06 – countries
+        out.add(new Entry("R01", "/api/countries/world"));
+        addScoped(out, "R02", "/api/countries/continent/", "", continents);
+        addScoped(out, "R03", "/api/countries/region/", "", regions);
+        for (int n : topN) {
+            out.add(new Entry("R04", "/api/countries/world/top?n=" + n));
+            addScoped(out, "R05", "/api/countries/continent/", "/top?n=" + n, continents);
+            addScoped(out, "R06", "/api/countries/region/", "/top?n=" + n, regions);
+        }
+
+        // R07–R16 – cities (both route families; /reports puts N in the path)
+        out.add(new Entry("R07", "/api/cities/world"));
+        addScoped(out, "R08", "/api/cities/continent/", "", continents);
+        addScoped(out, "R09", "/api/cities/region/", "", regions);
+        addScoped(out, "R10", "/api/cities/country/", "", countries);
+        addScoped(out, "R11", "/api/cities/district/", "", districts);
+        for (int n : topN) {
+            out.add(new Entry("R12", "/api/cities/world/top?n=" + n));
+            addScoped(out, "R13", "/api/cities/continent/", "/top?n=" + n, continents);
+            addScoped(out, "R14", "/api/cities/region/", "/top?n=" + n, regions);
+            addScoped(out, "R15", "/api/cities/country/", "/top?n=" + n, countries);
+            addScoped(out, "R16", "/api/cities/district/", "/top?n=" + n, districts);
+        }
+        out.add(new Entry("R07", "/reports/cities/world"));
+        addScoped(out, "R08", "/reports/cities/continent/", "", continents);
+        addScoped(out, "R09", "/reports/cities/region/", "", regions);
+        addScoped(out, "R10", "/reports/cities/country/", "", countries);
+        addScoped(out, "R11", "/reports/cities/district/", "", districts);
+        for (int n : topN) {
+            out.add(new Entry("R12", "/reports/cities/world/top/" + n));
+            addScoped(out, "R13", "/reports/cities/continent/", "/top/" + n, continents);
+            addScoped(out, "R14", "/reports/cities/region/", "/top/" + n, regions);
+            addScoped(out, "R15", "/reports/cities/country/", "/top/" + n, countries);
+            addScoped(out, "R16", "/reports/cities/district/", "/top/" + n, districts);
+        }
+
+        // R17–R22 – capital cities (both route families)
+        for (String base : new String[] {"/api/capitals", "/reports/capitals"}) {
+            out.add(new Entry("R17", base + "/world"));
+            addScoped(out, "R18", base + "/continent/", "", continents);
+            addScoped(out, "R19", base + "/region/", "", regions);
+            for (int n : topN) {
+                out.add(new Entry("R20", base + "/world/top/" + n));
+                addScoped(out, "R21", base + "/continent/", "/top/" + n, continents);
+                addScoped(out, "R22", base + "/region/", "/top/" + n, regions);
+            }
+        }
+
+        // R23–R32 – population
+        out.add(new Entry("R23", "/reports/population/continents"));
+        out.add(new Entry("R24", "/reports/population/regions"));
+        out.add(new Entry("R25", "/reports/population/countries"));
+        out.add(new Entry("R26", "/reports/population/world"));
+        addScoped(out, "R27", "/reports/population/continents/", "", continents);
+        addScoped(out, "R28", "/reports/population/regions/", "", regions);
+        addScoped(out, "R29", "/reports/population/countries/", "", countries);
+        addScoped(out, "R30", "/reports/population/districts/", "", districts);
+        out.add(new Entry("R32", "/reports/population/languages"));
+
+        return out;
+    }
+
+    /**
+     * The evidence set: one request per report (R01–R32) with the scope,
+     * N and file name used by the scripts under {@code docs/evidence}.
+     *
+     * @return 32 entries, in report order
+     */
+    public static List<Entry> evidence() {
+        return List.of(
+            new Entry("R01", "/api/countries/world", "R01_countries_world.csv"),
+            new Entry("R02", "/api/countries/continent/Asia", "R02_countries_continent_Asia.csv"),
+            new Entry("R03", "/api/countries/region/Western%20Europe", "R03_countries_region_WesternEurope.csv"),
+            new Entry("R04", "/api/countries/world/top?n=10", "R04_countries_world_top10.csv"),
+            new Entry("R05", "/api/countries/continent/Europe/top?n=5", "R05_countries_continent_Europe_top5.csv"),
+            new Entry("R06", "/api/countries/region/Western%20Europe/top?n=3",
+                "R06_countries_region_WesternEurope_top3.csv"),
+            new Entry("R07", "/api/cities/world", "R07_cities_world.csv"),
+            new Entry("R08", "/api/cities/continent/Asia", "R08_cities_continent_Asia.csv"),
+            new Entry("R09", "/api/cities/region/Western%20Europe", "R09_cities_region_WesternEurope.csv"),
+            new Entry("R10", "/api/cities/country/United%20Kingdom", "R10_cities_country_UnitedKingdom.csv"),
+            new Entry("R11", "/api/cities/district/Kabol", "R11_cities_district_Kabol.csv"),
+            new Entry("R12", "/api/cities/world/top?n=10", "R12_cities_world_top10.csv"),
+            new Entry("R13", "/api/cities/continent/Europe/top?n=5", "R13_cities_continent_Europe_top5.csv"),
+            new Entry("R14", "/api/cities/region/Western%20Europe/top?n=5",
+                "R14_cities_region_WesternEurope_top5.csv"),
+            new Entry("R15", "/api/cities/country/United%20Kingdom/top?n=5",
+                "R15_cities_country_UnitedKingdom_top5.csv"),
+            new Entry("R16", "/api/cities/district/Kabol/top?n=3", "R16_cities_district_Kabol_top3.csv"),
+            new Entry("R17", "/api/capitals/world", "R17_capitals_world.csv"),
+            new Entry("R18", "/api/capitals/continent/Europe", "R18_capitals_continent_Europe.csv"),
+            new Entry("R19", "/api/capitals/region/Caribbean", "R19_capitals_region_Caribbean.csv"),
+            new Entry("R20", "/api/capitals/world/top/10", "R20_capitals_world_top10.csv"),
+            new Entry("R21", "/api/capitals/continent/Europe/top/5", "R21_capitals_continent_Europe_top5.csv"),
+            new Entry("R22", "/api/capitals/region/Caribbean/top/3", "R22_capitals_region_Caribbean_top3.csv"),
+            new Entry("R23", "/reports/population/continents", "R23_population_continents.csv"),
+            new Entry("R24", "/reports/population/regions", "R24_population_regions.csv"),
+            new Entry("R25", "/reports/population/countries", "R25_population_countries.csv"),
+            new Entry("R26", "/reports/population/world", "R26_population_world.csv"),
+            new Entry("R27", "/reports/population/continents/Asia", "R27_population_continent_Asia.csv"),
+            new Entry("R28", "/reports/population/regions/Caribbean", "R28_population_region_Caribbean.csv"),
+            new Entry("R29", "/reports/population/countries/Myanmar", "R29_population_country_Myanmar.csv"),
+            new Entry("R30", "/reports/population/districts/Rangoon%20%5BYangon%5D",
+                "R30_population_district_Rangoon.csv"),
+            new Entry("R31", "/reports/population/cities/Rangoon%20%28Yangon%29",
+                "R31_population_city_Rangoon_Yangon.csv"),
+            new Entry("R32", "/reports/population/languages", "R32_language_populations.csv"));
+    }
+
+    private static void addScoped(List<Entry> out, String reportId,
+                                  String prefix, String suffix, List<String> scopes) {
+        for (String scope : scopes) {
+            out.add(new Entry(reportId, prefix + encodeSegment(scope) + suffix));
+        }
+    }
+
+    /**
+     * Percent-encode a single path segment (spaces become {@code %20}).
+     */
+    static String encodeSegment(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+}
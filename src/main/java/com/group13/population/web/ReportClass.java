@@ -0,0 +1,59 @@
+package com.group13.population.web;
+
+import java.util.Locale;
+
+/**
+ * Cost class of a report, used to give each class its own
+ * {@link Bulkheads bulkhead}.
+ *
+ * <ul>
+ *   <li>{@link #EXPORT} – full listings that read a whole table or scope
+ *       (R01–R03, R07–R11, R17–R19, R25).</li>
+ *   <li>{@link #TOP_N} – ranked listings cut off at N
+ *       (R04–R06, R12–R16, R20–R22), and ad-hoc ranking queries
+ *       ({@code Q*}, see {@link QueryRoutes}), which always have a limit.</li>
+ *   <li>{@link #AGGREGATE} – grouped totals over the whole database
+ *       (R23, R24, R32).</li>
+ *   <li>{@link #LOOKUP} – single totals for one name (R26–R31).</li>
+ * </ul>
+ */
+public enum ReportClass {
+    EXPORT,
+    TOP_N,
+    AGGREGATE,
+    LOOKUP;
+
+    /**
+     * @param reportId report id, e.g. {@code "R05"}
+     * @return the report's class; query ids ({@code Q*}) count as
+     *         {@link #TOP_N}, other ids outside R01–R32 as {@link #LOOKUP}
+     */
+    public static ReportClass of(String reportId) {
+        if (reportId.startsWith("Q")) {
+            return TOP_N;
+        }
+        int number;
+        try {
+            number = Integer.parseInt(reportId.substring(1));
+        } catch (RuntimeException ex) {
+            return LOOKUP;
+        }
+        if (number >= 1 && number <= 3 || number >= 7 && number <= 11
+            || number >= 17 && number <= 19 || number == 25) {
+            return EXPORT;
+        }
+        if (number >= 4 && number <= 6 || number >= 12 && number <= 16
+            || number >= 20 && number <= 22) {
+            return TOP_N;
+        }
+        if (number == 23 || number == 24 || number == 32) {
+            return AGGREGATE;
+        }
+        return LOOKUP;
+    }
+
+    /** @return lower-case config name, e.g. {@code "top_n"}. */
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,112 @@
+package com.group13.population.web;
+
+import com.group13.population.columnar.ColumnarWriter;
+import io.javalin.http.Context;
+
+import java.util.Locale;
+
+/**
+ * Output formats a report can be rendered in.
+ *
+ * <p>The format is chosen per request: an explicit {@code ?format=} query
+ * parameter wins, otherwise the first supported media type in the
+ * {@code Accept} header. Anything else – no header, {@code *}{@code /*},
+ * unknown types – falls back to CSV, the historical default.</p>
+ */
+public enum ReportFormat {
+
+    /** Comma-separated values with a header row. */
+    CSV("csv", "text/csv", false),
+
+    /** A JSON array with one object per row, keyed by column name. */
+    JSON("json", "application/json", false),
+
+    /**
+     * Newline-delimited JSON: one object per line, each flushed to the
+     * client as soon as it is written.
+     */
+    NDJSON("ndjson", "application/x-ndjson", true),
+
+    /**
+     * Binary columnar encoding for machine consumers; decoded with
+     * {@link com.group13.population.columnar.ColumnarReader}.
+     */
+    COLUMNAR("columnar", ColumnarWriter.MEDIA_TYPE, false);
+
+    private final String parameter;
+    private final String mediaType;
+    private final boolean streamed;
+
+    ReportFormat(String parameter, String mediaType, boolean streamed) {
+        this.parameter = parameter;
+        this.mediaType = mediaType;
+        this.streamed = streamed;
+    }
+
+    /** @return value of the {@code format} query parameter selecting this format. */
+    public String parameter() {
+        return parameter;
+    }
+
+    /** @return the media type this format is served as. */
+    public String mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @return {@code true} if rows are written to the socket as they are
+     *         produced (the response is neither buffered nor cached)
+     */
+    public boolean isStreamed() {
+        return streamed;
+    }
+
+    /**
+     * Negotiate the format for a request.
+     *
+     * @param ctx Javalin request context
+     * @return the requested format, CSV by default
+     */
+    public static ReportFormat of(Context ctx) {
+        return negotiate(ctx.queryParam("format"), ctx.header("Accept"));
+    }
+
+    /**
+     * Negotiate a format from the raw {@code format} parameter and
+     * {@code Accept} header.
+     *
+     * @param formatParam value of {@code ?format=}, may be {@code null}
+     * @param accept      value of the {@code Accept} header, may be {@code null}
+     * @return the requested format, CSV by default
+     */
+    static ReportFormat negotiate(String formatParam, String accept) {
+        if (formatParam != null && !formatParam.isBlank()) {
+            String wanted = formatParam.trim().toLowerCase(Locale.ROOT);
+            for (ReportFormat format : values()) {
+                if (format.parameter.equals(wanted)) {
+                    return format;
+                }
+            }
+            return CSV;
+        }
+        if (accept == null || accept.isBlank()) {
+            return CSV;
+        }
+        // Media ranges in the order the client listed them; quality values
+        // are not weighed, which is enough for the clients we serve.
+        for (String range : accept.split(",")) {
+            int semicolon = range.indexOf(';');
+            String type = (semicolon >= 0 ? range.substring(0, semicolon) : range)
+                .trim().toLowerCase(Locale.ROOT);
+            for (ReportFormat format : values()) {
+                if (format.mediaType.equals(type)) {
+                    return format;
+                }
+            }
+            if ("*/*".equals(type) || "text/*".equals(type)) {
+                return CSV;
+            }
+        }
+        return CSV;
+    }
+}
@@ -0,0 +1,370 @@
+package com.group13.population.web;
+
+import com.group13.population.db.AdaptiveLimiter;
+import com.group13.population.db.DbOverloadedException;
+import com.group13.population.repo.DataAccessException;
+import io.javalin.http.Context;
+import io.javalin.http.Handler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.function.ToIntFunction;
+
+/**
+ * Shared wrapper applied to every report endpoint (R01–R32).
+ *
+ * <p>Route classes register their handlers through
+ * {@link #wrap(String, Handler)}, so the same layers apply to every report
+ * whichever route class serves it. Each layer is optional – a {@code null}
+ * constructor argument leaves it out – and {@link #direct()} has none; it is
+ * what the single-argument route constructors, and so the unit tests built
+ * around stub services, use. From the outside in:</p>
+ *
+ * <ol>
+ *   <li><b>Rate limit</b> ({@link RateLimiter}): every request, cache hits
+ *       included, pays its report class's cost from the client's token
+ *       bucket, or gets {@code 429} before the server does any work.</li>
+ *   <li><b>Async</b> ({@link AsyncReports}): a request that needs the
+ *       database (not a cache hit, not a 304) leaves the Jetty thread for
+ *       the database executor. At its deadline its work is cancelled and it
+ *       is answered like an outage.</li>
+ *   <li><b>Stale-if-error</b>: when the database is unavailable (a
+ *       {@link DataAccessException} escapes), the last good response for the
+ *       same request is served with {@code Warning: 111} and
+ *       {@code X-Cache: STALE} within the report's {@code stale-if-error}
+ *       window; without one the answer is {@code 503} with
+ *       {@code Retry-After}, never a 200 with an empty report. A query shed by
+ *       the database limiter is overload, not an outage: {@code 503} with a
+ *       short Retry-After and no stale copy. A streamed report that fails
+ *       after its first rows ends with an error line instead
+ *       ({@link ReportWriter#abortStream}).</li>
+ *   <li><b>Headers</b> ({@link CacheHeaders}): {@code 304} for a conditional
+ *       request that is still fresh, and Cache-Control / Last-Modified on
+ *       every successful report – for a streamed report, before its first
+ *       row is written.</li>
+ *   <li><b>Cache</b> ({@link ResponseCache}): a hit is written from the
+ *       cache, gzip- or deflate-encoded if the client accepts it; a miss runs
+ *       the layers below and stores the body. Streamed (NDJSON) responses
+ *       set no result body and pass through uncached.</li>
+ *   <li><b>Bulkhead</b> ({@link Bulkheads}): the handler runs only while
+ *       holding a permit from its {@link ReportClass}'s gate, queued by the
+ *       request's {@link Admission} deadline (counted from arrival) and
+ *       priority. The report class and priority also travel with the
+ *       handler's queries to the shared {@link AdaptiveLimiter}, which keeps
+ *       a latency baseline per class and lets batch work use only part of
+ *       its limit.</li>
+ *   <li>The report handler.</li>
+ * </ol>
+ */
+public final class ReportPipeline {
+
+    /** Response header telling clients whether the body came from the cache. */
+    static final String CACHE_HEADER = "X-Cache";
+
+    /** Report bodies depend on the negotiated format and content coding. */
+    static final String VARY = "Accept, Accept-Encoding";
+
+    /** Seconds clients are asked to wait before retrying after a 503. */
+    static final int RETRY_AFTER_SECONDS = 30;
+
+    private static final ReportPipeline DIRECT = new ReportPipeline(null, null, null, null, null);
+
+    private final ResponseCache cache;
+    private final CacheHeaders headers;
+    private final Bulkheads bulkheads;
+    private final AsyncReports async;
+    private final RateLimiter rateLimiter;
+
+    /**
+     * Creates a pipeline; each layer is left out when its argument is
+     * {@code null}.
+     *
+     * @param cache       rendered-response cache
+     * @param headers     HTTP caching headers
+     * @param bulkheads   per-class concurrency caps
+     * @param async       executor and deadline for database work (otherwise
+     *                    handlers run on the request thread)
+     * @param rateLimiter per-client token buckets
+     */
+    public ReportPipeline(ResponseCache cache, CacheHeaders headers, Bulkheads bulkheads,
+                          AsyncReports async, RateLimiter rateLimiter) {
+        this.cache = cache;
+        this.headers = headers;
+        this.bulkheads = bulkheads;
+        this.async = async;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /** @return a pipeline that calls handlers unchanged. */
+    public static ReportPipeline direct() {
+        return DIRECT;
+    }
+
+    /** @return the response cache, or {@code null} if caching is disabled. */
+    public ResponseCache cache() {
+        return cache;
+    }
+
+    /** @return the per-class concurrency caps, or {@code null} if there are none. */
+    public Bulkheads bulkheads() {
+        return bulkheads;
+    }
+
+    /**
+     * Wrap a report handler.
+     *
+     * @param reportId report identifier, e.g. {@code "R01"}
+     * @param handler  handler that renders the report
+     * @return handler to register with Javalin
+     */
+    public Handler wrap(String reportId, Handler handler) {
+        return wrap(reportId, ctx -> 1, handler);
+    }
+
+    /**
+     * Wrap a handler that answers several reports in one request, such as
+     * a bulk lookup: the rate limiter charges the report's cost once per
+     * unit, the same way {@code /api/batch} charges per item.
+     *
+     * @param reportId report identifier, e.g. {@code "R29"}
+     * @param units    number of reports the request asks for (at least 1 is charged)
+     * @param handler  handler that renders the reports
+     * @return handler to register with Javalin
+     */
+    public Handler wrap(String reportId, ToIntFunction<Context> units, Handler handler) {
+        if (cache == null && headers == null && bulkheads == null && async == null
+            && rateLimiter == null) {
+            return handler;
+        }
+        Handler pipelined = wrapPipeline(reportId, handler);
+        ReportClass reportClass = ReportClass.of(reportId);
+        Handler limited = rateLimiter == null ? pipelined : ctx -> {
+            int cost = rateLimiter.cost(reportClass) * Math.max(1, units.applyAsInt(ctx));
+            if (rateLimiter.admit(ctx, cost)) {
+                pipelined.handle(ctx);
+            }
+        };
+        return ctx -> {
+            // The client's budget starts now, not once a worker picks the request up.
+            ctx.attribute(Admission.ATTRIBUTE, Admission.of(ctx, reportClass));
+            limited.handle(ctx);
+        };
+    }
+
+    /** Everything inside the rate limiter. */
+    private Handler wrapPipeline(String reportId, Handler handler) {
+        DbGate gate = bulkheads == null ? null : bulkheads.forReport(reportId);
+        ReportClass reportClass = ReportClass.of(reportId);
+        Handler gated = ctx -> {
+            Admission admission = Admission.forRequest(ctx, reportClass);
+            boolean batch = admission.priority() == Admission.Priority.BATCH;
+            Handler prioritised = c -> AdaptiveLimiter.runAs(reportClass.configName(), batch,
+                () -> handler.handle(c));
+            if (gate == null) {
+                prioritised.handle(ctx);
+            } else {
+                gate.handle(ctx, admission, prioritised);
+            }
+        };
+        Handler inner = cache == null ? gated : ctx -> handleCached(ctx, gated);
+        Handler outer = headers == null ? inner : ctx -> handleWithHeaders(reportId, ctx, inner);
+        Handler sync = ctx -> handleStaleIfError(reportId, ctx, outer);
+        if (async == null) {
+            return sync;
+        }
+        return ctx -> {
+            if (answerableWithoutDatabase(ctx)) {
+                sync.handle(ctx);
+            } else {
+                async.submit(ctx, () -> handleDeadline(reportId, ctx), sync);
+            }
+        };
+    }
+
+    /**
+     * Write the standard "database unavailable" response: 503 with
+     * Retry-After, not cacheable. Also used by the app-wide exception
+     * handler for routes outside the pipeline.
+     *
+     * @param ctx Javalin request/response context
+     */
+    public static void writeUnavailable(Context ctx) {
+        ctx.status(503);
+        ctx.header("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+        ctx.header("Cache-Control", "no-store");
+        ctx.res().setHeader("Content-Disposition", null);
+        ctx.contentType("text/plain; charset=utf-8");
+        ctx.result("Database unavailable; please retry later.\n");
+    }
+
+    /**
+     * Write the response for a {@link DataAccessException} that escaped a
+     * route outside the pipeline: "busy" if the limiter shed the query,
+     * otherwise "unavailable".
+     *
+     * @param ex  the failure
+     * @param ctx Javalin request/response context
+     */
+    public static void writeFailure(DataAccessException ex, Context ctx) {
+        if (DbOverloadedException.isCause(ex)) {
+            DbGate.writeBusy(ctx);
+        } else {
+            writeUnavailable(ctx);
+        }
+    }
+
+    /**
+     * Serve the last good response when the database is down; otherwise 503.
+     */
+    private void handleStaleIfError(String reportId, Context ctx, Handler next) throws Exception {
+        try {
+            next.handle(ctx);
+        } catch (DataAccessException ex) {
+            if (ctx.res().isCommitted()) {
+                // Rows were already streamed (NDJSON); the status is fixed.
+                ReportWriter.abortStream(ctx, "Database unavailable");
+                return;
+            }
+            if (DbOverloadedException.isCause(ex)) {
+                // Shed by the limiter: the database is up, just saturated.
+                DbGate.writeBusy(ctx);
+                return;
+            }
+            serveStaleOrUnavailable(reportId, ctx);
+        }
+    }
+
+    /**
+     * The async deadline passed: answer as if the database were down. A
+     * stream that has already started is left to the worker that owns it.
+     */
+    private void handleDeadline(String reportId, Context ctx) {
+        if (!ctx.res().isCommitted()) {
+            serveStaleOrUnavailable(reportId, ctx);
+        }
+    }
+
+    /** Last good response within the stale-if-error window, otherwise 503. */
+    private void serveStaleOrUnavailable(String reportId, Context ctx) {
+        ResponseCache.CachedResponse stale =
+            cache == null ? null : cache.getLastGood(ResponseCache.keyFor(ctx));
+        long maxStale = maxStaleSeconds(reportId);
+        if (stale == null || maxStale <= 0 || stale.ageSeconds() > maxStale) {
+            writeUnavailable(ctx);
+            return;
+        }
+        ctx.status(200);
+        ctx.header(CACHE_HEADER, "STALE");
+        ctx.header("Warning", "111 - \"Revalidation Failed\"");
+        ctx.header("Age", String.valueOf(stale.ageSeconds()));
+        // Let proxies keep their own copy but not treat this one as fresh.
+        ctx.header("Cache-Control", "no-cache");
+        cache.write(stale, ctx);
+    }
+
+    /**
+     * Cache hits and 304s are cheap; only the rest goes to the async executor.
+     * Neither check counts as a cache hit or miss – the real lookup follows.
+     */
+    private boolean answerableWithoutDatabase(Context ctx) {
+        if (headers != null
+            && CacheHeaders.notModified(ctx.header("If-Modified-Since"), headers.lastModified())) {
+            return true;
+        }
+        return cache != null && cache.contains(cache.currentVersion(), ResponseCache.keyFor(ctx));
+    }
+
+    /** How old a stale response may be: the report's stale-if-error window (0 = never). */
+    private long maxStaleSeconds(String reportId) {
+        return headers == null ? Long.MAX_VALUE : headers.policyFor(reportId).getStaleIfError();
+    }
+
+    /**
+     * Answer conditional requests with 304 when the client's copy matches
+     * the current data version; otherwise render and add caching headers.
+     */
+    private void handleWithHeaders(String reportId, Context ctx, Handler inner) throws Exception {
+        // Read before rendering so Last-Modified is never newer than the data.
+        Instant lastModified = headers.lastModified();
+
+        if (CacheHeaders.notModified(ctx.header("If-Modified-Since"), lastModified)) {
+            ctx.status(304);
+            headers.apply(reportId, lastModified, ctx);
+            return;
+        }
+
+        if (!ReportFormat.of(ctx).isStreamed()) {
+            inner.handle(ctx);
+            if (ctx.statusCode() == 200) {
+                headers.apply(reportId, lastModified, ctx);
+            }
+            return;
+        }
+
+        // A streamed report commits the response with its first row, so
+        // its headers must be in place before the handler runs. Withdraw
+        // them if it fails before anything was sent.
+        headers.apply(reportId, lastModified, ctx);
+        boolean succeeded = false;
+        try {
+            inner.handle(ctx);
+            succeeded = ctx.statusCode() == 200;
+        } finally {
+            if (!succeeded && !ctx.res().isCommitted()) {
+                ctx.res().setHeader("Cache-Control", null);
+                ctx.res().setHeader("Last-Modified", null);
+            }
+        }
+    }
+
+    /**
+     * Serve from the cache when possible; otherwise render and, if the
+     * handler produced a 200, keep a copy of the bytes for next time.
+     */
+    private void handleCached(Context ctx, Handler handler) throws Exception {
+        String key = ResponseCache.keyFor(ctx);
+        // Capture the version first so a bump during rendering never
+        // stores old data under the new version.
+        long version = cache.currentVersion();
+
+        ResponseCache.CachedResponse hit = cache.get(version, key);
+        if (hit != null) {
+            ctx.header(CACHE_HEADER, "HIT");
+            ctx.header("Vary", VARY);
+            cache.write(hit, ctx);
+            return;
+        }
+
+        handler.handle(ctx);
+        ctx.header(CACHE_HEADER, "MISS");
+
+        if (ctx.statusCode() != 200) {
+            return;
+        }
+
+        byte[] body = readResult(ctx);
+        if (body == null) {
+            return;
+        }
+        ResponseCache.CachedResponse stored = cache.put(version, key,
+            new ResponseCache.CachedResponse(
+                ctx.res().getContentType(),
+                ctx.res().getHeader("Content-Disposition"),
+                ctx.res().getHeader("Link"),
+                body));
+        ctx.header("Vary", VARY);
+        cache.write(stored, ctx);
+    }
+
+    /** Drain the current result stream so it can be cached and re-sent. */
+    private static byte[] readResult(Context ctx) throws IOException {
+        InputStream in = ctx.resultInputStream();
+        if (in == null) {
+            return null;
+        }
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,560 @@
+package com.group13.population.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.group13.population.columnar.ColumnarWriter;
+import com.group13.population.repo.ReportPlan;
+import io.javalin.http.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Format-independent row writer used by the report routes.
+ *
+ * <p>A route declares its columns once and then writes each row value by
+ * value; the writer renders them as CSV ({@link CsvWriter}), as JSON via
+ * Jackson's streaming {@link JsonGenerator}, or in the binary columnar
+ * format ({@link ColumnarWriter}), depending on the negotiated
+ * {@link ReportFormat}. The text formats write rows straight to the
+ * output bytes, and the columnar format keeps one primitive array per
+ * column, so no format builds a tree or a per-row map.</p>
+ *
+ * <p>A writer is also a {@link ReportPlan.RowSink}, so a compiled report
+ * plan can encode its result rows straight into it.</p>
+ *
+ * <p>CSV and JSON render into a per-thread buffer that is reused across
+ * requests. The finished bytes are set as the response result rather than
+ * written to the socket, because the {@link ReportPipeline} needs them for
+ * the response cache, 304s and stale-if-error. NDJSON is the exception: it
+ * is written and flushed row by row as it is produced, for bulk consumers
+ * that want to start before the last row exists, and is never cached.</p>
+ *
+ * <p>Typical use:</p>
+ * <pre>
+ *   ReportWriter out = ReportWriter.forRequest(ctx).columns("Name", "Population");
+ *   for (Row r : rows) {
+ *       out.text(r.getName()).number(r.getPopulation()).endRow();
+ *   }
+ *   out.send(ctx);
+ * </pre>
+ */
+public abstract class ReportWriter implements ReportPlan.RowSink {
+
+    private String[] columns = new String[0];
+    private int column;
+    /** Download name including the format's extension, or {@code null}. */
+    private String downloadName;
+
+    /**
+     * @param ctx Javalin request context
+     * @return a writer for the format the request negotiated
+     */
+    public static ReportWriter forRequest(Context ctx) {
+        ReportFormat format = ReportFormat.of(ctx);
+        if (format.isStreamed()) {
+            return new Json(format, ctx);
+        }
+        return forFormat(format);
+    }
+
+    /**
+     * @param format output format
+     * @return a writer rendering into this thread's reusable buffer (also
+     *         for streamed formats, which is what tests and in-memory
+     *         consumers want)
+     */
+    public static ReportWriter forFormat(ReportFormat format) {
+        Objects.requireNonNull(format, "format");
+        switch (format) {
+            case CSV:
+                return new Csv();
+            case COLUMNAR:
+                return new Columnar();
+            default:
+                return new Json(format);
+        }
+    }
+
+    /**
+     * End a streamed report that failed after rows were sent. The status
+     * can no longer change, so a final {@code {"error": …}} line tells the
+     * consumer the export is incomplete.
+     *
+     * @param ctx     Javalin request/response context (already committed)
+     * @param message error message for the final line
+     */
+    public static void abortStream(Context ctx, String message) {
+        try {
+            OutputStream out = ctx.res().getOutputStream();
+            JsonGenerator gen = Json.FACTORY.createGenerator(out);
+            gen.writeStartObject();
+            gen.writeStringField("error", message);
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+            gen.flush();
+        } catch (IOException ex) {
+            // The client is gone; nothing more to tell it.
+            System.err.println("WARNING: could not end streamed report: " + ex.getMessage());
+        }
+    }
+
+    /** @return a CSV writer (the default format). */
+    public static ReportWriter csv() {
+        return forFormat(ReportFormat.CSV);
+    }
+
+    /** @return the format this writer produces. */
+    public abstract ReportFormat format();
+
+    /**
+     * Offer the report as a download named after the negotiated format,
+     * e.g. {@code query.csv} or {@code query.json}, instead of keeping a
+     * CSV download name for CSV only.
+     *
+     * @param baseName file name without extension
+     * @return this writer
+     */
+    public ReportWriter attachment(String baseName) {
+        this.downloadName = Objects.requireNonNull(baseName, "baseName") + "." + format().parameter();
+        return this;
+    }
+
+    /**
+     * Declare the report's columns; call once, before the first row.
+     *
+     * @param names column names, in the order values are written
+     * @return this writer
+     */
+    public ReportWriter columns(String... names) {
+        this.columns = names.clone();
+        startDocument(this.columns);
+        return this;
+    }
+
+    /**
+     * Write the next value of the current row as text.
+     *
+     * @param value value, may be {@code null}
+     * @return this writer
+     */
+    public ReportWriter text(String value) {
+        writeText(nextColumn(), value);
+        return this;
+    }
+
+    /**
+     * Write the next value of the current row as an integer.
+     *
+     * @param value value
+     * @return this writer
+     */
+    public ReportWriter number(long value) {
+        writeNumber(nextColumn(), value);
+        return this;
+    }
+
+    /**
+     * Write the next value of the current row as a two-decimal percentage.
+     *
+     * @param value value
+     * @return this writer
+     */
+    public ReportWriter percent(double value) {
+        writePercent(nextColumn(), value);
+        return this;
+    }
+
+    /**
+     * Finish the current row.
+     *
+     * @return this writer
+     */
+    public ReportWriter endRow() {
+        if (column > 0) {
+            finishRow();
+        }
+        column = 0;
+        return this;
+    }
+
+    /**
+     * Finish the document and set it as the response body, with the
+     * format's content type. For JSON, a download name set for CSV
+     * ({@code Content-Disposition}) is dropped, unless the writer has its
+     * own {@link #attachment} name.
+     *
+     * @param ctx Javalin request/response context
+     */
+    public void send(Context ctx) {
+        byte[] body = toByteArray();
+        if (format() != ReportFormat.CSV) {
+            ctx.contentType(format().mediaType());
+        }
+        if (format() != ReportFormat.CSV || downloadName != null) {
+            setDisposition(ctx);
+        }
+        ctx.result(body);
+    }
+
+    /** Set the {@link #attachment} download name, or drop any CSV one. */
+    final void setDisposition(Context ctx) {
+        ctx.res().setHeader("Content-Disposition",
+            downloadName == null ? null : "attachment; filename=\"" + downloadName + "\"");
+    }
+
+    /** @return the finished document. */
+    public abstract byte[] toByteArray();
+
+    /** @return the finished document as text. */
+    @Override
+    public String toString() {
+        return new String(toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    // ---------------------------------------------------------------------
+    // Format hooks
+    // ---------------------------------------------------------------------
+
+    /** Column name for the next value; advances the column index. */
+    private String nextColumn() {
+        int index = column++;
+        return index < columns.length ? columns[index] : "column" + (index + 1);
+    }
+
+    /** @return index of the column the value being written belongs to. */
+    int valueIndex() {
+        return column - 1;
+    }
+
+    /** @return {@code true} if the next value is the first of its row. */
+    boolean atRowStart() {
+        return column == 1;
+    }
+
+    abstract void startDocument(String[] names);
+
+    abstract void writeText(String name, String value);
+
+    abstract void writeNumber(String name, long value);
+
+    abstract void writePercent(String name, double value);
+
+    abstract void finishRow();
+
+    // ---------------------------------------------------------------------
+    // CSV
+    // ---------------------------------------------------------------------
+
+    /** CSV rendering on top of the per-thread {@link CsvWriter}. */
+    private static final class Csv extends ReportWriter {
+
+        private final CsvWriter csv = CsvWriter.forThread();
+
+        @Override
+        public ReportFormat format() {
+            return ReportFormat.CSV;
+        }
+
+        @Override
+        void startDocument(String[] names) {
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    csv.comma();
+                }
+                csv.raw(names[i]);
+            }
+            csv.newline();
+        }
+
+        @Override
+        void writeText(String name, String value) {
+            separator().field(value);
+        }
+
+        @Override
+        void writeNumber(String name, long value) {
+            separator().field(value);
+        }
+
+        @Override
+        void writePercent(String name, double value) {
+            separator().fixed2(value);
+        }
+
+        @Override
+        void finishRow() {
+            csv.newline();
+        }
+
+        private CsvWriter separator() {
+            return atRowStart() ? csv : csv.comma();
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return csv.toByteArray();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // JSON / NDJSON
+    // ---------------------------------------------------------------------
+
+    /**
+     * JSON rendering with a streaming {@link JsonGenerator}: either an
+     * array, {@code [{"Name":"…","Population":123}, …]}, or NDJSON, one
+     * object per line.
+     *
+     * <p>A streamed NDJSON writer writes to the servlet output stream and
+     * flushes after every row, so a consumer can start on the first rows
+     * while the rest are still being read; a blocking write to a slow
+     * client holds the producer back (back-pressure). Otherwise the
+     * document goes to the per-thread buffer.</p>
+     */
+    private static final class Json extends ReportWriter {
+
+        /** Thread-safe once configured; creating generators from it is cheap. */
+        private static final JsonFactory FACTORY = new JsonFactory();
+
+        private static final ThreadLocal<Buffer> BUFFER = ThreadLocal.withInitial(Buffer::new);
+
+        private final ReportFormat format;
+        private final boolean lines;
+        /** Response streamed to, or {@code null} when rendering into {@link #buffer}. */
+        private final Context ctx;
+        private Buffer buffer;
+        private JsonGenerator gen;
+        private boolean finished;
+
+        /** Writer rendering into this thread's buffer. */
+        Json(ReportFormat format) {
+            this(format, null);
+        }
+
+        /** Writer streaming NDJSON to the response of {@code ctx}. */
+        Json(ReportFormat format, Context ctx) {
+            this.format = format;
+            this.lines = format == ReportFormat.NDJSON;
+            this.ctx = ctx;
+        }
+
+        @Override
+        public ReportFormat format() {
+            return format;
+        }
+
+        @Override
+        void startDocument(String[] names) {
+            try {
+                startArray();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        void writeText(String name, String value) {
+            try {
+                field(name);
+                gen.writeString(value);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        void writeNumber(String name, long value) {
+            try {
+                field(name);
+                gen.writeNumber(value);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        void writePercent(String name, double value) {
+            try {
+                field(name);
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    gen.writeNull();
+                } else {
+                    gen.writeNumber(Math.round(value * 100.0) / 100.0);
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        void finishRow() {
+            try {
+                gen.writeEndObject();
+                if (lines) {
+                    gen.writeRaw('\n');
+                }
+                if (ctx != null) {
+                    gen.flush();
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        /** Open the document: the array for JSON; nothing to write for NDJSON. */
+        private void startArray() throws IOException {
+            JsonGenerator g = generator();
+            if (!lines) {
+                g.writeStartArray();
+            }
+        }
+
+        private void field(String name) throws IOException {
+            if (atRowStart()) {
+                generator().writeStartObject();
+            }
+            gen.writeFieldName(name);
+        }
+
+        /**
+         * Create the generator on first use. When streaming, this is where
+         * the response headers are fixed, so routes may still set their
+         * CSV headers before writing.
+         */
+        private JsonGenerator generator() throws IOException {
+            if (gen != null) {
+                return gen;
+            }
+            OutputStream target;
+            if (ctx != null) {
+                ctx.contentType(format.mediaType());
+                setDisposition(ctx);
+                // The raw servlet stream: Javalin's compressing stream would
+                // hold rows back until its buffer fills.
+                target = ctx.res().getOutputStream();
+            } else {
+                buffer = BUFFER.get().recycle();
+                target = buffer;
+            }
+            gen = FACTORY.createGenerator(target);
+            // Lines are terminated explicitly, not separated by a space.
+            gen.setRootValueSeparator(null);
+            return gen;
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            try {
+                if (gen == null) {
+                    startArray();
+                }
+                if (!lines) {
+                    gen.writeEndArray();
+                }
+                if (ctx != null) {
+                    // Leave the servlet stream open; the container completes it.
+                    gen.flush();
+                } else {
+                    gen.close();
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public void send(Context target) {
+            if (ctx == null) {
+                super.send(target);
+            } else {
+                finish();
+            }
+        }
+
+        /**
+         * @throws UnsupportedOperationException for a streamed writer, whose
+         *         rows have already been sent
+         */
+        @Override
+        public byte[] toByteArray() {
+            if (ctx != null) {
+                throw new UnsupportedOperationException("Streamed report has no buffered body");
+            }
+            finish();
+            return buffer.toByteArray();
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Binary columnar
+    // ---------------------------------------------------------------------
+
+    /** Binary columnar rendering via {@link ColumnarWriter}. */
+    private static final class Columnar extends ReportWriter {
+
+        private ColumnarWriter columnar = new ColumnarWriter();
+
+        @Override
+        public ReportFormat format() {
+            return ReportFormat.COLUMNAR;
+        }
+
+        @Override
+        void startDocument(String[] names) {
+            columnar = new ColumnarWriter(names);
+        }
+
+        @Override
+        void writeText(String name, String value) {
+            columnar.text(valueIndex(), value);
+        }
+
+        @Override
+        void writeNumber(String name, long value) {
+            columnar.number(valueIndex(), value);
+        }
+
+        @Override
+        void writePercent(String name, double value) {
+            columnar.fixed2(valueIndex(), value);
+        }
+
+        @Override
+        void finishRow() {
+            columnar.endRow();
+        }
+
+        @Override
+        public byte[] toByteArray() {
+            return columnar.toByteArray();
+        }
+    }
+
+    /** Reusable byte sink; keeps its array between requests unless it grew large. */
+    private static final class Buffer extends ByteArrayOutputStream {
+
+        private static final int INITIAL_CAPACITY = 8 * 1024;
+        private static final int MAX_RETAINED_CAPACITY = 1024 * 1024;
+
+        Buffer() {
+            super(INITIAL_CAPACITY);
+        }
+
+        /** Empty the buffer for a new document. */
+        Buffer recycle() {
+            if (buf.length > MAX_RETAINED_CAPACITY) {
+                buf = new byte[INITIAL_CAPACITY];
+            }
+            count = 0;
+            return this;
+        }
+    }
+}
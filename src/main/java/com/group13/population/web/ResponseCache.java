@@ -0,0 +1,584 @@
+package com.group13.population.web;
+
+import com.group13.population.cache.DataVersion;
+import com.group13.population.cache.VersionedCache;
+import io.javalin.http.Context;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory cache of rendered report responses.
+ *
+ * <p>Entries are keyed by the data version plus the decoded request path
+ * and query string (for example {@code /api/countries/world/top?n=10}) and
+ * hold the exact bytes written to the client, so a hit skips both the
+ * database and the CSV rendering. The cache is bounded and evicts the
+ * least recently used entry once {@code maxEntries} is reached; bumping the
+ * {@link DataVersion} makes every existing entry unreachable at once.</p>
+ *
+ * <p>Large bodies (the full-world exports R01, R07, R17, R25, …) can be
+ * kept in a second, off-heap tier: the bytes are copied into a direct
+ * {@link ByteBuffer}, so the Java heap only holds a small header object and
+ * old-gen occupancy and GC pauses do not grow with the cache. The off-heap
+ * tier has its own byte budget and LRU eviction, and hits are streamed to
+ * the client straight from the direct buffer without a heap copy of the
+ * body.</p>
+ *
+ * <p>Independently of the data version, the cache also remembers the last
+ * good response for every key. When the database is down,
+ * {@link ReportPipeline} serves that response (marked stale) instead of
+ * an error. Only the data version it was stored under is remembered; the
+ * response itself is read back from whichever tier still holds it, so a
+ * last good response lives exactly as long as its tier entry and never
+ * adds to the tiers' budgets.</p>
+ *
+ * <p>Responses are sent through {@link #write(CachedResponse, Context)},
+ * which applies gzip or deflate when the client accepts it. The compressed
+ * body is cached as an entry of its own, in the same tier and under the
+ * same data version as the plain body, so a report is compressed once per
+ * data version rather than on every request, and the compressed copies
+ * count against the tier's budget (entries, and bytes off-heap) and are
+ * evicted like any other entry.</p>
+ *
+ * <p>The cache is filled either by normal traffic (read-through via
+ * {@link ReportPipeline}) or up front by {@link CacheWarmer}.</p>
+ */
+public final class ResponseCache {
+
+    /** Default maximum number of cached responses. */
+    public static final int DEFAULT_MAX_ENTRIES = 20_000;
+
+    /** Default body size from which responses go to the off-heap tier. */
+    public static final int DEFAULT_OFF_HEAP_THRESHOLD = 64 * 1024;
+
+    /** Bodies smaller than this are always sent uncompressed. */
+    public static final int MIN_COMPRESS_BYTES = 1024;
+
+    /** Separates a key from the content coding of its compressed entry. */
+    private static final char VARIANT_SEPARATOR = '\u0000';
+
+    private final int maxEntries;
+    private final VersionedCache<String, CachedResponse> entries;
+
+    /** Off-heap tier; {@code null} when disabled. */
+    private final VersionedCache<String, CachedResponse> offHeap;
+    private final int offHeapThreshold;
+
+    /** Data version of the last good response per key (LRU-bounded). */
+    private final Map<String, Long> lastGood;
+
+    /** Compressed variants produced (once per response, coding and data version). */
+    private final LongAdder compressions = new LongAdder();
+    /** Body bytes written to clients, before and after content coding. */
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+
+    /**
+     * Creates a cache with its own data version (used by tests).
+     *
+     * @param maxEntries upper bound on cached responses (must be positive)
+     */
+    public ResponseCache(int maxEntries) {
+        this(maxEntries, new DataVersion());
+    }
+
+    /**
+     * Creates a heap-only cache holding at most {@code maxEntries} responses,
+     * keyed on the shared data version.
+     *
+     * @param maxEntries upper bound on cached responses (must be positive)
+     * @param version    shared data version
+     */
+    public ResponseCache(int maxEntries, DataVersion version) {
+        this(maxEntries, version, 0L, DEFAULT_OFF_HEAP_THRESHOLD);
+    }
+
+    /**
+     * Creates a two-tier cache: bodies of at least {@code offHeapThreshold}
+     * bytes are stored off-heap within a budget of {@code offHeapBytes}.
+     *
+     * @param maxEntries       upper bound on cached responses per tier (must be positive)
+     * @param version          shared data version
+     * @param offHeapBytes     byte budget of the off-heap tier, or {@code 0} to disable it
+     * @param offHeapThreshold minimum body size (bytes) stored off-heap
+     */
+    public ResponseCache(int maxEntries, DataVersion version,
+                         long offHeapBytes, int offHeapThreshold) {
+        this.entries = new VersionedCache<>(version, maxEntries);
+        this.maxEntries = maxEntries;
+        this.offHeap = offHeapBytes > 0
+            ? new VersionedCache<>(version, maxEntries, 0L, CachedResponse::length, offHeapBytes)
+            : null;
+        this.offHeapThreshold = Math.max(0, offHeapThreshold);
+        this.lastGood = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /** @return the data version currently in force. */
+    public long currentVersion() {
+        return entries.dataVersion().current();
+    }
+
+    /** @return the shared data version. */
+    public DataVersion dataVersion() {
+        return entries.dataVersion();
+    }
+
+    /**
+     * Look up a cached response for the current data version.
+     *
+     * @param key cache key from {@link #keyFor(Context)}
+     * @return the cached response, or {@code null} on a miss
+     */
+    public CachedResponse get(String key) {
+        return get(currentVersion(), key);
+    }
+
+    /**
+     * Look up a cached response for a data version captured by the caller.
+     *
+     * @param version data version
+     * @param key     cache key from {@link #keyFor(Context)}
+     * @return the cached response, or {@code null} on a miss
+     */
+    public CachedResponse get(long version, String key) {
+        if (offHeap != null) {
+            CachedResponse big = offHeap.get(version, key);
+            if (big != null) {
+                return big;
+            }
+        }
+        return entries.get(version, key);
+    }
+
+    /**
+     * Check for a cached response without counting a hit or a miss.
+     *
+     * @param version data version
+     * @param key     cache key from {@link #keyFor(Context)}
+     * @return {@code true} if {@link #get(long, String)} would find one
+     */
+    public boolean contains(long version, String key) {
+        return offHeap != null && offHeap.contains(version, key) || entries.contains(version, key);
+    }
+
+    /**
+     * Store a rendered response for the current data version.
+     *
+     * @param key      cache key from {@link #keyFor(Context)}
+     * @param response rendered response
+     * @return the instance actually stored (an off-heap copy for large bodies)
+     */
+    public CachedResponse put(String key, CachedResponse response) {
+        return put(currentVersion(), key, response);
+    }
+
+    /**
+     * Store a rendered response under the data version that was current
+     * when rendering started.
+     *
+     * @param version  data version captured before rendering
+     * @param key      cache key from {@link #keyFor(Context)}
+     * @param response rendered response
+     * @return the instance actually stored (an off-heap copy for large bodies)
+     */
+    public CachedResponse put(long version, String key, CachedResponse response) {
+        CachedResponse stored = null;
+        if (offHeap != null && response.length() >= offHeapThreshold) {
+            CachedResponse direct = response.storedAs(version, key, true);
+            if (offHeap.put(version, key, direct)) {
+                stored = direct;
+            }
+        }
+        if (stored == null) {
+            stored = response.storedAs(version, key, false);
+            entries.put(version, key, stored);
+        }
+        synchronized (lastGood) {
+            lastGood.put(key, version);
+        }
+        return stored;
+    }
+
+    /**
+     * Last good response for a key, from any data version. Used to keep
+     * serving a report while the database is unavailable.
+     *
+     * @param key cache key from {@link #keyFor(Context)}
+     * @return the most recently stored response, or {@code null} if it has
+     *         since been evicted from its tier
+     */
+    public CachedResponse getLastGood(String key) {
+        Long version;
+        synchronized (lastGood) {
+            version = lastGood.get(key);
+        }
+        if (version == null) {
+            return null;
+        }
+        CachedResponse response = offHeap == null ? null : offHeap.peek(version, key);
+        if (response == null) {
+            response = entries.peek(version, key);
+        }
+        if (response == null) {
+            synchronized (lastGood) {
+                lastGood.remove(key, version);
+            }
+        }
+        return response;
+    }
+
+    /**
+     * Send a cached response, gzip- or deflate-encoded if the client accepts
+     * it. The encoded body is produced on first use and cached next to the
+     * response, so each response is compressed at most once per coding for
+     * as long as that entry stays cached.
+     *
+     * @param response cached response
+     * @param ctx      Javalin request/response context
+     */
+    public void write(CachedResponse response, Context ctx) {
+        ContentEncoding encoding = response.length() >= MIN_COMPRESS_BYTES
+            ? ContentEncoding.negotiate(ctx.header("Accept-Encoding"))
+            : ContentEncoding.IDENTITY;
+        rawBytes.add(response.length());
+        if (encoding == ContentEncoding.IDENTITY) {
+            wireBytes.add(response.length());
+            response.writeTo(ctx);
+            return;
+        }
+        CachedResponse encoded = encoded(response, encoding);
+        wireBytes.add(encoded.length());
+        encoded.writeTo(ctx);
+        ctx.header("Content-Encoding", encoding.token());
+    }
+
+    /**
+     * The response in a content coding. For a stored response the encoded
+     * copy is an entry of the same tier under the same data version: it is
+     * held off-heap when the body is, and weighs against the tier's budget.
+     */
+    private CachedResponse encoded(CachedResponse response, ContentEncoding encoding) {
+        if (response.key == null) {
+            compressions.increment();
+            return response.encode(encoding);
+        }
+        VersionedCache<String, CachedResponse> tier = response.isOffHeap() ? offHeap : entries;
+        String variantKey = response.key + VARIANT_SEPARATOR + encoding.token();
+        CachedResponse cached = tier.peek(response.version, variantKey);
+        if (cached != null) {
+            return cached;
+        }
+        synchronized (response) {
+            cached = tier.peek(response.version, variantKey);
+            if (cached == null) {
+                cached = response.encode(encoding).storedAs(response.version, variantKey, response.isOffHeap());
+                tier.put(response.version, variantKey, cached);
+                compressions.increment();
+            }
+            return cached;
+        }
+    }
+
+    /** Remove every cached response. */
+    public void clear() {
+        entries.clear();
+        if (offHeap != null) {
+            offHeap.clear();
+        }
+        synchronized (lastGood) {
+            lastGood.clear();
+        }
+    }
+
+    /**
+     * @return number of entries in both tiers (including older versions and
+     *         compressed copies)
+     */
+    public int size() {
+        return entries.size() + offHeapSize();
+    }
+
+    /** @return number of responses held off-heap. */
+    public int offHeapSize() {
+        return offHeap == null ? 0 : offHeap.size();
+    }
+
+    /** @return bytes of response bodies held off-heap. */
+    public long offHeapBytes() {
+        return offHeap == null ? 0L : offHeap.weight();
+    }
+
+    /** @return byte budget of the off-heap tier, or {@code 0} if disabled. */
+    public long offHeapBudget() {
+        return offHeap == null ? 0L : offHeap.maxWeight();
+    }
+
+    /** @return configured maximum number of cached responses. */
+    public int maxEntries() {
+        return maxEntries;
+    }
+
+    /** @return number of lookups that found a cached response (either tier). */
+    public long hits() {
+        return entries.hits() + (offHeap == null ? 0L : offHeap.hits());
+    }
+
+    /** @return number of lookups that found no cached response in either tier. */
+    public long misses() {
+        return entries.misses();
+    }
+
+    /** @return number of compressed variants produced so far. */
+    public long compressions() {
+        return compressions.sum();
+    }
+
+    /** @return body bytes served through {@link #write}, before content coding. */
+    public long rawBytes() {
+        return rawBytes.sum();
+    }
+
+    /** @return body bytes served through {@link #write}, as sent on the wire. */
+    public long wireBytes() {
+        return wireBytes.sum();
+    }
+
+    /**
+     * Build the cache key for a request: decoded path plus raw query string.
+     *
+     * <p>The path is decoded so that {@code /region/Western%20Europe} and
+     * the same path sent by a client that encodes differently share one
+     * entry.</p>
+     *
+     * <p>A report negotiated to a non-CSV format through the Accept header
+     * has the same path and query as its CSV twin, so the format is added
+     * to the key.</p>
+     */
+    static String keyFor(Context ctx) {
+        String key = key(ctx.path(), ctx.queryString());
+        ReportFormat format = ReportFormat.of(ctx);
+        return format == ReportFormat.CSV ? key : key + "#" + format.parameter();
+    }
+
+    /**
+     * Build a cache key from a raw (possibly percent-encoded) path and query.
+     */
+    static String key(String rawPath, String queryString) {
+        String path;
+        try {
+            // '+' is a literal in paths, so protect it from URLDecoder
+            path = URLDecoder.decode(rawPath.replace("+", "%2B"), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            path = rawPath;
+        }
+        if (queryString == null || queryString.isEmpty()) {
+            return path;
+        }
+        return path + "?" + queryString;
+    }
+
+    /**
+     * Immutable snapshot of a rendered response. The body lives either in a
+     * heap array or, for the off-heap tier, in a direct {@link ByteBuffer}.
+     */
+    public static final class CachedResponse {
+
+        private final String contentType;
+        private final String contentDisposition;
+        private final String link;
+        private final byte[] heapBody;
+        private final ByteBuffer directBody;
+        private final long createdAtMillis;
+
+        /** Key and data version this copy is stored under; key {@code null} if not stored. */
+        private final String key;
+        private final long version;
+
+        /**
+         * @param contentType        response content type (may be {@code null})
+         * @param contentDisposition Content-Disposition header (may be {@code null})
+         * @param body               response body bytes
+         */
+        public CachedResponse(String contentType, String contentDisposition, byte[] body) {
+            this(contentType, contentDisposition, null, body);
+        }
+
+        /**
+         * @param contentType        response content type (may be {@code null})
+         * @param contentDisposition Content-Disposition header (may be {@code null})
+         * @param link               Link header, e.g. a next-page link (may be {@code null})
+         * @param body               response body bytes
+         */
+        public CachedResponse(String contentType, String contentDisposition, String link, byte[] body) {
+            this.contentType = contentType;
+            this.contentDisposition = contentDisposition;
+            this.link = link;
+            this.heapBody = body.clone();
+            this.directBody = null;
+            this.createdAtMillis = System.currentTimeMillis();
+            this.key = null;
+            this.version = 0L;
+        }
+
+        private CachedResponse(CachedResponse headers, byte[] heapBody, ByteBuffer directBody,
+                               String key, long version) {
+            this.contentType = headers.contentType;
+            this.contentDisposition = headers.contentDisposition;
+            this.link = headers.link;
+            this.heapBody = heapBody;
+            this.directBody = directBody;
+            this.createdAtMillis = headers.createdAtMillis;
+            this.key = key;
+            this.version = version;
+        }
+
+        /** @return response content type, or {@code null}. */
+        public String getContentType() {
+            return contentType;
+        }
+
+        /** @return Content-Disposition header, or {@code null}. */
+        public String getContentDisposition() {
+            return contentDisposition;
+        }
+
+        /** @return Link header, or {@code null}. */
+        public String getLink() {
+            return link;
+        }
+
+        /** @return size of the cached body in bytes. */
+        public int length() {
+            return heapBody != null ? heapBody.length : directBody.capacity();
+        }
+
+        /** @return age of this response in whole seconds. */
+        public long ageSeconds() {
+            return Math.max(0L, (System.currentTimeMillis() - createdAtMillis) / 1000L);
+        }
+
+        /** @return {@code true} if the body is held in a direct buffer. */
+        public boolean isOffHeap() {
+            return directBody != null;
+        }
+
+        /**
+         * @param storeVersion data version the copy is stored under
+         * @param storeKey     key the copy is stored under
+         * @param direct       {@code true} to hold the body in a direct buffer
+         * @return a copy of this response labelled with where it is stored
+         */
+        CachedResponse storedAs(long storeVersion, String storeKey, boolean direct) {
+            if (!direct) {
+                return new CachedResponse(this, heapBody != null ? heapBody : readDirect(), null,
+                    storeKey, storeVersion);
+            }
+            if (directBody != null) {
+                return new CachedResponse(this, null, directBody, storeKey, storeVersion);
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(heapBody.length);
+            buffer.put(heapBody).flip();
+            return new CachedResponse(this, null, buffer.asReadOnlyBuffer(), storeKey, storeVersion);
+        }
+
+        /**
+         * @param encoding gzip or deflate
+         * @return an unstored copy of this response with the body in that coding
+         */
+        CachedResponse encode(ContentEncoding encoding) {
+            byte[] raw = heapBody != null ? heapBody : readDirect();
+            return new CachedResponse(this, encoding.encode(raw), null, null, 0L);
+        }
+
+        private byte[] readDirect() {
+            ByteBuffer copy = directBody.duplicate();
+            byte[] raw = new byte[copy.remaining()];
+            copy.get(raw);
+            return raw;
+        }
+
+        /** @return a fresh stream over the body, positioned at the start. */
+        InputStream openStream() {
+            if (heapBody != null) {
+                return new ByteArrayInputStream(heapBody);
+            }
+            return new ByteBufferInputStream(directBody.duplicate());
+        }
+
+        /** Set this response's Content-Type, Content-Disposition and Link. */
+        void writeHeaders(Context ctx) {
+            if (contentType != null) {
+                ctx.contentType(contentType);
+            }
+            if (contentDisposition != null) {
+                ctx.header("Content-Disposition", contentDisposition);
+            }
+            if (link != null) {
+                ctx.header("Link", link);
+            }
+        }
+
+        /**
+         * Write this response to the given context. Off-heap bodies are
+         * streamed from the direct buffer in small chunks.
+         *
+         * @param ctx Javalin request/response context
+         */
+        void writeTo(Context ctx) {
+            writeHeaders(ctx);
+            if (heapBody != null) {
+                ctx.result(heapBody);
+            } else {
+                ctx.result(openStream());
+            }
+        }
+    }
+
+    /**
+     * Read-only stream over a (direct) byte buffer. Each reader gets its own
+     * duplicate, so concurrent hits – and eviction mid-write – are safe.
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] dst, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(dst, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
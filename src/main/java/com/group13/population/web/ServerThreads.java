@@ -0,0 +1,63 @@
+package com.group13.population.web;
+
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.Locale;
+import java.util.concurrent.Executors;
+
+/**
+ * Builds the Jetty thread pool that runs the HTTP handlers.
+ *
+ * <ul>
+ *   <li>{@link Mode#PLATFORM} – a bounded pool of platform threads; the
+ *       pool size caps how many requests block on JDBC at once.</li>
+ *   <li>{@link Mode#VIRTUAL} – Jetty's selectors stay on the platform pool
+ *       but every request is handled on its own virtual thread, so blocking
+ *       on JDBC costs no platform thread. Database concurrency is then
+ *       bounded by {@link DbGate} rather than by the pool.</li>
+ * </ul>
+ */
+public final class ServerThreads {
+
+    /** Default size of the platform pool (Jetty's own default). */
+    public static final int DEFAULT_MAX_THREADS = 200;
+
+    /** How HTTP handlers are run. */
+    public enum Mode {
+        PLATFORM,
+        VIRTUAL;
+
+        /**
+         * Parse a config value ({@code platform} / {@code virtual}).
+         *
+         * @param value config value; anything unrecognised gives {@link #PLATFORM}
+         * @return the mode
+         */
+        public static Mode parse(String value) {
+            return value != null && "virtual".equals(value.trim().toLowerCase(Locale.ROOT))
+                ? VIRTUAL : PLATFORM;
+        }
+    }
+
+    private ServerThreads() {
+        // Utility class – do not instantiate.
+    }
+
+    /**
+     * @param mode       execution mode
+     * @param maxThreads platform pool size (selectors, acceptors and, in
+     *                   {@link Mode#PLATFORM}, the handlers themselves)
+     * @return a thread pool for {@code new Server(pool)}
+     */
+    public static ThreadPool threadPool(Mode mode, int maxThreads) {
+        int max = Math.max(8, maxThreads);
+        QueuedThreadPool pool = new QueuedThreadPool(max, Math.min(8, max), 60_000);
+        pool.setName("http");
+        if (mode == Mode.VIRTUAL) {
+            pool.setVirtualThreadsExecutor(Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("http-virtual-", 0).factory()));
+        }
+        return pool;
+    }
+}
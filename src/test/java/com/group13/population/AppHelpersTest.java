@@ -1,11 +1,17 @@
 package com.group13.population;
 
+import com.group13.population.cache.DataVersion;
 import com.group13.population.db.Db;
+import com.group13.population.web.Bulkheads;
+import com.group13.population.web.CacheHeaders;
+import com.group13.population.web.DbGate;
+import com.group13.population.web.ReportClass;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
+import java.time.Duration;
 import java.util.Map;
 import java.util.Properties;
 
@@ -109,6 +115,63 @@ class AppHelpersTest {
             "Current implementation requires non-null Properties and should throw NPE");
     }
 
+    // ---------------------------------------------------------------------
+    // getBoolProp / getIntListProp
+    // ---------------------------------------------------------------------
+
+    @Test
+    @DisplayName("getBoolProp parses true/false and falls back to default when missing")
+    void getBoolPropParsesOrDefaults() {
+        Properties props = new Properties();
+        props.setProperty("warmup.enabled", " false ");
+
+        assertFalse(App.getBoolProp(props, "warmup.enabled", true));
+        assertTrue(App.getBoolProp(props, "missing.key", true));
+    }
+
+    @Test
+    @DisplayName("getIntListProp parses a comma list and skips invalid items")
+    void getIntListPropParsesList() {
+        Properties props = new Properties();
+        props.setProperty("warmup.topN", "3, five, 10, 0");
+
+        assertArrayEquals(new int[] {3, 10},
+            App.getIntListProp(props, "warmup.topN", new int[] {1}));
+    }
+
+    @Test
+    @DisplayName("getIntListProp returns default when missing or nothing valid")
+    void getIntListPropReturnsDefault() {
+        Properties props = new Properties();
+        props.setProperty("bad.list", "x,y");
+
+        assertArrayEquals(new int[] {5},
+            App.getIntListProp(props, "missing.key", new int[] {5}));
+        assertArrayEquals(new int[] {5},
+            App.getIntListProp(props, "bad.list", new int[] {5}));
+    }
+
+    // ---------------------------------------------------------------------
+    // cacheHeaders(Properties, DataVersion)
+    // ---------------------------------------------------------------------
+
+    @Test
+    @DisplayName("cacheHeaders reads default and per-report HTTP cache policies")
+    void cacheHeadersReadsPolicies() {
+        Properties props = new Properties();
+        props.setProperty("http.cache.maxAge", "120");
+        props.setProperty("http.cache.staleIfError", "0");
+        props.setProperty("http.cache.R26.maxAge", "3600");
+
+        CacheHeaders headers = App.cacheHeaders(props, new DataVersion());
+
+        assertEquals("public, max-age=120, stale-while-revalidate=60",
+            headers.policyFor("R01").headerValue());
+        assertEquals("public, max-age=3600, stale-while-revalidate=60",
+            headers.policyFor("R26").headerValue(),
+            "Overrides inherit the remaining values from the defaults");
+    }
+
     // ---------------------------------------------------------------------
     // loadProps()
     // ---------------------------------------------------------------------
@@ -192,4 +255,14 @@ class AppHelpersTest {
             return true;
         }
     }
+
+    @Test
+    @DisplayName("warmupThreads is capped at the export bulkhead's concurrency")
+    void warmupThreadsFollowExportBulkhead() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        assertEquals(cores, App.warmupThreads(null));
+        assertEquals(1, App.warmupThreads(new Bulkheads(
+            Map.of(ReportClass.EXPORT, new DbGate(1, 8, Duration.ofSeconds(1))))));
+        assertEquals(cores, App.warmupThreads(new Bulkheads(Map.of())));
+    }
 }
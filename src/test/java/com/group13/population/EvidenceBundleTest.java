@@ -0,0 +1,120 @@
+package com.group13.population;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.Javalin;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link EvidenceBundle}: CSV row counting, archive names, and
+ * rendering plus archive/manifest writing against a small local server
+ * (no database).
+ */
+class EvidenceBundleTest {
+
+    @Test
+    @DisplayName("countRows skips the header and ignores quoted line breaks")
+    void countRowsSkipsHeaderAndQuotedBreaks() {
+        assertEquals(0, EvidenceBundle.countRows(new byte[0]));
+        assertEquals(0, EvidenceBundle.countRows("Name,Population\r\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(2, EvidenceBundle.countRows(
+            "Name,Population\r\nA,1\r\n\"B\nC\",2".getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    @DisplayName("fileName decodes the path and keeps names unique")
+    void fileNameIsReadableAndUnique() {
+        Set<String> taken = new HashSet<>();
+        assertEquals("reports/R09/api_cities_region_Southeast_Asia.csv",
+            EvidenceBundle.fileName("R09", "/api/cities/region/Southeast%20Asia", taken));
+        assertEquals("reports/R09/api_cities_region_Southeast_Asia_2.csv",
+            EvidenceBundle.fileName("R09", "/api/cities/region/Southeast+Asia", taken));
+    }
+
+    @Test
+    @DisplayName("render and write produce an archive with a manifest of rows and checksums")
+    void renderAndWriteArchive(@TempDir Path dir) throws Exception {
+        Javalin app = Javalin.create();
+        app.get("/ok", ctx -> ctx.result("Name,Population\nA,1\nB,2\n"));
+        app.get("/missing", ctx -> ctx.status(404).result("Not found"));
+        app.start("127.0.0.1", 0);
+        try {
+            List<EvidenceBundle.Item> items = new ArrayList<>();
+            items.add(new EvidenceBundle.Item("R01", "/ok", "evidence/R01.csv"));
+            items.add(new EvidenceBundle.Item("R02", "/missing", "evidence/R02.csv"));
+            EvidenceBundle.render("http://127.0.0.1:" + app.port(), items, 2);
+
+            Path out = dir.resolve("bundle.zip");
+            EvidenceBundle.write(out, items);
+
+            Map<String, byte[]> entries = new HashMap<>();
+            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(out))) {
+                for (ZipEntry entry; (entry = zip.getNextEntry()) != null; ) {
+                    entries.put(entry.getName(), zip.readAllBytes());
+                }
+            }
+            assertEquals(Set.of("manifest.json", "evidence/R01.csv", "evidence/R02.csv"), entries.keySet());
+            assertEquals("Name,Population\nA,1\nB,2\n",
+                new String(entries.get("evidence/R01.csv"), StandardCharsets.UTF_8));
+
+            JsonNode files = new ObjectMapper().readTree(entries.get("manifest.json")).get("files");
+            assertEquals(2, files.size());
+            assertEquals("R01", files.get(0).get("report").asText());
+            assertEquals(200, files.get(0).get("status").asInt());
+            assertEquals(2, files.get(0).get("rows").asInt());
+            assertEquals(items.get(0).sha256, files.get(0).get("sha256").asText());
+            assertEquals(64, items.get(0).sha256.length());
+            assertEquals(404, files.get(1).get("status").asInt());
+            assertEquals(0, files.get(1).get("rows").asInt());
+            assertFalse(Files.exists(dir.resolve("bundle.zip.part")));
+        } finally {
+            app.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("A report that answers 503 is retried before it counts as failed")
+    void renderRetriesUnavailable() {
+        AtomicInteger calls = new AtomicInteger();
+        Javalin app = Javalin.create();
+        app.get("/busy", ctx -> {
+            if (calls.incrementAndGet() == 1) {
+                ctx.status(503).header("Retry-After", "0").result("Server busy");
+            } else {
+                ctx.result("Name,Population\nA,1\n");
+            }
+        });
+        app.get("/down", ctx -> ctx.status(503).header("Retry-After", "0").result("Server busy"));
+        app.start("127.0.0.1", 0);
+        try {
+            List<EvidenceBundle.Item> items = new ArrayList<>();
+            items.add(new EvidenceBundle.Item("R01", "/busy", "evidence/R01.csv"));
+            items.add(new EvidenceBundle.Item("R02", "/down", "evidence/R02.csv"));
+            EvidenceBundle.render("http://127.0.0.1:" + app.port(), items, 1);
+
+            assertEquals(200, items.get(0).status);
+            assertEquals(1, items.get(0).rows);
+            assertEquals(2, calls.get());
+            assertEquals(503, items.get(1).status, "gives up after " + EvidenceBundle.MAX_ATTEMPTS + " attempts");
+        } finally {
+            app.stop();
+        }
+    }
+}
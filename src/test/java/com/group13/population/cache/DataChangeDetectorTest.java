@@ -0,0 +1,73 @@
+package com.group13.population.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link DataChangeDetector}, driven by a scripted fingerprint
+ * supplier ({@code null} = database unavailable).
+ */
+class DataChangeDetectorTest {
+
+    /** Supplier returning the given fingerprints in order. */
+    private static Supplier<String> script(String... values) {
+        AtomicInteger next = new AtomicInteger();
+        return () -> {
+            int i = next.getAndIncrement();
+            return i < values.length ? values[i] : null;
+        };
+    }
+
+    @Test
+    @DisplayName("First check records the baseline without bumping")
+    void firstCheckDoesNotBump() {
+        DataVersion version = new DataVersion();
+        DataChangeDetector detector = new DataChangeDetector(script("a", "a"), version);
+
+        assertFalse(detector.check());
+        assertFalse(detector.check());
+        assertEquals(1L, version.current());
+    }
+
+    @Test
+    @DisplayName("Changed fingerprint bumps the version")
+    void changeBumpsVersion() {
+        DataVersion version = new DataVersion();
+        DataChangeDetector detector = new DataChangeDetector(script("a", "b"), version);
+
+        detector.check();
+
+        assertTrue(detector.check());
+        assertEquals(2L, version.current());
+    }
+
+    @Test
+    @DisplayName("Recovery after a failed check bumps the version even if data is unchanged")
+    void recoveryBumpsVersion() {
+        DataVersion version = new DataVersion();
+        DataChangeDetector detector = new DataChangeDetector(script("a", null, "a"), version);
+
+        assertFalse(detector.check());
+        assertFalse(detector.check(), "A failed check never bumps");
+        assertTrue(detector.check());
+        assertEquals(2L, version.current());
+    }
+
+    @Test
+    @DisplayName("start ignores non-positive intervals and stop is idempotent")
+    void startAndStop() {
+        DataChangeDetector detector = new DataChangeDetector(() -> "a", new DataVersion());
+
+        detector.start(0);
+        detector.stop();
+        detector.start(3600);
+        detector.start(3600);
+        detector.stop();
+        detector.stop();
+    }
+}
@@ -0,0 +1,36 @@
+package com.group13.population.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link DataVersion}.
+ */
+class DataVersionTest {
+
+    @Test
+    @DisplayName("Version starts at 1 and each bump advances it by one")
+    void bumpAdvancesVersion() {
+        DataVersion version = new DataVersion();
+
+        assertEquals(1L, version.current());
+        assertEquals(2L, version.bump("test"));
+        assertEquals(3L, version.bump("test"));
+        assertEquals(3L, version.current());
+    }
+
+    @Test
+    @DisplayName("Bump moves lastModified forward")
+    void bumpUpdatesLastModified() {
+        DataVersion version = new DataVersion();
+        Instant before = version.lastModified();
+
+        version.bump("test");
+
+        assertFalse(version.lastModified().isBefore(before));
+    }
+}
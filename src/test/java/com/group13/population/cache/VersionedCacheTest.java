@@ -0,0 +1,125 @@
+package com.group13.population.cache;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link VersionedCache}: version keying, LRU bound and TTL.
+ */
+class VersionedCacheTest {
+
+    @Test
+    @DisplayName("Rejects a non-positive size")
+    void rejectsNonPositiveSize() {
+        DataVersion version = new DataVersion();
+
+        assertThrows(IllegalArgumentException.class, () -> new VersionedCache<String, String>(version, 0));
+    }
+
+    @Test
+    @DisplayName("Entries are only visible under the version they were stored with")
+    void bumpHidesOldEntries() {
+        DataVersion version = new DataVersion();
+        VersionedCache<String, String> cache = new VersionedCache<>(version, 10);
+
+        cache.put(version.current(), "k", "v1");
+        assertEquals("v1", cache.get("k"));
+
+        version.bump("test");
+
+        assertNull(cache.get("k"));
+        assertEquals("v1", cache.get(1L, "k"), "Old entry still stored under version 1");
+        assertEquals(2, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    @DisplayName("getOrLoad loads once per version and does not cache null")
+    void getOrLoadCachesNonNullValues() {
+        DataVersion version = new DataVersion();
+        VersionedCache<String, String> cache = new VersionedCache<>(version, 10);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.getOrLoad("k", () -> "v" + loads.incrementAndGet());
+        assertEquals("v1", cache.getOrLoad("k", () -> "v" + loads.incrementAndGet()));
+
+        version.bump("test");
+        assertEquals("v2", cache.getOrLoad("k", () -> "v" + loads.incrementAndGet()));
+
+        assertNull(cache.getOrLoad("missing", () -> null));
+        assertNull(cache.getOrLoad("missing", () -> null));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Least recently used entry is evicted once full")
+    void evictsLeastRecentlyUsed() {
+        DataVersion version = new DataVersion();
+        VersionedCache<String, String> cache = new VersionedCache<>(version, 2);
+
+        cache.put(1L, "a", "A");
+        cache.put(1L, "b", "B");
+        cache.get("a");
+        cache.put(1L, "c", "C");
+
+        assertEquals("A", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("C", cache.get("c"));
+    }
+
+    @Test
+    @DisplayName("Entries older than the TTL are dropped on read")
+    void expiredEntriesAreDropped() throws InterruptedException {
+        DataVersion version = new DataVersion();
+        VersionedCache<String, String> cache = new VersionedCache<>(version, 10, 1L);
+
+        cache.put(1L, "k", "v");
+        Thread.sleep(10L);
+
+        assertNull(cache.get("k"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("clear removes every version")
+    void clearRemovesEverything() {
+        DataVersion version = new DataVersion();
+        VersionedCache<String, String> cache = new VersionedCache<>(version, 10);
+        cache.put(1L, "a", "A");
+        cache.put(2L, "a", "B");
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Weighted cache evicts least recently used entries to stay within budget")
+    void weightBudgetEvictsLeastRecentlyUsed() {
+        DataVersion version = new DataVersion();
+        VersionedCache<String, String> cache =
+            new VersionedCache<>(version, 100, 0L, String::length, 10L);
+
+        assertTrue(cache.put(1L, "a", "aaaa"));
+        assertTrue(cache.put(1L, "b", "bbbb"));
+        cache.get("a");
+        assertTrue(cache.put(1L, "c", "cccc"));
+
+        assertEquals(8L, cache.weight());
+        assertNull(cache.get("b"));
+        assertEquals("aaaa", cache.get("a"));
+
+        assertTrue(cache.put(1L, "a", "a"), "Replacing an entry adjusts the weight");
+        assertEquals(5L, cache.weight());
+
+        assertFalse(cache.put(1L, "huge", "x".repeat(11)), "Larger than the whole budget");
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0L, cache.weight());
+    }
+}
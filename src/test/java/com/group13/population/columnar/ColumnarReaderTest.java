@@ -0,0 +1,105 @@
+package com.group13.population.columnar;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ColumnarReader}: round trips through
+ * {@link ColumnarWriter} and rejection of malformed input.
+ */
+class ColumnarReaderTest {
+
+    private static byte[] sample() {
+        ColumnarWriter writer = new ColumnarWriter("Name", "Population", "Percent", "Note");
+        writer.text(0, "Zürich");
+        writer.number(1, 341_730L);
+        writer.fixed2(2, 12.345);
+        writer.text(3, "a,\"b\"");
+        writer.endRow();
+        writer.text(0, null);
+        writer.number(1, -5L);
+        writer.fixed2(2, 100.0);
+        // Note left unset: decoded as null
+        writer.endRow();
+        writer.text(0, "Zürich");
+        writer.number(1, Long.MAX_VALUE);
+        writer.fixed2(2, 0.0);
+        writer.text(3, "");
+        writer.endRow();
+        return writer.toByteArray();
+    }
+
+    @Test
+    @DisplayName("Round trip restores names, types and every value")
+    void roundTrip() throws Exception {
+        ColumnarReader table = ColumnarReader.read(new ByteArrayInputStream(sample()));
+
+        assertEquals(3, table.rowCount());
+        assertEquals(4, table.columnCount());
+        assertEquals("Population", table.columnName(1));
+        assertEquals(2, table.columnIndex("Percent"));
+        assertEquals(-1, table.columnIndex("Missing"));
+        assertTrue(table.isText(0));
+        assertFalse(table.isText(1));
+
+        assertEquals("Zürich", table.getText(0, 0));
+        assertNull(table.getText(1, 0));
+        assertEquals("Zürich", table.getText(2, 0));
+
+        assertEquals(341_730L, table.getLong(0, 1));
+        assertEquals(-5L, table.getLong(1, 1));
+        assertEquals(Long.MAX_VALUE, table.getLong(2, 1));
+
+        assertEquals(12.35, table.getDouble(0, 2), 1e-9);
+        assertEquals(100.0, table.getDouble(1, 2), 1e-9);
+        assertEquals(341_730.0, table.getDouble(0, 1), 1e-9);
+
+        assertEquals("a,\"b\"", table.getText(0, 3));
+        assertNull(table.getText(1, 3));
+        assertEquals("", table.getText(2, 3));
+    }
+
+    @Test
+    @DisplayName("Reading a column with the wrong accessor fails clearly")
+    void wrongAccessorFails() {
+        ColumnarReader table = ColumnarReader.read(sample());
+
+        assertThrows(IllegalStateException.class, () -> table.getLong(0, 0));
+        assertThrows(IllegalStateException.class, () -> table.getText(0, 1));
+        assertThrows(IllegalStateException.class, () -> table.getLong(0, 2));
+    }
+
+    @Test
+    @DisplayName("Bad magic and truncated input are rejected")
+    void malformedInputIsRejected() {
+        byte[] data = sample();
+        byte[] badMagic = data.clone();
+        badMagic[0] = 'X';
+
+        assertThrows(IllegalArgumentException.class, () -> ColumnarReader.read(badMagic));
+        assertThrows(IllegalArgumentException.class,
+            () -> ColumnarReader.read(Arrays.copyOf(data, data.length - 3)));
+        assertThrows(IllegalArgumentException.class, () -> ColumnarReader.read(new byte[0]));
+    }
+
+    @Test
+    @DisplayName("A header claiming more cells than the input holds is rejected before allocating")
+    void oversizedHeaderIsRejected() {
+        // 500 columns and 500 rows are each plausible for 1 KiB of input, together they are not.
+        byte[] data = Arrays.copyOf(ColumnarWriter.MAGIC, 1024);
+        int pos = ColumnarWriter.MAGIC.length;
+        for (int i = 0; i < 2; i++) {
+            data[pos++] = (byte) 0xF4;
+            data[pos++] = 0x03;
+        }
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+            () -> ColumnarReader.read(data));
+        assertTrue(ex.getMessage().startsWith("Implausible size"), ex.getMessage());
+    }
+}
@@ -0,0 +1,99 @@
+package com.group13.population.columnar;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ColumnarWriter}: byte layout, dictionary and delta
+ * encoding, and size compared with the equivalent CSV.
+ */
+class ColumnarWriterTest {
+
+    @Test
+    @DisplayName("An empty report is magic, column count, row count and column headers")
+    void emptyReportLayout() {
+        byte[] bytes = new ColumnarWriter("A").toByteArray();
+
+        assertArrayEquals(new byte[] {
+            'W', 'P', 'C', '1',
+            1,             // columns
+            0,             // rows
+            2, 'A',        // name "A" (length + 1)
+            ColumnarWriter.TYPE_TEXT,
+            0              // empty dictionary
+        }, bytes);
+    }
+
+    @Test
+    @DisplayName("Repeated text values are stored once in the dictionary")
+    void textIsDictionaryEncoded() {
+        ColumnarWriter writer = new ColumnarWriter("Country");
+        for (int i = 0; i < 1000; i++) {
+            writer.text(0, i % 2 == 0 ? "China" : "India");
+            writer.endRow();
+        }
+
+        byte[] bytes = writer.toByteArray();
+
+        // header + 2 dictionary entries + one byte per row
+        assertTrue(bytes.length < 1040, "size was " + bytes.length);
+        assertEquals(1000, writer.rowCount());
+    }
+
+    @Test
+    @DisplayName("Descending populations encode as small deltas")
+    void numbersAreDeltaEncoded() {
+        ColumnarWriter writer = new ColumnarWriter("Population");
+        long population = 10_500_000L;
+        for (int i = 0; i < 1000; i++) {
+            writer.number(0, population);
+            writer.endRow();
+            population -= 1000;
+        }
+
+        // First value takes 4 bytes; each later delta (-1000) takes 2.
+        assertTrue(writer.toByteArray().length < 2100);
+    }
+
+    @Test
+    @DisplayName("Mixing value types in a column is rejected")
+    void mixedTypesAreRejected() {
+        ColumnarWriter writer = new ColumnarWriter("X");
+        writer.text(0, "a");
+        writer.endRow();
+
+        assertThrows(IllegalStateException.class, () -> writer.number(0, 1L));
+        assertThrows(IndexOutOfBoundsException.class, () -> writer.text(1, "b"));
+    }
+
+    @Test
+    @DisplayName("A city-style report is several times smaller than its CSV")
+    void smallerThanCsv() {
+        String[] countries = {"China", "India", "United States", "Brazil", "Japan"};
+        ColumnarWriter writer = new ColumnarWriter("Name", "Country", "District", "Population");
+        StringBuilder csv = new StringBuilder("Name,Country,District,Population\n");
+        long population = 10_500_000L;
+        for (int i = 0; i < 4000; i++) {
+            String name = "City " + i;
+            String country = countries[i % countries.length];
+            String district = "District " + (i % 50);
+            writer.text(0, name);
+            writer.text(1, country);
+            writer.text(2, district);
+            writer.number(3, population);
+            writer.endRow();
+            csv.append(name).append(',').append(country).append(',')
+                .append(district).append(',').append(population).append('\n');
+            population -= 2500;
+        }
+
+        int columnar = writer.toByteArray().length;
+        int text = csv.toString().getBytes(StandardCharsets.UTF_8).length;
+
+        assertTrue(columnar * 2 < text, "columnar " + columnar + " vs CSV " + text);
+    }
+}
@@ -0,0 +1,132 @@
+package com.group13.population.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link AdaptiveLimiter}.
+ *
+ * Latency samples are fed in directly, so the tests do not depend on
+ * timing: 1 ms is the "no load" round trip throughout.
+ */
+class AdaptiveLimiterTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    @DisplayName("Queries over the limit are rejected at once, not queued")
+    void rejectsOverLimit() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10);
+
+        AdaptiveLimiter.Token first = limiter.tryAcquire();
+        AdaptiveLimiter.Token second = limiter.tryAcquire();
+
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(limiter.tryAcquire());
+        assertEquals(1, limiter.rejected());
+        assertEquals(2, limiter.inFlight());
+
+        limiter.release(first, true);
+        assertNotNull(limiter.tryAcquire(), "a released slot can be reused");
+    }
+
+    @Test
+    @DisplayName("Batch queries only fill their share of the limit; interactive ones the rest")
+    void batchShareLeavesHeadroom() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 10, 50);
+
+        assertNotNull(limiter.tryAcquire("export", true));
+        assertNotNull(limiter.tryAcquire("export", true));
+        assertNull(limiter.tryAcquire("export", true), "batch share of 2 is used up");
+        assertNotNull(limiter.tryAcquire("lookup", false));
+        assertNotNull(limiter.tryAcquire("lookup", false));
+        assertNull(limiter.tryAcquire("lookup", false), "the whole limit is used up");
+
+        assertEquals(2, limiter.rejected());
+        assertEquals(1, limiter.batchRejected());
+    }
+
+    @Test
+    @DisplayName("The limit grows while latency stays at the no-load level")
+    void growsWhenLatencyIsFlat() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 2, 50);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(MS, limiter.limit());
+        }
+
+        assertTrue(limiter.limit() > 10, "limit=" + limiter.limit());
+        assertTrue(limiter.limit() <= 50);
+    }
+
+    @Test
+    @DisplayName("The limit shrinks when latency climbs well above the no-load level")
+    void shrinksWhenLatencyRises() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(40, 2, 50);
+        limiter.onSample(MS, 40);
+
+        for (int i = 0; i < 30; i++) {
+            limiter.onSample(10 * MS, limiter.limit());
+        }
+
+        assertTrue(limiter.limit() < 40, "limit=" + limiter.limit());
+        assertTrue(limiter.limit() >= 2);
+        assertEquals(1_000L, limiter.rttNoLoadMicros());
+    }
+
+    @Test
+    @DisplayName("An idle server does not drift up, and failures back off")
+    void idleAndFailures() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(20, 2, 50);
+
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(MS, 1);
+        }
+        assertEquals(20, limiter.limit(), "samples far below the limit teach nothing");
+
+        limiter.onDrop();
+        assertEquals(18, limiter.limit());
+
+        for (int i = 0; i < 100; i++) {
+            limiter.onDrop();
+        }
+        assertEquals(2, limiter.limit(), "never below the minimum");
+    }
+
+    @Test
+    @DisplayName("Each workload has its own no-load latency, so slow exports do not read as congestion")
+    void baselineIsPerWorkload() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 2, 50);
+        limiter.onSample("lookup", MS, 10);
+
+        for (int i = 0; i < 30; i++) {
+            limiter.onSample("export", 50 * MS, limiter.limit());
+        }
+
+        assertTrue(limiter.limit() >= 10, "limit=" + limiter.limit());
+        assertEquals(1_000L, limiter.rttNoLoadMicros("lookup"));
+        assertEquals(50_000L, limiter.rttNoLoadMicros("export"));
+        assertEquals(0L, limiter.rttNoLoadMicros("aggregate"));
+    }
+
+    @Test
+    @DisplayName("The no-load latency is re-measured so a slower database is accepted")
+    void rttBaselineIsProbed() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 2, 50);
+        limiter.onSample(MS, 10);
+
+        for (int i = 1; i < AdaptiveLimiter.PROBE_INTERVAL; i++) {
+            limiter.onSample(5 * MS, 1);
+        }
+        assertEquals(1_000L, limiter.rttNoLoadMicros());
+
+        limiter.onSample(5 * MS, 1);
+        assertEquals(5_000L, limiter.rttNoLoadMicros());
+    }
+}
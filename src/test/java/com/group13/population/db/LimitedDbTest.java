@@ -0,0 +1,226 @@
+package com.group13.population.db;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit tests for {@link LimitedDb}.
+ *
+ * JDBC is stubbed with dynamic proxies; a latch lets one query hold its
+ * slot while another is attempted (or until it is cancelled).
+ */
+class LimitedDbTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(10);
+
+    private final AtomicInteger executed = new AtomicInteger();
+    private final AtomicInteger cancelled = new AtomicInteger();
+    private final ResultSet rs = (ResultSet) Proxy.newProxyInstance(
+        ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class}, (p, m, a) -> null);
+
+    private Db stubDb(CountDownLatch hold) {
+        PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(), new Class<?>[] {PreparedStatement.class},
+            (proxy, method, args) -> {
+                if ("executeQuery".equals(method.getName())) {
+                    executed.incrementAndGet();
+                    if (hold != null) {
+                        hold.await(5, TimeUnit.SECONDS);
+                    }
+                    return rs;
+                }
+                if ("cancel".equals(method.getName())) {
+                    cancelled.incrementAndGet();
+                    if (hold != null) {
+                        hold.countDown();
+                    }
+                    return null;
+                }
+                if ("setString".equals(method.getName())) {
+                    throw new SQLException("bad parameter");
+                }
+                return null;
+            });
+        Connection conn = (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+            (proxy, method, args) -> "prepareStatement".equals(method.getName()) ? stmt : null);
+        return new Db() {
+            @Override
+            public Connection getConnection() {
+                return conn;
+            }
+        };
+    }
+
+    @Test
+    @DisplayName("Queries run through the limiter and hand back the real results")
+    void queriesPassThrough() throws Exception {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 8);
+        Db db = new LimitedDb(stubDb(null), limiter, WAIT);
+
+        try (PreparedStatement stmt = db.getConnection().prepareStatement("SELECT 1")) {
+            assertSame(rs, stmt.executeQuery());
+            assertThrows(SQLException.class, () -> stmt.setString(1, "x"),
+                "driver errors outside execute are passed through unchanged");
+        }
+
+        assertEquals(1, executed.get());
+        assertEquals(0, limiter.inFlight());
+        assertEquals(0, limiter.rejected());
+    }
+
+    @Test
+    @DisplayName("A query over the limit fails fast with DbOverloadedException")
+    void overLimitFailsFast() throws Exception {
+        CountDownLatch hold = new CountDownLatch(1);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 1);
+        Db db = new LimitedDb(stubDb(hold), limiter, WAIT);
+
+        Thread running = Thread.ofVirtual().start(() -> {
+            try (PreparedStatement stmt = db.getConnection().prepareStatement("SELECT 1")) {
+                stmt.executeQuery();
+            } catch (SQLException ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        while (executed.get() < 1) {
+            Thread.sleep(5);
+        }
+
+        PreparedStatement second = db.getConnection().prepareStatement("SELECT 2");
+        SQLException ex = assertThrows(SQLException.class, second::executeQuery);
+        assertTrue(DbOverloadedException.isCause(new RuntimeException(ex)));
+        assertEquals(1, executed.get(), "the rejected query never reached the driver");
+
+        hold.countDown();
+        running.join(5_000);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    @DisplayName("A query within the limit that cannot get the connection in time fails with DbOverloadedException")
+    void connectionWaitIsBounded() throws Exception {
+        CountDownLatch hold = new CountDownLatch(1);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 8);
+        Db db = new LimitedDb(stubDb(hold), limiter, Duration.ofMillis(100));
+
+        Thread running = Thread.ofVirtual().start(() -> query(db, false));
+        while (executed.get() < 1) {
+            Thread.sleep(5);
+        }
+
+        PreparedStatement second = db.getConnection().prepareStatement("SELECT 2");
+        long started = System.nanoTime();
+        SQLException ex = assertThrows(SQLException.class, second::executeQuery);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        assertTrue(DbOverloadedException.isCause(ex));
+        assertTrue(waitedMs >= 100 && waitedMs < 5_000, "waited " + waitedMs + " ms");
+        assertEquals(1, executed.get(), "the timed-out query never reached the driver");
+        assertEquals(3, limiter.limit(), "a timed-out wait counts as overload");
+
+        hold.countDown();
+        running.join(5_000);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    @DisplayName("Cancelling a QueryScope cancels its running query and refuses later ones")
+    void scopeCancelsRunningQuery() throws Exception {
+        CountDownLatch hold = new CountDownLatch(1);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 1, 8);
+        Db db = new LimitedDb(stubDb(hold), limiter, WAIT);
+        QueryScope scope = new QueryScope();
+
+        Thread running = Thread.ofVirtual().start(() -> {
+            try {
+                scope.run(() -> {
+                    try (PreparedStatement stmt = db.getConnection().prepareStatement("SELECT 1")) {
+                        stmt.executeQuery();
+                    }
+                });
+            } catch (Exception ex) {
+                throw new IllegalStateException(ex);
+            }
+        });
+        while (executed.get() < 1) {
+            Thread.sleep(5);
+        }
+
+        scope.cancel();
+        running.join(5_000);
+        assertEquals(1, cancelled.get(), "the running statement was cancelled");
+        assertTrue(scope.isCancelled());
+
+        SQLException ex = assertThrows(SQLException.class, () -> scope.run(() -> {
+            try (PreparedStatement stmt = db.getConnection().prepareStatement("SELECT 2")) {
+                stmt.executeQuery();
+            }
+        }));
+        assertEquals("Query cancelled", ex.getMessage());
+        assertEquals(1, executed.get(), "the refused query never reached the driver");
+    }
+
+    @Test
+    @DisplayName("Batch and interactive queries compete for the same limiter slots; batch is shed first")
+    void batchQueriesLeaveHeadroomForInteractive() throws Exception {
+        CountDownLatch hold = new CountDownLatch(1);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 4, 4, 50);
+        Db db = new LimitedDb(stubDb(hold), limiter, WAIT);
+        Thread[] running = new Thread[4];
+
+        for (int i = 0; i < 2; i++) {
+            running[i] = Thread.ofVirtual().start(() -> query(db, true));
+        }
+        while (limiter.inFlight() < 2) {
+            Thread.sleep(5);
+        }
+        SQLException ex = assertThrows(SQLException.class, () -> AdaptiveLimiter.runAs("export", true, () -> {
+            try (PreparedStatement stmt = db.getConnection().prepareStatement("SELECT 3")) {
+                stmt.executeQuery();
+            }
+        }));
+        assertTrue(DbOverloadedException.isCause(new RuntimeException(ex)), "batch share is full");
+
+        for (int i = 2; i < 4; i++) {
+            running[i] = Thread.ofVirtual().start(() -> query(db, false));
+        }
+        while (limiter.inFlight() < 4) {
+            Thread.sleep(5);
+        }
+        // Interactive queries got the remaining slots (they take the connection in turn).
+        assertEquals(1, limiter.rejected());
+        assertEquals(1, limiter.batchRejected());
+
+        hold.countDown();
+        for (Thread thread : running) {
+            thread.join(5_000);
+        }
+        assertEquals(0, limiter.inFlight());
+    }
+
+    private static void query(Db db, boolean batch) {
+        try {
+            AdaptiveLimiter.runAs(batch ? "export" : "lookup", batch, () -> {
+                try (PreparedStatement stmt = db.getConnection().prepareStatement("SELECT 1")) {
+                    stmt.executeQuery();
+                }
+            });
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.group13.population.repo;
+
+import com.group13.population.db.Db;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link DataFingerprintRepo} using proxy-based JDBC stubs.
+ */
+class DataFingerprintRepoTest {
+
+    @Test
+    @DisplayName("Returns null when the DB is unavailable")
+    void returnsNullWhenDbUnavailable() {
+        DataFingerprintRepo repo = new DataFingerprintRepo(new Db() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("Simulated DB failure for tests");
+            }
+        });
+
+        assertNull(repo.findFingerprint());
+    }
+
+    @Test
+    @DisplayName("Returns null when the connection is null")
+    void returnsNullWhenConnectionIsNull() {
+        DataFingerprintRepo repo = new DataFingerprintRepo(new Db() {
+            @Override
+            public Connection getConnection() {
+                return null;
+            }
+        });
+
+        assertNull(repo.findFingerprint());
+    }
+
+    @Test
+    @DisplayName("Joins Table=Checksum pairs from CHECKSUM TABLE")
+    void joinsTableChecksums() {
+        DataFingerprintRepo repo = new DataFingerprintRepo(new Db() {
+            @Override
+            public Connection getConnection() {
+                return connectionReturning(
+                    new String[][] {{"world.country", "11"}, {"world.city", "22"}});
+            }
+        });
+
+        assertEquals("world.country=11;world.city=22;", repo.findFingerprint());
+    }
+
+    // ---------------------------------------------------------------------
+    // Tiny proxy-based JDBC stubs
+    // ---------------------------------------------------------------------
+
+    private static Connection connectionReturning(String[][] rows) {
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(
+            DataFingerprintRepoTest.class.getClassLoader(),
+            new Class[]{ResultSet.class},
+            new InvocationHandler() {
+                private int index = -1;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "next":
+                            index++;
+                            return index < rows.length;
+                        case "getString":
+                            return "Table".equals(args[0]) ? rows[index][0] : rows[index][1];
+                        default:
+                            return method.getReturnType() == boolean.class ? false : null;
+                    }
+                }
+            });
+
+        PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(
+            DataFingerprintRepoTest.class.getClassLoader(),
+            new Class[]{PreparedStatement.class},
+            (proxy, method, args) -> "executeQuery".equals(method.getName()) ? rs : null);
+
+        return (Connection) Proxy.newProxyInstance(
+            DataFingerprintRepoTest.class.getClassLoader(),
+            new Class[]{Connection.class},
+            (proxy, method, args) -> "prepareStatement".equals(method.getName()) ? stmt : null);
+    }
+}
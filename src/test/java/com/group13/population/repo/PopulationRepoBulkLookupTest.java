@@ -0,0 +1,128 @@
+package com.group13.population.repo;
+
+import com.group13.population.db.Db;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the bulk lookups (R27–R31 for many names) in {@link PopulationRepo}.
+ *
+ * <p>JDBC is stubbed with dynamic proxies that record the SQL and bound
+ * names and answer with fixed (Name, Population, Matches) rows.</p>
+ */
+class PopulationRepoBulkLookupTest {
+
+    private final List<String> sql = new ArrayList<>();
+    private final List<Object> params = new ArrayList<>();
+
+    /** Repo whose single query returns the given rows. */
+    private PopulationRepo repo(Object[][] rows) {
+        InvocationHandler results = new InvocationHandler() {
+            private int index = -1;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "next":
+                        return ++index < rows.length;
+                    case "getString":
+                        return rows[index][0];
+                    case "getLong":
+                        return "Population".equals(args[0]) ? rows[index][1] : rows[index][2];
+                    default:
+                        return null;
+                }
+            }
+        };
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(
+            ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, results);
+        PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(
+            PreparedStatement.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setString":
+                        params.add(args[1]);
+                        return null;
+                    case "executeQuery":
+                        return rs;
+                    default:
+                        return null;
+                }
+            });
+        Connection conn = (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+            (proxy, method, args) -> {
+                if ("prepareStatement".equals(method.getName())) {
+                    sql.add((String) args[0]);
+                    return stmt;
+                }
+                return null;
+            });
+        return new PopulationRepo(new Db() {
+            @Override
+            public Connection getConnection() {
+                return conn;
+            }
+        });
+    }
+
+    @Test
+    void namesAreJoinedInOneQueryAndUnmatchedNamesAreLeftOut() {
+        PopulationRepo repo = repo(new Object[][] {
+            {"Myanmar", 45_611_000L, 1L},
+            {"Atlantis", 0L, 0L}
+        });
+
+        Map<String, Long> found = repo.findCountryPopulations(List.of("Myanmar", " ", "Atlantis"));
+
+        assertEquals(1, sql.size());
+        assertEquals("SELECT n.Name AS Name, SUM(c.Population) AS Population,"
+            + " COUNT(c.Population) AS Matches"
+            + " FROM (SELECT ? AS Name UNION ALL SELECT ?) n"
+            + " LEFT JOIN country c ON c.Name = n.Name GROUP BY n.Name", sql.get(0));
+        assertEquals(List.of("Myanmar", "Atlantis"), params);
+        assertEquals(Map.of("Myanmar", 45_611_000L), found);
+        assertEquals(45_611_000L, found.get("MYANMAR"), "keys compare case-insensitively");
+    }
+
+    @Test
+    void eachReportJoinsItsOwnTable() {
+        PopulationRepo repo = repo(new Object[0][]);
+
+        repo.findContinentPopulations(List.of("Asia"));
+        repo.findRegionPopulations(List.of("Caribbean"));
+        repo.findDistrictPopulations(List.of("Rangoon"));
+        repo.findCityPopulations(List.of("Yangon"));
+
+        assertTrue(sql.get(0).contains("JOIN country c ON c.Continent = n.Name"));
+        assertTrue(sql.get(1).contains("JOIN country c ON c.Region = n.Name"));
+        assertTrue(sql.get(2).contains("JOIN city c ON c.District LIKE CONCAT(n.Name, '%')"));
+        assertTrue(sql.get(3).contains("JOIN city c ON c.Name LIKE CONCAT('%', n.Name, '%')"));
+    }
+
+    @Test
+    void emptyInputSkipsTheQueryAndOutagesAreReported() {
+        assertTrue(repo(new Object[0][]).findCityPopulations(List.of()).isEmpty());
+        assertTrue(sql.isEmpty());
+
+        PopulationRepo down = new PopulationRepo(new Db() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("down");
+            }
+        });
+        assertThrows(DataAccessException.class, () -> down.findRegionPopulations(List.of("Caribbean")));
+    }
+}
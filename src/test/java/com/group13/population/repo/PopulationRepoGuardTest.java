@@ -1,7 +1,6 @@
 package com.group13.population.repo;
 
 import com.group13.population.db.Db;
-import com.group13.population.model.LanguagePopulationRow;
 import com.group13.population.model.PopulationLookupRow;
 import com.group13.population.model.PopulationRow;
 import org.junit.jupiter.api.Test;
@@ -25,8 +24,9 @@ import static org.junit.jupiter.api.Assertions.*;
  *  - when lookup and language methods are called and DB is unavailable
  *  - edge-case result sets with odd/blank data
  *
- * The repo should not throw, and should return
- * empty lists / 0 for world population / sensible "unknown" rows.
+ * Missing names return sensible "unknown" rows without touching the DB.
+ * An unavailable DB is reported with DataAccessException rather than
+ * empty lists / 0, so callers can tell an outage from an empty report.
  */
 class PopulationRepoGuardTest {
 
@@ -35,33 +35,23 @@ class PopulationRepoGuardTest {
     // ---------------------------------------------------------------------
 
     @Test
-    void returnsEmptyResultsWhenGetConnectionThrows() {
+    void throwsDataAccessExceptionWhenGetConnectionThrows() {
         PopulationRepo repo = new PopulationRepo(new ThrowingDb());
 
-        List<PopulationRow> regions = repo.findPopulationByRegionInOutCities();
-        List<PopulationRow> countries = repo.findPopulationByCountryInOutCities();
-        long world = repo.findWorldPopulation();
-
-        assertNotNull(regions);
-        assertNotNull(countries);
-        assertTrue(regions.isEmpty());
-        assertTrue(countries.isEmpty());
-        assertEquals(0L, world);
+        DataAccessException ex = assertThrows(DataAccessException.class,
+            repo::findPopulationByRegionInOutCities);
+        assertInstanceOf(SQLException.class, ex.getCause());
+        assertThrows(DataAccessException.class, repo::findPopulationByCountryInOutCities);
+        assertThrows(DataAccessException.class, repo::findWorldPopulation);
     }
 
     @Test
-    void returnsEmptyResultsWhenConnectionIsNull() {
+    void throwsDataAccessExceptionWhenConnectionIsNull() {
         PopulationRepo repo = new PopulationRepo(new NullDb());
 
-        List<PopulationRow> regions = repo.findPopulationByRegionInOutCities();
-        List<PopulationRow> countries = repo.findPopulationByCountryInOutCities();
-        long world = repo.findWorldPopulation();
-
-        assertNotNull(regions);
-        assertNotNull(countries);
-        assertTrue(regions.isEmpty());
-        assertTrue(countries.isEmpty());
-        assertEquals(0L, world);
+        assertThrows(DataAccessException.class, repo::findPopulationByRegionInOutCities);
+        assertThrows(DataAccessException.class, repo::findPopulationByCountryInOutCities);
+        assertThrows(DataAccessException.class, repo::findWorldPopulation);
     }
 
     // ---------------------------------------------------------------------
@@ -98,30 +88,26 @@ class PopulationRepoGuardTest {
     // ---------------------------------------------------------------------
 
     @Test
-    void lookupFallsBackToZeroWhenConnectionIsNull() {
+    void lookupThrowsWhenConnectionIsNull() {
         PopulationRepo repo = new PopulationRepo(new NullDb());
 
-        PopulationLookupRow row = repo.findCountryPopulation("Myanmar");
-        assertEquals("Myanmar", row.getName());
-        assertEquals(0L, row.getPopulation());
+        assertThrows(DataAccessException.class,
+            () -> repo.findCountryPopulation("Myanmar"),
+            "An outage must not look like a country with population 0");
     }
 
     @Test
-    void languagePopulationsHandleSQLException() {
+    void languagePopulationsThrowWhenGetConnectionThrows() {
         PopulationRepo repo = new PopulationRepo(new ThrowingDb());
 
-        List<LanguagePopulationRow> languages = repo.findLanguagePopulations();
-        assertNotNull(languages);
-        assertTrue(languages.isEmpty(), "Languages list should be empty when getConnection throws");
+        assertThrows(DataAccessException.class, repo::findLanguagePopulations);
     }
 
     @Test
-    void languagePopulationsReturnEmptyListWhenConnectionIsNull() {
+    void languagePopulationsThrowWhenConnectionIsNull() {
         PopulationRepo repo = new PopulationRepo(new NullDb());
 
-        List<LanguagePopulationRow> languages = repo.findLanguagePopulations();
-        assertNotNull(languages);
-        assertTrue(languages.isEmpty(), "Languages list should be empty when connection is null");
+        assertThrows(DataAccessException.class, repo::findLanguagePopulations);
     }
 
     // ---------------------------------------------------------------------
@@ -0,0 +1,84 @@
+package com.group13.population.repo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ad-hoc ranking queries ({@link RankingQuery}): the SQL
+ * they compile, caching by shape and the validation of the grammar.
+ */
+class RankingQueryTest {
+
+    private static final List<ReportColumn> CITY = ReportEntity.CITY.schema();
+
+    @Test
+    @DisplayName("Scopes, population range and capital flag compile to one parameterised query")
+    void compiledSql() {
+        RankingQuery query = new RankingQuery(ReportEntity.CITY, CITY,
+            Map.of(ReportEntity.Filter.CONTINENT, "Asia"), 1_000_000L, 5_000_000L, false, false, 50);
+
+        assertEquals("SELECT city.Name, country.Name, city.District, city.Population FROM city"
+                + " JOIN country ON city.CountryCode = country.Code"
+                + " WHERE country.Continent = ? AND city.Population >= ? AND city.Population <= ?"
+                + " AND (country.Capital IS NULL OR country.Capital <> city.ID)"
+                + " ORDER BY city.Population DESC, city.ID LIMIT ?",
+            query.sql());
+    }
+
+    @Test
+    @DisplayName("The country join is left out when nothing needs it")
+    void narrowQueryDropsJoin() {
+        RankingQuery cities = new RankingQuery(ReportEntity.CITY,
+            List.of(CityColumn.NAME, CityColumn.POPULATION),
+            Map.of(ReportEntity.Filter.DISTRICT, "Kabol"), null, null, null, true, 5);
+        assertEquals("SELECT city.Name, city.Population FROM city WHERE city.District = ?"
+                + " ORDER BY city.Population ASC, city.ID LIMIT ?",
+            cities.sql());
+
+        RankingQuery countries = new RankingQuery(ReportEntity.COUNTRY,
+            List.of(CountryColumn.NAME), Map.of(), 10L, null, null, false, 3);
+        assertEquals("SELECT c.Name FROM country c WHERE c.Population >= ?"
+                + " ORDER BY c.Population DESC, c.Code LIMIT ?",
+            countries.sql());
+    }
+
+    @Test
+    @DisplayName("Queries of the same shape share one compiled plan, whatever their values")
+    void plansAreCachedByShape() {
+        RankingQuery asia = new RankingQuery(ReportEntity.CITY, CITY,
+            Map.of(ReportEntity.Filter.REGION, "Eastern Asia"), 1L, null, true, false, 10);
+        RankingQuery europe = new RankingQuery(ReportEntity.CITY, CITY,
+            Map.of(ReportEntity.Filter.REGION, "Western Europe"), 500L, null, true, false, 99);
+        RankingQuery other = new RankingQuery(ReportEntity.CITY, CITY,
+            Map.of(ReportEntity.Filter.REGION, "Western Europe"), 500L, null, false, false, 99);
+
+        assertSame(asia.sql(), europe.sql());
+        assertNotEquals(asia.sql(), other.sql());
+        assertTrue(RankingQuery.cachedShapes() <= RankingQuery.MAX_CACHED_SHAPES);
+    }
+
+    @Test
+    @DisplayName("Invalid combinations are rejected")
+    void invalidQueries() {
+        Map<ReportEntity.Filter, String> none = Map.of();
+        List<ReportColumn> countries = ReportEntity.COUNTRY.schema();
+
+        assertThrows(IllegalArgumentException.class, () -> new RankingQuery(ReportEntity.COUNTRY,
+            countries, Map.of(ReportEntity.Filter.DISTRICT, "x"), null, null, null, false, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RankingQuery(ReportEntity.COUNTRY,
+            countries, none, null, null, true, false, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RankingQuery(ReportEntity.CITY,
+            CITY, none, 10L, 5L, null, false, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RankingQuery(ReportEntity.CITY,
+            CITY, none, -1L, null, null, false, 1));
+        assertThrows(IllegalArgumentException.class, () -> new RankingQuery(ReportEntity.CITY,
+            CITY, none, null, null, null, false, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RankingQuery(ReportEntity.CITY,
+            countries, none, null, null, null, false, 1));
+    }
+}
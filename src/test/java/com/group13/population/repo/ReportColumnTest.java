@@ -0,0 +1,43 @@
+package com.group13.population.repo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ReportColumn#select(String, ReportColumn[])} and
+ * {@link ReportColumn#headers(List)}.
+ */
+class ReportColumnTest {
+
+    @Test
+    @DisplayName("Absent or blank fields select the whole schema in default order")
+    void absentFieldsSelectEverything() {
+        assertEquals(List.of(CountryColumn.values()), ReportColumn.select(null, CountryColumn.values()));
+        assertEquals(List.of(CityColumn.values()), ReportColumn.select("  ", CityColumn.values()));
+        assertEquals(List.of(CityColumn.values()), ReportColumn.select(" , ", CityColumn.values()));
+    }
+
+    @Test
+    @DisplayName("Fields match case-insensitively, keep the requested order and drop duplicates")
+    void fieldsKeepRequestedOrder() {
+        List<CountryColumn> selected =
+            ReportColumn.select("population, CODE,code", CountryColumn.values());
+
+        assertEquals(List.of(CountryColumn.POPULATION, CountryColumn.CODE), selected);
+        assertArrayEquals(new String[] {"Population", "Code"}, ReportColumn.headers(selected));
+    }
+
+    @Test
+    @DisplayName("A field outside the report's schema is rejected with the valid names")
+    void unknownFieldIsRejected() {
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+            () -> ReportColumn.select("Name,Capital", CityColumn.values()));
+
+        assertTrue(ex.getMessage().contains("Capital"));
+        assertTrue(ex.getMessage().contains("District"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.group13.population.repo;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the declarative report registry ({@link ReportRegistry})
+ * and the SQL its plans compile ({@link ReportPlan}).
+ */
+class ReportRegistryTest {
+
+    @Test
+    @DisplayName("R01–R22 are declared once each, in order")
+    void everyListingReportIsDeclared() {
+        List<String> ids = new ArrayList<>();
+        for (ReportPlan plan : ReportRegistry.plans()) {
+            ids.add(plan.id());
+        }
+        assertEquals(22, ids.size());
+        assertEquals("R01", ids.get(0));
+        assertEquals("R22", ids.get(21));
+        assertThrows(IllegalArgumentException.class, () -> ReportRegistry.plan("R26"));
+    }
+
+    @Test
+    @DisplayName("Declarations compile to the SQL the reports ran before")
+    void compiledSql() {
+        assertEquals("SELECT city.Name, country.Name, city.District, city.Population FROM city"
+                + " JOIN country ON city.CountryCode = country.Code"
+                + " WHERE country.Region = ? ORDER BY city.Population DESC LIMIT ?",
+            ReportRegistry.plan("R14").sql(ReportRegistry.plan("R14").columns()));
+
+        ReportPlan capitals = ReportRegistry.plan("R18");
+        assertEquals("SELECT city.Name, country.Name, city.Population"
+                + " FROM city JOIN country ON city.ID = country.Capital"
+                + " WHERE country.Continent = ? ORDER BY city.Population DESC",
+            capitals.sql(capitals.columns()));
+
+        assertEquals("SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, ci.Name"
+                + " FROM country c LEFT JOIN city ci ON c.Capital = ci.ID"
+                + " ORDER BY c.Population DESC",
+            ReportRegistry.plan("R01").sql(ReportEntity.COUNTRY.schema()));
+    }
+
+    @Test
+    @DisplayName("Narrowed selections join country only when a column or the filter needs it")
+    void narrowSelectionDropsUnneededJoin() {
+        List<CityColumn> narrow = List.of(CityColumn.NAME, CityColumn.POPULATION);
+
+        assertEquals("SELECT city.Name, city.Population FROM city"
+                + " ORDER BY city.Population DESC LIMIT ?",
+            ReportRegistry.plan("R12").sql(narrow));
+        assertEquals("SELECT city.Name, city.Population FROM city"
+                + " WHERE city.District = ? ORDER BY city.Population DESC",
+            ReportRegistry.plan("R11").sql(narrow));
+        assertEquals("SELECT city.Name, city.Population FROM city"
+                + " JOIN country ON city.CountryCode = country.Code"
+                + " WHERE country.Region = ? ORDER BY city.Population DESC",
+            ReportRegistry.plan("R09").sql(narrow));
+    }
+
+    @Test
+    @DisplayName("Paged SQL seeks on (population, key) after the filter")
+    void pageSql() {
+        ReportPlan plan = ReportRegistry.plan("R08");
+        List<ReportColumn> columns = plan.columns();
+
+        assertTrue(plan.pageSql(columns, true).endsWith(
+            ", city.Population, city.ID FROM city JOIN country ON city.CountryCode = country.Code"
+                + " WHERE country.Continent = ? ORDER BY city.Population DESC, city.ID LIMIT ?"));
+        assertTrue(plan.pageSql(columns, false).endsWith(
+            " WHERE country.Continent = ? AND (city.Population < ? OR (city.Population = ? AND city.ID > ?))"
+                + " ORDER BY city.Population DESC, city.ID LIMIT ?"));
+        assertTrue(ReportRegistry.plan("R01").pageSql(ReportEntity.COUNTRY.schema(), false).endsWith(
+            " WHERE (c.Population < ? OR (c.Population = ? AND c.Code > ?))"
+                + " ORDER BY c.Population DESC, c.Code LIMIT ?"));
+    }
+
+    @Test
+    @DisplayName("Templates are compiled once per column selection")
+    void templatesAreCached() {
+        ReportPlan plan = ReportRegistry.plan("R07");
+        List<CityColumn> narrow = List.of(CityColumn.COUNTRY);
+
+        assertSame(plan.sql(narrow), plan.sql(new ArrayList<>(narrow)));
+        assertSame(ReportRegistry.plan("R07"), ReportRegistry.plan(ReportEntity.CITY,
+            ReportEntity.Filter.WORLD, false));
+    }
+
+    @Test
+    @DisplayName("Fields outside a report's columns are rejected")
+    void unknownFieldsAreRejected() {
+        ReportPlan capitals = ReportRegistry.plan("R17");
+
+        assertEquals(List.of(CityColumn.POPULATION), capitals.select("population"));
+        assertThrows(IllegalArgumentException.class, () -> capitals.select("District"));
+        assertThrows(IllegalArgumentException.class,
+            () -> capitals.sql(List.of(CountryColumn.CODE)));
+    }
+}
@@ -0,0 +1,108 @@
+package com.group13.population.repo;
+
+import com.group13.population.db.Db;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ScopeRepo}.
+ *
+ * <p>Uses proxy-based JDBC stubs so no real database is needed:</p>
+ * <ul>
+ *   <li>a Db whose getConnection() throws – every finder returns an empty list;</li>
+ *   <li>a Db returning fixed names – blank names are skipped.</li>
+ * </ul>
+ */
+class ScopeRepoTest {
+
+    @Test
+    @DisplayName("All finders return empty lists when the DB is unavailable")
+    void returnsEmptyListsWhenDbUnavailable() {
+        ScopeRepo repo = new ScopeRepo(new Db() {
+            @Override
+            public Connection getConnection() throws SQLException {
+                throw new SQLException("Simulated DB failure for tests");
+            }
+        });
+
+        assertTrue(repo.findContinents().isEmpty());
+        assertTrue(repo.findRegions().isEmpty());
+        assertTrue(repo.findCountries().isEmpty());
+        assertTrue(repo.findDistricts().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Null connection returns empty list")
+    void returnsEmptyListWhenConnectionIsNull() {
+        ScopeRepo repo = new ScopeRepo(new Db() {
+            @Override
+            public Connection getConnection() {
+                return null;
+            }
+        });
+
+        assertTrue(repo.findContinents().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Names are read from the Name column and blanks are skipped")
+    void mapsNamesAndSkipsBlanks() {
+        ScopeRepo repo = new ScopeRepo(new Db() {
+            @Override
+            public Connection getConnection() {
+                return connectionReturning("Asia", " ", null, "Europe");
+            }
+        });
+
+        List<String> names = repo.findDistricts();
+
+        assertEquals(List.of("Asia", "Europe"), names);
+    }
+
+    // ---------------------------------------------------------------------
+    // Tiny proxy-based JDBC stubs
+    // ---------------------------------------------------------------------
+
+    private static Connection connectionReturning(String... names) {
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(
+            ScopeRepoTest.class.getClassLoader(),
+            new Class[]{ResultSet.class},
+            new InvocationHandler() {
+                private int index = -1;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "next":
+                            index++;
+                            return index < names.length;
+                        case "getString":
+                            return names[index];
+                        default:
+                            return method.getReturnType() == boolean.class ? false : null;
+                    }
+                }
+            });
+
+        PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(
+            ScopeRepoTest.class.getClassLoader(),
+            new Class[]{PreparedStatement.class},
+            (proxy, method, args) -> "executeQuery".equals(method.getName()) ? rs : null);
+
+        return (Connection) Proxy.newProxyInstance(
+            ScopeRepoTest.class.getClassLoader(),
+            new Class[]{Connection.class},
+            (proxy, method, args) -> "prepareStatement".equals(method.getName()) ? stmt : null);
+    }
+}
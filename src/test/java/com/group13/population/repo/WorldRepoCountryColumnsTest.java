@@ -0,0 +1,119 @@
+package com.group13.population.repo;
+
+import com.group13.population.db.Db;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link WorldRepo#findCountryColumns}: the generated SQL selects
+ * only the requested columns, joins the capital city only when needed, and
+ * values are read by position with the right types.
+ *
+ * No real database is used – the JDBC objects are dynamic proxies that
+ * record the SQL and parameters and return one fixed row.
+ */
+class WorldRepoCountryColumnsTest {
+
+    private final List<String> sql = new ArrayList<>();
+    private final List<Object> params = new ArrayList<>();
+
+    /** Repo over a fake connection; every column reads as "X" or 42. */
+    private WorldRepo repo() {
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{ResultSet.class},
+            new InvocationHandler() {
+                private boolean done;
+
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) {
+                    switch (method.getName()) {
+                        case "next":
+                            boolean next = !done;
+                            done = true;
+                            return next;
+                        case "getString":
+                            return "X" + args[0];
+                        case "getLong":
+                            return 42L;
+                        default:
+                            return null;
+                    }
+                }
+            });
+        PreparedStatement stmt = (PreparedStatement) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{PreparedStatement.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setObject":
+                        params.add(args[1]);
+                        return null;
+                    case "executeQuery":
+                        return rs;
+                    default:
+                        return null;
+                }
+            });
+        Connection conn = (Connection) Proxy.newProxyInstance(
+            getClass().getClassLoader(), new Class[]{Connection.class},
+            (proxy, method, args) -> {
+                if ("prepareStatement".equals(method.getName())) {
+                    sql.add((String) args[0]);
+                    return stmt;
+                }
+                return null;
+            });
+        return new WorldRepo(new Db() {
+            @Override
+            public Connection getConnection() {
+                return conn;
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Code,Population selects two columns with no capital join")
+    void narrowQueryDropsCapitalJoin() {
+        List<Object[]> rows = repo().findCountryColumns(
+            List.of(CountryColumn.CODE, CountryColumn.POPULATION), null, null, 0);
+
+        assertEquals("SELECT c.Code, c.Population FROM country c ORDER BY c.Population DESC",
+            sql.get(0));
+        assertTrue(params.isEmpty());
+        assertEquals(1, rows.size());
+        assertArrayEquals(new Object[] {"X1", 42L}, rows.get(0));
+    }
+
+    @Test
+    @DisplayName("Capital adds the city join; filter and limit become parameters")
+    void capitalFilterAndLimit() {
+        repo().findCountryColumns(List.of(CountryColumn.NAME, CountryColumn.CAPITAL),
+            CountryColumn.CONTINENT, " Europe ", 5);
+
+        assertEquals("SELECT c.Name, ci.Name FROM country c"
+            + " LEFT JOIN city ci ON c.Capital = ci.ID"
+            + " WHERE c.Continent = ? ORDER BY c.Population DESC LIMIT ?", sql.get(0));
+        assertEquals(List.of("Europe", 5), params);
+    }
+
+    @Test
+    @DisplayName("No columns or a blank filter value returns an empty list without a query")
+    void guardsSkipTheQuery() {
+        WorldRepo repo = repo();
+
+        assertTrue(repo.findCountryColumns(List.of(), null, null, 0).isEmpty());
+        assertTrue(repo.findCountryColumns(List.of(CountryColumn.CODE),
+            CountryColumn.REGION, " ", 0).isEmpty());
+        assertTrue(sql.isEmpty());
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
@@ -22,9 +23,9 @@ import static org.junit.jupiter.api.Assertions.*;
  *
  * These tests:
  *  - call runCountryQuery(..) via reflection
- *  - drive the "connection == null" branch
+ *  - drive the "connection == null" branch (DataAccessException)
  *  - drive the normal happy-path (which also covers mapCountryRow(..))
- *  - drive the SQLException/error path from Db.getConnection()
+ *  - drive the SQLException/error path from Db.getConnection() (DataAccessException)
  *
  * No real database is used – small JDBC stubs are built with Java
  * dynamic proxies.
@@ -47,17 +48,25 @@ class WorldRepoRunCountryQueryTest {
         m.setAccessible(true);
 
         // For varargs you must wrap the params array in another Object[].
-        Object result = m.invoke(repo, sql, new Object[]{params});
-        return (List<CountryRow>) result;
+        try {
+            Object result = m.invoke(repo, sql, new Object[]{params});
+            return (List<CountryRow>) result;
+        } catch (InvocationTargetException ex) {
+            // Unwrap so tests see the repository's own exception.
+            if (ex.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw ex;
+        }
     }
 
     // ---------------------------------------------------------------------
-    // Test 1: connection == null -> should return empty list safely
+    // Test 1: connection == null -> reported as an outage, not an empty list
     // ---------------------------------------------------------------------
 
     @Test
-    @DisplayName("runCountryQuery returns empty list when Db.getConnection() is null")
-    void runCountryQueryReturnsEmptyWhenConnectionIsNull() throws Exception {
+    @DisplayName("runCountryQuery throws DataAccessException when Db.getConnection() is null")
+    void runCountryQueryThrowsWhenConnectionIsNull() {
         Db nullDb = new Db() {
             @Override
             public Connection getConnection() throws SQLException {
@@ -67,11 +76,9 @@ class WorldRepoRunCountryQueryTest {
 
         WorldRepo repo = new WorldRepo(nullDb);
 
-        List<CountryRow> rows =
-            invokeRunCountryQuery(repo, "SELECT * FROM country", "Europe", 10);
-
-        assertNotNull(rows, "Result list should never be null");
-        assertTrue(rows.isEmpty(), "Expected empty list when connection is null");
+        assertThrows(DataAccessException.class,
+            () -> invokeRunCountryQuery(repo, "SELECT * FROM country", "Europe", 10),
+            "A missing connection must not look like an empty report");
     }
 
     // ---------------------------------------------------------------------
@@ -95,7 +102,10 @@ class WorldRepoRunCountryQueryTest {
                             return index == 0; // true once, then false
                         }
                         case "getString" -> {
-                            String col = (String) args[0];
+                            // Columns are read by position, in CountryColumn order.
+                            String col = args[0] instanceof Integer i
+                                ? CountryColumn.values()[i - 1].header()
+                                : (String) args[0];
                             if ("Code".equalsIgnoreCase(col)) {
                                 return "TST";
                             } else if ("Name".equalsIgnoreCase(col)) {
@@ -210,12 +220,12 @@ class WorldRepoRunCountryQueryTest {
     }
 
     // ---------------------------------------------------------------------
-    // Test 3: Db.getConnection() throws SQLException -> handled gracefully
+    // Test 3: Db.getConnection() throws SQLException -> DataAccessException
     // ---------------------------------------------------------------------
 
     @Test
-    @DisplayName("runCountryQuery handles SQLException from Db.getConnection() gracefully")
-    void runCountryQueryHandlesSqlException() throws Exception {
+    @DisplayName("runCountryQuery wraps SQLException from Db.getConnection() in DataAccessException")
+    void runCountryQueryWrapsSqlException() {
         Db throwingDb = new Db() {
             @Override
             public Connection getConnection() throws SQLException {
@@ -225,10 +235,8 @@ class WorldRepoRunCountryQueryTest {
 
         WorldRepo repo = new WorldRepo(throwingDb);
 
-        List<CountryRow> rows =
-            invokeRunCountryQuery(repo, "SELECT * FROM country", "Asia");
-
-        assertNotNull(rows, "Result list should never be null even on failure");
-        assertTrue(rows.isEmpty(), "Expected empty list when SQLException occurs");
+        DataAccessException ex = assertThrows(DataAccessException.class,
+            () -> invokeRunCountryQuery(repo, "SELECT * FROM country", "Asia"));
+        assertEquals("boom", ex.getCause().getMessage());
     }
 }
@@ -1,13 +1,19 @@
 package com.group13.population.service;
 
+import com.group13.population.cache.DataVersion;
 import com.group13.population.db.Db;
 import com.group13.population.model.LanguagePopulationRow;
 import com.group13.population.model.PopulationLookupRow;
 import com.group13.population.model.PopulationRow;
+import com.group13.population.repo.DataAccessException;
 import com.group13.population.repo.PopulationRepo;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -128,6 +134,135 @@ class PopulationServiceTest {
         assertSame(repo.languageRows, result);
     }
 
+    // ---------------------------------------------------------------------
+    // Caching (data-version keyed)
+    // ---------------------------------------------------------------------
+
+    @Test
+    void cachingServiceCallsRepoOnceUntilVersionBump() {
+        StubPopulationRepo repo = new StubPopulationRepo();
+        DataVersion version = new DataVersion();
+        PopulationService service = new PopulationService(repo, version);
+
+        assertEquals(repo.regionRows, service.getRegionPopulationInOutCities());
+        assertEquals(repo.regionRows, service.getRegionPopulationInOutCities());
+        assertEquals(repo.worldPopulation, service.getWorldPopulation());
+        assertEquals(repo.worldPopulation, service.getWorldPopulation());
+        assertSame(repo.cityRow, service.getCityPopulation("Yangon"));
+        assertSame(repo.cityRow, service.getCityPopulation("Yangon"));
+        assertEquals(1, repo.regionCalls);
+        assertEquals(1, repo.worldCalls);
+        assertEquals(1, repo.cityCalls);
+
+        version.bump("test");
+        service.getRegionPopulationInOutCities();
+        service.getWorldPopulation();
+        service.getCityPopulation("Yangon");
+
+        assertEquals(2, repo.regionCalls);
+        assertEquals(2, repo.worldCalls);
+        assertEquals(2, repo.cityCalls);
+    }
+
+    @Test
+    void cachingServiceKeysLookupsByReportAndName() {
+        StubPopulationRepo repo = new StubPopulationRepo();
+        PopulationService service = new PopulationService(repo, new DataVersion());
+
+        service.getDistrictPopulation("Yangon");
+        service.getCityPopulation("Yangon");
+        service.getCityPopulation("Mandalay");
+
+        assertEquals(1, repo.districtCalls);
+        assertEquals(2, repo.cityCalls);
+    }
+
+    @Test
+    void cachingServiceCachesEmptyResultsButNotFailures() {
+        StubPopulationRepo repo = new StubPopulationRepo() {
+            @Override
+            public List<PopulationRow> findPopulationByCountryInOutCities() {
+                countryCalls++;
+                return List.of();
+            }
+
+            @Override
+            public long findWorldPopulation() {
+                worldCalls++;
+                throw new DataAccessException("Database unavailable", null);
+            }
+        };
+        PopulationService service = new PopulationService(repo, new DataVersion());
+
+        service.getCountryPopulationInOutCities();
+        service.getCountryPopulationInOutCities();
+        assertThrows(DataAccessException.class, service::getWorldPopulation);
+        assertThrows(DataAccessException.class, service::getWorldPopulation);
+
+        assertEquals(1, repo.countryCalls, "An empty list is a real result");
+        assertEquals(2, repo.worldCalls, "Failures must not be cached");
+    }
+
+    @Test
+    void unknownNamesGoToTheNegativeCache() {
+        StubPopulationRepo repo = new StubPopulationRepo() {
+            @Override
+            public PopulationLookupRow findCountryPopulation(String countryName) {
+                countryLookupCalls++;
+                return PopulationLookupRow.of(countryName, 0L);
+            }
+        };
+        DataVersion version = new DataVersion();
+        PopulationService service = new PopulationService(repo, version);
+
+        PopulationLookupRow first = service.getCountryPopulation("Atlantis");
+        PopulationLookupRow second = service.getCountryPopulation("Atlantis");
+
+        assertEquals(0L, first.getPopulation());
+        assertSame(first, second);
+        assertEquals(1, repo.countryLookupCalls);
+
+        version.bump("test");
+        service.getCountryPopulation("Atlantis");
+        assertEquals(2, repo.countryLookupCalls);
+    }
+
+    @Test
+    void bulkLookupKeepsRequestOrderAndMarksMissingNames() {
+        List<List<String>> queried = new ArrayList<>();
+        StubPopulationRepo repo = new StubPopulationRepo() {
+            @Override
+            public Map<String, Long> findCountryPopulations(List<String> countryNames) {
+                queried.add(List.copyOf(countryNames));
+                Map<String, Long> found = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+                found.put("Myanmar", 45_611_000L);
+                found.put("France", 59_225_700L);
+                return found;
+            }
+        };
+        PopulationService service = new PopulationService(repo, new DataVersion());
+
+        List<PopulationLookupRow> rows =
+            service.getCountryPopulations(Arrays.asList(" france ", "Atlantis", null, "Myanmar"));
+
+        assertEquals(4, rows.size());
+        assertEquals("france", rows.get(0).getName());
+        assertEquals(59_225_700L, rows.get(0).getPopulation());
+        assertNull(rows.get(1), "unknown name is marked, not dropped");
+        assertNull(rows.get(2), "blank name is marked, not dropped");
+        assertEquals(45_611_000L, rows.get(3).getPopulation());
+        assertEquals(List.of(List.of("france", "Atlantis", "Myanmar")), queried,
+            "one set-based query for all names");
+
+        // Found names are now cached; only the miss goes to the repo.
+        service.getCountryPopulations(List.of("Myanmar", "Atlantis"));
+        assertEquals(List.of("Atlantis"), queried.get(1));
+
+        // ... and the single lookup shares the same cache entries.
+        assertEquals(45_611_000L, service.getCountryPopulation("Myanmar").getPopulation());
+        assertEquals(0, repo.countryLookupCalls);
+    }
+
     // --- Stub repo used by tests ----------------------------------------
 
     private static class StubPopulationRepo extends PopulationRepo {
@@ -0,0 +1,150 @@
+package com.group13.population.web;
+
+import com.group13.population.cache.DataVersion;
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Route tests for {@link AdminRoutes}: reading and bumping the data version.
+ */
+class AdminRoutesTest {
+
+    private static Javalin appWith(DataVersion version, String token) {
+        Javalin app = Javalin.create();
+        new AdminRoutes(version, token, null, null, null).register(app);
+        return app;
+    }
+
+    @Test
+    @DisplayName("GET /admin/data-version reports the current version")
+    void getReportsVersion() {
+        DataVersion version = new DataVersion();
+        version.bump("test");
+
+        JavalinTest.test(appWith(version, null), (server, client) -> {
+            try (Response res = client.get("/admin/data-version")) {
+                assertEquals(200, res.code());
+                assertTrue(res.body().string().startsWith("version=2\n"));
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Bump and the stats endpoints are disabled (403) when no token is configured")
+    void bumpDisabledWithoutToken() {
+        DataVersion version = new DataVersion();
+
+        JavalinTest.test(appWith(version, " "), (server, client) -> {
+            try (Response res = client.post("/admin/data-version/bump")) {
+                assertEquals(403, res.code());
+            }
+            try (Response res = client.get("/admin/cache-stats")) {
+                assertEquals(403, res.code());
+            }
+            try (Response res = client.get("/admin/bulkheads")) {
+                assertEquals(403, res.code());
+            }
+        });
+        assertEquals(1L, version.current());
+    }
+
+    @Test
+    @DisplayName("Bump requires the right bearer token")
+    void bumpRequiresToken() {
+        DataVersion version = new DataVersion();
+
+        JavalinTest.test(appWith(version, "s3cret"), (server, client) -> {
+            try (Response res = client.post("/admin/data-version/bump")) {
+                assertEquals(403, res.code(), "missing header");
+            }
+            try (Response res = client.request(bump(server.port(), "Bearer wrong"))) {
+                assertEquals(403, res.code(), "wrong token");
+            }
+            try (Response res = client.request(bump(server.port(), "s3cret"))) {
+                assertEquals(403, res.code(), "not a bearer header");
+            }
+            try (Response res = client.request(bump(server.port(), "Bearer s3cret"))) {
+                assertEquals(200, res.code());
+                assertEquals("version=2\n", res.body().string());
+            }
+        });
+        assertEquals(2L, version.current());
+    }
+
+    private static Request bump(int port, String authorization) {
+        return new Request.Builder()
+            .url("http://localhost:" + port + "/admin/data-version/bump")
+            .header("Authorization", authorization)
+            .post(RequestBody.create(new byte[0]))
+            .build();
+    }
+
+    private static Request get(int port, String path, String authorization) {
+        return new Request.Builder()
+            .url("http://localhost:" + port + path)
+            .header("Authorization", authorization)
+            .build();
+    }
+
+    @Test
+    @DisplayName("GET /admin/cache-stats needs the token and reports cache tiers and JVM heap/GC counters")
+    void cacheStatsReportsTiersAndJvm() {
+        DataVersion version = new DataVersion();
+        ResponseCache cache = new ResponseCache(10, version, 1024L, 4);
+        cache.put("/big", new ResponseCache.CachedResponse("text/csv", null, new byte[100]));
+
+        Javalin app = Javalin.create();
+        new AdminRoutes(version, "s3cret", cache, null, null).register(app);
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response res = client.get("/admin/cache-stats")) {
+                assertEquals(403, res.code(), "missing header");
+            }
+            try (Response res = client.request(get(server.port(), "/admin/cache-stats", "Bearer s3cret"))) {
+                assertEquals(200, res.code());
+                String body = res.body().string();
+                assertTrue(body.contains("cache.offHeap.entries=1\n"), body);
+                assertTrue(body.contains("cache.offHeap.bytes=100\n"), body);
+                assertTrue(body.contains("cache.offHeap.budget=1024\n"), body);
+                assertTrue(body.contains("jvm.heap.used="), body);
+                assertTrue(body.contains("jvm.gc."), body);
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("GET /admin/bulkheads needs the token and reports per-class usage, queue depth and rejections")
+    void bulkheadStats() {
+        Javalin app = Javalin.create();
+        new AdminRoutes(new DataVersion(), "s3cret", null,
+            new Bulkheads(Map.of(ReportClass.EXPORT, new DbGate(2, 16, Duration.ofSeconds(1)))), null)
+            .register(app);
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response res = client.get("/admin/bulkheads")) {
+                assertEquals(403, res.code(), "missing header");
+            }
+            try (Response res = client.request(get(server.port(), "/admin/bulkheads", "Bearer s3cret"))) {
+                assertEquals(200, res.code());
+                assertEquals("bulkhead.export.maxConcurrent=2\n"
+                    + "bulkhead.export.maxQueue=16\n"
+                    + "bulkhead.export.inUse=0\n"
+                    + "bulkhead.export.queued=0\n"
+                    + "bulkhead.export.rejected=0\n"
+                    + "bulkhead.export.shed.interactive=0\n"
+                    + "bulkhead.export.shed.batch=0\n"
+                    + "bulkhead.export.serviceMicros=0\n", res.body().string());
+            }
+        });
+    }
+}
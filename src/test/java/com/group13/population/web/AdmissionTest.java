@@ -0,0 +1,210 @@
+package com.group13.population.web;
+
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for deadline- and priority-aware admission ({@link Admission},
+ * {@link DbGate}): interactive requests overtake queued batch ones, and
+ * requests that cannot meet their deadline are shed before they run.
+ */
+class AdmissionTest {
+
+    /** Holds the gate's only permit until released. */
+    private static Thread occupy(DbGate gate, CountDownLatch release) throws InterruptedException {
+        CountDownLatch entered = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> run(gate, Admission.NONE, () -> {
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        return holder;
+    }
+
+    private static void run(DbGate gate, Admission admission, Work work) {
+        try {
+            gate.handle(null, admission, ctx -> work.run());
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void awaitQueued(DbGate gate, int count) throws InterruptedException {
+        while (gate.waiting() < count) {
+            Thread.sleep(5);
+        }
+    }
+
+    /** Work run while holding a permit. */
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    @Test
+    @DisplayName("Interactive waiters are admitted before batch waiters that queued earlier")
+    void interactiveGoesFirst() throws Exception {
+        DbGate gate = new DbGate(1, 10, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = occupy(gate, release);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        Admission batch = new Admission(Admission.Priority.BATCH, Long.MAX_VALUE);
+
+        Thread b1 = Thread.ofVirtual().start(() -> run(gate, batch, () -> order.add("batch")));
+        awaitQueued(gate, 1);
+        Thread b2 = Thread.ofVirtual().start(() -> run(gate, batch, () -> order.add("batch")));
+        awaitQueued(gate, 2);
+        Thread i1 = Thread.ofVirtual().start(() -> run(gate, Admission.NONE, () -> order.add("interactive")));
+        awaitQueued(gate, 3);
+
+        release.countDown();
+        for (Thread t : new Thread[] {holder, b1, b2, i1}) {
+            t.join(5_000);
+        }
+        assertEquals(List.of("interactive", "batch", "batch"), order);
+    }
+
+    @Test
+    @DisplayName("With the queue full, an interactive arrival displaces the newest batch waiter")
+    void interactiveDisplacesBatch() throws Exception {
+        DbGate gate = new DbGate(1, 1, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = occupy(gate, release);
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        Thread b1 = Thread.ofVirtual().start(() ->
+            run(gate, new Admission(Admission.Priority.BATCH, Long.MAX_VALUE), () -> ran.add("batch")));
+        awaitQueued(gate, 1);
+        Thread i1 = Thread.ofVirtual().start(() -> run(gate, Admission.NONE, () -> ran.add("interactive")));
+        b1.join(5_000);
+
+        assertEquals(1, gate.shed(Admission.Priority.BATCH));
+        release.countDown();
+        holder.join(5_000);
+        i1.join(5_000);
+        assertEquals(List.of("interactive"), ran);
+        assertEquals(0, gate.shed(Admission.Priority.INTERACTIVE));
+    }
+
+    @Test
+    @DisplayName("A queued request is shed once its deadline can no longer be met, before it runs")
+    void queuedRequestPastDeadlineIsShed() throws Exception {
+        DbGate gate = new DbGate(1, 10, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = occupy(gate, release);
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        long started = System.nanoTime();
+        run(gate, new Admission(Admission.Priority.INTERACTIVE, System.nanoTime() + 200_000_000L),
+            () -> ran.add("late"));
+        long waitedMs = (System.nanoTime() - started) / 1_000_000L;
+
+        assertTrue(ran.isEmpty(), "no database work for a request that missed its deadline");
+        assertTrue(waitedMs < 5_000, "gave up at the deadline, not maxWait: " + waitedMs);
+        assertEquals(1, gate.shed(Admission.Priority.INTERACTIVE));
+
+        release.countDown();
+        holder.join(5_000);
+        // The gate now knows its service time; a budget shorter than that is refused outright.
+        run(gate, new Admission(Admission.Priority.INTERACTIVE, System.nanoTime() + 1_000L),
+            () -> ran.add("too short"));
+        assertTrue(ran.isEmpty());
+        assertEquals(2, gate.shed(Admission.Priority.INTERACTIVE));
+    }
+
+    @Test
+    @DisplayName("Headers set priority and deadline; exports default to batch, other reports to interactive")
+    void headersAndDefaults() {
+        DbGate exports = new DbGate(1, 0, Duration.ZERO);
+        ReportPipeline pipeline = new ReportPipeline(null, null,
+            new Bulkheads(Map.of(ReportClass.EXPORT, exports, ReportClass.LOOKUP, exports)), null, null);
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        Javalin app = Javalin.create();
+        app.get("/export", pipeline.wrap("R01", ctx -> ran.add("export")));
+        app.get("/lookup", pipeline.wrap("R26", ctx -> ran.add("lookup")));
+
+        JavalinTest.test(app, (server, client) -> {
+            client.get("/export").close();
+            client.get("/lookup").close();
+            try (Response expired = client.request(new Request.Builder()
+                    .url(client.getOrigin() + "/lookup")
+                    .header(Admission.DEADLINE_HEADER, "0")
+                    .header(Admission.PRIORITY_HEADER, "batch")
+                    .build())) {
+                assertEquals(503, expired.code());
+            }
+            assertEquals(List.of("export", "lookup"), ran);
+            assertEquals(1, exports.shed(Admission.Priority.BATCH), "header overrides the default");
+            assertEquals(0, exports.shed(Admission.Priority.INTERACTIVE));
+        });
+    }
+
+    @Test
+    @DisplayName("The deadline runs from arrival, so time queued for a worker counts against it")
+    void deadlineStartsOnArrival() {
+        DbGate lookups = new DbGate(4, 10, Duration.ofSeconds(10));
+        ReportPipeline pipeline = new ReportPipeline(null, null, new Bulkheads(Map.of(ReportClass.LOOKUP, lookups)),
+            new AsyncReports(1, Duration.ofSeconds(10)), null);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+
+        Javalin app = Javalin.create();
+        app.get("/slow", pipeline.wrap("R01", ctx -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            ctx.result("slow");
+        }));
+        app.get("/lookup", pipeline.wrap("R26", ctx -> ran.add("lookup")));
+
+        JavalinTest.test(app, (server, client) -> {
+            // The only worker is busy, so the lookup waits in the executor queue.
+            Thread slow = Thread.ofVirtual().start(() -> client.get("/slow").close());
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Thread.ofVirtual().start(() -> {
+                sleepQuietly(500);
+                release.countDown();
+            });
+            try (Response late = client.request(new Request.Builder()
+                    .url(client.getOrigin() + "/lookup")
+                    .header(Admission.DEADLINE_HEADER, "200")
+                    .build())) {
+                assertEquals(503, late.code());
+            }
+            slow.join(5_000);
+            assertTrue(ran.isEmpty(), "no database work once the budget was spent queueing");
+            assertEquals(1, lookups.shed(Admission.Priority.INTERACTIVE));
+
+            // A huge budget is clamped rather than overflowing into the past.
+            try (Response patient = client.request(new Request.Builder()
+                    .url(client.getOrigin() + "/lookup")
+                    .header(Admission.DEADLINE_HEADER, String.valueOf(Long.MAX_VALUE))
+                    .build())) {
+                assertEquals(200, patient.code());
+            }
+            assertEquals(List.of("lookup"), ran);
+        });
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.group13.population.web;
+
+import com.group13.population.cache.DataVersion;
+import io.javalin.Javalin;
+import io.javalin.http.BadRequestResponse;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Response;
+import org.eclipse.jetty.server.Server;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link AsyncReports} through {@link ReportPipeline}: database
+ * work runs on the executor, Jetty threads stay free for cheap requests,
+ * and a missed deadline cancels the work and is answered like an outage.
+ */
+class AsyncReportsTest {
+
+    @Test
+    @DisplayName("Slow reports run on the database executor and do not starve /health")
+    void slowReportsDoNotHoldJettyThreads() {
+        int slow = 24;
+        CountDownLatch allStarted = new CountDownLatch(slow);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncReports async = new AsyncReports(slow, Duration.ofSeconds(20));
+        ReportPipeline pipeline = new ReportPipeline(new ResponseCache(100), null, null, async, null);
+
+        // Fewer Jetty threads than there are slow reports in flight.
+        Javalin app = Javalin.create(cfg -> cfg.jetty.server(() ->
+            new Server(ServerThreads.threadPool(ServerThreads.Mode.PLATFORM, 16))));
+        async.register(app);
+        app.get("/health", ctx -> ctx.result("OK"));
+        app.get("/slow/{n}", pipeline.wrap("R01", ctx -> {
+            allStarted.countDown();
+            release.await(20, TimeUnit.SECONDS);
+            ctx.result(Thread.currentThread().getName());
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            HttpClient http = HttpClient.newHttpClient();
+            List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+            for (int i = 0; i < slow; i++) {
+                pending.add(http.sendAsync(
+                    HttpRequest.newBuilder(URI.create(client.getOrigin() + "/slow/" + i)).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+            }
+            assertTrue(allStarted.await(10, TimeUnit.SECONDS), "every slow report is running");
+
+            try (Response health = client.get("/health")) {
+                assertEquals("OK", health.body().string());
+            }
+
+            release.countDown();
+            for (CompletableFuture<HttpResponse<String>> response : pending) {
+                assertTrue(response.get(10, TimeUnit.SECONDS).body().startsWith("db-worker-"));
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("A missed deadline interrupts the worker and gets 503, or the last good copy")
+    void deadlineIsAnsweredLikeAnOutage() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger interrupted = new AtomicInteger();
+        DataVersion version = new DataVersion();
+        ResponseCache cache = new ResponseCache(100, version);
+        AsyncReports async = new AsyncReports(2, Duration.ofMillis(200));
+        ReportPipeline pipeline = new ReportPipeline(cache, null, null, async, null);
+
+        Javalin app = Javalin.create();
+        async.register(app);
+        app.get("/report", pipeline.wrap("R01", ctx -> {
+            if (calls.incrementAndGet() > 1) {
+                sleepUnlessInterrupted(interrupted);
+            }
+            ctx.result("rows " + calls.get());
+        }));
+        app.get("/never-cached", pipeline.wrap("R02", ctx -> {
+            sleepUnlessInterrupted(interrupted);
+            ctx.result("late");
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response timedOut = client.get("/never-cached")) {
+                assertEquals(503, timedOut.code());
+                assertNotNull(timedOut.header("Retry-After"));
+            }
+
+            try (Response first = client.get("/report")) {
+                assertEquals("rows 1", first.body().string());
+            }
+            // New data version, so the next request misses and is slow.
+            version.bump("test");
+            try (Response stale = client.get("/report")) {
+                assertEquals(200, stale.code());
+                assertEquals("STALE", stale.header(ReportPipeline.CACHE_HEADER));
+                assertEquals("rows 1", stale.body().string());
+            }
+            assertEquals(2, async.timeouts());
+            // Both workers were stopped; neither wrote into the finished response.
+            assertEquals(2, interrupted.get());
+            assertEquals(1, cache.size());
+        });
+    }
+
+    @Test
+    @DisplayName("Work still queued at its deadline never runs")
+    void queuedWorkPastItsDeadlineIsSkipped() {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncReports async = new AsyncReports(1, Duration.ofMillis(200));
+        ReportPipeline pipeline = new ReportPipeline(null, null, null, async, null);
+
+        Javalin app = Javalin.create();
+        async.register(app);
+        app.get("/report/{n}", pipeline.wrap("R01", ctx -> {
+            runs.incrementAndGet();
+            // Ignores interrupts, so the one worker stays busy past the deadline.
+            boolean released = false;
+            while (!released) {
+                try {
+                    released = release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ignored) {
+                    // keep the worker busy
+                }
+            }
+            ctx.result("rows");
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            HttpClient http = HttpClient.newHttpClient();
+            CompletableFuture<HttpResponse<String>> first = http.sendAsync(
+                HttpRequest.newBuilder(URI.create(client.getOrigin() + "/report/1")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            while (runs.get() < 1) {
+                Thread.sleep(5);
+            }
+            CompletableFuture<HttpResponse<String>> queued = http.sendAsync(
+                HttpRequest.newBuilder(URI.create(client.getOrigin() + "/report/2")).build(),
+                HttpResponse.BodyHandlers.ofString());
+            Thread.sleep(400);
+            release.countDown();
+
+            assertEquals(503, queued.get(10, TimeUnit.SECONDS).statusCode());
+            assertEquals(1, runs.get());
+            first.get(10, TimeUnit.SECONDS);
+        });
+    }
+
+    /** Sleep for a second; count and rethrow an interrupt. */
+    private static void sleepUnlessInterrupted(AtomicInteger interrupted) throws InterruptedException {
+        try {
+            Thread.sleep(1_000);
+        } catch (InterruptedException ex) {
+            interrupted.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    @Test
+    @DisplayName("Cache hits skip the executor; handler errors still map to their status")
+    void hitsStayOnTheRequestThread() {
+        ResponseCache cache = new ResponseCache(100);
+        AsyncReports async = new AsyncReports(1, Duration.ofSeconds(5));
+        ReportPipeline pipeline = new ReportPipeline(cache, null, null, async, null);
+
+        Javalin app = Javalin.create();
+        async.register(app);
+        app.get("/report", pipeline.wrap("R01", ctx -> ctx.result("rows")));
+        app.get("/bad", pipeline.wrap("R02", ctx -> {
+            throw new BadRequestResponse("bad n");
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            client.get("/report").close();
+            try (Response hit = client.get("/report")) {
+                assertEquals("HIT", hit.header(ReportPipeline.CACHE_HEADER));
+            }
+            // The routing check does not count: one miss, one hit.
+            assertEquals(1, cache.hits());
+            assertEquals(1, cache.misses());
+
+            try (Response bad = client.get("/bad")) {
+                assertEquals(400, bad.code());
+            }
+        });
+    }
+}
@@ -0,0 +1,164 @@
+package com.group13.population.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.group13.population.columnar.ColumnarWriter;
+import io.javalin.Javalin;
+import io.javalin.testtools.HttpClient;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link BatchRoutes}: items are fetched through the normal
+ * routes, in parallel, and returned in request order in one JSON envelope.
+ * Small stub report routes stand in for the real ones.
+ */
+class BatchRoutesTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private static Javalin app(BatchRoutes batch) {
+        Javalin app = Javalin.create();
+        app.get("/api/csv", ctx -> ctx.contentType("text/csv; charset=utf-8").result("A,B\n1,2\n"));
+        app.get("/api/json", ctx -> ctx.contentType("application/json")
+            .result("[{\"A\":\"" + ctx.header("Accept") + "\"}]"));
+        app.get("/api/binary", ctx -> ctx.contentType(ColumnarWriter.MEDIA_TYPE)
+            .result(new byte[] {1, 2, 3}));
+        batch.register(app);
+        return app;
+    }
+
+    private static JsonNode post(HttpClient client, String body, int expectedStatus)
+        throws Exception {
+        Request request = new Request.Builder()
+            .url(client.getOrigin() + "/api/batch")
+            .post(RequestBody.create(body, JSON))
+            .build();
+        try (Response res = client.request(request)) {
+            assertEquals(expectedStatus, res.code());
+            return expectedStatus == 200 ? MAPPER.readTree(res.body().string()) : null;
+        }
+    }
+
+    @Test
+    @DisplayName("Results come back in request order with text, JSON and binary bodies")
+    void mixedBatch() {
+        BatchRoutes batch = new BatchRoutes(4, 10, Duration.ofSeconds(10));
+
+        JavalinTest.test(app(batch), (server, client) -> {
+            JsonNode responses = post(client, "{\"requests\": ["
+                + "\"/api/csv\","
+                + "{\"id\": \"j\", \"path\": \"/api/json\", \"accept\": \"application/json\"},"
+                + "{\"id\": 7, \"path\": \"/api/binary\"},"
+                + "\"/api/missing\"]}", 200).get("responses");
+
+            assertEquals(4, responses.size());
+
+            assertEquals("/api/csv", responses.get(0).get("path").asText());
+            assertEquals(200, responses.get(0).get("status").asInt());
+            assertEquals("A,B\n1,2\n", responses.get(0).get("body").asText());
+            assertFalse(responses.get(0).has("id"));
+
+            assertEquals("j", responses.get(1).get("id").asText());
+            assertEquals("application/json",
+                responses.get(1).get("body").get(0).get("A").asText(), "embedded as JSON");
+
+            assertEquals("7", responses.get(2).get("id").asText());
+            assertArrayEquals(new byte[] {1, 2, 3},
+                Base64.getDecoder().decode(responses.get(2).get("bodyBase64").asText()));
+
+            assertEquals(404, responses.get(3).get("status").asInt());
+        });
+    }
+
+    @Test
+    @DisplayName("Items run concurrently; a slow item times out without holding up the batch")
+    void itemsRunConcurrentlyAndTimeOut() {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        BatchRoutes batch = new BatchRoutes(3, 10, Duration.ofMillis(1500));
+        Javalin app = app(batch);
+        // Each item only finishes once the other has started.
+        app.get("/api/together", ctx -> {
+            bothStarted.countDown();
+            ctx.result(String.valueOf(bothStarted.await(5, TimeUnit.SECONDS)));
+        });
+        app.get("/api/slow", ctx -> {
+            release.await(10, TimeUnit.SECONDS);
+            ctx.result("late");
+        });
+
+        JavalinTest.test(app, (server, client) -> {
+            long started = System.nanoTime();
+            JsonNode responses = post(client,
+                "[\"/api/together\", \"/api/together\", \"/api/slow\"]", 200).get("responses");
+            long elapsedMs = (System.nanoTime() - started) / 1_000_000L;
+            release.countDown();
+
+            assertEquals("true", responses.get(0).get("body").asText());
+            assertEquals("true", responses.get(1).get("body").asText());
+            assertEquals(504, responses.get(2).get("status").asInt());
+            assertTrue(elapsedMs < 5000, "batch took " + elapsedMs + " ms");
+        });
+    }
+
+    @Test
+    @DisplayName("Malformed bodies, oversized batches and non-report paths are 400")
+    void badBatchesAreRejected() {
+        BatchRoutes batch = new BatchRoutes(1, 2, Duration.ofSeconds(5));
+
+        JavalinTest.test(app(batch), (server, client) -> {
+            post(client, "not json", 400);
+            post(client, "{\"requests\": []}", 400);
+            post(client, "[\"/api/csv\", \"/api/csv\", \"/api/csv\"]", 400);
+            post(client, "[\"/admin/cache-stats\"]", 400);
+            post(client, "[\"/api/batch\"]", 400);
+            post(client, "[\"/api/exports/0123456789abcdef\"]", 400);
+            post(client, "[\"/health\"]", 400);
+            post(client, "[\"/api/../admin\"]", 400);
+            post(client, "[{\"id\": \"x\"}]", 400);
+        });
+    }
+
+    @Test
+    @DisplayName("Each item is charged to the caller at its own report's cost")
+    void itemsAreChargedPerReport() {
+        RateLimiter limiter = new RateLimiter(30, 0.001, 600, 100, Set.of(), Map.of(ReportClass.EXPORT, 10));
+        ReportPipeline pipeline = new ReportPipeline(null, null, null, null, limiter);
+        BatchRoutes batch = new BatchRoutes(4, 10, Duration.ofSeconds(10), limiter);
+        Javalin app = app(batch);
+        app.get("/api/export", pipeline.wrap("R07", ctx -> ctx.result("rows")));
+
+        JavalinTest.test(app, (server, client) -> {
+            JsonNode responses = post(client,
+                "[\"/api/export\", \"/api/export\", \"/api/export\", \"/api/export\"]", 200)
+                .get("responses");
+
+            int ok = 0;
+            int throttled = 0;
+            for (JsonNode response : responses) {
+                ok += response.get("status").asInt() == 200 ? 1 : 0;
+                throttled += response.get("status").asInt() == 429 ? 1 : 0;
+            }
+            assertEquals(3, ok, "30 tokens pay for three exports");
+            assertEquals(1, throttled);
+            // The items drew on the caller's own bucket.
+            assertEquals(429, client.get("/api/export").code());
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package com.group13.population.web;
+
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link Bulkheads} and {@link ReportClass}: each report class
+ * has its own permits and queue, so saturating one leaves the others
+ * untouched.
+ */
+class BulkheadsTest {
+
+    @Test
+    @DisplayName("Report ids map to export, top-N, aggregate and lookup classes")
+    void reportClasses() {
+        for (String id : new String[] {"R01", "R03", "R07", "R11", "R17", "R19", "R25"}) {
+            assertEquals(ReportClass.EXPORT, ReportClass.of(id), id);
+        }
+        for (String id : new String[] {"R04", "R06", "R12", "R16", "R20", "R22", "Q01"}) {
+            assertEquals(ReportClass.TOP_N, ReportClass.of(id), id);
+        }
+        for (String id : new String[] {"R23", "R24", "R32"}) {
+            assertEquals(ReportClass.AGGREGATE, ReportClass.of(id), id);
+        }
+        for (String id : new String[] {"R26", "R27", "R31", "X", ""}) {
+            assertEquals(ReportClass.LOOKUP, ReportClass.of(id), id);
+        }
+        assertEquals("top_n", ReportClass.TOP_N.configName());
+    }
+
+    @Test
+    @DisplayName("A saturated export bulkhead rejects exports but not lookups")
+    void saturationStaysInItsClass() {
+        DbGate exports = new DbGate(1, 0, Duration.ofSeconds(5));
+        DbGate lookups = new DbGate(4, 10, Duration.ofSeconds(5));
+        Bulkheads bulkheads = new Bulkheads(Map.of(
+            ReportClass.EXPORT, exports,
+            ReportClass.LOOKUP, lookups));
+        ReportPipeline pipeline = new ReportPipeline(null, null, bulkheads, null, null);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Javalin app = Javalin.create();
+        app.get("/export", pipeline.wrap("R01", ctx -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            ctx.result("all countries");
+        }));
+        app.get("/export2", pipeline.wrap("R07", ctx -> ctx.result("all cities")));
+        app.get("/lookup", pipeline.wrap("R26", ctx -> ctx.result("world")));
+        app.get("/top", pipeline.wrap("R04", ctx -> ctx.result("top")));
+
+        JavalinTest.test(app, (server, client) -> {
+            Thread holder = new Thread(() -> client.get("/export").close());
+            holder.start();
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            try (Response export = client.get("/export2")) {
+                assertEquals(503, export.code(), "no queue room in the export bulkhead");
+            }
+            try (Response lookup = client.get("/lookup")) {
+                assertEquals(200, lookup.code());
+            }
+            try (Response top = client.get("/top")) {
+                assertEquals(200, top.code(), "classes without a bulkhead are not limited");
+            }
+
+            String stats = bulkheads.stats();
+            assertTrue(stats.contains("bulkhead.export.inUse=1\n"), stats);
+            assertTrue(stats.contains("bulkhead.export.rejected=1\n"), stats);
+            assertTrue(stats.contains("bulkhead.lookup.inUse=0\n"), stats);
+            assertTrue(stats.contains("bulkhead.lookup.rejected=0\n"), stats);
+
+            release.countDown();
+            holder.join(5_000);
+        });
+    }
+
+    @Test
+    @DisplayName("shared() puts every class behind one gate")
+    void sharedGate() {
+        DbGate gate = new DbGate(3, Duration.ZERO);
+        Bulkheads bulkheads = Bulkheads.shared(gate);
+
+        for (ReportClass reportClass : ReportClass.values()) {
+            assertSame(gate, bulkheads.get(reportClass));
+        }
+        assertSame(gate, bulkheads.forReport("R01"));
+    }
+}
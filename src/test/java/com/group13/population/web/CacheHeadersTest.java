@@ -0,0 +1,60 @@
+package com.group13.population.web;
+
+import com.group13.population.cache.DataVersion;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CacheHeaders}: Cache-Control values, per-report
+ * overrides and If-Modified-Since handling.
+ */
+class CacheHeadersTest {
+
+    @Test
+    @DisplayName("Cache-Control lists max-age, stale-while-revalidate and stale-if-error")
+    void headerValueListsAllDirectives() {
+        assertEquals("public, max-age=300, stale-while-revalidate=60, stale-if-error=86400",
+            CacheHeaders.Policy.DEFAULT.headerValue());
+        assertEquals("public, max-age=0",
+            new CacheHeaders.Policy(-5, 0, 0).headerValue());
+    }
+
+    @Test
+    @DisplayName("Per-report overrides win over the default policy")
+    void perReportOverride() {
+        CacheHeaders.Policy world = new CacheHeaders.Policy(3600, 0, 0);
+        CacheHeaders headers = new CacheHeaders(
+            new DataVersion(), CacheHeaders.Policy.DEFAULT, Map.of("R26", world));
+
+        assertSame(world, headers.policyFor("R26"));
+        assertSame(CacheHeaders.Policy.DEFAULT, headers.policyFor("R01"));
+    }
+
+    @Test
+    @DisplayName("Last-Modified follows the data version, in whole seconds")
+    void lastModifiedTracksDataVersion() {
+        DataVersion version = new DataVersion();
+        CacheHeaders headers = new CacheHeaders(version, CacheHeaders.Policy.DEFAULT, Map.of());
+
+        assertEquals(version.lastModified().truncatedTo(ChronoUnit.SECONDS), headers.lastModified());
+        assertEquals(0, headers.lastModified().getNano());
+    }
+
+    @Test
+    @DisplayName("notModified compares If-Modified-Since with Last-Modified")
+    void notModifiedComparesDates() {
+        Instant lastModified = Instant.parse("2024-05-01T10:00:00Z");
+
+        assertTrue(CacheHeaders.notModified("Wed, 1 May 2024 10:00:00 GMT", lastModified));
+        assertTrue(CacheHeaders.notModified("Thu, 2 May 2024 10:00:00 GMT", lastModified));
+        assertFalse(CacheHeaders.notModified("Wed, 1 May 2024 09:59:59 GMT", lastModified));
+        assertFalse(CacheHeaders.notModified("yesterday", lastModified));
+        assertFalse(CacheHeaders.notModified(null, lastModified));
+    }
+}
@@ -0,0 +1,161 @@
+package com.group13.population.web;
+
+import com.group13.population.db.Db;
+import com.group13.population.repo.ScopeRepo;
+import io.javalin.Javalin;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.http.HttpClient;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link CacheWarmer}.
+ *
+ * <p>The warm-up is run against a throwaway Javalin server that answers
+ * every report path, with a stub {@link ScopeRepo} supplying one scope of
+ * each kind, so no database is needed.</p>
+ */
+class CacheWarmerTest {
+
+    /** ScopeRepo returning one fixed name per scope type. */
+    private static final class StubScopeRepo extends ScopeRepo {
+        StubScopeRepo() {
+            super(new Db());
+        }
+
+        @Override
+        public List<String> findContinents() {
+            return List.of("Asia");
+        }
+
+        @Override
+        public List<String> findRegions() {
+            return List.of("Caribbean");
+        }
+
+        @Override
+        public List<String> findCountries() {
+            return List.of("Myanmar");
+        }
+
+        @Override
+        public List<String> findDistricts() {
+            return List.of("Rangoon");
+        }
+    }
+
+    @Test
+    @DisplayName("New warmer is ready (nothing scheduled)")
+    void idleWarmerIsReady() {
+        CacheWarmer warmer = new CacheWarmer(new StubScopeRepo(), () -> true, new int[] {5}, 2);
+
+        assertEquals(CacheWarmer.State.IDLE, warmer.state());
+        assertTrue(warmer.isReady());
+    }
+
+    @Test
+    @DisplayName("Pending warmer is not ready")
+    void pendingWarmerIsNotReady() {
+        CacheWarmer warmer = new CacheWarmer(new StubScopeRepo(), () -> true, new int[] {5}, 2);
+
+        warmer.markPending();
+
+        assertFalse(warmer.isReady());
+    }
+
+    @Test
+    @DisplayName("Warm-up is skipped when the database is not connected")
+    void skipsWhenDbNotConnected() {
+        CacheWarmer warmer = new CacheWarmer(new StubScopeRepo(), () -> false, new int[] {5}, 2);
+
+        warmer.run(1);
+
+        assertTrue(warmer.isReady());
+        assertEquals(CacheWarmer.State.DONE, warmer.state());
+        assertTrue(warmer.summary().contains("skipped"));
+    }
+
+    @Test
+    @DisplayName("Warm-up requests every catalogue entry in parallel and reports coverage")
+    void rendersWholeCatalogue() {
+        AtomicInteger requests = new AtomicInteger();
+        Javalin app = Javalin.create();
+        app.get("/<path>", ctx -> {
+            requests.incrementAndGet();
+            if (ctx.path().contains("languages")) {
+                ctx.status(500);
+            }
+            ctx.result("ok");
+        });
+        app.start(0);
+
+        try {
+            CacheWarmer warmer =
+                new CacheWarmer(new StubScopeRepo(), () -> true, new int[] {5}, 4);
+            warmer.run(app.port());
+
+            int expected = ReportCatalogue.entries(
+                List.of("Asia"), List.of("Caribbean"), List.of("Myanmar"),
+                List.of("Rangoon"), new int[] {5}).size();
+
+            assertEquals(expected, requests.get());
+            assertTrue(warmer.isReady());
+            assertTrue(warmer.summary().startsWith(
+                "rendered " + (expected - 1) + "/" + expected + " reports"),
+                warmer.summary());
+            assertTrue(warmer.summary().contains("R32=0/1"), warmer.summary());
+        } finally {
+            app.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Warm-up requests are batch priority; ones shed as busy are retried, outages are not")
+    void retriesShedRequestsAtBatchPriority() {
+        AtomicInteger busy = new AtomicInteger();
+        AtomicInteger down = new AtomicInteger();
+        Javalin app = Javalin.create();
+        app.get("/busy", ctx -> {
+            assertEquals("batch", ctx.header(Admission.PRIORITY_HEADER));
+            assertNotNull(ctx.header(Admission.DEADLINE_HEADER));
+            if (busy.incrementAndGet() == 1) {
+                ctx.status(503).header("Retry-After", "0");
+            }
+            ctx.result("ok");
+        });
+        app.get("/down", ctx -> {
+            down.incrementAndGet();
+            ctx.status(503).header("Retry-After", "30").result("down");
+        });
+        app.start(0);
+
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://127.0.0.1:" + app.port();
+            assertTrue(CacheWarmer.render(client, base + "/busy"));
+            assertEquals(2, busy.get());
+            assertFalse(CacheWarmer.render(client, base + "/down"));
+            assertEquals(1, down.get(), "a database outage is not retried");
+        } finally {
+            app.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("describe() formats totals and per-report coverage")
+    void describeFormatsCoverage() {
+        Map<String, int[]> coverage = new TreeMap<>();
+        coverage.put("R01", new int[] {1, 1});
+        coverage.put("R02", new int[] {6, 7});
+
+        String text = CacheWarmer.describe(8, coverage, 42);
+
+        assertEquals("rendered 7/8 reports in 42 ms [R01=1/1, R02=6/7]", text);
+    }
+}
@@ -120,11 +120,9 @@ class CapitalApiRoutesTest {
                         index++;
                         return index < rows.length;
                     case "getString": {
-                        String column = (String) args[0];
+                        // positional: Name, Country (default column order)
                         Object[] row = rows[index];
-                        if ("city_name".equals(column)) return row[0];
-                        if ("country_name".equals(column)) return row[1];
-                        return null;
+                        return row[(Integer) args[0] - 1];
                     }
                     case "getLong":
                         return (Long) rows[index][2];
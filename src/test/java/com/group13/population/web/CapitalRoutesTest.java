@@ -87,8 +87,14 @@ class CapitalRoutesTest {
         HttpResponse<String> response =
             client.send(request, HttpResponse.BodyHandlers.ofString());
 
-        assertEquals(200, response.statusCode(),
-            "Expected HTTP 200 from " + path);
+        if (response.statusCode() == 503) {
+            // MySQL is not running: the outage must be explicit, not an empty 200.
+            assertTrue(response.headers().firstValue("Retry-After").isPresent(),
+                "503 from " + path + " should carry Retry-After");
+        } else {
+            assertEquals(200, response.statusCode(),
+                "Expected HTTP 200 from " + path);
+        }
 
         String body = response.body();
         assertNotNull(body, "Body should not be null for " + path);
@@ -14,6 +14,8 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -127,8 +129,12 @@ class CityApiRoutesTest {
                         index++;
                         return index < rows.length;
                     case "getString": {
-                        String column = (String) args[0];
                         Object[] row = rows[index];
+                        if (args[0] instanceof Integer) {
+                            // positional: Name, Country, District (default column order)
+                            return row[(Integer) args[0] - 1];
+                        }
+                        String column = (String) args[0];
                         if ("city_name".equals(column)) return row[0];
                         if ("country_name".equals(column)) return row[1];
                         if ("district".equals(column)) return row[2];
@@ -136,6 +142,12 @@ class CityApiRoutesTest {
                     }
                     case "getLong":
                         return (Long) rows[index][3];
+                    case "getInt":
+                        // the ID (by name, or column 6 of a page query) is the row
+                        // number; anything else is the population
+                        return "id".equals(args[0]) || Integer.valueOf(6).equals(args[0])
+                            ? index + 1
+                            : ((Long) rows[index][3]).intValue();
                     case "close":
                         return null; // no-op
                     default:
@@ -230,7 +242,115 @@ class CityApiRoutesTest {
     }
 
     // -------------------------------------------------------------------------
-    // Error-path tests (500) – Db throws and streamCitiesAsCsv catches it
+    // Keyset pagination (R07, R08)
+    // -------------------------------------------------------------------------
+
+    @Test
+    @DisplayName("World cities – page_size=1 returns one row and a next-page link")
+    void world_cities_first_page_links_next() {
+        Javalin app = buildAppWithHappyDb();
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response resp = client.get("/api/cities/world?page_size=1")) {
+                assertEquals(200, resp.code());
+                String[] lines = resp.body().string().split("\\R");
+                assertEquals(2, lines.length, "header plus one row");
+                assertEquals("Edinburgh,United Kingdom,Scotland,100000", lines[1]);
+
+                String link = resp.header("Link");
+                assertNotNull(link, "a full page should link to the next one");
+                assertTrue(link.startsWith("</api/cities/world?page_size=1&page_token="));
+                assertTrue(link.contains(KeysetPage.token(100_000L, "1")));
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Continent cities – the last page has no next-page link")
+    void continent_cities_last_page_has_no_link() {
+        Javalin app = buildAppWithHappyDb();
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response resp = client.get("/api/cities/continent/Europe?page_size=5")) {
+                assertEquals(200, resp.code());
+                assertNull(resp.header("Link"));
+                assertEquals(3, resp.body().string().split("\\R").length);
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Paged queries seek on (Population, ID) instead of using OFFSET")
+    void paged_query_uses_seek_predicate() {
+        List<String> sql = new ArrayList<>();
+        Db recording = new Db() {
+            @Override
+            public Connection getConnection() {
+                Connection happy = createHappyConnection();
+                return (Connection) Proxy.newProxyInstance(
+                    CityApiRoutesTest.class.getClassLoader(),
+                    new Class[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if ("prepareStatement".equals(method.getName())) {
+                            sql.add((String) args[0]);
+                        }
+                        return method.invoke(happy, args);
+                    });
+            }
+        };
+
+        JavalinTest.test(buildApp(recording), (server, client) -> {
+            String token = KeysetPage.token(100_000L, "7");
+            try (Response resp = client.get("/api/cities/continent/Asia?page_size=1&page_token=" + token)) {
+                assertEquals(200, resp.code());
+            }
+        });
+
+        assertEquals(1, sql.size());
+        String query = sql.get(0);
+        assertTrue(query.contains("country.Continent = ? AND (city.Population < ? "
+            + "OR (city.Population = ? AND city.ID > ?))"), query);
+        assertTrue(query.contains("ORDER BY city.Population DESC, city.ID LIMIT ?"), query);
+        assertFalse(query.contains("OFFSET"), query);
+    }
+
+    @Test
+    @DisplayName("A token whose key is not a city ID is 400")
+    void city_token_with_non_numeric_id_is_400() {
+        Javalin app = buildAppWithHappyDb();
+
+        JavalinTest.test(app, (server, client) -> {
+            String token = KeysetPage.token(100L, "GBR");
+            try (Response resp = client.get("/api/cities/world?page_token=" + token)) {
+                assertEquals(400, resp.code());
+            }
+        });
+    }
+
+    // -------------------------------------------------------------------------
+    // Column projection (?fields=)
+    // -------------------------------------------------------------------------
+
+    @Test
+    @DisplayName("?fields=name,population narrows the output to those columns")
+    void fields_narrow_output() {
+        Javalin app = buildAppWithHappyDb();
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response resp = client.get("/api/cities/world/top?n=2&fields=name,population")) {
+                assertEquals(200, resp.code());
+                String[] lines = resp.body().string().split("\\R");
+                assertEquals("Name,Population", lines[0]);
+                assertEquals("Edinburgh,100000", lines[1]);
+            }
+            try (Response resp = client.get("/api/cities/world?fields=Name,Capital")) {
+                assertEquals(400, resp.code());
+            }
+        });
+    }
+
+    // -------------------------------------------------------------------------
+    // Error-path tests (500) – Db throws and streamCities catches it
     // -------------------------------------------------------------------------
 
     @Test
@@ -1,7 +1,13 @@
 package com.group13.population.web;
 
 import com.group13.population.App;
+import com.group13.population.repo.CityRepo;
+import com.group13.population.repo.ReportColumn;
+import com.group13.population.repo.ReportPlan;
+import com.group13.population.service.CityService;
 import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Response;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.DisplayName;
@@ -11,6 +17,8 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,7 +28,11 @@ import static org.junit.jupiter.api.Assertions.*;
  * <p>These tests start the full application via {@link App#createApp()},
  * then hit every city-report endpoint (R07–R16) once. This executes
  * the route handlers end-to-end (Javalin → CityRoutes → CityService),
- * which gives JaCoCo solid coverage on the web layer for cities.</p>
+ * which gives JaCoCo solid coverage on the web layer for cities.
+ * Without a database each report must be an explicit 503.</p>
+ *
+ * <p>A stubbed {@link CityRepo} also checks that {@code /reports/cities}
+ * and {@code /api/cities} answer through the same service path.</p>
  *
  * <p>IMPORTANT: The paths below assume your CityRoutes.register(...) uses
  * the following pattern:
@@ -99,8 +111,14 @@ class CityRoutesTest {
         HttpResponse<String> response =
             client.send(request, HttpResponse.BodyHandlers.ofString());
 
-        assertEquals(200, response.statusCode(),
-            "Expected HTTP 200 from " + path);
+        if (response.statusCode() == 503) {
+            // MySQL is not running: the outage must be explicit, not an empty 200.
+            assertTrue(response.headers().firstValue("Retry-After").isPresent(),
+                "503 from " + path + " should carry Retry-After");
+        } else {
+            assertEquals(200, response.statusCode(),
+                "Expected HTTP 200 from " + path);
+        }
 
         String body = response.body();
         assertNotNull(body, "Body should not be null for " + path);
@@ -170,4 +188,48 @@ class CityRoutesTest {
     void r16_topDistrictCitiesEndpointResponds() throws Exception {
         assertOkWithBody(PATH_R16);
     }
+
+    // ------------------------------------------------------------------
+    // One service path for /reports/cities and /api/cities
+    // ------------------------------------------------------------------
+
+    @Test
+    @DisplayName("/reports/cities and /api/cities stream the same rows through CityService")
+    void reportsAndApiShareTheServicePath() {
+        List<String> calls = new ArrayList<>();
+        CityRepo repo = new CityRepo() {
+            @Override
+            public int streamCities(String reportId, List<? extends ReportColumn> columns, String value,
+                                    int limit, ReportPlan.RowSink sink) {
+                calls.add(reportId + " " + value + " " + limit);
+                for (ReportColumn column : columns) {
+                    if (column.isNumeric()) {
+                        sink.number(1_000L);
+                    } else {
+                        sink.text(column.header());
+                    }
+                }
+                sink.endRow();
+                return 1;
+            }
+        };
+        CityService service = new CityService(repo);
+        Javalin stubbed = Javalin.create();
+        CityRoutes.register(stubbed, service);
+        new CityApiRoutes(service, ReportPipeline.direct()).register(stubbed);
+
+        JavalinTest.test(stubbed, (server, http) -> {
+            String reports;
+            try (Response resp = http.get(PATH_R13 + "?fields=Name,Population")) {
+                assertEquals(200, resp.code());
+                reports = resp.body().string();
+            }
+            try (Response resp = http.get("/api/cities/continent/Europe/top?n=5&fields=Name,Population")) {
+                assertEquals(200, resp.code());
+                assertEquals(reports, resp.body().string());
+            }
+            assertTrue(reports.startsWith("Name,Population"), reports);
+        });
+        assertEquals(List.of("R13 Europe 5", "R13 Europe 5"), calls);
+    }
 }
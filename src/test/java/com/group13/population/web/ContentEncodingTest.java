@@ -0,0 +1,56 @@
+package com.group13.population.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ContentEncoding}: Accept-Encoding negotiation and
+ * gzip / deflate round trips.
+ */
+class ContentEncodingTest {
+
+    @Test
+    @DisplayName("gzip is preferred, then deflate, then identity")
+    void negotiatesPreferredCoding() {
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(null));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("br"));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("deflate, gzip"));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate("*"));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate("deflate, br"));
+    }
+
+    @Test
+    @DisplayName("A coding with q=0 is treated as refused")
+    void qZeroRefusesCoding() {
+        assertEquals(ContentEncoding.DEFLATE,
+            ContentEncoding.negotiate("gzip;q=0, deflate;q=0.5"));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate("gzip; q=0.0"));
+    }
+
+    @Test
+    @DisplayName("Encoded bodies decode back to the original bytes")
+    void encodeRoundTrips() throws Exception {
+        byte[] body = "Name,Population\nWorld,6078749450\n".repeat(200)
+            .getBytes(StandardCharsets.UTF_8);
+
+        byte[] gzip = ContentEncoding.GZIP.encode(body);
+        byte[] deflate = ContentEncoding.DEFLATE.encode(body);
+
+        assertTrue(gzip.length * 5 < body.length, "repetitive CSV compresses well");
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(deflate))) {
+            assertArrayEquals(body, in.readAllBytes());
+        }
+        assertSame(body, ContentEncoding.IDENTITY.encode(body));
+    }
+}
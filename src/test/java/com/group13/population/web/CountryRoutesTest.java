@@ -2,6 +2,9 @@ package com.group13.population.web;
 
 import com.group13.population.App;
 import com.group13.population.model.CountryRow;
+import com.group13.population.repo.CountryColumn;
+import com.group13.population.repo.WorldRepo;
+import com.group13.population.service.CountryService;
 import io.javalin.Javalin;
 import io.javalin.testtools.HttpClient;
 import io.javalin.testtools.JavalinTest;
@@ -239,8 +242,9 @@ class CountryRoutesTest {
                      client.get("/api/countries/continent/NoSuchContinentXYZ")) {
 
                 int status = res.code();
-                assertTrue(status == 200 || status == 404,
-                    "Unknown continent should be handled with 200/404, got " + status);
+                // 503 is the explicit "database unavailable" answer when MySQL is not running.
+                assertTrue(status == 200 || status == 404 || status == 503,
+                    "Unknown continent should be handled with 200/404 (or 503 without a DB), got " + status);
 
                 String body = new String(res.body().bytes(), StandardCharsets.UTF_8);
                 assertFalse(body.isEmpty(), "Response body should not be empty");
@@ -428,4 +432,75 @@ class CountryRoutesTest {
         assertNotNull(csv, "CSV string should not be null for non-empty list");
         assertFalse(csv.trim().isEmpty(), "CSV should not be empty for non-empty list");
     }
+
+    // ------------------------------------------------------------------
+    // R01 keyset pagination
+    // ------------------------------------------------------------------
+
+    @Test
+    @DisplayName("R01 – page_size asks for one extra row and links past the page's last row")
+    void r01_pageLinksToNextPage() throws Exception {
+        List<Object[]> calls = new ArrayList<>();
+        CountryService service = new CountryService(new WorldRepo()) {
+            @Override
+            public List<CountryRow> getCountriesInWorldPage(long afterPopulation, String afterCode, int limit) {
+                calls.add(new Object[] {afterPopulation, afterCode, limit});
+                return List.of(
+                    new CountryRow("CHN", "China", "Asia", "Eastern Asia", 300L, "Peking"),
+                    new CountryRow("IND", "India", "Asia", "Southern and Central Asia", 200L, "New Delhi"),
+                    new CountryRow("USA", "United States", "North America", "North America", 100L, null));
+            }
+        };
+        Javalin app = Javalin.create();
+        new CountryRoutes(service).register(app);
+
+        JavalinTest.test(app, (Javalin server, HttpClient client) -> {
+            String token = KeysetPage.token(400L, "AAA");
+            try (Response res = client.get("/api/countries/world?page_size=2&page_token=" + token)) {
+                assertEquals(200, res.code());
+                String body = new String(res.body().bytes(), StandardCharsets.UTF_8);
+                assertEquals(List.of(300L, 200L), extractPopulations(body));
+                assertTrue(res.header("Link").contains(KeysetPage.token(200L, "IND")));
+            }
+        });
+
+        assertEquals(1, calls.size());
+        assertArrayEquals(new Object[] {400L, "AAA", 3}, calls.get(0));
+    }
+
+    // ------------------------------------------------------------------
+    // ?fields= projection
+    // ------------------------------------------------------------------
+
+    @Test
+    @DisplayName("R05 – ?fields=Code,Population asks the service for those columns only")
+    void r05_fieldsNarrowQueryAndOutput() throws Exception {
+        List<Object[]> calls = new ArrayList<>();
+        CountryService service = new CountryService(new WorldRepo()) {
+            @Override
+            public List<Object[]> getCountryColumns(List<CountryColumn> columns, CountryColumn filter,
+                                                    String value, int limit) {
+                calls.add(new Object[] {columns, filter, value, limit});
+                return List.of(new Object[] {"DEU", 82_164_700L}, new Object[] {"GBR", 59_623_400L});
+            }
+        };
+        Javalin app = Javalin.create();
+        new CountryRoutes(service).register(app);
+
+        JavalinTest.test(app, (Javalin server, HttpClient client) -> {
+            try (Response res = client.get("/api/countries/continent/Europe/top?n=2&fields=Code,Population")) {
+                assertEquals(200, res.code());
+                assertEquals("Code,Population\nDEU,82164700\nGBR,59623400\n",
+                    new String(res.body().bytes(), StandardCharsets.UTF_8));
+            }
+            try (Response res = client.get("/api/countries/world?fields=Code,District")) {
+                assertEquals(400, res.code());
+            }
+        });
+
+        assertEquals(1, calls.size());
+        assertArrayEquals(new Object[] {
+            List.of(CountryColumn.CODE, CountryColumn.POPULATION), CountryColumn.CONTINENT, "Europe", 2
+        }, calls.get(0));
+    }
 }
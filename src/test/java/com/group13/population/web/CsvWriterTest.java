@@ -0,0 +1,143 @@
+package com.group13.population.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link CsvWriter}: RFC 4180 escaping, UTF-8 output,
+ * integer and fixed-point formatting, and reuse of the per-thread buffer.
+ */
+class CsvWriterTest {
+
+    // ---------------------------------------------------------------------
+    // Escaping
+    // ---------------------------------------------------------------------
+
+    @Test
+    @DisplayName("escape – null, empty, plain, comma, quote, CR and LF")
+    void escapeHandlesAllCases() {
+        assertEquals("", CsvWriter.escape(null));
+        assertEquals("", CsvWriter.escape(""));
+        assertEquals("Plain", CsvWriter.escape("Plain"));
+        assertEquals("\"A,B\"", CsvWriter.escape("A,B"));
+        assertEquals("\"He said \"\"Hi\"\"\"", CsvWriter.escape("He said \"Hi\""));
+        assertEquals("\"line1\nline2\"", CsvWriter.escape("line1\nline2"));
+        assertEquals("\"a\rb\"", CsvWriter.escape("a\rb"));
+    }
+
+    @Test
+    @DisplayName("field writes a whole row the same way the routes used to build it")
+    void fieldWritesRow() {
+        CsvWriter csv = new CsvWriter();
+        csv.raw("Name,Country,Population\n")
+            .field("São Paulo").comma()
+            .field("Korea, South").comma()
+            .field(9_968_485L).newline()
+            .field((String) null).comma()
+            .field("\"Q\"").comma()
+            .field(-5L).newline();
+
+        assertEquals("Name,Country,Population\n"
+            + "São Paulo,\"Korea, South\",9968485\n"
+            + ",\"\"\"Q\"\"\",-5\n", csv.toString());
+    }
+
+    @Test
+    @DisplayName("UTF-8 output matches String.getBytes, including surrogate pairs")
+    void utf8MatchesJdkEncoder() {
+        String text = "Zürich – 東京 – 🌍 – A\"B";
+        CsvWriter csv = new CsvWriter().field(text);
+
+        assertArrayEquals(CsvWriter.escape(text).getBytes(StandardCharsets.UTF_8),
+            csv.toByteArray());
+    }
+
+    @Test
+    @DisplayName("A lone surrogate is written as '?' like the JDK encoder")
+    void loneSurrogateBecomesQuestionMark() {
+        String text = "a\uD800b";
+
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8),
+            new CsvWriter().field(text).toByteArray());
+    }
+
+    // ---------------------------------------------------------------------
+    // Numbers
+    // ---------------------------------------------------------------------
+
+    @Test
+    @DisplayName("field(long) writes zero, large and extreme values")
+    void longValues() {
+        CsvWriter csv = new CsvWriter();
+        csv.field(0L).comma().field(6_078_749_450L).comma()
+            .field(Long.MAX_VALUE).comma().field(Long.MIN_VALUE);
+
+        assertEquals("0,6078749450," + Long.MAX_VALUE + "," + Long.MIN_VALUE,
+            csv.toString());
+    }
+
+    @Test
+    @DisplayName("fixed2 matches String.format(\"%.2f\") for report percentages")
+    void fixed2MatchesStringFormat() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            long total = 1 + random.nextInt(2_000_000_000);
+            long part = (long) (random.nextDouble() * total);
+            double percent = part * 100.0 / total;
+
+            String expected = String.format(Locale.US, "%.2f", percent);
+            assertEquals(expected, new CsvWriter().fixed2(percent).toString(),
+                () -> "percent " + percent);
+        }
+    }
+
+    @Test
+    @DisplayName("fixed2 handles rounding edges, negatives, NaN and infinities")
+    void fixed2EdgeCases() {
+        double[] values = {0.0, 0.004, 0.005, 0.125, 1.005, 9.995, 99.999, 100.0,
+            -12.345, Double.NaN, Double.POSITIVE_INFINITY, 1e20};
+        for (double v : values) {
+            assertEquals(String.format(Locale.US, "%.2f", v),
+                new CsvWriter().fixed2(v).toString(), () -> "value " + v);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Buffer reuse
+    // ---------------------------------------------------------------------
+
+    @Test
+    @DisplayName("forThread returns the same, emptied writer on each call")
+    void forThreadReusesWriter() {
+        CsvWriter first = CsvWriter.forThread();
+        first.raw("old content");
+
+        CsvWriter second = CsvWriter.forThread();
+
+        assertSame(first, second);
+        assertEquals(0, second.size());
+        assertEquals("", second.toString());
+    }
+
+    @Test
+    @DisplayName("The buffer grows for large documents and toByteArray is a copy")
+    void bufferGrowsAndCopies() {
+        CsvWriter csv = new CsvWriter();
+        for (int i = 0; i < 10_000; i++) {
+            csv.field("City number " + i).comma().field(i).newline();
+        }
+        byte[] bytes = csv.toByteArray();
+        csv.reset();
+        csv.raw("x");
+
+        assertTrue(bytes.length > 100_000);
+        assertTrue(new String(bytes, StandardCharsets.UTF_8).startsWith("City number 0,0\n"));
+        assertEquals("x", csv.toString());
+    }
+}
@@ -0,0 +1,173 @@
+package com.group13.population.web;
+
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link DbGate}: at most N report handlers run at once, a
+ * request that cannot get a permit in time gets 503, and cache hits
+ * bypass the gate.
+ */
+class DbGateTest {
+
+    @Test
+    @DisplayName("A request that cannot get a permit in time is answered 503 with Retry-After")
+    void busyGateRejects() {
+        DbGate gate = new DbGate(1, Duration.ofMillis(100));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReportPipeline pipeline = new ReportPipeline(null, null, Bulkheads.shared(gate), null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/slow", pipeline.wrap("R01", ctx -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            ctx.result("slow");
+        }));
+        app.get("/fast", pipeline.wrap("R02", ctx -> ctx.result("fast")));
+
+        JavalinTest.test(app, (server, client) -> {
+            Thread holder = new Thread(() -> client.get("/slow").close());
+            holder.start();
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            assertEquals(1, gate.inUse());
+
+            try (Response busy = client.get("/fast")) {
+                assertEquals(503, busy.code());
+                assertEquals(String.valueOf(DbGate.BUSY_RETRY_AFTER_SECONDS), busy.header("Retry-After"));
+                assertEquals("no-store", busy.header("Cache-Control"));
+            }
+            assertEquals(1, gate.rejected());
+
+            release.countDown();
+            holder.join(5_000);
+            try (Response ok = client.get("/fast")) {
+                assertEquals(200, ok.code());
+                assertEquals("fast", ok.body().string());
+            }
+            assertEquals(0, gate.inUse());
+        });
+    }
+
+    @Test
+    @DisplayName("Handlers never run more than maxConcurrent at a time")
+    void concurrencyIsCapped() throws Exception {
+        DbGate gate = new DbGate(2, Duration.ofSeconds(10));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        Thread[] threads = new Thread[8];
+
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = Thread.ofVirtual().start(() -> {
+                try {
+                    gate.handle(null, ctx -> {
+                        peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        Thread.sleep(20);
+                        running.decrementAndGet();
+                    });
+                } catch (Exception ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+        }
+        for (Thread t : threads) {
+            t.join(10_000);
+        }
+
+        assertEquals(2, peak.get());
+        assertEquals(0, gate.rejected());
+        assertEquals(2, gate.maxConcurrent());
+    }
+
+    @Test
+    @DisplayName("Requests beyond the queue limit are rejected at once, without waiting")
+    void fullQueueRejectsImmediately() throws Exception {
+        DbGate gate = new DbGate(1, 1, Duration.ofSeconds(10));
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Thread holder = Thread.ofVirtual().start(() -> run(gate, () -> {
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        Thread queued = Thread.ofVirtual().start(() -> run(gate, () -> { }));
+        while (gate.waiting() < 1) {
+            Thread.sleep(5);
+        }
+
+        long started = System.nanoTime();
+        Javalin app = Javalin.create();
+        app.get("/report", ctx -> gate.handle(ctx, c -> c.result("rows")));
+        JavalinTest.test(app, (server, client) -> {
+            try (Response res = client.get("/report")) {
+                assertEquals(503, res.code());
+            }
+        });
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(5), "did not wait");
+        assertEquals(1, gate.rejected());
+        assertEquals(1, gate.maxQueue());
+
+        release.countDown();
+        holder.join(5_000);
+        queued.join(5_000);
+        assertEquals(0, gate.waiting());
+    }
+
+    /** Run work under the gate without a request context. */
+    private static void run(DbGate gate, Work work) {
+        try {
+            gate.handle(null, ctx -> work.run());
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    /** Blocking work used by the queue test. */
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    @Test
+    @DisplayName("Cache hits are served without a permit")
+    void cacheHitsBypassTheGate() {
+        DbGate gate = new DbGate(1, Duration.ZERO);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ReportPipeline pipeline = new ReportPipeline(
+            new ResponseCache(10), null, Bulkheads.shared(gate), null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/cached", pipeline.wrap("R01", ctx -> ctx.result("cached")));
+        app.get("/slow", pipeline.wrap("R02", ctx -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            ctx.result("slow");
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            client.get("/cached").close();
+
+            Thread holder = new Thread(() -> client.get("/slow").close());
+            holder.start();
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            try (Response hit = client.get("/cached")) {
+                assertEquals(200, hit.code());
+                assertEquals("HIT", hit.header(ReportPipeline.CACHE_HEADER));
+            }
+            release.countDown();
+            holder.join(5_000);
+        });
+    }
+}
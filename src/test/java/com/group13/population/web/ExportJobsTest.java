@@ -0,0 +1,228 @@
+package com.group13.population.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.javalin.Javalin;
+import io.javalin.testtools.HttpClient;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ExportJobs}: items are rendered through the normal
+ * routes into files on disk, progress is reported per file and finished
+ * files are downloaded intact. Small stub report routes stand in for the
+ * real ones.
+ */
+class ExportJobsTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    @TempDir
+    Path dir;
+
+    private Javalin app(int maxItems) {
+        Javalin app = Javalin.create();
+        app.get("/api/csv", ctx -> ctx.contentType("text/csv; charset=utf-8").result("A,B\n1,2\n"));
+        app.get("/api/big", ctx -> ctx.contentType("text/csv; charset=utf-8")
+            .result("x".repeat(3 * 1024 * 1024)));
+        app.get("/api/broken", ctx -> ctx.status(503).result("down"));
+        new ExportJobs(dir, 2, 2, maxItems, Duration.ofSeconds(10), Duration.ofMinutes(5), null)
+            .register(app);
+        return app;
+    }
+
+    private static Response submit(HttpClient client, String body) {
+        return client.request(new Request.Builder()
+            .url(client.getOrigin() + "/api/exports")
+            .post(RequestBody.create(body, JSON))
+            .build());
+    }
+
+    /** Poll the job until every item has finished. */
+    private static JsonNode await(HttpClient client, String location) throws Exception {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (true) {
+            try (Response res = client.get(location)) {
+                assertEquals(200, res.code());
+                JsonNode status = MAPPER.readTree(res.body().string());
+                if ("done".equals(status.get("state").asText())) {
+                    return status;
+                }
+            }
+            assertTrue(System.nanoTime() < deadline, "export did not finish");
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    @DisplayName("A job renders each report to disk and reports per-file progress")
+    void jobWritesFilesAndDownloads() {
+        JavalinTest.test(app(10), (server, client) -> {
+            String location;
+            try (Response res = submit(client, "{\"requests\": ["
+                + "{\"path\": \"/api/csv\", \"file\": \"small.csv\"},"
+                + "{\"path\": \"/api/big\", \"file\": \"big.csv\"},"
+                + "\"/api/broken\"]}")) {
+                assertEquals(202, res.code());
+                location = res.header("Location");
+                assertNotNull(location);
+            }
+
+            JsonNode status = await(client, location);
+            assertEquals(3, status.get("total").asInt());
+            assertEquals(2, status.get("completed").asInt());
+            assertEquals(1, status.get("failed").asInt());
+            JsonNode files = status.get("files");
+            assertEquals("small.csv", files.get(0).get("file").asText());
+            assertEquals(8, files.get(0).get("bytes").asLong());
+            assertEquals("failed", files.get(2).get("state").asText());
+            assertEquals(503, files.get(2).get("status").asInt());
+            assertEquals("003.csv", files.get(2).get("file").asText());
+
+            try (Response res = client.get(files.get(1).get("href").asText())) {
+                assertEquals(200, res.code());
+                assertEquals(String.valueOf(3 * 1024 * 1024), res.header("Content-Length"));
+                assertEquals("x".repeat(3 * 1024 * 1024), res.body().string());
+            }
+            try (Response res = client.get(location + "/files/small.csv")) {
+                assertEquals("A,B\n1,2\n", res.body().string());
+                assertTrue(res.header("Content-Type").startsWith("text/csv"));
+            }
+            try (Response res = client.get(location + "/files/003.csv")) {
+                assertEquals(404, res.code());
+            }
+        });
+
+        // Only finished files are left behind; no partial files.
+        try (var jobs = Files.list(dir)) {
+            Path job = jobs.findFirst().orElseThrow();
+            try (var files = Files.list(job)) {
+                assertEquals(List.of("big.csv", "small.csv"),
+                    files.map(p -> p.getFileName().toString()).sorted().toList());
+            }
+        } catch (Exception ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    @DisplayName("A job holds its slot until its last item finishes; expired jobs are swept without new submissions")
+    void slotsAndScheduledSweep() {
+        CountDownLatch release = new CountDownLatch(1);
+        Javalin app = Javalin.create();
+        app.get("/api/csv", ctx -> ctx.contentType("text/csv; charset=utf-8").result("A,B\n1,2\n"));
+        app.get("/api/slow", ctx -> {
+            release.await(10, TimeUnit.SECONDS);
+            ctx.contentType("text/csv; charset=utf-8").result("A\n");
+        });
+        new ExportJobs(dir, 2, 1, 10, Duration.ofSeconds(10), Duration.ofMillis(200), null)
+            .register(app);
+
+        JavalinTest.test(app, (server, client) -> {
+            String slow;
+            try (Response res = submit(client, "{\"requests\": [\"/api/slow\"]}")) {
+                assertEquals(202, res.code());
+                slow = res.header("Location");
+            }
+            try (Response res = submit(client, "{\"requests\": [\"/api/csv\"]}")) {
+                assertEquals(503, res.code(), "the only slot is taken");
+            }
+
+            release.countDown();
+            await(client, slow);
+            try (Response res = submit(client, "{\"requests\": [\"/api/csv\"]}")) {
+                assertEquals(202, res.code(), "the finished job gave its slot back");
+            }
+
+            long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (true) {
+                try (Response res = client.get(slow)) {
+                    if (res.code() == 404) {
+                        break;
+                    }
+                }
+                assertTrue(System.nanoTime() < deadline, "expired job was not swept");
+                Thread.sleep(50);
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("The evidence set expands to R01–R32 under the docs/evidence file names")
+    void evidenceSet() {
+        ExportJobs jobs = new ExportJobs(dir, 1, 1, 10, Duration.ofSeconds(1), Duration.ofMinutes(1), null);
+        List<ExportJobs.Item> items = jobs.parse("{\"evidence\": true}");
+
+        assertEquals(32, items.size());
+        assertEquals("R01_countries_world.csv", items.get(0).file);
+        assertEquals("/reports/population/cities/Rangoon%20%28Yangon%29", items.get(30).path);
+    }
+
+    @Test
+    @DisplayName("Malformed jobs, unsafe file names and unknown jobs are rejected")
+    void invalidRequests() {
+        JavalinTest.test(app(2), (server, client) -> {
+            for (String body : new String[] {
+                "not json",
+                "{\"requests\": []}",
+                "{\"requests\": [\"/api/csv\", \"/api/csv\", \"/api/csv\"]}",
+                "{\"requests\": [\"/admin/data-version/bump\"]}",
+                "{\"requests\": [{\"path\": \"/api/csv\", \"file\": \"../escape.csv\"}]}",
+                "{\"requests\": [{\"path\": \"/api/csv\", \"file\": \"a.csv\"},"
+                    + " {\"path\": \"/api/csv\", \"file\": \"a.csv\"}]}",
+            }) {
+                try (Response res = submit(client, body)) {
+                    assertEquals(400, res.code(), body);
+                }
+            }
+            try (Response res = client.get("/api/exports/0123456789abcdef")) {
+                assertEquals(404, res.code());
+            }
+            try (Response res = client.get("/api/exports/..%2F..")) {
+                assertEquals(404, res.code());
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Items are charged to the submitter and wait for its bucket to refill instead of failing")
+    void itemsWaitForTheSubmittersRateLimit() {
+        RateLimiter limiter = new RateLimiter(10, 10, 600, 100, Set.of(), Map.of(ReportClass.EXPORT, 10));
+        ReportPipeline pipeline = new ReportPipeline(null, null, null, null, limiter);
+        Javalin app = Javalin.create();
+        app.get("/api/export", pipeline.wrap("R07", ctx -> ctx.result("rows")));
+        new ExportJobs(dir, 1, 1, 10, Duration.ofSeconds(10), Duration.ofMinutes(5), limiter)
+            .register(app);
+
+        JavalinTest.test(app, (server, client) -> {
+            String location;
+            try (Response res = submit(client, "[\"/api/export\", \"/api/export\"]")) {
+                assertEquals(202, res.code());
+                location = res.header("Location");
+            }
+
+            JsonNode status = await(client, location);
+            assertEquals(2, status.get("completed").asInt());
+            assertEquals(0, status.get("failed").asInt());
+            assertTrue(limiter.throttled() >= 1, "the second item had to wait for the refill");
+        });
+    }
+}
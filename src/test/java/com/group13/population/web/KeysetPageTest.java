@@ -0,0 +1,98 @@
+package com.group13.population.web;
+
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link KeysetPage}: parameter parsing, token round trips,
+ * rejection of bad input and the next-page {@code Link} header.
+ */
+class KeysetPageTest {
+
+    /** App echoing the parsed page as "size|afterPopulation|afterId" or "none". */
+    private static Javalin echoApp() {
+        Javalin app = Javalin.create();
+        app.get("/page", ctx -> {
+            KeysetPage page = KeysetPage.of(ctx);
+            if (page == null) {
+                ctx.result("none");
+                return;
+            }
+            page.linkNext(ctx, 42L, "ABC");
+            ctx.result(page.size() + "|" + page.afterPopulation() + "|" + page.afterId());
+        });
+        return app;
+    }
+
+    @Test
+    @DisplayName("Requests without paging parameters are not paged")
+    void unpagedRequest() {
+        JavalinTest.test(echoApp(), (server, client) -> {
+            try (Response res = client.get("/page?format=json")) {
+                assertEquals("none", res.body().string());
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("page_size alone is the first page; sizes are defaulted and capped")
+    void firstPageSizes() {
+        JavalinTest.test(echoApp(), (server, client) -> {
+            try (Response res = client.get("/page?page_size=25")) {
+                assertEquals("25|0|null", res.body().string());
+            }
+            try (Response res = client.get("/page?page_size=")) {
+                assertEquals(KeysetPage.DEFAULT_PAGE_SIZE + "|0|null", res.body().string());
+            }
+            try (Response res = client.get("/page?page_size=999999")) {
+                assertEquals(KeysetPage.MAX_PAGE_SIZE + "|0|null", res.body().string());
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("A token decodes to the position it was made from")
+    void tokenRoundTrip() {
+        String token = KeysetPage.token(1_234_567L, "GBR");
+        assertFalse(token.contains("GBR"), "token should be opaque");
+
+        JavalinTest.test(echoApp(), (server, client) -> {
+            try (Response res = client.get("/page?page_size=10&page_token=" + token)) {
+                assertEquals("10|1234567|GBR", res.body().string());
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Bad page sizes and tokens are 400")
+    void badInputIsRejected() {
+        String wrongVersion = java.util.Base64.getUrlEncoder()
+            .encodeToString("9:100:X".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        JavalinTest.test(echoApp(), (server, client) -> {
+            assertEquals(400, client.get("/page?page_size=0").code());
+            assertEquals(400, client.get("/page?page_size=abc").code());
+            assertEquals(400, client.get("/page?page_token=!!!").code());
+            assertEquals(400, client.get("/page?page_token=" + wrongVersion).code());
+            assertEquals(400, client.get("/page?page_token="
+                + KeysetPage.token(-1L, "X")).code());
+        });
+    }
+
+    @Test
+    @DisplayName("The next link keeps other parameters and carries a fresh token")
+    void linkNextKeepsOtherParameters() {
+        JavalinTest.test(echoApp(), (server, client) -> {
+            try (Response res = client.get("/page?format=json&page_size=5&page_token="
+                + KeysetPage.token(99L, "ZZZ"))) {
+                assertEquals("<" + "/page?format=json&page_size=5&page_token="
+                    + KeysetPage.token(42L, "ABC") + ">; rel=\"next\"", res.header("Link"));
+            }
+        });
+    }
+}
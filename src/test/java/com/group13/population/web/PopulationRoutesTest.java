@@ -1,5 +1,7 @@
 package com.group13.population.web;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.group13.population.db.Db;
 import com.group13.population.model.LanguagePopulationRow;
 import com.group13.population.model.PopulationLookupRow;
@@ -14,8 +16,11 @@ import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -128,6 +133,14 @@ class PopulationRoutesTest {
             return newLookupRow(city, 10_000L);
         }
 
+        @Override
+        public List<PopulationLookupRow> getCountryPopulations(List<String> names) {
+            // every name except "Atlantis" is found
+            return names.stream()
+                    .map(n -> "Atlantis".equals(n) ? null : newLookupRow(n, 100_000L))
+                    .toList();
+        }
+
         @Override
         public List<LanguagePopulationRow> getLanguagePopulations() {
             return languageRows;
@@ -153,7 +166,7 @@ class PopulationRoutesTest {
         PopulationRoutes routes = new PopulationRoutes(new StubPopulationService());
 
         // rows == null -> header only
-        String headerOnly = routes.buildPopulationCsv(null);
+        String headerOnly = routes.writePopulation(ReportWriter.csv(), null).toString();
         assertEquals(
                 "Name,TotalPopulation,CityPopulation,NonCityPopulation," +
                         "CityPopulationPercent,NonCityPopulationPercent\n",
@@ -167,7 +180,7 @@ class PopulationRoutesTest {
         // IMPORTANT: Arrays.asList allows null; List.of does NOT.
         List<PopulationRow> rows = Arrays.asList(null, r1, r2);
 
-        String csv = routes.buildPopulationCsv(rows);
+        String csv = routes.writePopulation(ReportWriter.csv(), rows).toString();
         String[] lines = csv.split("\\R");
 
         // header + 2 rows (null skipped)
@@ -185,7 +198,7 @@ class PopulationRoutesTest {
     void buildWorldCsvProducesSingleRow() {
         PopulationRoutes routes = new PopulationRoutes(new StubPopulationService());
 
-        String csv = routes.buildWorldCsv(1234L);
+        String csv = routes.writeWorld(ReportWriter.csv(), 1234L).toString();
         assertEquals("Name,WorldPopulation\nWorld,1234\n", csv);
     }
 
@@ -194,14 +207,14 @@ class PopulationRoutesTest {
         PopulationRoutes routes = new PopulationRoutes(new StubPopulationService());
 
         // row == null -> header only
-        String headerOnly = routes.buildLookupCsv(null);
+        String headerOnly = routes.writeLookup(ReportWriter.csv(), null).toString();
         assertEquals("Name,Population\n", headerOnly);
 
         // row needing escaping
         PopulationLookupRow row =
                 newLookupRow("Asia, \"Example\"", 123L);
 
-        String csv = routes.buildLookupCsv(row);
+        String csv = routes.writeLookup(ReportWriter.csv(), row).toString();
         String[] lines = csv.split("\\R");
         assertEquals(2, lines.length);
         assertEquals("Name,Population", lines[0]);
@@ -214,7 +227,7 @@ class PopulationRoutesTest {
         PopulationRoutes routes = new PopulationRoutes(new StubPopulationService());
 
         // rows == null -> header only
-        String headerOnly = routes.buildLanguageCsv(null);
+        String headerOnly = routes.writeLanguage(ReportWriter.csv(), null).toString();
         assertEquals("Language,Speakers,WorldPopulationPercent\n", headerOnly);
 
         // list with null + row needing escaping
@@ -226,7 +239,7 @@ class PopulationRoutesTest {
         // Arrays.asList so that null is allowed
         List<LanguagePopulationRow> rows = Arrays.asList(null, r1, r2);
 
-        String csv = routes.buildLanguageCsv(rows);
+        String csv = routes.writeLanguage(ReportWriter.csv(), rows).toString();
         String[] lines = csv.split("\\R");
 
         // header + 2 rows
@@ -243,12 +256,130 @@ class PopulationRoutesTest {
         // name == null -> escape() should produce empty string
         PopulationLookupRow row = newLookupRow(null, 0L);
 
-        String csv = routes.buildLookupCsv(row);
+        String csv = routes.writeLookup(ReportWriter.csv(), row).toString();
         String[] lines = csv.split("\\R");
         assertEquals(2, lines.length);
         assertEquals(",0", lines[1]); // empty name, population 0
     }
 
+    @Test
+    void writeBulkLookupMarksNotFoundNamesInRequestOrder() {
+        PopulationRoutes routes = new PopulationRoutes(new StubPopulationService());
+
+        String csv = routes.writeBulkLookup(ReportWriter.csv(),
+                Arrays.asList(newLookupRow("France", 5L), null),
+                List.of("France", "Atlantis")).toString();
+
+        assertEquals("Name,Population,Status\nFrance,5,FOUND\nAtlantis,0,NOT_FOUND\n", csv);
+    }
+
+    @Test
+    void bulkRouteTakesRepeatedNameParameters() throws Exception {
+        PopulationRoutes routes = new PopulationRoutes(new StubPopulationService());
+
+        Javalin app = Javalin.create();
+        try {
+            routes.register(app);
+            app.start(0);
+
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + app.port() + "/reports/population/country/bulk";
+            HttpResponse<String> ok = client.send(HttpRequest.newBuilder(
+                            URI.create(base + "?name=Myanmar&name=Atlantis&name=Korea,%20South")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> missing = client.send(HttpRequest.newBuilder(
+                            URI.create(base)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals("Name,Population,Status\n"
+                    + "Myanmar,100000,FOUND\n"
+                    + "Atlantis,0,NOT_FOUND\n"
+                    + "\"Korea, South\",100000,FOUND\n", ok.body());
+            assertEquals(400, missing.statusCode());
+        } finally {
+            app.stop();
+        }
+    }
+
+    @Test
+    void bulkRouteIsRateLimitedPerName() throws Exception {
+        RateLimiter limiter = new RateLimiter(10, 0.001, 600, 100, Set.of(),
+                Map.of(ReportClass.LOOKUP, 1));
+        PopulationRoutes routes = new PopulationRoutes(new StubPopulationService(),
+                new ReportPipeline(null, null, null, null, limiter));
+
+        Javalin app = Javalin.create();
+        try {
+            routes.register(app);
+            app.start(0);
+
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://localhost:" + app.port() + "/reports/population/country/bulk";
+            String sixNames = "?name=A&name=B&name=C&name=D&name=E&name=F";
+            HttpResponse<String> first = client.send(HttpRequest.newBuilder(
+                            URI.create(base + sixNames)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> second = client.send(HttpRequest.newBuilder(
+                            URI.create(base + sixNames)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            // 10 tokens cover six names once, not twice.
+            assertEquals(200, first.statusCode());
+            assertEquals(429, second.statusCode());
+
+            // Eleven names cost more than the bucket holds: never payable.
+            HttpResponse<String> tooMany = client.send(HttpRequest.newBuilder(
+                            URI.create(base + sixNames + "&name=G&name=H&name=I&name=J&name=K")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(413, tooMany.statusCode());
+        } finally {
+            app.stop();
+        }
+    }
+
+    @Test
+    void writeLanguageRendersJsonWithNumericPercentages() {
+        PopulationRoutes routes = new PopulationRoutes(new StubPopulationService());
+        List<LanguagePopulationRow> rows =
+                List.of(newLanguageRow("Chinese", 4_000L, 19.6049));
+
+        String json = routes.writeLanguage(
+                ReportWriter.forFormat(ReportFormat.JSON), rows).toString();
+
+        assertEquals("[{\"Language\":\"Chinese\",\"Speakers\":4000,"
+                + "\"WorldPopulationPercent\":19.6}]", json);
+    }
+
+    @Test
+    void routesServeJsonWhenRequested() throws Exception {
+        PopulationRoutes routes = new PopulationRoutes(new StubPopulationService());
+
+        Javalin app = Javalin.create();
+        try {
+            routes.register(app);
+            app.start(0);
+
+            HttpClient client = HttpClient.newHttpClient();
+            HttpResponse<String> byParam = client.send(HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + app.port()
+                                    + "/reports/population/world?format=json")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            HttpResponse<String> byAccept = client.send(HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + app.port()
+                                    + "/reports/population/regions"))
+                            .header("Accept", "application/json").GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals("[{\"Name\":\"World\",\"WorldPopulation\":7000000000}]",
+                    byParam.body());
+            assertTrue(byParam.headers().firstValue("Content-Type").orElse("")
+                    .startsWith("application/json"));
+            assertTrue(byAccept.body().startsWith("[{\"Name\":\"Region,One\""));
+        } finally {
+            app.stop();
+        }
+    }
+
     // ---------------------------------------------------------------------
     // Hit every HTTP route (R24–R32 plus alias routes) using real Javalin
     // ---------------------------------------------------------------------
@@ -320,4 +451,36 @@ class PopulationRoutesTest {
             app.stop();
         }
     }
+
+    @Test
+    void dashboardReportsCanBeBatched() throws Exception {
+        PopulationRoutes routes = new PopulationRoutes(new StubPopulationService());
+
+        Javalin app = Javalin.create();
+        try {
+            routes.register(app);
+            new BatchRoutes(2, 10, Duration.ofSeconds(10)).register(app);
+            app.start(0);
+
+            HttpResponse<String> resp = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                            URI.create("http://localhost:" + app.port() + "/api/batch"))
+                            .POST(HttpRequest.BodyPublishers.ofString("[\"/reports/population/world\","
+                                    + " \"/reports/population/continents/Asia\","
+                                    + " \"/reports/population/languages\"]"))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(200, resp.statusCode());
+            JsonNode responses = new ObjectMapper().readTree(resp.body()).get("responses");
+            assertEquals(3, responses.size());
+            for (JsonNode item : responses) {
+                assertEquals(200, item.get("status").asInt(), item.get("path").asText());
+            }
+            assertTrue(responses.get(0).get("body").asText().startsWith("Name,WorldPopulation"));
+            assertTrue(responses.get(1).get("body").asText().startsWith("Name,Population"));
+            assertTrue(responses.get(2).get("body").asText().startsWith("Language,Speakers"));
+        } finally {
+            app.stop();
+        }
+    }
 }
@@ -0,0 +1,149 @@
+package com.group13.population.web;
+
+import com.group13.population.db.Db;
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the ad-hoc ranking endpoint ({@code GET /api/query}) using an
+ * in-memory JDBC proxy that records the SQL and bound parameters.
+ */
+class QueryRoutesTest {
+
+    private final List<String> statements = new ArrayList<>();
+    private final List<Object> bound = new ArrayList<>();
+
+    private Javalin buildApp() {
+        Db db = new Db() {
+            @Override
+            public Connection getConnection() {
+                return connection();
+            }
+        };
+        Javalin app = Javalin.create();
+        new QueryRoutes(db, ReportPipeline.direct(), 100).register(app);
+        return app;
+    }
+
+    // -------------------------------------------------------------------------
+    // In-memory JDBC proxies
+    // -------------------------------------------------------------------------
+
+    private Connection connection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class[]{Connection.class}, (proxy, method, args) -> {
+                if (method.getName().equals("prepareStatement")) {
+                    statements.add((String) args[0]);
+                    return statement();
+                }
+                return null;
+            });
+    }
+
+    private PreparedStatement statement() {
+        return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class[]{PreparedStatement.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "setObject":
+                        bound.add(args[1]);
+                        return null;
+                    case "executeQuery":
+                        return resultSet();
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    private static ResultSet resultSet() {
+        Object[][] rows = {{"Shanghai", 9_696_300L}, {"Seoul", 9_981_619L}};
+        int[] index = {-1};
+        return (ResultSet) Proxy.newProxyInstance(QueryRoutesTest.class.getClassLoader(),
+            new Class[]{ResultSet.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "next":
+                        return ++index[0] < rows.length;
+                    case "getString":
+                        return rows[index[0]][(Integer) args[0] - 1];
+                    case "getLong":
+                        return rows[index[0]][(Integer) args[0] - 1];
+                    default:
+                        return null;
+                }
+            });
+    }
+
+    // -------------------------------------------------------------------------
+    // Tests
+    // -------------------------------------------------------------------------
+
+    @Test
+    @DisplayName("A filtered ranking binds its values in order and streams the selected columns")
+    void happyPath() {
+        JavalinTest.test(buildApp(), (server, client) -> {
+            try (Response resp = client.get("/api/query?continent=Asia&minPopulation=1000000"
+                + "&maxPopulation=10000000&capital=false&limit=50&fields=Name,Population")) {
+                assertEquals(200, resp.code());
+                assertEquals("attachment; filename=\"query.csv\"", resp.header("Content-Disposition"));
+                assertEquals("Name,Population\nShanghai,9696300\nSeoul,9981619\n",
+                    resp.body().string().replace("\r\n", "\n"));
+            }
+        });
+        assertEquals(1, statements.size());
+        assertTrue(statements.get(0).contains("country.Continent = ? AND city.Population >= ?"
+            + " AND city.Population <= ?"), statements.get(0));
+        assertEquals(List.of("Asia", 1_000_000L, 10_000_000L, 50), bound);
+    }
+
+    @Test
+    @DisplayName("The download name follows the negotiated format")
+    void downloadNameFollowsFormat() {
+        JavalinTest.test(buildApp(), (server, client) -> {
+            for (String format : new String[] {"json", "ndjson", "columnar"}) {
+                String url = "/api/query?continent=Asia&limit=50&fields=Name,Population&format=" + format;
+                try (Response resp = client.get(url)) {
+                    assertEquals(200, resp.code());
+                    assertEquals("attachment; filename=\"query." + format + "\"",
+                        resp.header("Content-Disposition"));
+                }
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Unbounded, unknown or contradictory queries are rejected with 400")
+    void invalidQueriesAreRejected() {
+        JavalinTest.test(buildApp(), (server, client) -> {
+            for (String query : new String[] {
+                "continent=Asia",                          // no limit
+                "limit=101",                               // over query.maxLimit
+                "limit=0",
+                "limit=10&sort=name",                      // unknown parameter
+                "limit=10&entity=language",
+                "limit=10&entity=country&district=Kabol",  // scope the entity lacks
+                "limit=10&entity=country&capital=true",
+                "limit=10&minPopulation=5&maxPopulation=1",
+                "limit=10&minPopulation=many",
+                "limit=10&order=sideways",
+                "limit=10&fields=Code",
+            }) {
+                try (Response resp = client.get("/api/query?" + query)) {
+                    assertEquals(400, resp.code(), query);
+                }
+            }
+        });
+        assertTrue(statements.isEmpty());
+    }
+}
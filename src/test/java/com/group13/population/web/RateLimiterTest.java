@@ -0,0 +1,129 @@
+package com.group13.population.web;
+
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the per-client token buckets ({@link RateLimiter}): cost
+ * weights, refill, 429 with Retry-After, per-key isolation (known keys
+ * only), the internal loopback exemption, eviction of idle buckets and the
+ * cap on the number of buckets.
+ */
+class RateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static RateLimiter limiter(int capacity, double refillPerSecond) {
+        return new RateLimiter(capacity, refillPerSecond, 0, 100, Set.of(),
+            Map.of(ReportClass.EXPORT, 20, ReportClass.LOOKUP, 1));
+    }
+
+    @Test
+    @DisplayName("A bucket allows a burst up to its capacity, then refills over time")
+    void burstThenRefill() {
+        RateLimiter limiter = limiter(10, 5);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0L, limiter.tryTake("ip:a", 1, 0L));
+        }
+        long wait = limiter.tryTake("ip:a", 1, 0L);
+        assertEquals(SECOND / 5, wait, SECOND / 1000);
+        assertEquals(0L, limiter.tryTake("ip:a", 1, SECOND / 5));
+        assertTrue(limiter.tryTake("ip:a", 1, SECOND / 5) > 0L);
+    }
+
+    @Test
+    @DisplayName("Costs are per report class and capped at the capacity")
+    void costsPerClass() {
+        RateLimiter limiter = limiter(10, 5);
+        assertEquals(10, limiter.cost(ReportClass.EXPORT));
+        assertEquals(1, limiter.cost(ReportClass.LOOKUP));
+        assertEquals(1, limiter.cost(ReportClass.TOP_N));
+    }
+
+    @Test
+    @DisplayName("Idle buckets are evicted once they would be full again")
+    void sweepEvictsIdle() {
+        RateLimiter limiter = limiter(10, 5);
+        limiter.tryTake("ip:a", 1, 0L);
+        limiter.tryTake("ip:b", 1, SECOND);
+        assertEquals(2, limiter.clients());
+
+        limiter.sweep(SECOND * 5 / 2);
+        assertEquals(1, limiter.clients());
+        limiter.sweep(SECOND * 4);
+        assertEquals(0, limiter.clients());
+    }
+
+    @Test
+    @DisplayName("Over the limit: 429 with Retry-After, per API key; internal requests are exempt")
+    void httpThrottle() {
+        RateLimiter limiter = new RateLimiter(20, 1, 600, 100, Set.of("alice", "bob"),
+            Map.of(ReportClass.EXPORT, 20, ReportClass.LOOKUP, 1));
+        ReportPipeline pipeline = new ReportPipeline(null, null, null, null, limiter);
+        Javalin app = Javalin.create();
+        app.get("/export", pipeline.wrap("R07", ctx -> ctx.result("rows")));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response first = call(client.getOrigin(), "alice", null)) {
+                assertEquals(200, first.code());
+            }
+            try (Response second = call(client.getOrigin(), "alice", null)) {
+                assertEquals(429, second.code());
+                assertEquals("20", second.header("Retry-After"));
+                assertEquals("no-store", second.header("Cache-Control"));
+            }
+            try (Response other = call(client.getOrigin(), "bob", null)) {
+                assertEquals(200, other.code());
+            }
+            try (Response internal = call(client.getOrigin(), "alice", RateLimiter.INTERNAL_TOKEN)) {
+                assertEquals(200, internal.code());
+            }
+            try (Response forged = call(client.getOrigin(), "alice", "guess")) {
+                assertEquals(429, forged.code());
+            }
+            // Unknown keys are ignored: the first uses up the caller's IP
+            // bucket, a second invented key does not get a fresh one.
+            try (Response invented = call(client.getOrigin(), "mallory-1", null)) {
+                assertEquals(200, invented.code());
+            }
+            try (Response invented = call(client.getOrigin(), "mallory-2", null)) {
+                assertEquals(429, invented.code());
+            }
+        });
+        assertEquals(3, limiter.throttled());
+        assertEquals(3, limiter.clients());
+    }
+
+    @Test
+    @DisplayName("Beyond maxClients new clients share one overflow bucket")
+    void maxClientsCapsBuckets() {
+        RateLimiter limiter = new RateLimiter(10, 5, 600, 2, Set.of(), Map.of());
+        assertEquals(0L, limiter.tryTake("ip:a", 1, 0L));
+        assertEquals(0L, limiter.tryTake("ip:b", 1, 0L));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(0L, limiter.tryTake("ip:new-" + i, 1, 0L));
+        }
+        assertTrue(limiter.tryTake("ip:new-x", 1, 0L) > 0L, "overflow bucket is shared and drained");
+        assertEquals(0L, limiter.tryTake("ip:a", 1, 0L), "existing clients keep their own bucket");
+        assertEquals(3, limiter.clients());
+    }
+
+    private static Response call(String origin, String apiKey, String internal) throws Exception {
+        Request.Builder request = new Request.Builder().url(origin + "/export")
+            .header(RateLimiter.API_KEY_HEADER, apiKey);
+        if (internal != null) {
+            request.header(RateLimiter.INTERNAL_HEADER, internal);
+        }
+        return new okhttp3.OkHttpClient().newCall(request.build()).execute();
+    }
+}
@@ -0,0 +1,92 @@
+package com.group13.population.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ReportCatalogue}: every report id is listed for every
+ * scope and path segments are percent-encoded.
+ */
+class ReportCatalogueTest {
+
+    private static List<ReportCatalogue.Entry> smallCatalogue() {
+        return ReportCatalogue.entries(
+            List.of("Asia"),
+            List.of("Western Europe"),
+            List.of("United Kingdom"),
+            List.of("Kabol"),
+            new int[] {5, 10});
+    }
+
+    @Test
+    @DisplayName("Every report except R31 appears in the catalogue")
+    void coversAllReportsExceptCityLookup() {
+        List<String> ids = smallCatalogue().stream()
+            .map(ReportCatalogue.Entry::getReportId)
+            .distinct()
+            .sorted()
+            .collect(Collectors.toList());
+
+        assertEquals(31, ids.size());
+        assertFalse(ids.contains("R31"));
+        assertEquals("R01", ids.get(0));
+        assertEquals("R32", ids.get(ids.size() - 1));
+    }
+
+    @Test
+    @DisplayName("Top-N reports are listed once per N value")
+    void topReportsRepeatPerN() {
+        List<String> r04 = smallCatalogue().stream()
+            .filter(e -> e.getReportId().equals("R04"))
+            .map(ReportCatalogue.Entry::getPath)
+            .collect(Collectors.toList());
+
+        assertEquals(List.of("/api/countries/world/top?n=5", "/api/countries/world/top?n=10"), r04);
+    }
+
+    @Test
+    @DisplayName("Capital reports are listed for both /api and /reports families")
+    void capitalsCoverBothFamilies() {
+        long r17 = smallCatalogue().stream()
+            .filter(e -> e.getReportId().equals("R17"))
+            .count();
+
+        assertEquals(2, r17);
+    }
+
+    @Test
+    @DisplayName("City reports are listed for both /api and /reports families")
+    void citiesCoverBothFamilies() {
+        List<String> r15 = smallCatalogue().stream()
+            .filter(e -> e.getReportId().equals("R15"))
+            .map(ReportCatalogue.Entry::getPath)
+            .collect(Collectors.toList());
+
+        assertEquals(List.of(
+            "/api/cities/country/United%20Kingdom/top?n=5",
+            "/api/cities/country/United%20Kingdom/top?n=10",
+            "/reports/cities/country/United%20Kingdom/top/5",
+            "/reports/cities/country/United%20Kingdom/top/10"), r15);
+        assertTrue(smallCatalogue().stream()
+            .anyMatch(e -> e.getPath().equals("/reports/cities/world")));
+    }
+
+    @Test
+    @DisplayName("Scope names are percent-encoded as path segments")
+    void encodesScopeNames() {
+        assertTrue(smallCatalogue().stream()
+            .anyMatch(e -> e.getPath().equals("/api/cities/region/Western%20Europe/top?n=5")));
+        assertEquals("S%C3%A3o%20Paulo", ReportCatalogue.encodeSegment("São Paulo"));
+    }
+
+    @Test
+    @DisplayName("Entry.toString shows id and path")
+    void entryToString() {
+        assertEquals("R01 /api/countries/world", smallCatalogue().get(0).toString());
+    }
+}
@@ -0,0 +1,60 @@
+package com.group13.population.web;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ReportFormat} content negotiation.
+ */
+class ReportFormatTest {
+
+    @Test
+    @DisplayName("No format parameter and no Accept header gives CSV")
+    void defaultsToCsv() {
+        assertEquals(ReportFormat.CSV, ReportFormat.negotiate(null, null));
+        assertEquals(ReportFormat.CSV, ReportFormat.negotiate(" ", ""));
+    }
+
+    @Test
+    @DisplayName("?format= wins over Accept and is case-insensitive")
+    void formatParameterWins() {
+        assertEquals(ReportFormat.JSON, ReportFormat.negotiate("JSON", "text/csv"));
+        assertEquals(ReportFormat.CSV, ReportFormat.negotiate("csv", "application/json"));
+        assertEquals(ReportFormat.CSV, ReportFormat.negotiate("xml", "application/json"),
+            "Unknown formats fall back to CSV");
+    }
+
+    @Test
+    @DisplayName("Accept picks the first supported media type in order")
+    void acceptHeaderIsNegotiated() {
+        assertEquals(ReportFormat.JSON,
+            ReportFormat.negotiate(null, "application/json"));
+        assertEquals(ReportFormat.JSON,
+            ReportFormat.negotiate(null, "text/html, application/json;q=0.9, */*;q=0.1"));
+        assertEquals(ReportFormat.CSV,
+            ReportFormat.negotiate(null, "text/csv, application/json"));
+        assertEquals(ReportFormat.CSV,
+            ReportFormat.negotiate(null, "*/*, application/json"));
+    }
+
+    @Test
+    @DisplayName("NDJSON is selected by parameter or Accept and is the only streamed format")
+    void ndjsonIsNegotiatedAndStreamed() {
+        assertEquals(ReportFormat.NDJSON, ReportFormat.negotiate("ndjson", null));
+        assertEquals(ReportFormat.NDJSON,
+            ReportFormat.negotiate(null, "application/x-ndjson"));
+        assertTrue(ReportFormat.NDJSON.isStreamed());
+        assertFalse(ReportFormat.JSON.isStreamed());
+        assertFalse(ReportFormat.CSV.isStreamed());
+    }
+
+    @Test
+    @DisplayName("The columnar format is selected through Accept")
+    void columnarIsNegotiatedByAccept() {
+        assertEquals(ReportFormat.COLUMNAR,
+            ReportFormat.negotiate(null, "application/vnd.world-population.columnar"));
+        assertFalse(ReportFormat.COLUMNAR.isStreamed());
+    }
+}
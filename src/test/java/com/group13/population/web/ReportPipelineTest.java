@@ -0,0 +1,465 @@
+package com.group13.population.web;
+
+import com.group13.population.cache.DataVersion;
+import com.group13.population.db.DbOverloadedException;
+import com.group13.population.repo.DataAccessException;
+import io.javalin.Javalin;
+import io.javalin.http.Handler;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.BufferedSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ReportPipeline}: read-through caching of rendered
+ * report responses on a real Javalin instance.
+ */
+class ReportPipelineTest {
+
+    @Test
+    @DisplayName("direct() returns the handler unchanged")
+    void directPipelineDoesNotWrap() {
+        Handler handler = ctx -> ctx.result("x");
+
+        assertSame(handler, ReportPipeline.direct().wrap("R01", handler));
+        assertNull(ReportPipeline.direct().cache());
+    }
+
+    @Test
+    @DisplayName("Second request is served from the cache without calling the handler")
+    void secondRequestIsServedFromCache() {
+        AtomicInteger calls = new AtomicInteger();
+        ResponseCache cache = new ResponseCache(10);
+        ReportPipeline pipeline = new ReportPipeline(cache, null, null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/report/{name}", pipeline.wrap("R01", ctx -> {
+            calls.incrementAndGet();
+            ctx.contentType("text/csv");
+            ctx.header("Content-Disposition", "attachment; filename=\"r.csv\"");
+            ctx.result("Name\n" + ctx.pathParam("name") + "\n");
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response first = client.get("/report/Western%20Europe")) {
+                assertEquals(200, first.code());
+                assertEquals("MISS", first.header(ReportPipeline.CACHE_HEADER));
+                assertEquals("Name\nWestern Europe\n", first.body().string());
+            }
+            try (Response second = client.get("/report/Western%20Europe")) {
+                assertEquals(200, second.code());
+                assertEquals("HIT", second.header(ReportPipeline.CACHE_HEADER));
+                assertEquals("Name\nWestern Europe\n", second.body().string());
+                assertTrue(second.header("Content-Type").startsWith("text/csv"));
+                assertEquals("attachment; filename=\"r.csv\"",
+                    second.header("Content-Disposition"));
+            }
+        });
+
+        assertEquals(1, calls.get(), "Handler should only run once");
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("CSV and JSON negotiated via Accept are cached separately")
+    void acceptHeaderIsPartOfTheCacheKey() {
+        AtomicInteger calls = new AtomicInteger();
+        ReportPipeline pipeline = new ReportPipeline(new ResponseCache(10), null, null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/report", pipeline.wrap("R01", ctx -> {
+            calls.incrementAndGet();
+            ctx.contentType("text/csv");
+            ReportWriter.forRequest(ctx).columns("Name").text("World").endRow().send(ctx);
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response csv = client.get("/report")) {
+                assertEquals("Name\nWorld\n", csv.body().string());
+            }
+            Request json = new Request.Builder()
+                .url(client.getOrigin() + "/report")
+                .header("Accept", "application/json")
+                .build();
+            try (Response first = client.request(json)) {
+                assertEquals("MISS", first.header(ReportPipeline.CACHE_HEADER));
+                assertTrue(first.header("Content-Type").startsWith("application/json"));
+                assertEquals("[{\"Name\":\"World\"}]", first.body().string());
+            }
+            try (Response second = client.request(json)) {
+                assertEquals("HIT", second.header(ReportPipeline.CACHE_HEADER));
+                assertTrue(second.header("Content-Type").startsWith("application/json"));
+            }
+        });
+
+        assertEquals(2, calls.get(), "One render per format");
+    }
+
+    @Test
+    @DisplayName("NDJSON rows reach the client before the report is finished, with caching headers, uncached")
+    void ndjsonIsStreamedRowByRow() {
+        CountDownLatch firstRowRead = new CountDownLatch(1);
+        ResponseCache cache = new ResponseCache(10);
+        CacheHeaders headers = new CacheHeaders(new DataVersion(), CacheHeaders.Policy.DEFAULT, Map.of());
+        ReportPipeline pipeline = new ReportPipeline(cache, headers, null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/report", pipeline.wrap("R07", ctx -> {
+            ReportWriter out = ReportWriter.forRequest(ctx).columns("Name");
+            out.text("first").endRow();
+            // Only continues once the client has seen the first row.
+            assertTrue(firstRowRead.await(5, TimeUnit.SECONDS), "first row was not streamed");
+            out.text("second").endRow();
+            out.send(ctx);
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response res = client.get("/report?format=ndjson")) {
+                assertEquals(200, res.code());
+                assertTrue(res.header("Content-Type").startsWith("application/x-ndjson"));
+                assertNotNull(res.header("Cache-Control"), "set before the first row committed the response");
+                assertNotNull(res.header("Last-Modified"));
+                BufferedSource body = res.body().source();
+                assertEquals("{\"Name\":\"first\"}", body.readUtf8Line());
+                firstRowRead.countDown();
+                assertEquals("{\"Name\":\"second\"}", body.readUtf8Line());
+                assertNull(body.readUtf8Line());
+            }
+        });
+
+        assertEquals(0, cache.size(), "Streamed responses are not cached");
+    }
+
+    @Test
+    @DisplayName("A streamed report that fails before its first row is not marked cacheable")
+    void ndjsonFailureBeforeFirstRowDropsCachingHeaders() {
+        CacheHeaders headers = new CacheHeaders(new DataVersion(), CacheHeaders.Policy.DEFAULT, Map.of());
+        ReportPipeline pipeline = new ReportPipeline(null, headers, null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/report", pipeline.wrap("R07", ctx -> {
+            throw new DataAccessException("Database unavailable", null);
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response res = client.get("/report?format=ndjson")) {
+                assertEquals(503, res.code());
+                assertEquals("no-store", res.header("Cache-Control"));
+                assertNull(res.header("Last-Modified"));
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("A streamed report that fails mid-way ends with an error line")
+    void ndjsonFailureAfterFirstRowEndsWithErrorLine() {
+        ReportPipeline pipeline = new ReportPipeline(new ResponseCache(10), null, null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/report", pipeline.wrap("R07", ctx -> {
+            ReportWriter out = ReportWriter.forRequest(ctx).columns("Name");
+            out.text("first").endRow();
+            throw new DataAccessException("Database unavailable", null);
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response res = client.get("/report?format=ndjson")) {
+                assertEquals(200, res.code());
+                assertEquals("{\"Name\":\"first\"}\n{\"error\":\"Database unavailable\"}\n",
+                    res.body().string());
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Large reports are compressed once per data version and served compressed from the cache")
+    void compressedVariantIsCachedPerVersion() {
+        AtomicInteger calls = new AtomicInteger();
+        DataVersion version = new DataVersion();
+        ResponseCache cache = new ResponseCache(10, version);
+        ReportPipeline pipeline = new ReportPipeline(cache, null, null, null, null);
+        String csv = "Name,Population\n" + "Some City,123456\n".repeat(500);
+
+        Javalin app = Javalin.create(cfg -> cfg.compression.none());
+        app.get("/world", pipeline.wrap("R07", ctx -> {
+            calls.incrementAndGet();
+            ctx.contentType("text/csv").result(csv);
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            Request gzip = new Request.Builder()
+                .url(client.getOrigin() + "/world")
+                .header("Accept-Encoding", "gzip")
+                .build();
+            for (int i = 0; i < 3; i++) {
+                try (Response res = client.request(gzip)) {
+                    assertEquals("gzip", res.header("Content-Encoding"));
+                    assertEquals("Accept, Accept-Encoding", res.header("Vary"));
+                    byte[] body = res.body().bytes();
+                    assertTrue(body.length * 5 < csv.length());
+                    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                        assertEquals(csv, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+            assertEquals(1, cache.compressions(), "gzip variant is produced once");
+
+            Request deflate = new Request.Builder()
+                .url(client.getOrigin() + "/world")
+                .header("Accept-Encoding", "deflate")
+                .build();
+            try (Response res = client.request(deflate)) {
+                assertEquals("deflate", res.header("Content-Encoding"));
+            }
+            Request identity = new Request.Builder()
+                .url(client.getOrigin() + "/world")
+                .header("Accept-Encoding", "identity")
+                .build();
+            try (Response res = client.request(identity)) {
+                assertNull(res.header("Content-Encoding"));
+                assertEquals(csv, res.body().string());
+            }
+            assertEquals(2, cache.compressions());
+
+            version.bump("test");
+            try (Response res = client.request(gzip)) {
+                assertEquals("MISS", res.header(ReportPipeline.CACHE_HEADER));
+                assertEquals("gzip", res.header("Content-Encoding"));
+            }
+            assertEquals(3, cache.compressions(), "a new data version is compressed again");
+        });
+
+        assertEquals(2, calls.get());
+        assertTrue(cache.wireBytes() < cache.rawBytes());
+    }
+
+    @Test
+    @DisplayName("Small reports are sent uncompressed")
+    void smallReportsAreNotCompressed() {
+        ResponseCache cache = new ResponseCache(10);
+        ReportPipeline pipeline = new ReportPipeline(cache, null, null, null, null);
+
+        Javalin app = Javalin.create(cfg -> cfg.compression.none());
+        app.get("/small", pipeline.wrap("R26", ctx -> ctx.result("Name\nWorld\n")));
+
+        JavalinTest.test(app, (server, client) -> {
+            Request gzip = new Request.Builder()
+                .url(client.getOrigin() + "/small")
+                .header("Accept-Encoding", "gzip")
+                .build();
+            try (Response res = client.request(gzip)) {
+                assertNull(res.header("Content-Encoding"));
+                assertEquals("Name\nWorld\n", res.body().string());
+            }
+        });
+
+        assertEquals(0, cache.compressions());
+    }
+
+    @Test
+    @DisplayName("Non-200 responses are not cached")
+    void errorResponsesAreNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+        ReportPipeline pipeline = new ReportPipeline(new ResponseCache(10), null, null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/broken", pipeline.wrap("R07", ctx -> {
+            calls.incrementAndGet();
+            ctx.status(500).result("Database error");
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response first = client.get("/broken")) {
+                assertEquals(500, first.code());
+            }
+            try (Response second = client.get("/broken")) {
+                assertEquals(500, second.code());
+            }
+        });
+
+        assertEquals(2, calls.get());
+        assertEquals(0, pipeline.cache().size());
+    }
+
+    @Test
+    @DisplayName("Successful reports carry Cache-Control and Last-Modified; conditional requests get 304")
+    void cachingHeadersAndConditionalRequests() {
+        AtomicInteger calls = new AtomicInteger();
+        CacheHeaders headers = new CacheHeaders(new DataVersion(),
+            CacheHeaders.Policy.DEFAULT, Map.of("R26", new CacheHeaders.Policy(3600, 0, 0)));
+        ReportPipeline pipeline = new ReportPipeline(new ResponseCache(10), headers, null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/world", pipeline.wrap("R26", ctx -> {
+            calls.incrementAndGet();
+            ctx.result("World,1\n");
+        }));
+        app.get("/broken", pipeline.wrap("R01", ctx -> ctx.status(500).result("Database error")));
+
+        JavalinTest.test(app, (server, client) -> {
+            String lastModified;
+            try (Response res = client.get("/world")) {
+                assertEquals(200, res.code());
+                assertEquals("public, max-age=3600", res.header("Cache-Control"));
+                lastModified = res.header("Last-Modified");
+                assertNotNull(lastModified);
+            }
+
+            Request conditional = new Request.Builder()
+                .url("http://localhost:" + server.port() + "/world")
+                .header("If-Modified-Since", lastModified)
+                .build();
+            try (Response res = client.request(conditional)) {
+                assertEquals(304, res.code());
+                assertEquals(lastModified, res.header("Last-Modified"));
+            }
+
+            try (Response res = client.get("/broken")) {
+                assertEquals(500, res.code());
+                assertNull(res.header("Cache-Control"), "Errors must not be cacheable");
+            }
+        });
+
+        assertEquals(1, calls.get(), "304 must not render the report");
+    }
+
+    @Test
+    @DisplayName("Off-heap cache hits are streamed back byte-for-byte")
+    void offHeapHitsAreStreamed() {
+        String big = "Name,Population\n" + "Somewhere,12345\n".repeat(1000);
+        ResponseCache cache = new ResponseCache(10, new DataVersion(), 1024L * 1024L, 1024);
+        ReportPipeline pipeline = new ReportPipeline(cache, null, null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/world", pipeline.wrap("R07", ctx -> ctx.contentType("text/csv").result(big)));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response first = client.get("/world")) {
+                assertEquals(big, first.body().string());
+            }
+            try (Response second = client.get("/world")) {
+                assertEquals("HIT", second.header(ReportPipeline.CACHE_HEADER));
+                assertTrue(second.header("Content-Type").startsWith("text/csv"));
+                assertEquals(big, second.body().string());
+            }
+        });
+
+        assertEquals(2, cache.offHeapSize(), "The body and the gzip copy OkHttp asked for");
+    }
+
+    @Test
+    @DisplayName("DB outage serves the last good response with a Warning header")
+    void outageServesLastGoodResponse() {
+        DataVersion version = new DataVersion();
+        AtomicBoolean dbDown = new AtomicBoolean();
+        ReportPipeline pipeline = new ReportPipeline(new ResponseCache(10, version),
+            new CacheHeaders(version, CacheHeaders.Policy.DEFAULT, Map.of()), null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/world", pipeline.wrap("R01", ctx -> {
+            if (dbDown.get()) {
+                throw new DataAccessException("Database unavailable", null);
+            }
+            ctx.contentType("text/csv").result("Name\nWorld\n");
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response res = client.get("/world")) {
+                assertEquals(200, res.code());
+            }
+
+            // New data version (so the versioned cache misses) and the DB goes down.
+            version.bump("test");
+            dbDown.set(true);
+
+            try (Response res = client.get("/world")) {
+                assertEquals(200, res.code());
+                assertEquals("STALE", res.header(ReportPipeline.CACHE_HEADER));
+                assertEquals("111 - \"Revalidation Failed\"", res.header("Warning"));
+                assertNotNull(res.header("Age"));
+                assertEquals("no-cache", res.header("Cache-Control"));
+                assertEquals("Name\nWorld\n", res.body().string());
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("DB outage without a usable stale copy returns 503 with Retry-After")
+    void outageWithoutStaleCopyReturns503() {
+        DataVersion version = new DataVersion();
+        AtomicBoolean dbDown = new AtomicBoolean();
+        // stale-if-error of 0 means stale copies may never be served for R26
+        ReportPipeline pipeline = new ReportPipeline(new ResponseCache(10, version),
+            new CacheHeaders(version, CacheHeaders.Policy.DEFAULT,
+                Map.of("R26", new CacheHeaders.Policy(60, 0, 0))), null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/never", pipeline.wrap("R01", ctx -> {
+            throw new DataAccessException("Database unavailable", null);
+        }));
+        app.get("/world", pipeline.wrap("R26", ctx -> {
+            if (dbDown.get()) {
+                throw new DataAccessException("Database unavailable", null);
+            }
+            ctx.result("1");
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            try (Response res = client.get("/never")) {
+                assertEquals(503, res.code());
+                assertEquals(String.valueOf(ReportPipeline.RETRY_AFTER_SECONDS),
+                    res.header("Retry-After"));
+                assertEquals("no-store", res.header("Cache-Control"));
+            }
+
+            try (Response res = client.get("/world")) {
+                assertEquals(200, res.code());
+            }
+            version.bump("test");
+            dbDown.set(true);
+            try (Response res = client.get("/world")) {
+                assertEquals(503, res.code(), "Outside the stale-if-error window");
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("A query shed by the database limiter gets 503 busy, not a stale copy")
+    void limiterRejectionIsBusyNotOutage() {
+        AtomicBoolean overloaded = new AtomicBoolean();
+        ReportPipeline pipeline = new ReportPipeline(new ResponseCache(10), null, null, null, null);
+
+        Javalin app = Javalin.create();
+        app.get("/world", pipeline.wrap("R01", ctx -> {
+            if (overloaded.get()) {
+                throw new DataAccessException("Query failed", new DbOverloadedException(4));
+            }
+            ctx.result("Name\nWorld\n");
+        }));
+
+        JavalinTest.test(app, (server, client) -> {
+            client.get("/world?v=1").close();
+            overloaded.set(true);
+
+            try (Response res = client.get("/world?v=2")) {
+                assertEquals(503, res.code());
+                assertEquals(String.valueOf(DbGate.BUSY_RETRY_AFTER_SECONDS), res.header("Retry-After"));
+                assertEquals("Server busy; please retry shortly.\n", res.body().string());
+            }
+        });
+    }
+}
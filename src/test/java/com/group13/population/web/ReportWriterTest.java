@@ -0,0 +1,94 @@
+package com.group13.population.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.group13.population.columnar.ColumnarReader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ReportWriter}: the same calls render as CSV or as
+ * a JSON array of row objects.
+ */
+class ReportWriterTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static ReportWriter writeSample(ReportWriter out) {
+        return out.columns("Name", "Population", "Percent")
+            .text("Korea, South").number(46_844_000L).percent(12.345).endRow()
+            .text(null).number(0L).percent(100.0).endRow();
+    }
+
+    @Test
+    @DisplayName("CSV output has a header row and escaped fields")
+    void csvOutput() {
+        assertEquals("Name,Population,Percent\n"
+                + "\"Korea, South\",46844000,12.35\n"
+                + ",0,100.00\n",
+            writeSample(ReportWriter.csv()).toString());
+    }
+
+    @Test
+    @DisplayName("JSON output is an array of objects keyed by column name")
+    void jsonOutput() throws Exception {
+        ReportWriter out = writeSample(ReportWriter.forFormat(ReportFormat.JSON));
+
+        JsonNode json = MAPPER.readTree(out.toByteArray());
+
+        assertTrue(json.isArray());
+        assertEquals(2, json.size());
+        assertEquals("Korea, South", json.get(0).get("Name").asText());
+        assertEquals(46_844_000L, json.get(0).get("Population").asLong());
+        assertEquals(12.35, json.get(0).get("Percent").asDouble(), 1e-9);
+        assertTrue(json.get(1).get("Name").isNull());
+    }
+
+    @Test
+    @DisplayName("A JSON report with no rows is an empty array")
+    void jsonHeaderOnlyIsEmptyArray() {
+        ReportWriter out = ReportWriter.forFormat(ReportFormat.JSON).columns("Name");
+
+        assertEquals("[]", out.toString());
+        assertEquals("[]", out.toString(), "Finishing twice is harmless");
+    }
+
+    @Test
+    @DisplayName("The per-thread buffer is reused without leaking the previous document")
+    void bufferIsReused() {
+        writeSample(ReportWriter.forFormat(ReportFormat.JSON)).toByteArray();
+
+        ReportWriter next = ReportWriter.forFormat(ReportFormat.JSON)
+            .columns("Name").text("X").endRow();
+
+        assertEquals("[{\"Name\":\"X\"}]", next.toString());
+    }
+
+    @Test
+    @DisplayName("NDJSON output has one object per line and no enclosing array")
+    void ndjsonOutput() throws Exception {
+        String text = writeSample(ReportWriter.forFormat(ReportFormat.NDJSON)).toString();
+
+        String[] lines = text.split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(text.endsWith("\n"));
+        assertEquals("Korea, South", MAPPER.readTree(lines[0]).get("Name").asText());
+        assertEquals(0L, MAPPER.readTree(lines[1]).get("Population").asLong());
+    }
+
+    @Test
+    @DisplayName("Columnar output decodes back to the same rows")
+    void columnarOutput() {
+        ReportWriter out = writeSample(ReportWriter.forFormat(ReportFormat.COLUMNAR));
+
+        ColumnarReader table = ColumnarReader.read(out.toByteArray());
+
+        assertEquals(2, table.rowCount());
+        assertEquals("Korea, South", table.getText(0, table.columnIndex("Name")));
+        assertEquals(46_844_000L, table.getLong(0, table.columnIndex("Population")));
+        assertEquals(12.35, table.getDouble(0, table.columnIndex("Percent")), 1e-9);
+        assertNull(table.getText(1, 0));
+    }
+}
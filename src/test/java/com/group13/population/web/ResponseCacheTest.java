@@ -0,0 +1,221 @@
+package com.group13.population.web;
+
+import com.group13.population.cache.DataVersion;
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for {@link ResponseCache}: key normalisation, LRU eviction
+ * and hit/miss accounting.
+ */
+class ResponseCacheTest {
+
+    private static ResponseCache.CachedResponse body(String text) {
+        return new ResponseCache.CachedResponse(
+            "text/csv", null, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Keys decode the path but keep the query string")
+    void keyDecodesPathAndKeepsQuery() {
+        assertEquals("/api/countries/region/Western Europe/top?n=5",
+            ResponseCache.key("/api/countries/region/Western%20Europe/top", "n=5"));
+        assertEquals("/api/cities/world", ResponseCache.key("/api/cities/world", null));
+        assertEquals("/api/cities/world", ResponseCache.key("/api/cities/world", ""));
+    }
+
+    @Test
+    @DisplayName("A literal '+' in the path is not turned into a space")
+    void keyKeepsPlusInPath() {
+        assertEquals("/a+b", ResponseCache.key("/a+b", null));
+    }
+
+    @Test
+    @DisplayName("Malformed percent-encoding falls back to the raw path")
+    void keyFallsBackOnMalformedEncoding() {
+        assertEquals("/bad%zz", ResponseCache.key("/bad%zz", null));
+    }
+
+    @Test
+    @DisplayName("get() counts hits and misses")
+    void countsHitsAndMisses() {
+        ResponseCache cache = new ResponseCache(10);
+
+        assertNull(cache.get("/x"));
+        cache.put("/x", body("x"));
+        assertNotNull(cache.get("/x"));
+
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Least recently used entry is evicted once the cache is full")
+    void evictsLeastRecentlyUsed() {
+        ResponseCache cache = new ResponseCache(2);
+        cache.put("/a", body("a"));
+        cache.put("/b", body("b"));
+
+        cache.get("/a");            // /a is now most recently used
+        cache.put("/c", body("c")); // evicts /b
+
+        assertNotNull(cache.get("/a"));
+        assertNull(cache.get("/b"));
+        assertNotNull(cache.get("/c"));
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.maxEntries());
+    }
+
+    @Test
+    @DisplayName("clear() removes every entry")
+    void clearRemovesEverything() {
+        ResponseCache cache = new ResponseCache(5);
+        cache.put("/a", body("a"));
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    @DisplayName("Non-positive maxEntries is rejected")
+    void rejectsNonPositiveMaxEntries() {
+        assertThrows(IllegalArgumentException.class, () -> new ResponseCache(0));
+    }
+
+    @Test
+    @DisplayName("Cached response keeps a private copy of the body")
+    void cachedResponseCopiesBody() {
+        byte[] raw = "abc".getBytes(StandardCharsets.UTF_8);
+        ResponseCache.CachedResponse response =
+            new ResponseCache.CachedResponse("text/csv", "attachment", raw);
+        raw[0] = 'z';
+
+        assertEquals(3, response.length());
+        assertEquals("text/csv", response.getContentType());
+        assertEquals("attachment", response.getContentDisposition());
+    }
+
+    @Test
+    @DisplayName("Bumping the data version invalidates every cached response")
+    void dataVersionBumpInvalidates() {
+        DataVersion version = new DataVersion();
+        ResponseCache cache = new ResponseCache(10, version);
+        cache.put("/a", body("a"));
+        long before = cache.currentVersion();
+
+        version.bump("test");
+
+        assertNull(cache.get("/a"));
+        assertNotNull(cache.get(before, "/a"), "Stale entry only reachable via its old version");
+        assertEquals(before + 1, cache.currentVersion());
+    }
+
+    @Test
+    @DisplayName("Large bodies go to the off-heap tier within its byte budget")
+    void largeBodiesAreStoredOffHeap() throws Exception {
+        ResponseCache cache = new ResponseCache(10, new DataVersion(), 10L, 4);
+
+        cache.put("/small", body("abc"));
+        cache.put("/big1", body("123456"));
+        cache.put("/big2", body("abcdef"));
+
+        assertFalse(cache.get("/small").isOffHeap());
+        assertNull(cache.get("/big1"), "Evicted: two 6-byte bodies exceed the 10-byte budget");
+
+        ResponseCache.CachedResponse big = cache.get("/big2");
+        assertTrue(big.isOffHeap());
+        assertEquals(6, big.length());
+        assertEquals("text/csv", big.getContentType());
+        try (InputStream in = big.openStream()) {
+            assertEquals("abcdef", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        assertEquals(1, cache.offHeapSize());
+        assertEquals(6L, cache.offHeapBytes());
+        assertEquals(10L, cache.offHeapBudget());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Bodies larger than the whole off-heap budget stay on the heap")
+    void oversizedBodiesFallBackToHeap() {
+        ResponseCache cache = new ResponseCache(10, new DataVersion(), 4L, 1);
+
+        cache.put("/big", body("123456"));
+
+        assertFalse(cache.get("/big").isOffHeap());
+        assertEquals(0, cache.offHeapSize());
+    }
+
+    @Test
+    @DisplayName("Last good response survives a data-version bump")
+    void lastGoodSurvivesVersionBump() {
+        DataVersion version = new DataVersion();
+        ResponseCache cache = new ResponseCache(10, version, 1024L, 4);
+        cache.put("/small", body("a"));
+        cache.put("/big", body("abcdef"));
+        cache.put("/small", body("b"));
+
+        version.bump("test");
+
+        assertNull(cache.get("/small"));
+        assertEquals(1, cache.getLastGood("/small").length());
+        assertTrue(cache.getLastGood("/big").isOffHeap(), "Shares the off-heap copy");
+        assertTrue(cache.getLastGood("/big").ageSeconds() >= 0);
+        assertNull(cache.getLastGood("/missing"));
+
+        cache.clear();
+        assertNull(cache.getLastGood("/big"));
+    }
+
+    @Test
+    @DisplayName("Last good responses go when their tier evicts them")
+    void lastGoodDoesNotOutliveItsTier() {
+        ResponseCache cache = new ResponseCache(2);
+        cache.put("/a", body("a"));
+        cache.put("/b", body("b"));
+        cache.put("/c", body("c"));
+
+        assertNull(cache.getLastGood("/a"), "Evicted from the heap tier");
+        assertEquals(1, cache.getLastGood("/c").length());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    @DisplayName("Compressed copies live in the body's tier and count against its budget")
+    void compressedCopiesCountAgainstTheirTier() {
+        ResponseCache cache = new ResponseCache(10, new DataVersion(), 64 * 1024L, 1024);
+        ResponseCache.CachedResponse stored = cache.put("/big", body("Name,Population\n".repeat(200)));
+        assertTrue(stored.isOffHeap());
+        long plainBytes = cache.offHeapBytes();
+
+        Javalin app = Javalin.create(cfg -> cfg.compression.none());
+        app.get("/big", ctx -> cache.write(cache.get("/big"), ctx));
+        JavalinTest.test(app, (server, client) -> {
+            for (int i = 0; i < 2; i++) {
+                Request request = new Request.Builder()
+                    .url(client.getOrigin() + "/big")
+                    .header("Accept-Encoding", "gzip")
+                    .build();
+                try (Response res = client.getOkHttp().newCall(request).execute()) {
+                    assertEquals("gzip", res.header("Content-Encoding"));
+                }
+            }
+        });
+
+        assertEquals(1, cache.compressions(), "Compressed once, then served from the tier");
+        assertEquals(2, cache.offHeapSize(), "Body and gzip copy are both off-heap entries");
+        assertTrue(cache.offHeapBytes() > plainBytes, "The gzip copy is weighed");
+        assertEquals(2, cache.size());
+    }
+}
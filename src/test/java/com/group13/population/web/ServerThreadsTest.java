@@ -0,0 +1,81 @@
+package com.group13.population.web;
+
+import io.javalin.Javalin;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.Response;
+import org.eclipse.jetty.server.Server;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link ServerThreads}: in virtual mode each request runs on its
+ * own virtual thread, so far more requests can block at once than the
+ * platform pool has threads.
+ */
+class ServerThreadsTest {
+
+    private static Javalin app(ServerThreads.Mode mode, int maxThreads) {
+        Javalin app = Javalin.create(cfg ->
+            cfg.jetty.server(() -> new Server(ServerThreads.threadPool(mode, maxThreads))));
+        app.get("/thread", ctx -> ctx.result(String.valueOf(Thread.currentThread().isVirtual())));
+        return app;
+    }
+
+    @Test
+    @DisplayName("Mode parsing defaults to platform threads")
+    void parseMode() {
+        assertEquals(ServerThreads.Mode.VIRTUAL, ServerThreads.Mode.parse(" Virtual "));
+        assertEquals(ServerThreads.Mode.PLATFORM, ServerThreads.Mode.parse("platform"));
+        assertEquals(ServerThreads.Mode.PLATFORM, ServerThreads.Mode.parse(null));
+        assertEquals(ServerThreads.Mode.PLATFORM, ServerThreads.Mode.parse("loom"));
+    }
+
+    @Test
+    @DisplayName("Platform mode runs handlers on platform threads")
+    void platformMode() {
+        JavalinTest.test(app(ServerThreads.Mode.PLATFORM, 16), (server, client) -> {
+            try (Response res = client.get("/thread")) {
+                assertEquals("false", res.body().string());
+            }
+        });
+    }
+
+    @Test
+    @DisplayName("Virtual mode blocks many more requests at once than the pool has threads")
+    void virtualModeIsNotBoundByThePool() {
+        int requests = 64;
+        CountDownLatch allInside = new CountDownLatch(requests);
+        Javalin app = app(ServerThreads.Mode.VIRTUAL, 8);
+        // Every handler blocks until all of them are running at the same time.
+        app.get("/blocking", ctx -> {
+            allInside.countDown();
+            boolean together = allInside.await(10, TimeUnit.SECONDS);
+            ctx.result(together + "," + Thread.currentThread().isVirtual());
+        });
+
+        JavalinTest.test(app, (server, client) -> {
+            HttpClient http = HttpClient.newHttpClient();
+            List<CompletableFuture<HttpResponse<String>>> pending = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                pending.add(http.sendAsync(
+                    HttpRequest.newBuilder(URI.create(client.getOrigin() + "/blocking")).build(),
+                    HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : pending) {
+                assertEquals("true,true", response.get(20, TimeUnit.SECONDS).body());
+            }
+        });
+    }
+}